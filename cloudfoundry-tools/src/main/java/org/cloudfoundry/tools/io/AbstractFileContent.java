@@ -15,6 +15,8 @@
  */
 package org.cloudfoundry.tools.io;
 
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -23,6 +25,12 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 import org.cloudfoundry.tools.io.exception.ResourceException;
 import org.springframework.util.Assert;
@@ -35,6 +43,8 @@ import org.springframework.util.FileCopyUtils;
  */
 public abstract class AbstractFileContent implements FileContent {
 
+	private static final long TRANSFER_SIZE = 8 * 1024 * 1024;
+
 	@Override
 	public Reader asReader() {
 		return asReader(DEFAULT_ENCODING);
@@ -59,8 +69,8 @@ public abstract class AbstractFileContent implements FileContent {
 	public String asString(String encoding) throws ResourceException {
 		Assert.notNull(encoding, "Encoding must not be null");
 		try {
-			return FileCopyUtils.copyToString(asReader(encoding));
-		} catch (IOException e) {
+			return new String(asBytes(), encoding);
+		} catch (UnsupportedEncodingException e) {
 			throw new ResourceException(e);
 		}
 	}
@@ -68,7 +78,7 @@ public abstract class AbstractFileContent implements FileContent {
 	@Override
 	public byte[] asBytes() throws ResourceException {
 		try {
-			return FileCopyUtils.copyToByteArray(asInputStream());
+			return ByteBufferPool.getHeapPool().copyToByteArray(asInputStream());
 		} catch (IOException e) {
 			throw new ResourceException(e);
 		}
@@ -77,13 +87,19 @@ public abstract class AbstractFileContent implements FileContent {
 	@Override
 	public void copyTo(OutputStream outputStream) throws ResourceException {
 		Assert.notNull(outputStream, "OutputStream must not be null");
-		try {
-			FileCopyUtils.copy(asInputStream(), outputStream);
-		} catch (IOException e) {
-			throw new ResourceException(e);
+		if (outputStream instanceof FileOutputStream) {
+			copyTo(((FileOutputStream) outputStream).getChannel());
+		} else {
+			copyTo(Channels.newChannel(outputStream));
 		}
 	}
 
+	@Override
+	public void copyTo(WritableByteChannel channel) throws ResourceException {
+		Assert.notNull(channel, "Channel must not be null");
+		copy(asReadableChannel(), channel);
+	}
+
 	@Override
 	public void copyTo(Writer writer) throws ResourceException {
 		Assert.notNull(writer, "Writer must not be null");
@@ -112,19 +128,25 @@ public abstract class AbstractFileContent implements FileContent {
 	@Override
 	public void write(File file) {
 		Assert.notNull(file, "File must not be null");
-		write(file.getContent().asInputStream());
+		write(file.getContent().asReadableChannel());
 	}
 
 	@Override
 	public void write(InputStream inputStream) throws ResourceException {
 		Assert.notNull(inputStream, "InputStream must not be null");
-		try {
-			FileCopyUtils.copy(inputStream, asOutputStream());
-		} catch (IOException e) {
-			throw new ResourceException(e);
+		if (inputStream instanceof FileInputStream) {
+			write(((FileInputStream) inputStream).getChannel());
+		} else {
+			write(Channels.newChannel(inputStream));
 		}
 	}
 
+	@Override
+	public void write(ReadableByteChannel channel) throws ResourceException {
+		Assert.notNull(channel, "Channel must not be null");
+		copy(channel, asWritableChannel());
+	}
+
 	@Override
 	public void write(Reader reader) throws ResourceException {
 		Assert.notNull(reader, "Reader must not be null");
@@ -159,9 +181,129 @@ public abstract class AbstractFileContent implements FileContent {
 		}
 	}
 
+	@Override
+	public InputStream asInputStream(long offset, long length) {
+		return new RangeInputStream(asInputStream(), offset, length);
+	}
+
+	@Override
+	public int read(long position, ByteBuffer buffer) throws ResourceException {
+		Assert.notNull(buffer, "Buffer must not be null");
+		if (!buffer.hasRemaining()) {
+			return 0;
+		}
+		ReadableByteChannel channel = Channels.newChannel(asInputStream(position, buffer.remaining()));
+		try {
+			int total = 0;
+			while (buffer.hasRemaining()) {
+				int read = channel.read(buffer);
+				if (read == -1) {
+					return (total == 0 ? -1 : total);
+				}
+				total += read;
+			}
+			return total;
+		} catch (IOException e) {
+			throw new ResourceException(e);
+		} finally {
+			close(channel);
+		}
+	}
+
+	@Override
+	public ReadableByteChannel asReadableChannel() throws ResourceException {
+		return Channels.newChannel(asInputStream());
+	}
+
+	@Override
+	public WritableByteChannel asWritableChannel() throws ResourceException {
+		return Channels.newChannel(asOutputStream());
+	}
+
 	@Override
 	public abstract InputStream asInputStream();
 
 	@Override
 	public abstract OutputStream asOutputStream();
+
+	/**
+	 * Copy all content from one channel to another, closing both channels when complete. {@link FileChannel}s are
+	 * transferred directly, allowing the operating system to avoid copying content through user space. Other channels
+	 * are copied using pooled direct buffers. Failures when closing the destination are reported since some
+	 * destinations only complete the write when closed.
+	 * 
+	 * @param in the source channel
+	 * @param out the destination channel
+	 */
+	private static void copy(ReadableByteChannel in, WritableByteChannel out) {
+		try {
+			boolean copied = false;
+			try {
+				if (in instanceof FileChannel) {
+					transferTo((FileChannel) in, out);
+				} else if (out instanceof FileChannel) {
+					transferFrom(in, (FileChannel) out);
+				} else {
+					copyUsingBuffer(in, out);
+				}
+				copied = true;
+			} finally {
+				close(in);
+				if (!copied) {
+					close(out);
+				}
+			}
+			out.close();
+		} catch (IOException e) {
+			throw new ResourceException(e);
+		}
+	}
+
+	private static void transferTo(FileChannel in, WritableByteChannel out) throws IOException {
+		long position = in.position();
+		long size = in.size();
+		while (position < size) {
+			long transferred = in.transferTo(position, size - position, out);
+			if (transferred <= 0) {
+				in.position(position);
+				copyUsingBuffer(in, out);
+				return;
+			}
+			position += transferred;
+		}
+	}
+
+	private static void transferFrom(ReadableByteChannel in, FileChannel out) throws IOException {
+		long position = out.position();
+		long transferred = out.transferFrom(in, position, TRANSFER_SIZE);
+		while (transferred > 0) {
+			position += transferred;
+			transferred = out.transferFrom(in, position, TRANSFER_SIZE);
+		}
+		// A transfer may end early if the source returns no content, copy anything that remains
+		out.position(position);
+		copyUsingBuffer(in, out);
+	}
+
+	private static void copyUsingBuffer(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		ByteBuffer buffer = ByteBufferPool.getDirectPool().acquire();
+		try {
+			while (in.read(buffer) != -1) {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					out.write(buffer);
+				}
+				buffer.clear();
+			}
+		} finally {
+			ByteBufferPool.getDirectPool().release(buffer);
+		}
+	}
+
+	private static void close(Channel channel) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+		}
+	}
 }
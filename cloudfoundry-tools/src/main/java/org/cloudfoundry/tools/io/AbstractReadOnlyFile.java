@@ -119,6 +119,11 @@ public abstract class AbstractReadOnlyFile implements File {
 		return 0;
 	}
 
+	@Override
+	public ContentDigest getDigest() throws ResourceDoesNotExistException {
+		return ContentDigest.calculate(getContent().asInputStream());
+	}
+
 	@Override
 	public FileContent getContent() {
 		return this.content;
@@ -17,8 +17,18 @@ package org.cloudfoundry.tools.io;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.cloudfoundry.tools.io.exception.ResourceException;
 import org.springframework.util.Assert;
 
 /**
@@ -29,6 +39,8 @@ import org.springframework.util.Assert;
  */
 public abstract class AbstractResources<T extends Resource> implements Resources<T> {
 
+	private static final ThreadFactory OPERATION_THREAD_FACTORY = new DaemonThreadFactory("resource-operation-");
+
 	private final ResourceFilterContext resourceFilterContext = new ResourceFilterContext() {
 
 		@Override
@@ -41,6 +53,18 @@ public abstract class AbstractResources<T extends Resource> implements Resources
 		return this.resourceFilterContext;
 	}
 
+	/**
+	 * Returns an iterator that may skip any resources that do not match the specified {@link NameRestriction}.
+	 * Subclasses that can push the restriction down to an underlying store should override this method, the default
+	 * implementation ignores the restriction. Callers must still filter the results.
+	 * 
+	 * @param restriction the name restriction or <tt>null</tt>
+	 * @return an iterator
+	 */
+	protected Iterator<T> iterator(NameRestriction restriction) {
+		return iterator();
+	}
+
 	@Override
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public Resources<File> files() {
@@ -122,6 +146,82 @@ public abstract class AbstractResources<T extends Resource> implements Resources
 		return operation;
 	}
 
+	@Override
+	public <OPERATION extends CombinableResourceOperation<T, OPERATION>> OPERATION performParallelOperation(
+			OPERATION operation, int parallelism) {
+		Assert.isTrue(parallelism > 0, "Parallelism must be positive");
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, OPERATION_THREAD_FACTORY);
+		try {
+			return performParallelOperation(operation, executor, parallelism);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Override
+	public <OPERATION extends CombinableResourceOperation<T, OPERATION>> OPERATION performParallelOperation(
+			OPERATION operation, Executor executor, int parallelism) {
+		Assert.notNull(operation, "Operation must not be null");
+		Assert.notNull(executor, "Executor must not be null");
+		Assert.isTrue(parallelism > 0, "Parallelism must be positive");
+		final Iterator<T> iterator = iterator();
+		final AtomicBoolean failed = new AtomicBoolean();
+		List<FutureTask<OPERATION>> tasks = new ArrayList<FutureTask<OPERATION>>(parallelism);
+		for (int i = 0; i < parallelism; i++) {
+			final OPERATION split = operation.split();
+			FutureTask<OPERATION> task = new FutureTask<OPERATION>(new Callable<OPERATION>() {
+
+				@Override
+				public OPERATION call() throws Exception {
+					try {
+						T resource = next();
+						while (resource != null) {
+							split.perform(resource);
+							resource = next();
+						}
+						return split;
+					} catch (RuntimeException e) {
+						failed.set(true);
+						throw e;
+					} catch (Error e) {
+						failed.set(true);
+						throw e;
+					}
+				}
+
+				private T next() {
+					synchronized (iterator) {
+						return (!failed.get() && iterator.hasNext() ? iterator.next() : null);
+					}
+				}
+			});
+			tasks.add(task);
+			executor.execute(task);
+		}
+		for (FutureTask<OPERATION> task : tasks) {
+			operation.merge(getResult(task));
+		}
+		return operation;
+	}
+
+	private <OPERATION> OPERATION getResult(FutureTask<OPERATION> task) {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ResourceException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new ResourceException(cause);
+		}
+	}
+
 	@Override
 	public List<T> asList() {
 		List<T> all = new ArrayList<T>();
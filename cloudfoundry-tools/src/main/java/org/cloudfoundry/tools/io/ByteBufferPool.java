@@ -0,0 +1,225 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.Assert;
+
+/**
+ * A bounded pool of fixed size {@link ByteBuffer}s that can be reused for I/O. Buffers that are
+ * {@link #release(ByteBuffer) released} when the pool is full are left for garbage collection. Pools can optionally
+ * cache a single buffer per thread so that repeated copies on the same thread do not contend on the shared pool.
+ * Shared {@link #getHeapPool() heap} and {@link #getDirectPool() direct} pools are used for all copies performed by
+ * the io package. Allocation counters are maintained so that the effectiveness of a pool can be monitored. This
+ * class is thread-safe.
+ * 
+ * @author Phillip Webb
+ */
+public class ByteBufferPool {
+
+	/**
+	 * The buffer size used by the shared pools.
+	 */
+	public static final int SHARED_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The maximum number of buffers retained by each shared pool, in addition to those cached by threads.
+	 */
+	public static final int SHARED_MAX_POOLED = 16;
+
+	private static final ByteBufferPool HEAP_POOL = new ByteBufferPool(SHARED_BUFFER_SIZE, SHARED_MAX_POOLED, false,
+			true);
+
+	private static final ByteBufferPool DIRECT_POOL = new ByteBufferPool(SHARED_BUFFER_SIZE, SHARED_MAX_POOLED, true,
+			true);
+
+	private final int bufferSize;
+
+	private final boolean direct;
+
+	private final BlockingQueue<ByteBuffer> buffers;
+
+	private final ThreadLocal<ByteBuffer> threadBuffer;
+
+	private final AtomicLong acquiredCount = new AtomicLong();
+
+	private final AtomicLong allocatedCount = new AtomicLong();
+
+	/**
+	 * Create a new {@link ByteBufferPool} instance without thread caching.
+	 * 
+	 * @param bufferSize the size of each buffer
+	 * @param maxPooled the maximum number of buffers that are retained by the pool
+	 * @param direct if direct buffers should be allocated
+	 */
+	public ByteBufferPool(int bufferSize, int maxPooled, boolean direct) {
+		this(bufferSize, maxPooled, direct, false);
+	}
+
+	/**
+	 * Create a new {@link ByteBufferPool} instance.
+	 * 
+	 * @param bufferSize the size of each buffer
+	 * @param maxPooled the maximum number of buffers that are retained by the pool
+	 * @param direct if direct buffers should be allocated
+	 * @param threadCached if a single released buffer should be cached for each thread. Cached buffers are not
+	 * counted against <tt>maxPooled</tt>
+	 */
+	public ByteBufferPool(int bufferSize, int maxPooled, boolean direct, boolean threadCached) {
+		Assert.isTrue(bufferSize > 0, "BufferSize must be positive");
+		Assert.isTrue(maxPooled > 0, "MaxPooled must be positive");
+		this.bufferSize = bufferSize;
+		this.direct = direct;
+		this.buffers = new ArrayBlockingQueue<ByteBuffer>(maxPooled);
+		this.threadBuffer = (threadCached ? new ThreadLocal<ByteBuffer>() : null);
+	}
+
+	/**
+	 * Acquire a cleared buffer from the pool, allocating a new buffer if the pool is empty. Buffers should be
+	 * {@link #release(ByteBuffer) released} when no longer required.
+	 * 
+	 * @return a buffer
+	 */
+	public ByteBuffer acquire() {
+		this.acquiredCount.incrementAndGet();
+		ByteBuffer buffer = null;
+		if (this.threadBuffer != null) {
+			buffer = this.threadBuffer.get();
+			this.threadBuffer.remove();
+		}
+		if (buffer == null) {
+			buffer = this.buffers.poll();
+		}
+		if (buffer == null) {
+			this.allocatedCount.incrementAndGet();
+			return (this.direct ? ByteBuffer.allocateDirect(this.bufferSize) : ByteBuffer.allocate(this.bufferSize));
+		}
+		return buffer;
+	}
+
+	/**
+	 * Return a buffer to the pool. The buffer must not be used after it has been released.
+	 * 
+	 * @param buffer the buffer to release (may be <tt>null</tt>)
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer != null && buffer.capacity() == this.bufferSize && buffer.isDirect() == this.direct) {
+			buffer.clear();
+			if (this.threadBuffer != null && this.threadBuffer.get() == null) {
+				this.threadBuffer.set(buffer);
+			} else {
+				this.buffers.offer(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Read the remaining content of an input stream into a byte array using a pooled buffer. Content that fits within
+	 * a single buffer is copied into an exactly sized array without any intermediate allocation. The input stream is
+	 * closed when complete. This method can only be used with heap pools.
+	 * 
+	 * @param inputStream the input stream to read
+	 * @return the content
+	 * @throws IOException on read error
+	 */
+	public byte[] copyToByteArray(InputStream inputStream) throws IOException {
+		Assert.notNull(inputStream, "InputStream must not be null");
+		Assert.state(!this.direct, "Byte arrays can only be copied using a heap pool");
+		ByteBuffer buffer = acquire();
+		try {
+			byte[] bytes = buffer.array();
+			int length = 0;
+			int read = 0;
+			while (length < bytes.length && (read = inputStream.read(bytes, length, bytes.length - length)) != -1) {
+				length += read;
+			}
+			if (length < bytes.length) {
+				return Arrays.copyOf(bytes, length);
+			}
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length * 2);
+			outputStream.write(bytes, 0, length);
+			while ((read = inputStream.read(bytes)) != -1) {
+				outputStream.write(bytes, 0, read);
+			}
+			return outputStream.toByteArray();
+		} finally {
+			release(buffer);
+			try {
+				inputStream.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * Returns the size of the buffers in the pool.
+	 * 
+	 * @return the buffer size
+	 */
+	public int getBufferSize() {
+		return this.bufferSize;
+	}
+
+	/**
+	 * Returns the total number of times that a buffer has been {@link #acquire() acquired} from the pool.
+	 * 
+	 * @return the acquired count
+	 */
+	public long getAcquiredCount() {
+		return this.acquiredCount.get();
+	}
+
+	/**
+	 * Returns the total number of buffers that have been allocated because no pooled buffer was available.
+	 * 
+	 * @return the allocated count
+	 */
+	public long getAllocatedCount() {
+		return this.allocatedCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return (this.direct ? "Direct" : "Heap") + " ByteBufferPool (" + this.bufferSize + " bytes, "
+				+ getAcquiredCount() + " acquired, " + getAllocatedCount() + " allocated)";
+	}
+
+	/**
+	 * Returns the shared pool of heap buffers.
+	 * 
+	 * @return the shared heap pool
+	 */
+	public static ByteBufferPool getHeapPool() {
+		return HEAP_POOL;
+	}
+
+	/**
+	 * Returns the shared pool of direct buffers.
+	 * 
+	 * @return the shared direct pool
+	 */
+	public static ByteBufferPool getDirectPool() {
+		return DIRECT_POOL;
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+/**
+ * A {@link ResourceOperation} that can be split into independent parts that are later merged. Allows the operation to
+ * be {@link Resources#performParallelOperation(CombinableResourceOperation, int) performed in parallel}, with each
+ * worker thread using its own {@link #split() split} instance. Implementations must produce the same result regardless
+ * of how resources are divided between split instances or the order that they are merged.
+ * 
+ * @author Phillip Webb
+ * @param <T> The resource type that the operation works with
+ * @param <O> The operation type
+ * @see Resources#performParallelOperation(CombinableResourceOperation, int)
+ */
+public interface CombinableResourceOperation<T extends Resource, O extends CombinableResourceOperation<T, O>> extends
+		ResourceOperation<T> {
+
+	/**
+	 * Create a new empty instance of the operation that can be performed independently of this one.
+	 * 
+	 * @return a new operation instance
+	 */
+	O split();
+
+	/**
+	 * Merge the result of a {@link #split() split} operation into this operation.
+	 * 
+	 * @param operation the operation to merge
+	 */
+	void merge(O operation);
+}
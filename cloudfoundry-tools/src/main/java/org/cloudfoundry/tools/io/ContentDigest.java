@@ -0,0 +1,188 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.cloudfoundry.tools.io.exception.ResourceException;
+import org.springframework.util.Assert;
+
+/**
+ * A digest of {@link File#getContent() file content}. Digests can be compared to determine if content has changed
+ * and can be used as entity tags. Only {@link #MD5} digests are {@link #isStrong() strong}, other algorithms are easy
+ * to collide and produce weak entity tags. Digests are only equal when they use the same {@link #getAlgorithm()
+ * algorithm}.
+ * 
+ * @author Phillip Webb
+ * @see File#getDigest()
+ */
+public final class ContentDigest {
+
+	/**
+	 * The MD5 algorithm, used for calculated digests and by GridFS.
+	 */
+	public static final String MD5 = "MD5";
+
+	/**
+	 * The CRC32 algorithm, used by zip entries.
+	 */
+	public static final String CRC32 = "CRC32";
+
+	private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+	private final String algorithm;
+
+	private final String value;
+
+	/**
+	 * Create a new {@link ContentDigest} instance.
+	 * 
+	 * @param algorithm the algorithm used to create the digest
+	 * @param value the digest value as a hex string
+	 */
+	public ContentDigest(String algorithm, String value) {
+		Assert.hasLength(algorithm, "Algorithm must not be empty");
+		Assert.hasLength(value, "Value must not be empty");
+		this.algorithm = algorithm;
+		this.value = value.toLowerCase();
+	}
+
+	/**
+	 * Create a new {@link ContentDigest} instance from raw digest bytes.
+	 * 
+	 * @param algorithm the algorithm used to create the digest
+	 * @param digest the digest bytes
+	 */
+	public ContentDigest(String algorithm, byte[] digest) {
+		this(algorithm, toHex(digest));
+	}
+
+	/**
+	 * Returns the algorithm used to create the digest.
+	 * 
+	 * @return the algorithm
+	 */
+	public String getAlgorithm() {
+		return this.algorithm;
+	}
+
+	/**
+	 * Returns the digest value as a lower case hex string.
+	 * 
+	 * @return the value
+	 */
+	public String getValue() {
+		return this.value;
+	}
+
+	/**
+	 * Returns if the digest is strong enough to identify content byte for byte. Only {@link #MD5} digests are strong.
+	 * 
+	 * @return if the digest is strong
+	 */
+	public boolean isStrong() {
+		return MD5.equals(this.algorithm);
+	}
+
+	/**
+	 * Returns the digest as a quoted entity tag suitable for use with an HTTP <tt>ETag</tt> header. The tag is prefixed
+	 * with <tt>W/</tt> unless the digest is {@link #isStrong() strong}.
+	 * 
+	 * @return the entity tag
+	 */
+	public String getETag() {
+		String tag = "\"" + this.algorithm.toLowerCase() + "-" + this.value + "\"";
+		return (isStrong() ? tag : "W/" + tag);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.algorithm.hashCode() * 31 + this.value.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		ContentDigest other = (ContentDigest) obj;
+		return this.algorithm.equals(other.algorithm) && this.value.equals(other.value);
+	}
+
+	@Override
+	public String toString() {
+		return this.algorithm + ":" + this.value;
+	}
+
+	/**
+	 * Create a {@link #CRC32} digest from a checksum value.
+	 * 
+	 * @param crc the checksum value
+	 * @return the digest
+	 */
+	public static ContentDigest crc32(long crc) {
+		Assert.isTrue(crc >= 0, "CRC must not be negative");
+		String value = Long.toHexString(crc);
+		return new ContentDigest(CRC32, "00000000".substring(value.length()) + value);
+	}
+
+	/**
+	 * Calculate a {@link #MD5} digest by reading the specified input stream. The stream is closed once it has been
+	 * read.
+	 * 
+	 * @param inputStream the input stream to read
+	 * @return the digest
+	 */
+	public static ContentDigest calculate(InputStream inputStream) {
+		Assert.notNull(inputStream, "InputStream must not be null");
+		ByteBufferPool pool = ByteBufferPool.getHeapPool();
+		ByteBuffer buffer = pool.acquire();
+		try {
+			try {
+				MessageDigest messageDigest = MessageDigest.getInstance(MD5);
+				int read;
+				while ((read = inputStream.read(buffer.array())) != -1) {
+					messageDigest.update(buffer.array(), 0, read);
+				}
+				return new ContentDigest(MD5, messageDigest.digest());
+			} finally {
+				pool.release(buffer);
+				inputStream.close();
+			}
+		} catch (IOException e) {
+			throw new ResourceException(e);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		Assert.notNull(bytes, "Digest must not be null");
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX_CHARS[(bytes[i] >> 4) & 0xF];
+			chars[i * 2 + 1] = HEX_CHARS[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+}
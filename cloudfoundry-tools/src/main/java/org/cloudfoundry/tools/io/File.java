@@ -51,6 +51,16 @@ public interface File extends Resource {
 	 */
 	long getLastModified();
 
+	/**
+	 * Returns a digest of the file content that can be used to detect changes or as an entity tag. Where possible the
+	 * digest is obtained from the underlying store without reading the content, otherwise an {@link ContentDigest#MD5
+	 * MD5} digest is calculated.
+	 * 
+	 * @return the content digest
+	 * @throws ResourceDoesNotExistException if the resource does not exist
+	 */
+	ContentDigest getDigest() throws ResourceDoesNotExistException;
+
 	/**
 	 * Update the {@link #getLastModified() last modified timestamp} of the file to now.
 	 * 
@@ -19,6 +19,9 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 import org.cloudfoundry.tools.io.exception.ResourceException;
 
@@ -40,6 +43,28 @@ public interface FileContent {
 	 */
 	InputStream asInputStream();
 
+	/**
+	 * Return an {@link InputStream} that can be used to access a range of the file contents. The stream will end early
+	 * if the file is shorter than the requested range. Implementations avoid reading the bytes before the range when
+	 * possible. The stream should be closed by the caller.
+	 * 
+	 * @param offset the offset of the first byte to read
+	 * @param length the maximum number of bytes to read
+	 * @return The file contents {@link InputStream}
+	 */
+	InputStream asInputStream(long offset, long length);
+
+	/**
+	 * Read file contents starting at the specified position into a buffer. Bytes are read until the buffer is full or
+	 * the end of the file is reached.
+	 * 
+	 * @param position the file position to read from
+	 * @param buffer the buffer to read into
+	 * @return the number of bytes read or <tt>-1</tt> if the position is at or beyond the end of the file
+	 * @throws ResourceException
+	 */
+	int read(long position, ByteBuffer buffer) throws ResourceException;
+
 	/**
 	 * Return a {@link Reader} that can be used to access file contents. This method can be called multiple times if
 	 * required. The reader should be closed by the caller.
@@ -103,6 +128,34 @@ public interface FileContent {
 	 */
 	void copyTo(Writer writer) throws ResourceException;
 
+	/**
+	 * Copy the contents of the file to a channel, closing the channel when complete. When both the file and the
+	 * channel are backed by the file system or a socket the content will be transferred without copying.
+	 * 
+	 * @param channel the channel to write to
+	 * @throws ResourceException
+	 */
+	void copyTo(WritableByteChannel channel) throws ResourceException;
+
+	/**
+	 * Return a {@link ReadableByteChannel} that can be used to access file contents. This method can be called
+	 * multiple times if required. The channel should be closed by the caller.
+	 * 
+	 * @return the file contents {@link ReadableByteChannel}
+	 * @throws ResourceException
+	 */
+	ReadableByteChannel asReadableChannel() throws ResourceException;
+
+	/**
+	 * Return a {@link WritableByteChannel} that can be used to write file contents. The channel should be closed by the
+	 * caller. When possible, consider using the {@link #write(ReadableByteChannel)} method instead to ensure that
+	 * channels are closed.
+	 * 
+	 * @return the file contents {@link WritableByteChannel}
+	 * @throws ResourceException
+	 */
+	WritableByteChannel asWritableChannel() throws ResourceException;
+
 	/**
 	 * Return an {@link OutputStream} that can be used to write file contents. The output stream should be closed by the
 	 * caller. When possible, consider using the {@link #write(InputStream)} method instead to ensure that streams are
@@ -146,6 +199,14 @@ public interface FileContent {
 	 */
 	void write(InputStream inputStream) throws ResourceException;
 
+	/**
+	 * Write the contents of the specified channel to this file, closing the channel when complete.
+	 * 
+	 * @param channel the channel to write
+	 * @throws ResourceException
+	 */
+	void write(ReadableByteChannel channel) throws ResourceException;
+
 	/**
 	 * Write the contents of the specified reader to this file, closing the reader when complete.
 	 * 
@@ -16,7 +16,11 @@
 package org.cloudfoundry.tools.io;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
@@ -24,7 +28,8 @@ import org.springframework.util.Assert;
 /**
  * Builder class that can be used to easily construct {@link ResourceFilter}s. Filters can be built for {@link File}s,
  * {@link Folder}s or {@link Resource}s with matching performed on {@link Resource#getName() names} or
- * {@link Resource#toString() paths}. Builders can be chained together to form compound (AND) matches.
+ * {@link Resource#toString() paths}. Builders can be chained together to form compound (AND) matches. Filters can be
+ * {@link #compile(ResourceFilter...) compiled} to reduce the cost of matching large numbers of resources.
  * 
  * @author Phillip Webb
  * @see ResourceFilter
@@ -37,19 +42,34 @@ public abstract class FilterOn {
 
 	private static final AntPathMatcher ANT_PATH_MATCHER = new AntPathMatcher();
 
+	private static final int NAME_COST = 0;
+
+	private static final int DEFAULT_COST = 1;
+
+	private static final int PATH_COST = 2;
+
+	private static final int PATTERN_COST = 3;
+
+	private static final ResourceAttribute NAMES = new NameAttribute(false);
+
+	private static final ResourceAttribute CASE_SENSITIVE_NAMES = new NameAttribute(true);
+
+	private static final ResourceAttribute RELATIVE_PATHS = new PathAttribute(PathStyle.RELATIVE_TO_SOURCE, true);
+
+	private static final ResourceAttribute FULL_PATHS = new PathAttribute(PathStyle.FULL, true);
+
+	private static final ResourceAttribute CASE_SENSITIVE_RELATIVE_PATHS = new PathAttribute(
+			PathStyle.RELATIVE_TO_SOURCE, false);
+
+	private static final ResourceAttribute CASE_SENSITIVE_FULL_PATHS = new PathAttribute(PathStyle.FULL, false);
+
 	/**
 	 * Start filtering based on {@link Resource} {@link Folder#getName() names}. NOTE: matching is case insensitive.
 	 * 
 	 * @return the filter
 	 */
 	public static AttributeFilter names() {
-		return getFor(new ResourceAttribute(false) {
-
-			@Override
-			public String get(ResourceFilterContext context, Resource resource) {
-				return resource.getName();
-			}
-		});
+		return getFor(NAMES);
 	}
 
 	/**
@@ -58,13 +78,7 @@ public abstract class FilterOn {
 	 * @return the filter
 	 */
 	public static AttributeFilter caseSensitiveNames() {
-		return getFor(new ResourceAttribute(true) {
-
-			@Override
-			public String get(ResourceFilterContext context, Resource resource) {
-				return resource.getName();
-			}
-		});
+		return getFor(CASE_SENSITIVE_NAMES);
 	}
 
 	/**
@@ -83,15 +97,8 @@ public abstract class FilterOn {
 	 * @param pathStyle the path match style
 	 * @return the filter
 	 */
-	public static AttributeFilter paths(final PathStyle pathStyle) {
-		return getFor(new ResourceAttribute(true) {
-
-			@Override
-			public String get(ResourceFilterContext context, Resource resource) {
-				return PathStyle.FULL.equals(pathStyle) ? resource.toString() : resource.toStringRelativeTo(context
-						.getSource());
-			}
-		});
+	public static AttributeFilter paths(PathStyle pathStyle) {
+		return getFor(PathStyle.FULL.equals(pathStyle) ? FULL_PATHS : RELATIVE_PATHS);
 	}
 
 	/**
@@ -110,15 +117,8 @@ public abstract class FilterOn {
 	 * @param pathStyle the path style
 	 * @return the filter
 	 */
-	public static AttributeFilter caseSensitivePaths(final PathStyle pathStyle) {
-		return getFor(new ResourceAttribute(false) {
-
-			@Override
-			public String get(ResourceFilterContext context, Resource resource) {
-				return PathStyle.FULL.equals(pathStyle) ? resource.toString() : resource.toStringRelativeTo(context
-						.getSource());
-			}
-		});
+	public static AttributeFilter caseSensitivePaths(PathStyle pathStyle) {
+		return getFor(PathStyle.FULL.equals(pathStyle) ? CASE_SENSITIVE_FULL_PATHS : CASE_SENSITIVE_RELATIVE_PATHS);
 	}
 
 	/**
@@ -168,7 +168,7 @@ public abstract class FilterOn {
 	 * @param pattern the ant pattern
 	 * @return a ant pattern based resource filter
 	 */
-	public static ResourceFilter antPattern(final PathStyle pathStyle, String... pattern) {
+	public static ResourceFilter antPattern(PathStyle pathStyle, String... pattern) {
 		final String[] patternsToUse = new String[pattern.length];
 		for (int i = 0; i < pattern.length; i++) {
 			patternsToUse[i] = pattern[i].toLowerCase();
@@ -176,21 +176,68 @@ public abstract class FilterOn {
 				patternsToUse[i] = patternsToUse[i].substring(1);
 			}
 		}
-		return new ResourceFilter() {
+		return new AntPatternFilter(PathStyle.FULL.equals(pathStyle) ? FULL_PATHS : RELATIVE_PATHS, patternsToUse);
+	}
 
-			@Override
-			public boolean match(ResourceFilterContext context, Resource resource) {
-				for (String pattern : patternsToUse) {
-					String path = PathStyle.FULL.equals(pathStyle) ? resource.toString() : resource
-							.toStringRelativeTo(context.getSource());
-					path = path.toLowerCase();
-					if (ANT_PATH_MATCHER.match(pattern, path)) {
-						return true;
-					}
-				}
-				return false;
-			}
-		};
+	/**
+	 * Compile the specified filters into a single filter that matches when any of the filters match. Filters are
+	 * reordered so that cheaper {@link #names() name} tests are performed before {@link #paths() path} tests and each
+	 * {@link ResourceAttribute attribute} is obtained at most once per resource. The compiled filter should be reused
+	 * whenever many resources are matched.
+	 * 
+	 * @param filters the filters to compile
+	 * @return a compiled filter
+	 */
+	public static ResourceFilter compile(ResourceFilter... filters) {
+		Assert.notNull(filters, "Filters must not be null");
+		if (filters.length == 1 && filters[0] instanceof CompiledFilter) {
+			return filters[0];
+		}
+		return new CompiledFilter(filters);
+	}
+
+	/**
+	 * Return a {@link NameRestriction} that can be passed to an underlying store to limit the resources considered by
+	 * the specified include filter. Returns <tt>null</tt> if the filter cannot be expressed as a restriction on names.
+	 * 
+	 * @param filter the filter
+	 * @return a name restriction or <tt>null</tt>
+	 */
+	static NameRestriction getNameRestriction(ResourceFilter filter) {
+		if (filter instanceof CompiledFilter) {
+			return ((CompiledFilter) filter).getNameRestriction();
+		}
+		if (filter instanceof AttributeFilter) {
+			return ((AttributeFilter) filter).getNameRestriction();
+		}
+		return null;
+	}
+
+	/**
+	 * Return the value of an attribute for the given resource, folding the case if required. When called from a
+	 * {@link #compile(ResourceFilter...) compiled} filter the value is only calculated once per resource.
+	 * 
+	 * @param attribute the attribute
+	 * @param context the filter context
+	 * @param resource the resource
+	 * @return the attribute value
+	 */
+	private static String getValue(ResourceAttribute attribute, ResourceFilterContext context, Resource resource) {
+		if (context instanceof CachingResourceFilterContext) {
+			return ((CachingResourceFilterContext) context).getValue(attribute, resource);
+		}
+		return fold(attribute, attribute.get(context, resource));
+	}
+
+	private static String fold(ResourceAttribute attribute, String value) {
+		return attribute.isIgnoreCase() ? value.toLowerCase() : value;
+	}
+
+	private static int getCost(ResourceFilter filter) {
+		if (filter instanceof CostedFilter) {
+			return ((CostedFilter) filter).getCost();
+		}
+		return DEFAULT_COST;
 	}
 
 	/**
@@ -209,12 +256,76 @@ public abstract class FilterOn {
 		public boolean isIgnoreCase() {
 			return this.ignoreCase;
 		}
+
+		/**
+		 * Returns the relative cost of obtaining the attribute. Used to order
+		 * {@link FilterOn#compile(ResourceFilter...) compiled} filters.
+		 * 
+		 * @return the relative cost
+		 */
+		protected int getCost() {
+			return DEFAULT_COST;
+		}
+	}
+
+	private static class NameAttribute extends ResourceAttribute {
+
+		public NameAttribute(boolean ignoreCase) {
+			super(ignoreCase);
+		}
+
+		@Override
+		public String get(ResourceFilterContext context, Resource resource) {
+			return resource.getName();
+		}
+
+		@Override
+		protected int getCost() {
+			return NAME_COST;
+		}
+	}
+
+	private static class PathAttribute extends ResourceAttribute {
+
+		private final PathStyle pathStyle;
+
+		public PathAttribute(PathStyle pathStyle, boolean ignoreCase) {
+			super(ignoreCase);
+			this.pathStyle = pathStyle;
+		}
+
+		@Override
+		public String get(ResourceFilterContext context, Resource resource) {
+			return PathStyle.FULL.equals(this.pathStyle) ? resource.toString() : resource.toStringRelativeTo(context
+					.getSource());
+		}
+
+		@Override
+		protected int getCost() {
+			return PATH_COST;
+		}
+	}
+
+	/**
+	 * Internal interface implemented by filters that can report their relative cost.
+	 */
+	private static interface CostedFilter {
+
+		int getCost();
+	}
+
+	/**
+	 * Internal interface implemented by filters that can match against an already obtained attribute value.
+	 */
+	private static interface ValueFilter extends ResourceFilter {
+
+		boolean matchValue(String value);
 	}
 
 	/**
 	 * The {@link ResourceFilter} and builder used to further restrict filtering.
 	 */
-	public static class AttributeFilter implements ResourceFilter {
+	public static class AttributeFilter implements ResourceFilter, CostedFilter {
 
 		private final ResourceAttribute attribute;
 
@@ -327,14 +438,79 @@ public abstract class FilterOn {
 
 		@Override
 		public boolean match(ResourceFilterContext context, Resource resource) {
-			if (this.parent != null && !this.parent.match(context, resource)) {
-				return false;
+			String value = null;
+			for (AttributeFilter candidate = this; candidate != null; candidate = candidate.parent) {
+				ResourceFilter filter = candidate.filter;
+				if (filter instanceof ValueFilter) {
+					value = (value == null ? getValue(this.attribute, context, resource) : value);
+					if (!((ValueFilter) filter).matchValue(value)) {
+						return false;
+					}
+				} else if (filter != null && !filter.match(context, resource)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int getCost() {
+			return this.attribute.getCost();
+		}
+
+		/**
+		 * Return the most selective {@link NameRestriction} for this filter or <tt>null</tt>.
+		 * 
+		 * @return the name restriction or <tt>null</tt>
+		 */
+		NameRestriction getNameRestriction() {
+			if (!(this.attribute instanceof NameAttribute)) {
+				return null;
+			}
+			NameRestriction best = null;
+			for (AttributeFilter candidate = this; candidate != null; candidate = candidate.parent) {
+				if (candidate.filter instanceof CompoundFilter) {
+					CompoundFilter compound = (CompoundFilter) candidate.filter;
+					NameRestriction restriction = compound.getNameRestriction(this.attribute);
+					if (restriction != null
+							&& (best == null || restriction.getType().ordinal() > best.getType().ordinal())) {
+						best = restriction;
+					}
+				}
+			}
+			return best;
+		}
+	}
+
+	private static class AntPatternFilter implements ResourceFilter, CostedFilter {
+
+		private final ResourceAttribute attribute;
+
+		private final String[] patterns;
+
+		public AntPatternFilter(ResourceAttribute attribute, String[] patterns) {
+			this.attribute = attribute;
+			this.patterns = patterns;
+		}
+
+		@Override
+		public boolean match(ResourceFilterContext context, Resource resource) {
+			String path = getValue(this.attribute, context, resource);
+			for (String pattern : this.patterns) {
+				if (ANT_PATH_MATCHER.match(pattern, path)) {
+					return true;
+				}
 			}
-			return this.filter == null || this.filter.match(context, resource);
+			return false;
+		}
+
+		@Override
+		public int getCost() {
+			return PATTERN_COST;
 		}
 	}
 
-	private static class CompoundFilter implements ResourceFilter {
+	private static class CompoundFilter implements ValueFilter {
 
 		private final List<ResourceFilter> filters = new ArrayList<ResourceFilter>();
 
@@ -351,9 +527,33 @@ public abstract class FilterOn {
 			}
 			return false;
 		}
+
+		@Override
+		public boolean matchValue(String value) {
+			for (ResourceFilter filter : this.filters) {
+				if (((ValueFilter) filter).matchValue(value)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		public NameRestriction getNameRestriction(ResourceAttribute attribute) {
+			NameRestriction.Type type = null;
+			List<String> values = new ArrayList<String>();
+			for (ResourceFilter filter : this.filters) {
+				NameRestriction.Type filterType = ((StringFilter) filter).getNameRestrictionType();
+				if (filterType == null || (type != null && type != filterType)) {
+					return null;
+				}
+				type = filterType;
+				values.add(((StringFilter) filter).value);
+			}
+			return (type == null ? null : new NameRestriction(type, attribute.isIgnoreCase(), values));
+		}
 	}
 
-	private static class InvertFilter implements ResourceFilter {
+	private static class InvertFilter implements ValueFilter {
 
 		private final ResourceFilter filter;
 
@@ -365,45 +565,162 @@ public abstract class FilterOn {
 		public boolean match(ResourceFilterContext context, Resource resource) {
 			return !this.filter.match(context, resource);
 		}
+
+		@Override
+		public boolean matchValue(String value) {
+			return !((ValueFilter) this.filter).matchValue(value);
+		}
 	}
 
 	private enum StringOperation {
 		STARTS, ENDS, CONTAINS, MATCHES
 	}
 
-	private static class StringFilter implements ResourceFilter {
+	private static class StringFilter implements ValueFilter {
 
 		private final ResourceAttribute attribute;
 
 		private final StringOperation operation;
 
-		private final CharSequence value;
+		private final String value;
 
 		public StringFilter(ResourceAttribute attribute, StringOperation operation, CharSequence value) {
 			this.attribute = attribute;
 			this.operation = operation;
-			this.value = value;
+			this.value = fold(attribute, value.toString());
 		}
 
 		@Override
 		public boolean match(ResourceFilterContext context, Resource resource) {
-			String attributeString = this.attribute.get(context, resource);
-			String matchString = this.value.toString();
-			if (this.attribute.isIgnoreCase()) {
-				attributeString = attributeString.toLowerCase();
-				matchString = matchString.toLowerCase();
+			return matchValue(getValue(this.attribute, context, resource));
+		}
+
+		public NameRestriction.Type getNameRestrictionType() {
+			switch (this.operation) {
+			case STARTS:
+				return NameRestriction.Type.PREFIX;
+			case ENDS:
+				return NameRestriction.Type.SUFFIX;
+			case MATCHES:
+				return NameRestriction.Type.EXACT;
 			}
+			return null;
+		}
+
+		@Override
+		public boolean matchValue(String attributeString) {
 			switch (this.operation) {
 			case STARTS:
-				return attributeString.startsWith(matchString);
+				return attributeString.startsWith(this.value);
 			case ENDS:
-				return attributeString.endsWith(matchString);
+				return attributeString.endsWith(this.value);
 			case CONTAINS:
-				return attributeString.contains(matchString);
+				return attributeString.contains(this.value);
 			case MATCHES:
-				return attributeString.equals(matchString);
+				return attributeString.equals(this.value);
 			}
 			return false;
 		}
 	}
+
+	/**
+	 * A compiled filter that matches if any of its filters match, see {@link FilterOn#compile(ResourceFilter...)}.
+	 */
+	private static class CompiledFilter implements ResourceFilter, CostedFilter {
+
+		private static final Comparator<ResourceFilter> COST_COMPARATOR = new Comparator<ResourceFilter>() {
+
+			@Override
+			public int compare(ResourceFilter o1, ResourceFilter o2) {
+				int c1 = FilterOn.getCost(o1);
+				int c2 = FilterOn.getCost(o2);
+				return (c1 < c2 ? -1 : (c1 == c2 ? 0 : 1));
+			}
+		};
+
+		private final ResourceFilter[] filters;
+
+		private final int cost;
+
+		public CompiledFilter(ResourceFilter... filters) {
+			List<ResourceFilter> sorted = new ArrayList<ResourceFilter>(filters.length);
+			for (ResourceFilter filter : filters) {
+				Assert.notNull(filter, "Filters must not contain null elements");
+				sorted.add(filter);
+			}
+			Collections.sort(sorted, COST_COMPARATOR);
+			this.filters = sorted.toArray(new ResourceFilter[sorted.size()]);
+			this.cost = (this.filters.length == 0 ? NAME_COST
+					: FilterOn.getCost(this.filters[this.filters.length - 1]));
+		}
+
+		@Override
+		public boolean match(ResourceFilterContext context, Resource resource) {
+			if (!(context instanceof CachingResourceFilterContext)) {
+				context = new CachingResourceFilterContext(context);
+			}
+			for (ResourceFilter filter : this.filters) {
+				if (filter.match(context, resource)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int getCost() {
+			return this.cost;
+		}
+
+		public NameRestriction getNameRestriction() {
+			NameRestriction.Type type = null;
+			Boolean ignoreCase = null;
+			List<String> values = new ArrayList<String>();
+			for (ResourceFilter filter : this.filters) {
+				NameRestriction restriction = FilterOn.getNameRestriction(filter);
+				if (restriction == null || (type != null && type != restriction.getType())
+						|| (ignoreCase != null && ignoreCase.booleanValue() != restriction.isIgnoreCase())) {
+					return null;
+				}
+				type = restriction.getType();
+				ignoreCase = restriction.isIgnoreCase();
+				values.addAll(restriction.getValues());
+			}
+			return (type == null ? null : new NameRestriction(type, ignoreCase, values));
+		}
+	}
+
+	/**
+	 * {@link ResourceFilterContext} used by {@link CompiledFilter}s to cache attribute values.
+	 */
+	private static class CachingResourceFilterContext implements ResourceFilterContext {
+
+		private final ResourceFilterContext context;
+
+		private Resource resource;
+
+		private Map<ResourceAttribute, String> values;
+
+		public CachingResourceFilterContext(ResourceFilterContext context) {
+			this.context = context;
+		}
+
+		@Override
+		public Folder getSource() {
+			return this.context.getSource();
+		}
+
+		public String getValue(ResourceAttribute attribute, Resource resource) {
+			if (this.resource != resource || this.values == null) {
+				this.resource = resource;
+				this.values = new IdentityHashMap<ResourceAttribute, String>(4);
+			}
+			String value = this.values.get(attribute);
+			if (value == null) {
+				value = fold(attribute, attribute.get(this.context, resource));
+				this.values.put(attribute, value);
+			}
+			return value;
+		}
+	}
 }
@@ -36,14 +36,17 @@ public class FilteredResources<T extends Resource> extends AbstractResources<T>
 
 	private final Type type;
 
-	private final ResourceFilter[] filters;
+	private final ResourceFilter filter;
+
+	private final NameRestriction nameRestriction;
 
 	private FilteredResources(Resources<T> resources, Type type, ResourceFilter... filters) {
 		Assert.notNull(resources, "Resources must not be null");
 		Assert.notNull(filters, "Filters must not be null");
 		this.resources = resources;
-		this.filters = filters;
+		this.filter = FilterOn.compile(filters);
 		this.type = type;
+		this.nameRestriction = (type == Type.INCLUDE ? FilterOn.getNameRestriction(this.filter) : null);
 	}
 
 	@Override
@@ -53,7 +56,15 @@ public class FilteredResources<T extends Resource> extends AbstractResources<T>
 
 	@Override
 	public Iterator<T> iterator() {
-		FilteredIterator<T> filteredIterator = new FilteredIterator<T>(this.resources.iterator()) {
+		return iterator(null);
+	}
+
+	@Override
+	protected Iterator<T> iterator(NameRestriction restriction) {
+		restriction = (restriction == null ? this.nameRestriction : restriction);
+		Iterator<T> source = (this.resources instanceof AbstractResources ? ((AbstractResources<T>) this.resources)
+				.iterator(restriction) : this.resources.iterator());
+		FilteredIterator<T> filteredIterator = new FilteredIterator<T>(source) {
 
 			@Override
 			protected boolean isElementFiltered(T element) {
@@ -61,12 +72,7 @@ public class FilteredResources<T extends Resource> extends AbstractResources<T>
 			}
 
 			private boolean isMatch(T element) {
-				for (ResourceFilter filter : FilteredResources.this.filters) {
-					if (filter.match(getResourceFilterContext(), element)) {
-						return true;
-					}
-				}
-				return false;
+				return FilteredResources.this.filter.match(getResourceFilterContext(), element);
 			}
 
 		};
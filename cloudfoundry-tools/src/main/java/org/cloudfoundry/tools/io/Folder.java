@@ -123,9 +123,21 @@ public interface Folder extends Resource, Iterable<Resource> {
 	 * resources are returned.
 	 * 
 	 * @return a list of all nested children
+	 * @see #find(ResourceWalker)
 	 */
 	Resources<Resource> find();
 
+	/**
+	 * Recursively find immediate and nested children of this folder using the specified {@link ResourceWalker} to
+	 * decide which resources are included and which subtrees are visited. Pruned subtrees are never read from the
+	 * underlying store. If this resource does not exist empty resources are returned.
+	 * 
+	 * @param walker the resource walker
+	 * @return a list of nested children accepted by the walker
+	 * @see PruningResourceWalker
+	 */
+	Resources<Resource> find(ResourceWalker walker);
+
 	/**
 	 * Return a new folder that is jailed at the current location. A jailed folder acts as a root folder at the current
 	 * location.
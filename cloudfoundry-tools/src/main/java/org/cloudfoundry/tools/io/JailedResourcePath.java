@@ -28,6 +28,8 @@ public final class JailedResourcePath {
 
 	private final ResourcePath path;
 
+	private ResourcePath unjailedPath;
+
 	/**
 	 * Create a new {@link JailedResourcePath} instance.
 	 * 
@@ -35,10 +37,22 @@ public final class JailedResourcePath {
 	 * @param path the path
 	 */
 	public JailedResourcePath(ResourcePath jailPath, ResourcePath path) {
+		this(jailPath, path, null);
+	}
+
+	/**
+	 * Private constructor used when the unjailed path is already known.
+	 * 
+	 * @param jailPath the jail path
+	 * @param path the path
+	 * @param unjailedPath the unjailed path or <tt>null</tt> if the path should be calculated when needed
+	 */
+	private JailedResourcePath(ResourcePath jailPath, ResourcePath path, ResourcePath unjailedPath) {
 		Assert.notNull(jailPath, "JailPath must not be null");
 		Assert.notNull(path, "Path must not be null");
 		this.path = path;
 		this.jailPath = jailPath;
+		this.unjailedPath = unjailedPath;
 	}
 
 	/**
@@ -47,6 +61,7 @@ public final class JailedResourcePath {
 	public JailedResourcePath() {
 		this.jailPath = new ResourcePath();
 		this.path = new ResourcePath();
+		this.unjailedPath = this.path;
 	}
 
 	/**
@@ -77,7 +92,7 @@ public final class JailedResourcePath {
 		if (parent == null) {
 			return null;
 		}
-		return new JailedResourcePath(this.jailPath, parent);
+		return new JailedResourcePath(this.jailPath, parent, getUnjailedPath().getParent());
 	}
 
 	/**
@@ -87,16 +102,23 @@ public final class JailedResourcePath {
 	 * @return a new {@link JailedResourcePath}
 	 */
 	public JailedResourcePath get(String path) {
-		return new JailedResourcePath(this.jailPath, this.path.get(path));
+		ResourcePath jailed = this.path.get(path);
+		ResourcePath unjailed = (path.startsWith("/") ? null : getUnjailedPath().get(path));
+		return new JailedResourcePath(this.jailPath, jailed, unjailed);
 	}
 
 	/**
-	 * Returns the complete unjailed path
+	 * Returns the complete unjailed path. The path is calculated once and cached.
 	 * 
 	 * @return the unjailed path
 	 */
 	public ResourcePath getUnjailedPath() {
-		return this.jailPath.append(this.path);
+		ResourcePath unjailedPath = this.unjailedPath;
+		if (unjailedPath == null) {
+			unjailedPath = this.jailPath.append(this.path);
+			this.unjailedPath = unjailedPath;
+		}
+		return unjailedPath;
 	}
 
 	/**
@@ -105,7 +127,8 @@ public final class JailedResourcePath {
 	 * @return the unjailed version
 	 */
 	public JailedResourcePath unjail() {
-		return new JailedResourcePath(new ResourcePath(), getUnjailedPath());
+		ResourcePath unjailedPath = getUnjailedPath();
+		return new JailedResourcePath(new ResourcePath(), unjailedPath, unjailedPath);
 	}
 
 	/**
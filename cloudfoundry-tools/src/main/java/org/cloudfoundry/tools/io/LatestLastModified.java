@@ -20,7 +20,7 @@ package org.cloudfoundry.tools.io;
  * 
  * @author Phillip Webb
  */
-public class LatestLastModified implements ResourceOperation<File> {
+public class LatestLastModified implements CombinableResourceOperation<File, LatestLastModified> {
 
 	private long value;
 
@@ -32,6 +32,18 @@ public class LatestLastModified implements ResourceOperation<File> {
 		}
 	}
 
+	@Override
+	public LatestLastModified split() {
+		return new LatestLastModified();
+	}
+
+	@Override
+	public void merge(LatestLastModified operation) {
+		if (operation.value > this.value) {
+			this.value = operation.value;
+		}
+	}
+
 	public long getValue() {
 		return this.value;
 	}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.util.Assert;
+
+/**
+ * A simple restriction on {@link Resource#getName() resource names} that can be passed to an underlying store so that
+ * only matching children need to be fetched. A name matches the restriction if it matches any of the
+ * {@link #getValues() values}. Restrictions are derived from {@link FilterOn} filters and are always at least as broad
+ * as the filter that they were created from, callers must still apply the original filter.
+ * 
+ * @author Phillip Webb
+ * @see FilterOn#names()
+ */
+public final class NameRestriction {
+
+	/**
+	 * The type of restriction, declared in order of increasing selectivity.
+	 */
+	public static enum Type {
+
+		/**
+		 * Names must end with a value.
+		 */
+		SUFFIX,
+
+		/**
+		 * Names must start with a value.
+		 */
+		PREFIX,
+
+		/**
+		 * Names must be equal to a value.
+		 */
+		EXACT
+	}
+
+	private final Type type;
+
+	private final List<String> values;
+
+	private final boolean ignoreCase;
+
+	/**
+	 * Create a new {@link NameRestriction} instance.
+	 * 
+	 * @param type the type of restriction
+	 * @param ignoreCase if the restriction ignores case. When <tt>true</tt> all values must be in lower case
+	 * @param values the values
+	 */
+	public NameRestriction(Type type, boolean ignoreCase, String... values) {
+		this(type, ignoreCase, Arrays.asList(values));
+	}
+
+	/**
+	 * Create a new {@link NameRestriction} instance.
+	 * 
+	 * @param type the type of restriction
+	 * @param ignoreCase if the restriction ignores case. When <tt>true</tt> all values must be in lower case
+	 * @param values the values
+	 */
+	public NameRestriction(Type type, boolean ignoreCase, List<String> values) {
+		Assert.notNull(type, "Type must not be null");
+		Assert.notNull(values, "Values must not be null");
+		this.type = type;
+		this.ignoreCase = ignoreCase;
+		this.values = Collections.unmodifiableList(values);
+	}
+
+	/**
+	 * Returns the type of restriction.
+	 * 
+	 * @return the type
+	 */
+	public Type getType() {
+		return this.type;
+	}
+
+	/**
+	 * Returns the values that names are matched against. If the restriction {@link #isIgnoreCase() ignores case} the
+	 * values will be in lower case.
+	 * 
+	 * @return the values
+	 */
+	public List<String> getValues() {
+		return this.values;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the restriction ignores case.
+	 * 
+	 * @return if case is ignored
+	 */
+	public boolean isIgnoreCase() {
+		return this.ignoreCase;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the specified name matches the restriction.
+	 * 
+	 * @param name the name to test
+	 * @return if the name matches
+	 */
+	public boolean matches(String name) {
+		Assert.notNull(name, "Name must not be null");
+		name = (this.ignoreCase ? name.toLowerCase() : name);
+		for (String value : this.values) {
+			switch (this.type) {
+			case SUFFIX:
+				if (name.endsWith(value)) {
+					return true;
+				}
+				break;
+			case PREFIX:
+				if (name.startsWith(value)) {
+					return true;
+				}
+				break;
+			case EXACT:
+				if (name.equals(value)) {
+					return true;
+				}
+				break;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return this.type + (this.ignoreCase ? " (ignoring case) " : " ") + this.values;
+	}
+}
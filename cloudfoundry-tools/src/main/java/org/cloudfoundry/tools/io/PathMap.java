@@ -0,0 +1,320 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.springframework.util.Assert;
+
+/**
+ * A map of {@link ResourcePath}s to values that is stored as a tree of path elements. Lookups are proportional to
+ * the depth of the path and the immediate children or all nested descendants of any path can be obtained without
+ * scanning unrelated entries. Children are returned in the order that they were added. This class is not thread-safe.
+ * 
+ * @author Phillip Webb
+ * @param <V> the value type
+ */
+public class PathMap<V> {
+
+	private Node<V> root;
+
+	private int size;
+
+	/**
+	 * Returns the value for the specified path or <tt>null</tt> if the map contains no value for the path.
+	 * 
+	 * @param path the path
+	 * @return the value or <tt>null</tt>
+	 */
+	public V get(ResourcePath path) {
+		Node<V> node = getNode(path);
+		return node == null ? null : node.value;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the map contains a value for the specified path.
+	 * 
+	 * @param path the path
+	 * @return if the map contains the path
+	 */
+	public boolean containsPath(ResourcePath path) {
+		Node<V> node = getNode(path);
+		return node != null && node.value != null;
+	}
+
+	/**
+	 * Associate a value with the specified path, replacing any existing value.
+	 * 
+	 * @param path the path
+	 * @param value the value
+	 * @return the previous value or <tt>null</tt>
+	 */
+	public V put(ResourcePath path, V value) {
+		Assert.notNull(path, "Path must not be null");
+		Assert.notNull(value, "Value must not be null");
+		Node<V> node = getOrCreateNode(path);
+		V previous = node.value;
+		node.value = value;
+		if (previous == null) {
+			this.size++;
+		}
+		return previous;
+	}
+
+	/**
+	 * Remove the value for the specified path. Values for nested paths are not removed.
+	 * 
+	 * @param path the path
+	 * @return the removed value or <tt>null</tt>
+	 * @see #removeAll(ResourcePath)
+	 */
+	public V remove(ResourcePath path) {
+		Node<V> node = getNode(path);
+		if (node == null || node.value == null) {
+			return null;
+		}
+		V previous = node.value;
+		node.value = null;
+		this.size--;
+		prune(node);
+		return previous;
+	}
+
+	/**
+	 * Remove the value for the specified path and the values of all nested paths.
+	 * 
+	 * @param path the path
+	 * @return the number of values removed
+	 */
+	public int removeAll(ResourcePath path) {
+		Node<V> node = getNode(path);
+		if (node == null) {
+			return 0;
+		}
+		int removed = node.count();
+		this.size -= removed;
+		if (node.parent == null) {
+			this.root = null;
+		} else {
+			node.parent.children.remove(node.path.getName());
+			prune(node.parent);
+		}
+		return removed;
+	}
+
+	/**
+	 * Returns the paths of all immediate children of the specified path that have values.
+	 * 
+	 * @param path the parent path
+	 * @return the child paths (never <tt>null</tt>)
+	 */
+	public List<ResourcePath> list(ResourcePath path) {
+		Node<V> node = getNode(path);
+		if (node == null || node.children == null) {
+			return Collections.emptyList();
+		}
+		List<ResourcePath> children = new ArrayList<ResourcePath>(node.children.size());
+		for (Node<V> child : node.children.values()) {
+			if (child.value != null) {
+				children.add(child.path);
+			}
+		}
+		return children;
+	}
+
+	/**
+	 * Returns the paths of all nested children of the specified path that have values. The specified path itself is
+	 * not included. Paths are returned depth first with parents before their children. The returned iterable should
+	 * not be used if the map is modified.
+	 * 
+	 * @param path the parent path
+	 * @return the nested paths (never <tt>null</tt>)
+	 */
+	public Iterable<ResourcePath> find(final ResourcePath path) {
+		final Node<V> node = getNode(path);
+		if (node == null) {
+			return Collections.emptyList();
+		}
+		return new Iterable<ResourcePath>() {
+
+			@Override
+			public Iterator<ResourcePath> iterator() {
+				return new NodeIterator<V>(node);
+			}
+		};
+	}
+
+	/**
+	 * Returns the number of values contained in the map.
+	 * 
+	 * @return the size
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the map contains no values.
+	 * 
+	 * @return if the map is empty
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Remove all values from the map.
+	 */
+	public void clear() {
+		this.root = null;
+		this.size = 0;
+	}
+
+	private Node<V> getNode(ResourcePath path) {
+		Assert.notNull(path, "Path must not be null");
+		if (path.getParent() == null) {
+			return this.root;
+		}
+		Node<V> parent = getNode(path.getParent());
+		if (parent == null || parent.children == null) {
+			return null;
+		}
+		return parent.children.get(path.getName());
+	}
+
+	private Node<V> getOrCreateNode(ResourcePath path) {
+		if (path.getParent() == null) {
+			if (this.root == null) {
+				this.root = new Node<V>(null, path);
+			}
+			return this.root;
+		}
+		Node<V> parent = getOrCreateNode(path.getParent());
+		if (parent.children == null) {
+			parent.children = new LinkedHashMap<String, Node<V>>();
+		}
+		Node<V> node = parent.children.get(path.getName());
+		if (node == null) {
+			node = new Node<V>(parent, path);
+			parent.children.put(path.getName(), node);
+		}
+		return node;
+	}
+
+	/**
+	 * Remove the specified node (and any empty parents) if it no longer holds a value or children.
+	 * 
+	 * @param node the node to prune
+	 */
+	private void prune(Node<V> node) {
+		while (node != null && node.value == null && (node.children == null || node.children.isEmpty())) {
+			if (node.parent == null) {
+				this.root = null;
+			} else {
+				node.parent.children.remove(node.path.getName());
+			}
+			node = node.parent;
+		}
+	}
+
+	/**
+	 * A single node in the tree.
+	 */
+	private static class Node<V> {
+
+		private final Node<V> parent;
+
+		private final ResourcePath path;
+
+		private Map<String, Node<V>> children;
+
+		private V value;
+
+		public Node(Node<V> parent, ResourcePath path) {
+			this.parent = parent;
+			this.path = path;
+		}
+
+		public int count() {
+			int count = (this.value == null ? 0 : 1);
+			if (this.children != null) {
+				for (Node<V> child : this.children.values()) {
+					count += child.count();
+				}
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Depth first {@link Iterator} over nested nodes that contain values.
+	 */
+	private static class NodeIterator<V> implements Iterator<ResourcePath> {
+
+		private final LinkedList<Iterator<Node<V>>> stack = new LinkedList<Iterator<Node<V>>>();
+
+		private Node<V> next;
+
+		public NodeIterator(Node<V> node) {
+			push(node);
+		}
+
+		private void push(Node<V> node) {
+			if (node.children != null && !node.children.isEmpty()) {
+				this.stack.addFirst(node.children.values().iterator());
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (this.next == null && !this.stack.isEmpty()) {
+				Iterator<Node<V>> iterator = this.stack.getFirst();
+				if (!iterator.hasNext()) {
+					this.stack.removeFirst();
+					continue;
+				}
+				Node<V> candidate = iterator.next();
+				push(candidate);
+				if (candidate.value != null) {
+					this.next = candidate;
+				}
+			}
+			return this.next != null;
+		}
+
+		@Override
+		public ResourcePath next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			ResourcePath path = this.next.path;
+			this.next = null;
+			return path;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
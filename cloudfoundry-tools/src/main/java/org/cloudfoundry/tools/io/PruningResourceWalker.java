@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ResourceWalker} that can prune subtrees that match {@link ResourceFilter filters} and limit the depth of the
+ * walk. Instances are immutable, each method returns a new walker. For example:
+ * 
+ * <pre>
+ * ResourceFilter excluded = FilterOn.names().matching(&quot;.git&quot;, &quot;target&quot;);
+ * folder.find(new PruningResourceWalker().prune(excluded).maxDepth(4));
+ * </pre>
+ * 
+ * @author Phillip Webb
+ */
+public class PruningResourceWalker implements ResourceWalker {
+
+	private final List<ResourceFilter> prune;
+
+	private final ResourceFilter pruneFilter;
+
+	private final int maxDepth;
+
+	/**
+	 * Create a new {@link PruningResourceWalker} that walks all resources.
+	 */
+	public PruningResourceWalker() {
+		this(Collections.<ResourceFilter> emptyList(), Integer.MAX_VALUE);
+	}
+
+	private PruningResourceWalker(List<ResourceFilter> prune, int maxDepth) {
+		this.prune = prune;
+		this.pruneFilter = (prune.isEmpty() ? null : FilterOn.compile(prune.toArray(new ResourceFilter[prune.size()])));
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Return a new walker that also excludes resources matching any of the specified filters, along with all of their
+	 * children.
+	 * 
+	 * @param filters the prune filters
+	 * @return a new walker
+	 */
+	public PruningResourceWalker prune(ResourceFilter... filters) {
+		Assert.notNull(filters, "Filters must not be null");
+		List<ResourceFilter> prune = new ArrayList<ResourceFilter>(this.prune);
+		prune.addAll(Arrays.asList(filters));
+		return new PruningResourceWalker(prune, this.maxDepth);
+	}
+
+	/**
+	 * Return a new walker that does not descend beyond the specified depth. A depth of 1 will only include immediate
+	 * children.
+	 * 
+	 * @param maxDepth the maximum depth
+	 * @return a new walker
+	 */
+	public PruningResourceWalker maxDepth(int maxDepth) {
+		Assert.isTrue(maxDepth > 0, "MaxDepth must be positive");
+		return new PruningResourceWalker(this.prune, maxDepth);
+	}
+
+	@Override
+	public Result visit(ResourceFilterContext context, Resource resource, int depth) {
+		if (this.pruneFilter != null && this.pruneFilter.match(context, resource)) {
+			return Result.PRUNE;
+		}
+		return (depth >= this.maxDepth ? Result.SKIP_CHILDREN : Result.CONTINUE);
+	}
+}
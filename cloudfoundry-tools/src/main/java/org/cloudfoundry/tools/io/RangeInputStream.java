@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link InputStream} that provides access to a range of bytes from another stream. Bytes before the range are
+ * skipped when the stream is first read and the stream ends after the requested number of bytes or when the underlying
+ * stream ends. Mark and reset are not supported.
+ * 
+ * @author Phillip Webb
+ */
+public class RangeInputStream extends FilterInputStream {
+
+	private long skip;
+
+	private long remaining;
+
+	/**
+	 * Create a new {@link RangeInputStream} instance.
+	 * 
+	 * @param in the underlying input stream
+	 * @param offset the offset of the first byte to read
+	 * @param length the maximum number of bytes to read
+	 */
+	public RangeInputStream(InputStream in, long offset, long length) {
+		super(in);
+		Assert.notNull(in, "InputStream must not be null");
+		Assert.isTrue(offset >= 0, "Offset must not be negative");
+		Assert.isTrue(length >= 0, "Length must not be negative");
+		this.skip = offset;
+		this.remaining = length;
+	}
+
+	@Override
+	public int read() throws IOException {
+		skipToOffset();
+		if (this.remaining <= 0) {
+			return -1;
+		}
+		int result = this.in.read();
+		if (result != -1) {
+			this.remaining--;
+		}
+		return result;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		skipToOffset();
+		if (len == 0) {
+			return 0;
+		}
+		if (this.remaining <= 0) {
+			return -1;
+		}
+		int result = this.in.read(b, off, (int) Math.min(len, this.remaining));
+		if (result != -1) {
+			this.remaining -= result;
+		}
+		return result;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		skipToOffset();
+		long skipped = this.in.skip(Math.min(n, this.remaining));
+		this.remaining -= skipped;
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		if (this.skip > 0) {
+			return 0;
+		}
+		return (int) Math.min(this.in.available(), this.remaining);
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("Mark not supported");
+	}
+
+	private void skipToOffset() throws IOException {
+		while (this.skip > 0) {
+			long skipped = this.in.skip(this.skip);
+			if (skipped <= 0) {
+				// Some streams only skip buffered content, read to find out if we are at the end
+				if (this.in.read() == -1) {
+					this.skip = 0;
+					this.remaining = 0;
+					return;
+				}
+				skipped = 1;
+			}
+			this.skip -= skipped;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+/**
+ * {@link ResourceOperation} to count resources.
+ * 
+ * @author Phillip Webb
+ * @param <T> The resource type
+ */
+public class ResourceCount<T extends Resource> implements CombinableResourceOperation<T, ResourceCount<T>> {
+
+	private long value;
+
+	@Override
+	public void perform(T resource) {
+		this.value++;
+	}
+
+	@Override
+	public ResourceCount<T> split() {
+		return new ResourceCount<T>();
+	}
+
+	@Override
+	public void merge(ResourceCount<T> operation) {
+		this.value += operation.value;
+	}
+
+	public long getValue() {
+		return this.value;
+	}
+
+}
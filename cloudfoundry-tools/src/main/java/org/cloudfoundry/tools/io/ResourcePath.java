@@ -15,20 +15,33 @@
  */
 package org.cloudfoundry.tools.io;
 
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 import org.springframework.util.Assert;
-import org.springframework.util.ObjectUtils;
 
 /**
- * A file or folder path.
+ * A file or folder path. Paths are immutable and share parent instances, path element names are interned and the
+ * full string and hash code are computed once when the path is created. This keeps paths cheap to use as keys in hash
+ * based collections.
  * 
  * @author Phillip Webb
  */
 public final class ResourcePath {
 
+	private static final Map<String, WeakReference<String>> NAMES = new WeakHashMap<String, WeakReference<String>>();
+
 	private final ResourcePath parent;
 
 	private final String name;
 
+	private final String path;
+
+	private final int depth;
+
+	private final int hash;
+
 	/**
 	 * Create a new root path instance.
 	 */
@@ -46,7 +59,10 @@ public final class ResourcePath {
 	private ResourcePath(ResourcePath parent, String name) {
 		Assert.notNull(name, "Name must not be null");
 		this.parent = parent;
-		this.name = name;
+		this.name = intern(name);
+		this.path = (parent == null ? this.name : parent.path + "/" + this.name);
+		this.depth = (parent == null ? 0 : parent.depth + 1);
+		this.hash = this.path.hashCode();
 	}
 
 	/**
@@ -65,10 +81,7 @@ public final class ResourcePath {
 	 */
 	@Override
 	public String toString() {
-		if (this.parent != null) {
-			return this.parent + "/" + this.name;
-		}
-		return this.name;
+		return this.path;
 	}
 
 	public String toStringRelativeTo(String source) {
@@ -81,9 +94,11 @@ public final class ResourcePath {
 		if (source.equals(this)) {
 			return "";
 		}
-		String sourcePath = source.toString() + "/";
-		Assert.isTrue(toString().startsWith(sourcePath), "Source '" + source + "' must be a parent of '" + this + "'");
-		return toString().substring(sourcePath.length());
+		String sourcePath = source.path;
+		Assert.isTrue(this.path.length() > sourcePath.length() && this.path.startsWith(sourcePath)
+				&& this.path.charAt(sourcePath.length()) == '/', "Source '" + source + "' must be a parent of '" + this
+				+ "'");
+		return this.path.substring(sourcePath.length() + 1);
 	}
 
 	/**
@@ -99,11 +114,14 @@ public final class ResourcePath {
 			rtn = new ResourcePath();
 			path = path.substring(1);
 		}
-		while (path.indexOf("/") != -1) {
-			rtn = rtn.newPath(path.substring(0, path.indexOf("/")));
-			path = path.substring(path.indexOf("/") + 1);
+		int start = 0;
+		int end = path.indexOf('/');
+		while (end != -1) {
+			rtn = rtn.newPath(path.substring(start, end));
+			start = end + 1;
+			end = path.indexOf('/', start);
 		}
-		return rtn.newPath(path);
+		return rtn.newPath(path.substring(start));
 	}
 
 	/**
@@ -155,6 +173,9 @@ public final class ResourcePath {
 		if (path.isRootPath()) {
 			return this;
 		}
+		if (isRootPath()) {
+			return path;
+		}
 		if (path.getParent() == null) {
 			return new ResourcePath(this, path.getName());
 		}
@@ -163,7 +184,7 @@ public final class ResourcePath {
 
 	@Override
 	public int hashCode() {
-		return toString().hashCode();
+		return this.hash;
 	}
 
 	@Override
@@ -176,8 +197,38 @@ public final class ResourcePath {
 		}
 		if (obj instanceof ResourcePath) {
 			ResourcePath other = (ResourcePath) obj;
-			return ObjectUtils.nullSafeEquals(getParent(), other.getParent()) && this.name.equals(other.name);
+			if (this.hash != other.hash || this.depth != other.depth) {
+				return false;
+			}
+			ResourcePath left = this;
+			ResourcePath right = other;
+			while (left != right) {
+				if (left.name != right.name && !left.name.equals(right.name)) {
+					return false;
+				}
+				left = left.parent;
+				right = right.parent;
+			}
+			return true;
 		}
 		return false;
 	}
+
+	/**
+	 * Return a shared instance of the specified path element name.
+	 * 
+	 * @param name the name
+	 * @return a shared instance of the name
+	 */
+	private static String intern(String name) {
+		synchronized (NAMES) {
+			WeakReference<String> reference = NAMES.get(name);
+			String interned = (reference == null ? null : reference.get());
+			if (interned == null) {
+				interned = name;
+				NAMES.put(interned, new WeakReference<String>(interned));
+			}
+			return interned;
+		}
+	}
 }
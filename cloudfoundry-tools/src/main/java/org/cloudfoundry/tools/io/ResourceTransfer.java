@@ -0,0 +1,436 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cloudfoundry.tools.io.exception.ResourceException;
+import org.cloudfoundry.tools.io.exception.ResourceTransferException;
+import org.springframework.util.Assert;
+
+/**
+ * Copies or moves resources using a bounded number of concurrent workers. All destination folders are created, in
+ * order, on the calling thread before any file content is transferred. File transfers then run concurrently and any
+ * failures are reported together in a single {@link ResourceTransferException} once all transfers have finished. The
+ * destination folder must support concurrent writes to different files.
+ * 
+ * @author Phillip Webb
+ * @see Resources#copyTo(Folder)
+ * @see Folder#copyTo(Folder)
+ * @see org.cloudfoundry.tools.io.zip.ZipArchive#unpack(java.io.InputStream, Folder, ResourceTransfer)
+ */
+public class ResourceTransfer {
+
+	private static final DaemonThreadFactory THREAD_FACTORY = new DaemonThreadFactory("resource-transfer-");
+
+	private final Executor executor;
+
+	private final int parallelism;
+
+	private ResourceTransferListener listener;
+
+	/**
+	 * Create a new {@link ResourceTransfer} that uses a short lived thread pool for each transfer.
+	 * 
+	 * @param parallelism the maximum number of concurrent file transfers
+	 */
+	public ResourceTransfer(int parallelism) {
+		this(null, parallelism);
+	}
+
+	/**
+	 * Create a new {@link ResourceTransfer} that runs file transfers using the specified executor.
+	 * 
+	 * @param executor the executor or <tt>null</tt> to use a short lived thread pool for each transfer
+	 * @param parallelism the maximum number of concurrent file transfers
+	 */
+	public ResourceTransfer(Executor executor, int parallelism) {
+		Assert.isTrue(parallelism > 0, "Parallelism must be positive");
+		this.executor = executor;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Set a listener that will be informed of transfer progress.
+	 * 
+	 * @param listener the listener or <tt>null</tt>
+	 */
+	public void setListener(ResourceTransferListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Copy resources to the specified folder. Equivalent to {@link Resources#copyTo(Folder)}.
+	 * 
+	 * @param resources the resources to copy
+	 * @param folder the destination folder
+	 * @return a resource collection containing the new destination resources
+	 * @throws ResourceTransferException if any file cannot be copied
+	 */
+	public <T extends Resource> Resources<T> copy(Resources<T> resources, Folder folder) {
+		return transfer(resources, folder, false);
+	}
+
+	/**
+	 * Move resources to the specified folder. Equivalent to {@link Resources#moveTo(Folder)}. Source folders are only
+	 * deleted when all files have been moved successfully.
+	 * 
+	 * @param resources the resources to move
+	 * @param folder the destination folder
+	 * @return a resource collection containing the new destination resources
+	 * @throws ResourceTransferException if any file cannot be moved
+	 */
+	public <T extends Resource> Resources<T> move(Resources<T> resources, Folder folder) {
+		return transfer(resources, folder, true);
+	}
+
+	/**
+	 * Recursively copy a folder to the specified folder. Equivalent to {@link Folder#copyTo(Folder)}.
+	 * 
+	 * @param source the folder to copy
+	 * @param folder the destination folder
+	 * @return the destination folder
+	 * @throws ResourceTransferException if any file cannot be copied
+	 */
+	public Folder copy(Folder source, Folder folder) {
+		return transfer(source, folder, false);
+	}
+
+	/**
+	 * Recursively move a folder to the specified folder. Equivalent to {@link Folder#moveTo(Folder)}.
+	 * 
+	 * @param source the folder to move
+	 * @param folder the destination folder
+	 * @return the destination folder
+	 * @throws ResourceTransferException if any file cannot be moved
+	 */
+	public Folder move(Folder source, Folder folder) {
+		return transfer(source, folder, true);
+	}
+
+	private Folder transfer(Folder source, Folder folder, boolean move) {
+		Assert.notNull(source, "Source must not be null");
+		Assert.notNull(folder, "Folder must not be null");
+		Assert.state(source.getParent() != null, "Unable to transfer a root folder");
+		Plan plan = new Plan();
+		Folder destination = folder.getFolder(source.getName());
+		plan.addFolder(source, destination);
+		plan.execute(move);
+		return destination;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends Resource> Resources<T> transfer(Resources<T> resources, Folder folder, boolean move) {
+		Assert.notNull(resources, "Resources must not be null");
+		Assert.notNull(folder, "Folder must not be null");
+		Plan plan = new Plan();
+		List<T> destinations = new ArrayList<T>();
+		for (T resource : resources) {
+			Folder parent = calculateDestination(resources.getSource(), resource, folder);
+			if (resource instanceof Folder) {
+				Folder destination = parent.getFolder(resource.getName());
+				plan.addFolder((Folder) resource, destination);
+				destinations.add((T) destination);
+			} else {
+				File destination = parent.getFile(resource.getName());
+				plan.addFile((File) resource, destination);
+				destinations.add((T) destination);
+			}
+		}
+		plan.execute(move);
+		return new ResourcesCollection<T>(folder, destinations);
+	}
+
+	private Folder calculateDestination(Folder source, Resource resource, Folder folder) {
+		Folder parent = resource.getParent();
+		if (parent == null) {
+			return folder;
+		}
+		String name = parent.toStringRelativeTo(source);
+		return name.length() == 0 ? folder : folder.getFolder(name);
+	}
+
+	/**
+	 * Begin a new {@link Batch} of transfers. The batch must be {@link Batch#finish() finished} to wait for all
+	 * transfers to complete.
+	 * 
+	 * @return a new batch
+	 */
+	public Batch begin() {
+		return new Batch(-1);
+	}
+
+	/**
+	 * A batch of transfers. Folders are created immediately on the calling thread, files are transferred using worker
+	 * threads. The parent of each file is created on the calling thread unless the batch has already created it. A
+	 * batch is not thread-safe and should only be used from the thread that created it.
+	 */
+	public class Batch {
+
+		private final int total;
+
+		private final ExecutorService ownExecutor;
+
+		private final Semaphore permits = new Semaphore(ResourceTransfer.this.parallelism);
+
+		private final AtomicInteger completed = new AtomicInteger();
+
+		private final Map<File, Throwable> failures = new LinkedHashMap<File, Throwable>();
+
+		private final Set<String> createdFolders = new HashSet<String>();
+
+		private int submitted;
+
+		private boolean finished;
+
+		Batch(int total) {
+			this.total = total;
+			this.ownExecutor = (ResourceTransfer.this.executor == null ? Executors.newFixedThreadPool(
+					ResourceTransfer.this.parallelism, THREAD_FACTORY) : null);
+		}
+
+		/**
+		 * Create the specified folder if it does not exist.
+		 * 
+		 * @param folder the folder to create
+		 */
+		public void createFolder(Folder folder) {
+			Assert.notNull(folder, "Folder must not be null");
+			Assert.state(!this.finished, "Batch has finished");
+			if (!this.createdFolders.contains(folder.toString())) {
+				folder.createIfMissing();
+				this.createdFolders.add(folder.toString());
+			}
+		}
+
+		/**
+		 * Copy the contents of a file.
+		 * 
+		 * @param source the source file
+		 * @param destination the destination file
+		 */
+		public void copy(final File source, final File destination) {
+			Assert.notNull(source, "Source must not be null");
+			submit(destination, new Runnable() {
+
+				@Override
+				public void run() {
+					destination.getContent().write(source);
+				}
+			});
+		}
+
+		/**
+		 * Move the contents of a file. The source file is deleted once the contents have been written.
+		 * 
+		 * @param source the source file
+		 * @param destination the destination file
+		 */
+		public void move(final File source, final File destination) {
+			Assert.notNull(source, "Source must not be null");
+			submit(destination, new Runnable() {
+
+				@Override
+				public void run() {
+					destination.getContent().write(source);
+					source.delete();
+				}
+			});
+		}
+
+		/**
+		 * Write content to a file.
+		 * 
+		 * @param destination the destination file
+		 * @param content the content to write
+		 */
+		public void write(final File destination, final byte[] content) {
+			Assert.notNull(content, "Content must not be null");
+			submit(destination, new Runnable() {
+
+				@Override
+				public void run() {
+					destination.getContent().write(new ByteArrayInputStream(content));
+				}
+			});
+		}
+
+		private void submit(final File destination, final Runnable transfer) {
+			Assert.notNull(destination, "Destination must not be null");
+			Assert.state(!this.finished, "Batch has finished");
+			Folder parent = destination.getParent();
+			if (parent != null) {
+				createFolder(parent);
+			}
+			acquire(1);
+			this.submitted++;
+			try {
+				getExecutor().execute(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							transfer.run();
+							int completed = Batch.this.completed.incrementAndGet();
+							ResourceTransferListener listener = ResourceTransfer.this.listener;
+							if (listener != null) {
+								listener.transferred(destination, completed, Batch.this.total);
+							}
+						} catch (RuntimeException e) {
+							addFailure(destination, e);
+						} catch (Error e) {
+							addFailure(destination, e);
+							throw e;
+						} finally {
+							Batch.this.permits.release();
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				this.permits.release();
+				addFailure(destination, e);
+			}
+		}
+
+		private Executor getExecutor() {
+			return (this.ownExecutor == null ? ResourceTransfer.this.executor : this.ownExecutor);
+		}
+
+		private void addFailure(File destination, Throwable failure) {
+			synchronized (this.failures) {
+				this.failures.put(destination, failure);
+			}
+		}
+
+		/**
+		 * Wait for all transfers in the batch to complete. When the batch is abandoned because of an earlier failure
+		 * use {@link #finish(RuntimeException)} so that the original failure is not lost.
+		 * 
+		 * @throws ResourceTransferException if any file could not be transferred
+		 */
+		public void finish() {
+			if (this.finished) {
+				return;
+			}
+			this.finished = true;
+			try {
+				acquire(ResourceTransfer.this.parallelism);
+				this.permits.release(ResourceTransfer.this.parallelism);
+			} finally {
+				if (this.ownExecutor != null) {
+					this.ownExecutor.shutdown();
+				}
+			}
+			synchronized (this.failures) {
+				if (!this.failures.isEmpty()) {
+					throw new ResourceTransferException(this.failures, this.submitted);
+				}
+			}
+		}
+
+		/**
+		 * Wait for all transfers in the batch to complete after an earlier failure. Any transfer failures are added to
+		 * the earlier failure as suppressed exceptions.
+		 * 
+		 * @param failure the earlier failure
+		 * @return the earlier failure, so that it can be rethrown
+		 */
+		public RuntimeException finish(RuntimeException failure) {
+			Assert.notNull(failure, "Failure must not be null");
+			try {
+				finish();
+			} catch (RuntimeException e) {
+				failure.addSuppressed(e);
+			}
+			return failure;
+		}
+
+		private void acquire(int permits) {
+			try {
+				this.permits.acquire(permits);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ResourceException(e);
+			}
+		}
+	}
+
+	/**
+	 * A plan of all the folders and files that need to be transferred.
+	 */
+	private class Plan {
+
+		private final Map<String, Folder> folders = new LinkedHashMap<String, Folder>();
+
+		private final Map<String, File[]> files = new LinkedHashMap<String, File[]>();
+
+		private final List<Folder> sourceFolders = new ArrayList<Folder>();
+
+		public void addFolder(Folder source, Folder destination) {
+			this.folders.put(destination.toString(), destination);
+			this.sourceFolders.add(source);
+			for (Resource resource : source.find()) {
+				String name = resource.toStringRelativeTo(source);
+				if (resource instanceof Folder) {
+					Folder folder = destination.getFolder(name);
+					this.folders.put(folder.toString(), folder);
+				} else {
+					addFile((File) resource, destination.getFile(name));
+				}
+			}
+		}
+
+		public void addFile(File source, File destination) {
+			this.files.put(destination.toString(), new File[] { source, destination });
+		}
+
+		public void execute(boolean move) {
+			Batch batch = new Batch(this.files.size());
+			try {
+				for (Folder folder : this.folders.values()) {
+					batch.createFolder(folder);
+				}
+				for (File[] file : this.files.values()) {
+					if (move) {
+						batch.move(file[0], file[1]);
+					} else {
+						batch.copy(file[0], file[1]);
+					}
+				}
+			} catch (RuntimeException e) {
+				throw batch.finish(e);
+			}
+			batch.finish();
+			if (move) {
+				for (Folder folder : this.sourceFolders) {
+					folder.delete();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+/**
+ * Listener that can be used to track the progress of a {@link ResourceTransfer}. Listeners are called from worker
+ * threads and must be thread-safe.
+ * 
+ * @author Phillip Webb
+ * @see ResourceTransfer#setListener(ResourceTransferListener)
+ */
+public interface ResourceTransferListener {
+
+	/**
+	 * Called after a file has been transferred.
+	 * 
+	 * @param destination the destination file
+	 * @param completed the number of files that have been transferred so far
+	 * @param total the total number of files to transfer or <tt>-1</tt> if the total is not known
+	 */
+	void transferred(File destination, int completed, int total);
+}
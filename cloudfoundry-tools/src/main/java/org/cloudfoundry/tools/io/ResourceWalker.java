@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+/**
+ * Strategy interface used to control how a {@link Folder} is walked when {@link Folder#find(ResourceWalker) finding}
+ * nested resources. A walker can exclude resources, skip entire subtrees, limit the depth of the walk or terminate it
+ * early.
+ * 
+ * @author Phillip Webb
+ * @see PruningResourceWalker
+ * @see Folder#find(ResourceWalker)
+ */
+public interface ResourceWalker {
+
+	/**
+	 * The result of {@link ResourceWalker#visit visiting} a resource.
+	 */
+	public static enum Result {
+
+		/**
+		 * Include the resource and continue into any children.
+		 */
+		CONTINUE,
+
+		/**
+		 * Include the resource but do not visit any of its children.
+		 */
+		SKIP_CHILDREN,
+
+		/**
+		 * Exclude the resource but continue into any children.
+		 */
+		EXCLUDE,
+
+		/**
+		 * Exclude the resource and do not visit any of its children.
+		 */
+		PRUNE,
+
+		/**
+		 * Exclude the resource and stop walking.
+		 */
+		TERMINATE
+	}
+
+	/**
+	 * Visit a resource found during the walk. Folders are always visited before their children.
+	 * 
+	 * @param context the filter context. The {@link ResourceFilterContext#getSource() source} is the folder being
+	 * walked
+	 * @param resource the resource
+	 * @param depth the depth of the resource, immediate children of the folder being walked have a depth of 1
+	 * @return the result of the visit
+	 */
+	Result visit(ResourceFilterContext context, Resource resource, int depth);
+}
@@ -16,6 +16,7 @@
 package org.cloudfoundry.tools.io;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.cloudfoundry.tools.io.exception.ResourceDoesNotExistException;
 
@@ -99,6 +100,30 @@ public interface Resources<T extends Resource> extends Iterable<T> {
 	 */
 	<O extends ResourceOperation<T>> O performOperation(O operation);
 
+	/**
+	 * Perform the given operation with each {@link Resource} in this collection using multiple threads. Each thread
+	 * performs a {@link CombinableResourceOperation#split() split} of the operation and the results are
+	 * {@link CombinableResourceOperation#merge merged} into the specified operation before this method returns.
+	 * 
+	 * @param operation the operation to perform
+	 * @param parallelism the number of threads to use
+	 * @return the operation that was performed
+	 */
+	<O extends CombinableResourceOperation<T, O>> O performParallelOperation(O operation, int parallelism);
+
+	/**
+	 * Perform the given operation with each {@link Resource} in this collection using tasks submitted to the specified
+	 * executor. Each task performs a {@link CombinableResourceOperation#split() split} of the operation and the results
+	 * are {@link CombinableResourceOperation#merge merged} into the specified operation before this method returns.
+	 * 
+	 * @param operation the operation to perform
+	 * @param executor the executor used to run tasks
+	 * @param parallelism the number of tasks to submit
+	 * @return the operation that was performed
+	 */
+	<O extends CombinableResourceOperation<T, O>> O performParallelOperation(O operation, Executor executor,
+			int parallelism);
+
 	/**
 	 * Fetch all {@link Resource}s from this collection and return the result as a {@link List}. This will trigger
 	 * {@link #iterator() iteration} over each element.
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+/**
+ * {@link ResourceOperation} to get the total size of all files.
+ * 
+ * @author Phillip Webb
+ */
+public class TotalSize implements CombinableResourceOperation<File, TotalSize> {
+
+	private long value;
+
+	@Override
+	public void perform(File resource) {
+		this.value += resource.getSize();
+	}
+
+	@Override
+	public TotalSize split() {
+		return new TotalSize();
+	}
+
+	@Override
+	public void merge(TotalSize operation) {
+		this.value += operation.value;
+	}
+
+	public long getValue() {
+		return this.value;
+	}
+
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.dedup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudfoundry.tools.io.ByteBufferPool;
+import org.cloudfoundry.tools.io.ContentDigest;
+import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.Folder;
+import org.cloudfoundry.tools.io.Resource;
+import org.cloudfoundry.tools.io.exception.ResourceDoesNotExistException;
+import org.cloudfoundry.tools.io.exception.ResourceException;
+import org.springframework.util.Assert;
+
+/**
+ * A content-addressed table of blobs used by {@link DedupFolder}. Each blob is stored once in the underlying
+ * {@link Folder}, named using the {@link ContentDigest#MD5 MD5} hash of its content. A single {@link BlobStore} may be
+ * shared by any number of {@link DedupFolder}s so that identical content is stored only once.
+ * <p>
+ * Blobs are never deleted when a {@link DedupFile} stops using them since, without an atomic update in the underlying
+ * store, concurrent writers (possibly in other processes) could not safely agree on reference counts. Instead
+ * unreferenced blobs are removed by {@link #collectGarbage(DedupFolder...) collecting garbage}. Any number of
+ * {@link BlobStore} instances may use the same underlying folder. This class is thread-safe.
+ * 
+ * @author Phillip Webb
+ * @see DedupFolder
+ */
+public class BlobStore {
+
+	private static final String STAGING_FOLDER = ".staging";
+
+	private static final String TRASH_FOLDER = ".trash";
+
+	/**
+	 * The default {@link #setGracePeriod(long) grace period}.
+	 */
+	public static final long DEFAULT_GRACE_PERIOD = TimeUnit.HOURS.toMillis(1);
+
+	private final Folder folder;
+
+	private volatile long gracePeriod = DEFAULT_GRACE_PERIOD;
+
+	/**
+	 * Create a new {@link BlobStore} instance.
+	 * 
+	 * @param folder the folder used to store blobs. This may be any {@link Folder} implementation
+	 */
+	public BlobStore(Folder folder) {
+		Assert.notNull(folder, "Folder must not be null");
+		this.folder = folder;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the store contains a blob for the specified hash.
+	 * 
+	 * @param hash the MD5 hash of the content
+	 * @return if the blob exists
+	 */
+	public boolean contains(String hash) {
+		return getBlob(hash).exists();
+	}
+
+	/**
+	 * Set the grace period used when {@link #collectGarbage(DedupFolder...) collecting garbage}. Blobs stored or reused
+	 * within the grace period are never deleted, protecting content that is about to be referenced. The grace period
+	 * must be longer than the time taken to write a file and to collect garbage.
+	 * 
+	 * @param gracePeriod the grace period in milliseconds
+	 */
+	public void setGracePeriod(long gracePeriod) {
+		Assert.isTrue(gracePeriod >= 0, "GracePeriod must not be negative");
+		this.gracePeriod = gracePeriod;
+	}
+
+	/**
+	 * Returns the blob for the specified hash.
+	 * 
+	 * @param hash the MD5 hash of the content
+	 * @return the blob file
+	 */
+	File getBlob(String hash) {
+		Assert.hasLength(hash, "Hash must not be empty");
+		return this.folder.getFolder(getPrefix(hash)).getFile(hash);
+	}
+
+	private String getPrefix(String hash) {
+		return hash.substring(0, Math.min(2, hash.length()));
+	}
+
+	/**
+	 * Prepare an existing blob to be referenced, protecting it from garbage collection for the grace period.
+	 * 
+	 * @param hash the MD5 hash of the content
+	 * @return <tt>true</tt> if the blob can be referenced or <tt>false</tt> if the blob does not exist
+	 */
+	boolean retain(String hash) {
+		File blob = getBlob(hash);
+		try {
+			blob.touch();
+		} catch (ResourceDoesNotExistException e) {
+			return false;
+		}
+		// Check again in case the blob was collected while being touched
+		return blob.exists();
+	}
+
+	/**
+	 * Delete blobs that are not referenced by any of the specified folders and have not been stored or
+	 * {@link #retain(String) retained} within the grace period. Abandoned staging files are also deleted. All
+	 * {@link DedupFolder}s that use this store must be specified, otherwise content they reference will be lost.
+	 * 
+	 * @param folders all folders that reference blobs in this store
+	 * @return the number of blobs deleted
+	 */
+	public int collectGarbage(DedupFolder... folders) {
+		Assert.notNull(folders, "Folders must not be null");
+		long expired = System.currentTimeMillis() - this.gracePeriod;
+		Set<String> referenced = new HashSet<String>();
+		for (DedupFolder folder : folders) {
+			Assert.isTrue(equals(folder.getBlobStore()), "Folder " + folder + " does not use this blob store");
+			mark(folder.getNamespace(), referenced);
+		}
+		Folder trash = this.folder.getFolder(TRASH_FOLDER);
+		restore(trash, 0);
+		int deleted = 0;
+		for (Folder prefix : this.folder.list().folders()) {
+			if (STAGING_FOLDER.equals(prefix.getName())) {
+				for (File staged : prefix.list().files()) {
+					if (staged.getLastModified() < expired) {
+						staged.delete();
+					}
+				}
+			} else if (!TRASH_FOLDER.equals(prefix.getName())) {
+				for (File blob : prefix.list().files()) {
+					if (!referenced.contains(blob.getName()) && blob.getLastModified() < expired) {
+						blob.moveTo(trash);
+						deleted++;
+					}
+				}
+			}
+		}
+		// Blobs retained while being moved to the trash have a recent timestamp and must be restored
+		deleted -= restore(trash, expired);
+		trash.delete();
+		return deleted;
+	}
+
+	private void mark(Folder namespace, Set<String> referenced) {
+		if (!namespace.exists()) {
+			return;
+		}
+		for (Resource resource : namespace.find()) {
+			if (resource instanceof File) {
+				try {
+					referenced.add(((File) resource).getContent().asString().trim());
+				} catch (ResourceDoesNotExistException e) {
+					// Deleted while marking, any blob it referenced is no longer needed
+				}
+			}
+		}
+	}
+
+	/**
+	 * Restore blobs from the trash that have been modified since the specified time.
+	 * 
+	 * @param trash the trash folder
+	 * @param modifiedSince the time in milliseconds
+	 * @return the number of blobs restored
+	 */
+	private int restore(Folder trash, long modifiedSince) {
+		if (!trash.exists()) {
+			return 0;
+		}
+		int restored = 0;
+		for (File blob : trash.list().files()) {
+			if (blob.getLastModified() >= modifiedSince) {
+				if (contains(blob.getName())) {
+					blob.delete();
+				} else {
+					blob.moveTo(this.folder.getFolder(getPrefix(blob.getName())));
+				}
+				restored++;
+			}
+		}
+		return restored;
+	}
+
+	/**
+	 * Store content read from the specified input stream, retaining the resulting blob. The input stream is closed
+	 * when complete.
+	 * 
+	 * @param inputStream the input stream
+	 * @return the MD5 hash of the content
+	 */
+	String store(InputStream inputStream) {
+		BlobOutputStream outputStream = newOutputStream();
+		ByteBuffer buffer = ByteBufferPool.getHeapPool().acquire();
+		try {
+			try {
+				int read;
+				while ((read = inputStream.read(buffer.array())) != -1) {
+					outputStream.write(buffer.array(), 0, read);
+				}
+			} finally {
+				ByteBufferPool.getHeapPool().release(buffer);
+				inputStream.close();
+			}
+			outputStream.close();
+		} catch (IOException e) {
+			throw new ResourceException(e);
+		}
+		return outputStream.getHash();
+	}
+
+	/**
+	 * Returns a new output stream that can be used to store a blob. Content is written to a staging file and moved
+	 * into place when the stream is closed, at which point the blob is {@link #retain(String) retained}.
+	 * 
+	 * @return the output stream
+	 */
+	BlobOutputStream newOutputStream() {
+		File staged = this.folder.getFolder(STAGING_FOLDER).getFile(UUID.randomUUID().toString());
+		try {
+			return new BlobOutputStream(staged, MessageDigest.getInstance(ContentDigest.MD5));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void commit(File staged, String hash) {
+		if (retain(hash)) {
+			staged.delete();
+		} else {
+			staged.rename(hash).moveTo(this.folder.getFolder(getPrefix(hash)));
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return this.folder.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		return this.folder.equals(((BlobStore) obj).folder);
+	}
+
+	@Override
+	public String toString() {
+		return this.folder.toString();
+	}
+
+	/**
+	 * {@link OutputStream} used to write a new blob.
+	 */
+	class BlobOutputStream extends DigestOutputStream {
+
+		private final File staged;
+
+		private String hash;
+
+		public BlobOutputStream(File staged, MessageDigest digest) {
+			super(staged.getContent().asOutputStream(), digest);
+			this.staged = staged;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (this.hash == null) {
+				super.close();
+				this.hash = new ContentDigest(ContentDigest.MD5, getMessageDigest().digest()).getValue();
+				commit(this.staged, this.hash);
+			}
+		}
+
+		/**
+		 * Returns the hash of the blob, only available once the stream has been closed.
+		 * 
+		 * @return the hash
+		 */
+		public String getHash() {
+			Assert.state(this.hash != null, "Stream has not been closed");
+			return this.hash;
+		}
+	}
+}
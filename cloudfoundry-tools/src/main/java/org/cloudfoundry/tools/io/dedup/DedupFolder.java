@@ -0,0 +1,94 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.dedup;
+
+import org.cloudfoundry.tools.io.Folder;
+import org.cloudfoundry.tools.io.JailedResourcePath;
+import org.cloudfoundry.tools.io.dedup.DedupResourceStore.DedupFolderStore;
+import org.cloudfoundry.tools.io.store.FolderStore;
+import org.cloudfoundry.tools.io.store.StoredFolder;
+
+/**
+ * A {@link Folder} implementation that stores file content only once regardless of how many files share it. File
+ * content is held in a content-addressed {@link BlobStore} keyed by MD5 digest, the folder structure is held in a
+ * separate namespace {@link Folder} where each file references a blob. Copying or moving files between
+ * {@link DedupFolder}s that share a {@link BlobStore} only adds a reference. Content that is no longer referenced is
+ * removed using {@link BlobStore#collectGarbage(DedupFolder...)}.
+ * 
+ * @author Phillip Webb
+ * @see DedupFile
+ */
+public class DedupFolder extends StoredFolder {
+
+	private static final String TREE_FOLDER = "tree";
+
+	private static final String BLOBS_FOLDER = "blobs";
+
+	private final DedupFolderStore store;
+
+	/**
+	 * Package level constructor used when accessing nested folders.
+	 * 
+	 * @param store the store
+	 */
+	DedupFolder(DedupFolderStore store) {
+		this.store = store;
+	}
+
+	/**
+	 * Create a new {@link DedupFolder} backed by the specified folder. The folder structure is stored in a
+	 * <tt>tree</tt> sub-folder and the content in a <tt>blobs</tt> sub-folder.
+	 * 
+	 * @param folder the underlying folder
+	 */
+	public DedupFolder(Folder folder) {
+		this(folder.getFolder(TREE_FOLDER), new BlobStore(folder.getFolder(BLOBS_FOLDER)));
+	}
+
+	/**
+	 * Create a new {@link DedupFolder} using the specified namespace folder and {@link BlobStore}. Several
+	 * {@link DedupFolder}s can share the same {@link BlobStore}.
+	 * 
+	 * @param namespace the folder used to store the folder structure
+	 * @param blobStore the blob store used to store file content
+	 */
+	public DedupFolder(Folder namespace, BlobStore blobStore) {
+		this.store = new DedupFolderStore(namespace, blobStore, new JailedResourcePath());
+	}
+
+	@Override
+	protected FolderStore getStore() {
+		return this.store;
+	}
+
+	/**
+	 * Returns the namespace folder used to store the folder structure.
+	 * 
+	 * @return the namespace folder
+	 */
+	Folder getNamespace() {
+		return this.store.getNamespace();
+	}
+
+	/**
+	 * Returns the {@link BlobStore} used to hold file content.
+	 * 
+	 * @return the blob store
+	 */
+	public BlobStore getBlobStore() {
+		return this.store.getBlobStore();
+	}
+}
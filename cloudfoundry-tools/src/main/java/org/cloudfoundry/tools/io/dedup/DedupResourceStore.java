@@ -0,0 +1,330 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.dedup;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudfoundry.tools.io.ContentDigest;
+import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.Folder;
+import org.cloudfoundry.tools.io.JailedResourcePath;
+import org.cloudfoundry.tools.io.Resource;
+import org.cloudfoundry.tools.io.ResourcePath;
+import org.cloudfoundry.tools.io.dedup.BlobStore.BlobOutputStream;
+import org.cloudfoundry.tools.io.exception.ResourceDoesNotExistException;
+import org.cloudfoundry.tools.io.store.DigestFileStore;
+import org.cloudfoundry.tools.io.store.FileStore;
+import org.cloudfoundry.tools.io.store.FolderStore;
+import org.cloudfoundry.tools.io.store.ResourceStore;
+import org.cloudfoundry.tools.io.store.TransferableFileStore;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * {@link ResourceStore}s for {@link DedupFile} and {@link DedupFolder}. The folder structure is held in a namespace
+ * {@link Folder} where each file contains only the hash of a blob held in a {@link BlobStore}.
+ * 
+ * @author Phillip Webb
+ */
+abstract class DedupResourceStore implements ResourceStore {
+
+	private final Folder namespace;
+
+	private final BlobStore blobStore;
+
+	private final JailedResourcePath path;
+
+	public DedupResourceStore(Folder namespace, BlobStore blobStore, JailedResourcePath path) {
+		Assert.notNull(namespace, "Namespace must not be null");
+		Assert.notNull(blobStore, "BlobStore must not be null");
+		Assert.notNull(path, "Path must not be null");
+		this.namespace = namespace;
+		this.blobStore = blobStore;
+		this.path = path;
+	}
+
+	protected final Folder getNamespace() {
+		return this.namespace;
+	}
+
+	protected final BlobStore getBlobStore() {
+		return this.blobStore;
+	}
+
+	@Override
+	public JailedResourcePath getPath() {
+		return this.path;
+	}
+
+	@Override
+	public Resource getExisting(JailedResourcePath path) {
+		ResourcePath unjailedPath = path.getUnjailedPath();
+		if (unjailedPath.isRootPath()) {
+			return (this.namespace.exists() ? getFolder(path) : null);
+		}
+		String name = getNamespaceName(unjailedPath);
+		if (!this.namespace.hasExisting(name)) {
+			return null;
+		}
+		Resource resource = this.namespace.getExisting(name);
+		return (resource instanceof Folder ? getFolder(path) : getFile(path));
+	}
+
+	@Override
+	public Folder getFolder(JailedResourcePath path) {
+		return new DedupFolder(new DedupFolderStore(this.namespace, this.blobStore, path));
+	}
+
+	@Override
+	public File getFile(JailedResourcePath path) {
+		return new DedupFile(new DedupFileStore(this.namespace, this.blobStore, path));
+	}
+
+	/**
+	 * Returns the name of the namespace resource for the specified path. Names are relative so that the namespace
+	 * folder need not be jailed.
+	 * 
+	 * @param path the path
+	 * @return the relative name
+	 */
+	protected final String getNamespaceName(ResourcePath path) {
+		return path.toString().substring(1);
+	}
+
+	@Override
+	public boolean exists() {
+		return getNamespaceResource().exists();
+	}
+
+	@Override
+	public Resource rename(String name) {
+		getNamespaceResource().rename(name);
+		return getRenamedResource(getPath().getParent().get(name));
+	}
+
+	protected abstract Resource getRenamedResource(JailedResourcePath path);
+
+	/**
+	 * Returns the resource from the namespace folder that corresponds to this store.
+	 * 
+	 * @return the namespace resource
+	 */
+	protected abstract Resource getNamespaceResource();
+
+	@Override
+	public int hashCode() {
+		return this.namespace.hashCode() * 31 + this.path.getUnjailedPath().hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		DedupResourceStore other = (DedupResourceStore) obj;
+		return this.blobStore.equals(other.blobStore) && ObjectUtils.nullSafeEquals(this.namespace, other.namespace)
+				&& ObjectUtils.nullSafeEquals(this.path.getUnjailedPath(), other.path.getUnjailedPath());
+	}
+
+	static class DedupFileStore extends DedupResourceStore implements DigestFileStore, TransferableFileStore {
+
+		public DedupFileStore(Folder namespace, BlobStore blobStore, JailedResourcePath path) {
+			super(namespace, blobStore, path);
+		}
+
+		@Override
+		protected File getNamespaceResource() {
+			return getNamespace().getFile(getNamespaceName(getPath().getUnjailedPath()));
+		}
+
+		@Override
+		protected Resource getRenamedResource(JailedResourcePath path) {
+			return getFile(path);
+		}
+
+		/**
+		 * Returns the hash of the blob referenced by this file.
+		 * 
+		 * @return the hash
+		 */
+		private String getHash() {
+			File pointer = getNamespaceResource();
+			if (!pointer.exists()) {
+				throw new ResourceDoesNotExistException(pointer);
+			}
+			return pointer.getContent().asString().trim();
+		}
+
+		@Override
+		public void create() {
+			link(getBlobStore().store(new ByteArrayInputStream(new byte[] {})));
+		}
+
+		@Override
+		public void delete() {
+			getNamespaceResource().delete();
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return getBlobStore().getBlob(getHash()).getContent().asInputStream();
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			final BlobOutputStream blobOutputStream = getBlobStore().newOutputStream();
+			return new FilterOutputStream(blobOutputStream) {
+
+				private boolean closed;
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					this.out.write(b, off, len);
+				}
+
+				@Override
+				public void close() throws IOException {
+					if (!this.closed) {
+						this.closed = true;
+						super.close();
+						link(blobOutputStream.getHash());
+					}
+				}
+			};
+		}
+
+		/**
+		 * Write content by referencing an existing blob. Used to avoid storing content that is already held
+		 * by the blob store.
+		 * 
+		 * @param file the source file
+		 * @return <tt>true</tt> if the content was linked or <tt>false</tt> if the content must be written
+		 */
+		public boolean write(File file) {
+			ContentDigest digest = file.getDigest();
+			if (ContentDigest.MD5.equals(digest.getAlgorithm()) && getBlobStore().retain(digest.getValue())) {
+				link(digest.getValue());
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Point this file at the specified blob. The caller must have already {@link BlobStore#retain(String)
+		 * retained} the blob. Any previously referenced blob is left for garbage collection.
+		 * 
+		 * @param hash the blob hash
+		 */
+		private void link(String hash) {
+			getNamespaceResource().getContent().write(hash);
+		}
+
+		@Override
+		public long getSize() {
+			return getBlobStore().getBlob(getHash()).getSize();
+		}
+
+		@Override
+		public long getLastModified() {
+			return getNamespaceResource().getLastModified();
+		}
+
+		@Override
+		public void touch() {
+			getNamespaceResource().touch();
+		}
+
+		@Override
+		public ContentDigest getDigest() {
+			return new ContentDigest(ContentDigest.MD5, getHash());
+		}
+
+		@Override
+		public boolean moveTo(FileStore destination) {
+			if (!copyTo(destination)) {
+				return false;
+			}
+			delete();
+			return true;
+		}
+
+		@Override
+		public boolean copyTo(FileStore destination) {
+			if (!(destination instanceof DedupFileStore)) {
+				return false;
+			}
+			DedupFileStore target = (DedupFileStore) destination;
+			String hash = getHash();
+			if (!target.getBlobStore().equals(getBlobStore()) || !getBlobStore().retain(hash)) {
+				return false;
+			}
+			target.link(hash);
+			return true;
+		}
+	}
+
+	static class DedupFolderStore extends DedupResourceStore implements FolderStore {
+
+		public DedupFolderStore(Folder namespace, BlobStore blobStore, JailedResourcePath path) {
+			super(namespace, blobStore, path);
+		}
+
+		@Override
+		protected Folder getNamespaceResource() {
+			ResourcePath unjailedPath = getPath().getUnjailedPath();
+			if (unjailedPath.isRootPath()) {
+				return getNamespace();
+			}
+			return getNamespace().getFolder(getNamespaceName(unjailedPath));
+		}
+
+		@Override
+		protected Resource getRenamedResource(JailedResourcePath path) {
+			return getFolder(path);
+		}
+
+		@Override
+		public void create() {
+			getNamespaceResource().createIfMissing();
+		}
+
+		@Override
+		public void delete() {
+			getNamespaceResource().delete();
+		}
+
+		@Override
+		public Iterable<String> list() {
+			List<String> names = new ArrayList<String>();
+			for (Resource resource : getNamespaceResource().list()) {
+				names.add(resource.getName());
+			}
+			return names;
+		}
+	}
+}
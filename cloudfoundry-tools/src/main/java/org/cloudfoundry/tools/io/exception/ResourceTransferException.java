@@ -0,0 +1,53 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.exception;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.cloudfoundry.tools.io.File;
+
+/**
+ * {@link ResourceException} thrown when one or more files could not be transferred.
+ * 
+ * @author Phillip Webb
+ * @see org.cloudfoundry.tools.io.ResourceTransfer
+ */
+public class ResourceTransferException extends ResourceException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient Map<File, Throwable> failures;
+
+	public ResourceTransferException(Map<File, Throwable> failures, int total) {
+		super("Unable to transfer " + failures.size() + " of " + total + " file(s)", getFirstCause(failures));
+		this.failures = Collections.unmodifiableMap(new LinkedHashMap<File, Throwable>(failures));
+	}
+
+	private static Throwable getFirstCause(Map<File, Throwable> failures) {
+		return failures.isEmpty() ? null : failures.values().iterator().next();
+	}
+
+	/**
+	 * Returns the destination files that could not be transferred along with the cause of each failure.
+	 * 
+	 * @return the failures
+	 */
+	public Map<File, Throwable> getFailures() {
+		return this.failures;
+	}
+}
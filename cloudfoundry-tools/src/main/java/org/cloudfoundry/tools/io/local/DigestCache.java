@@ -0,0 +1,157 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.cloudfoundry.tools.io.ContentDigest;
+import org.cloudfoundry.tools.io.exception.ResourceException;
+import org.springframework.util.Assert;
+
+/**
+ * A shared cache of {@link ContentDigest digests} calculated from local files. Digests are calculated once and reused
+ * until the size or last modified date of the underlying file changes or the file is modified using a
+ * {@link LocalFile}. The least recently used digests are evicted when the cache is full. This class is thread-safe.
+ * 
+ * @author Phillip Webb
+ * @see LocalFile#getDigest()
+ */
+public class DigestCache {
+
+	/**
+	 * The default maximum number of digests that are cached.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+	private static final DigestCache INSTANCE = new DigestCache();
+
+	private final Map<java.io.File, Entry> entries;
+
+	/**
+	 * Create a new {@link DigestCache} with default settings.
+	 */
+	public DigestCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Create a new {@link DigestCache} instance.
+	 * 
+	 * @param maxSize the maximum number of digests that are cached
+	 */
+	public DigestCache(final int maxSize) {
+		Assert.isTrue(maxSize > 0, "MaxSize must be positive");
+		this.entries = new LinkedHashMap<java.io.File, Entry>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<java.io.File, DigestCache.Entry> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the digest of the specified file, calculating it if the file has not been cached or has changed.
+	 * 
+	 * @param file the file
+	 * @return the digest
+	 */
+	public ContentDigest get(java.io.File file) {
+		Assert.notNull(file, "File must not be null");
+		long size = file.length();
+		long lastModified = file.lastModified();
+		synchronized (this.entries) {
+			Entry entry = this.entries.get(file);
+			if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+				return entry.digest;
+			}
+		}
+		ContentDigest digest = calculate(file);
+		if (file.length() == size && file.lastModified() == lastModified) {
+			synchronized (this.entries) {
+				this.entries.put(file, new Entry(size, lastModified, digest));
+			}
+		}
+		return digest;
+	}
+
+	private ContentDigest calculate(java.io.File file) {
+		try {
+			return ContentDigest.calculate(new BufferedInputStream(new FileInputStream(file)));
+		} catch (FileNotFoundException e) {
+			throw new ResourceException(e);
+		}
+	}
+
+	/**
+	 * Invalidate any cached digest of the specified file.
+	 * 
+	 * @param file the file
+	 */
+	public void invalidate(java.io.File file) {
+		synchronized (this.entries) {
+			this.entries.remove(file);
+		}
+	}
+
+	/**
+	 * Remove all cached digests.
+	 */
+	public void clear() {
+		synchronized (this.entries) {
+			this.entries.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of cached digests.
+	 * 
+	 * @return the size
+	 */
+	public int size() {
+		synchronized (this.entries) {
+			return this.entries.size();
+		}
+	}
+
+	/**
+	 * Returns the shared {@link DigestCache} instance used by {@link LocalFile}s.
+	 * 
+	 * @return the shared instance
+	 */
+	public static DigestCache getInstance() {
+		return INSTANCE;
+	}
+
+	private static class Entry {
+
+		private final long size;
+
+		private final long lastModified;
+
+		private final ContentDigest digest;
+
+		public Entry(long size, long lastModified, ContentDigest digest) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.digest = digest;
+		}
+	}
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Attempts to clone files without copying content, used for {@link LocalCopyMode#CLONE}. The capabilities of each
+ * file system are detected on first use and remembered so that unsupported operations are not attempted again.
+ * 
+ * @author Phillip Webb
+ */
+class FileCloner {
+
+	/**
+	 * Files smaller than this are not cloned using reflinks since starting a process takes longer than the copy.
+	 */
+	private static final long REFLINK_THRESHOLD = 128 * 1024;
+
+	private static final int OWNER_WRITE_MODE = 0200;
+
+	private static final boolean REFLINK_AVAILABLE = java.io.File.separatorChar == '/';
+
+	private static final Map<Object, Capabilities> capabilities = new ConcurrentHashMap<Object, Capabilities>();
+
+	private FileCloner() {
+	}
+
+	/**
+	 * Attempt to clone the source file to the destination. The parent of the destination must exist.
+	 * 
+	 * @param source the source file
+	 * @param destination the destination file, replaced if it exists
+	 * @return <tt>true</tt> if the file was cloned or <tt>false</tt> if the content must be copied
+	 */
+	public static boolean clone(Path source, Path destination) {
+		Object device = getDevice(source);
+		if (device == null || !device.equals(getDevice(destination.getParent()))) {
+			return false;
+		}
+		Capabilities deviceCapabilities = getCapabilities(device);
+		if (deviceCapabilities.isReflinkSupported() && size(source) >= REFLINK_THRESHOLD) {
+			ReflinkResult result = reflink(source, destination);
+			if (result == ReflinkResult.CLONED) {
+				return true;
+			}
+			if (result == ReflinkResult.UNSUPPORTED) {
+				deviceCapabilities.setReflinkSupported(false);
+			}
+		}
+		if (deviceCapabilities.isHardLinkSupported() && isImmutable(source)) {
+			try {
+				Files.deleteIfExists(destination);
+				Files.createLink(destination, source);
+				return true;
+			} catch (UnsupportedOperationException e) {
+				deviceCapabilities.setHardLinkSupported(false);
+			} catch (IOException e) {
+				// Fall back to a copy for this file, for example if the link count limit has been reached
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Remove a file that shares its content via a hard link created by {@link #clone(Path, Path)}, ensuring that
+	 * written content does not change the source. Should only be called for files in a {@link LocalCopyMode#CLONE}
+	 * folder since any read-only file with several links is assumed to be a clone.
+	 * 
+	 * @param file the file about to be written
+	 */
+	public static void unlinkIfShared(Path file) {
+		if (isSharedLink(file)) {
+			try {
+				Files.delete(file);
+			} catch (IOException e) {
+				// Writing will fail as the file is read-only
+			}
+		}
+	}
+
+	/**
+	 * Replace a file that shares its content via a hard link created by {@link #clone(Path, Path)} with a private
+	 * copy, ensuring that changes to its attributes do not change the source. Should only be called for files in a
+	 * {@link LocalCopyMode#CLONE} folder.
+	 * 
+	 * @param file the file about to be changed
+	 */
+	public static void unshareIfShared(Path file) {
+		if (isSharedLink(file)) {
+			Path copy = file.resolveSibling("." + file.getFileName() + ".unshare");
+			try {
+				Files.copy(file, copy, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
+				Files.move(copy, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				try {
+					Files.deleteIfExists(copy);
+				} catch (IOException ex) {
+					// Leave the copy, it will be replaced next time
+				}
+			}
+		}
+	}
+
+	private static boolean isSharedLink(Path file) {
+		try {
+			Map<String, Object> attributes = Files.readAttributes(file, "unix:nlink,mode");
+			int links = (Integer) attributes.get("nlink");
+			int mode = (Integer) attributes.get("mode");
+			return links > 1 && (mode & OWNER_WRITE_MODE) == 0;
+		} catch (UnsupportedOperationException e) {
+			return false;
+		} catch (IllegalArgumentException e) {
+			return false;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static Object getDevice(Path path) {
+		try {
+			return Files.getAttribute(path, "unix:dev");
+		} catch (UnsupportedOperationException e) {
+			return null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static Capabilities getCapabilities(Object device) {
+		Capabilities deviceCapabilities = capabilities.get(device);
+		if (deviceCapabilities == null) {
+			deviceCapabilities = new Capabilities(REFLINK_AVAILABLE);
+			capabilities.put(device, deviceCapabilities);
+		}
+		return deviceCapabilities;
+	}
+
+	private static long size(Path path) {
+		try {
+			return Files.size(path);
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static boolean isImmutable(Path path) {
+		try {
+			return !Files.getPosixFilePermissions(path).contains(PosixFilePermission.OWNER_WRITE);
+		} catch (UnsupportedOperationException e) {
+			try {
+				return Files.readAttributes(path, DosFileAttributes.class).isReadOnly();
+			} catch (Exception ex) {
+				return false;
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Clone a file using a copy-on-write reflink. The JDK offers no API for reflinks so <tt>cp</tt> is used.
+	 * 
+	 * @param source the source
+	 * @param destination the destination
+	 * @return the result of the reflink
+	 */
+	private static ReflinkResult reflink(Path source, Path destination) {
+		Process process;
+		try {
+			ProcessBuilder builder = new ProcessBuilder("cp", "--reflink=always", "--", source.toString(),
+					destination.toString());
+			builder.environment().put("LC_ALL", "C");
+			builder.redirectErrorStream(true);
+			process = builder.start();
+		} catch (IOException e) {
+			// Unable to run cp at all
+			return ReflinkResult.UNSUPPORTED;
+		}
+		try {
+			StringBuilder output = new StringBuilder();
+			InputStream inputStream = process.getInputStream();
+			try {
+				int ch;
+				while ((ch = inputStream.read()) != -1) {
+					output.append((char) ch);
+				}
+			} finally {
+				inputStream.close();
+			}
+			if (process.waitFor() == 0) {
+				return ReflinkResult.CLONED;
+			}
+			return (isUnsupported(output.toString()) ? ReflinkResult.UNSUPPORTED : ReflinkResult.FAILED);
+		} catch (IOException e) {
+			return ReflinkResult.FAILED;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return ReflinkResult.FAILED;
+		}
+	}
+
+	/**
+	 * Determine if <tt>cp</tt> failed because the file system (or <tt>cp</tt> itself) does not support reflinks, rather
+	 * than because of a problem with the specific file such as permissions or lack of space.
+	 * 
+	 * @param output the output from <tt>cp</tt>
+	 * @return if reflinks are not supported
+	 */
+	static boolean isUnsupported(String output) {
+		String message = output.toLowerCase(Locale.ENGLISH);
+		return message.contains("not supported")
+				|| message.contains("inappropriate ioctl") || message.contains("invalid cross-device link")
+				|| message.contains("unrecognized option") || message.contains("invalid argument");
+	}
+
+	private static enum ReflinkResult {
+		CLONED, UNSUPPORTED, FAILED
+	}
+
+	/**
+	 * The detected capabilities of a file system.
+	 */
+	private static class Capabilities {
+
+		private volatile boolean reflinkSupported;
+
+		private volatile boolean hardLinkSupported = true;
+
+		public Capabilities(boolean reflinkSupported) {
+			this.reflinkSupported = reflinkSupported;
+		}
+
+		public boolean isReflinkSupported() {
+			return this.reflinkSupported;
+		}
+
+		public void setReflinkSupported(boolean reflinkSupported) {
+			this.reflinkSupported = reflinkSupported;
+		}
+
+		public boolean isHardLinkSupported() {
+			return this.hardLinkSupported;
+		}
+
+		public void setHardLinkSupported(boolean hardLinkSupported) {
+			this.hardLinkSupported = hardLinkSupported;
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudfoundry.tools.io.store.ResourceAttributes;
+import org.springframework.util.Assert;
+
+/**
+ * A cache of the names and types of resources contained in local folders. A cached listing is reused for as long as
+ * the last modified time of the folder is unchanged so that repeated listings cost a single file system call rather
+ * than reading the folder. Listings of folders that have been modified very recently are not cached since some file
+ * systems only record modification times to the nearest second or two. The least recently used listings are evicted
+ * when the cache is full. This class is thread-safe.
+ * 
+ * @author Phillip Webb
+ * @see LocalFolder#setListingCache(ListingCache)
+ */
+public class ListingCache {
+
+	/**
+	 * The default maximum number of folder listings that are cached.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+	/**
+	 * Folders modified within this many milliseconds are not cached.
+	 */
+	private static final long RECENTLY_MODIFIED = 2000;
+
+	private static final ListingCache INSTANCE = new ListingCache();
+
+	private final Map<Path, Listing> listings;
+
+	/**
+	 * Create a new {@link ListingCache} with default settings.
+	 */
+	public ListingCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Create a new {@link ListingCache} instance.
+	 * 
+	 * @param maxSize the maximum number of folder listings that are cached
+	 */
+	public ListingCache(final int maxSize) {
+		Assert.isTrue(maxSize > 0, "MaxSize must be positive");
+		this.listings = new LinkedHashMap<Path, Listing>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Path, Listing> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the {@link ResourceAttributes#isTypeOnly() type only} attributes of the resources contained in the
+	 * specified folder, reading the folder only if it has not been cached or has changed.
+	 * 
+	 * @param folder the folder
+	 * @return the attributes of the folder contents
+	 * @throws IOException if the folder cannot be read
+	 */
+	List<ResourceAttributes> list(Path folder) throws IOException {
+		Assert.notNull(folder, "Folder must not be null");
+		FileTime lastModified = Files.readAttributes(folder, BasicFileAttributes.class).lastModifiedTime();
+		synchronized (this.listings) {
+			Listing listing = this.listings.get(folder);
+			if (listing != null && listing.getLastModified().equals(lastModified)) {
+				return listing.getContents();
+			}
+		}
+		List<ResourceAttributes> contents = read(folder);
+		if (System.currentTimeMillis() - lastModified.toMillis() > RECENTLY_MODIFIED) {
+			synchronized (this.listings) {
+				this.listings.put(folder, new Listing(lastModified, contents));
+			}
+		}
+		return contents;
+	}
+
+	private List<ResourceAttributes> read(Path folder) throws IOException {
+		List<ResourceAttributes> contents = new ArrayList<ResourceAttributes>();
+		DirectoryStream<Path> directoryStream = Files.newDirectoryStream(folder);
+		try {
+			for (Path child : directoryStream) {
+				BasicFileAttributes attributes = LocalResourceStore.readAttributes(child);
+				if (attributes != null) {
+					contents.add(new ResourceAttributes(child.getFileName().toString(), attributes.isDirectory()));
+				}
+			}
+		} finally {
+			directoryStream.close();
+		}
+		return Collections.unmodifiableList(contents);
+	}
+
+	/**
+	 * Invalidate any cached listing of the specified folder.
+	 * 
+	 * @param folder the folder
+	 */
+	public void invalidate(java.io.File folder) {
+		synchronized (this.listings) {
+			this.listings.remove(folder.toPath());
+		}
+	}
+
+	/**
+	 * Remove all cached listings.
+	 */
+	public void clear() {
+		synchronized (this.listings) {
+			this.listings.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of cached listings.
+	 * 
+	 * @return the size
+	 */
+	public int size() {
+		synchronized (this.listings) {
+			return this.listings.size();
+		}
+	}
+
+	/**
+	 * Returns a shared {@link ListingCache} instance.
+	 * 
+	 * @return the shared instance
+	 */
+	public static ListingCache getInstance() {
+		return INSTANCE;
+	}
+
+	private static class Listing {
+
+		private final FileTime lastModified;
+
+		private final List<ResourceAttributes> contents;
+
+		public Listing(FileTime lastModified, List<ResourceAttributes> contents) {
+			this.lastModified = lastModified;
+			this.contents = contents;
+		}
+
+		public FileTime getLastModified() {
+			return this.lastModified;
+		}
+
+		public List<ResourceAttributes> getContents() {
+			return this.contents;
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+/**
+ * Modes that can be used when copying files between {@link LocalFolder}s.
+ * 
+ * @author Phillip Webb
+ * @see LocalFolder#LocalFolder(java.io.File, LocalCopyMode)
+ */
+public enum LocalCopyMode {
+
+	/**
+	 * Copy file content byte by byte.
+	 */
+	COPY,
+
+	/**
+	 * Share file content where possible. A copy-on-write clone (reflink) is attempted first, files that are marked as
+	 * immutable by having no owner write permission are then hard linked. If neither is supported by the file system
+	 * the content is copied. Clones and links are only attempted when the source and destination are on the same file
+	 * system. Writing to or touching a read-only file that has several hard links replaces it rather than changing the
+	 * shared content. Hard links between read-only files should not otherwise be used in a folder with this mode.
+	 */
+	CLONE
+}
@@ -17,9 +17,14 @@ package org.cloudfoundry.tools.io.local;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.cloudfoundry.tools.io.Folder;
 import org.cloudfoundry.tools.io.JailedResourcePath;
+import org.cloudfoundry.tools.io.Resource;
+import org.cloudfoundry.tools.io.Resources;
+import org.cloudfoundry.tools.io.ResourcesCollection;
 import org.cloudfoundry.tools.io.exception.ResourceException;
 import org.cloudfoundry.tools.io.local.LocalResourceStore.LocalFolderStore;
 import org.cloudfoundry.tools.io.store.FolderStore;
@@ -61,7 +66,19 @@ public class LocalFolder extends StoredFolder {
 	 * @param folder the underlying folder
 	 */
 	public LocalFolder(java.io.File folder) {
+		this(folder, LocalCopyMode.COPY);
+	}
+
+	/**
+	 * Create a new {@link LocalFolder} for the specified folder using the specified copy mode. The copy mode is used
+	 * when files are copied into this folder from another {@link LocalFolder}.
+	 * 
+	 * @param folder the underlying folder
+	 * @param copyMode the copy mode
+	 */
+	public LocalFolder(java.io.File folder, LocalCopyMode copyMode) {
 		this.store = new LocalFolderStore(folder, new JailedResourcePath());
+		this.store.setCopyMode(copyMode);
 	}
 
 	@Override
@@ -78,6 +95,81 @@ public class LocalFolder extends StoredFolder {
 		return this.store.getFile();
 	}
 
+	@Override
+	public void delete() {
+		if (exists()) {
+			LocalTreeOperations.delete(getLocalFile());
+		}
+	}
+
+	@Override
+	public Folder copyTo(Folder folder) {
+		if (!(folder instanceof LocalFolder)) {
+			return super.copyTo(folder);
+		}
+		ensureExists();
+		Assert.state(getPath().getParent() != null, "Unable to copy a root folder");
+		LocalFolder destination = (LocalFolder) folder.getFolder(getName());
+		destination.createIfMissing();
+		LocalTreeOperations.copyContents(this, destination);
+		return destination;
+	}
+
+	@Override
+	public Resources<Resource> copyContentsTo(Folder folder) {
+		if (!(folder instanceof LocalFolder) || !exists()) {
+			return super.copyContentsTo(folder);
+		}
+		folder.createIfMissing();
+		List<String> names = new ArrayList<String>();
+		for (String name : getStore().list()) {
+			names.add(name);
+		}
+		LocalTreeOperations.copyContents(this, (LocalFolder) folder);
+		List<Resource> copied = new ArrayList<Resource>();
+		for (String name : names) {
+			// Entries that could not be copied, such as broken links, are not included
+			if (folder.hasExisting(name)) {
+				copied.add(folder.getExisting(name));
+			}
+		}
+		return new ResourcesCollection<Resource>(folder, copied);
+	}
+
+	/**
+	 * Watch this folder and all nested folders for changes using a {@link LocalFolderWatcher} with default settings.
+	 * The returned watcher has been started and should be {@link LocalFolderWatcher#stop() stopped} when changes are
+	 * no longer required.
+	 * 
+	 * @param listener the listener to notify of changes
+	 * @return the started watcher
+	 */
+	public LocalFolderWatcher watch(ResourceChangeListener listener) {
+		LocalFolderWatcher watcher = new LocalFolderWatcher(this, listener);
+		watcher.start();
+		return watcher;
+	}
+
+	/**
+	 * Returns the mode used when files are copied into this folder from another {@link LocalFolder}.
+	 * 
+	 * @return the copy mode
+	 */
+	public LocalCopyMode getCopyMode() {
+		return this.store.getCopyMode();
+	}
+
+	/**
+	 * Set the {@link ListingCache} used when listing this folder and any folder subsequently obtained from it. Listing
+	 * caches are not used unless set.
+	 * 
+	 * @param listingCache the listing cache or <tt>null</tt> to read folders each time they are listed
+	 * @see ListingCache#getInstance()
+	 */
+	public void setListingCache(ListingCache listingCache) {
+		this.store.setListingCache(listingCache);
+	}
+
 	/**
 	 * @return The user home folder
 	 */
@@ -0,0 +1,488 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.cloudfoundry.tools.io.ResourcePath;
+import org.cloudfoundry.tools.io.local.ResourceChange.Type;
+import org.springframework.util.Assert;
+
+/**
+ * Watches a {@link LocalFolder} and all nested folders, notifying a {@link ResourceChangeListener} when resources are
+ * created, modified or deleted. Changes are detected using a JDK {@link WatchService} and are coalesced so that a burst
+ * of changes results in a single notification. Continuous changes are delivered in batches once the
+ * {@link #setMaxCoalesceTime(long) maximum coalesce time} or {@link #setMaxChanges(int) maximum number of changes} has
+ * been reached. If a {@link WatchService} cannot be used, for example because the
+ * operating system limit on watched folders has been reached, the watcher falls back to periodically scanning the
+ * folder. Notifications are delivered from a single daemon thread.
+ * 
+ * @author Phillip Webb
+ * @see LocalFolder#watch(ResourceChangeListener)
+ */
+public class LocalFolderWatcher {
+
+	/**
+	 * The default time in milliseconds to wait for further changes before notifying the listener.
+	 */
+	public static final long DEFAULT_COALESCE_DELAY = 100;
+
+	/**
+	 * The default maximum time in milliseconds that changes are coalesced before notifying the listener.
+	 */
+	public static final long DEFAULT_MAX_COALESCE_TIME = 1000;
+
+	/**
+	 * The default maximum number of changes that are coalesced before notifying the listener.
+	 */
+	public static final int DEFAULT_MAX_CHANGES = 10000;
+
+	/**
+	 * The default time in milliseconds between scans when polling.
+	 */
+	public static final long DEFAULT_POLL_INTERVAL = 2000;
+
+	private static final Log logger = LogFactory.getLog(LocalFolderWatcher.class);
+
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+	private final Path root;
+
+	private final ResourceChangeListener listener;
+
+	private long coalesceDelay = DEFAULT_COALESCE_DELAY;
+
+	private long maxCoalesceTime = DEFAULT_MAX_COALESCE_TIME;
+
+	private int maxChanges = DEFAULT_MAX_CHANGES;
+
+	private long pollInterval = DEFAULT_POLL_INTERVAL;
+
+	private boolean pollingOnly;
+
+	private volatile boolean polling;
+
+	private volatile boolean running;
+
+	private Thread thread;
+
+	/**
+	 * Create a new {@link LocalFolderWatcher} instance.
+	 * 
+	 * @param folder the folder to watch
+	 * @param listener the listener to notify
+	 */
+	public LocalFolderWatcher(LocalFolder folder, ResourceChangeListener listener) {
+		Assert.notNull(folder, "Folder must not be null");
+		Assert.notNull(listener, "Listener must not be null");
+		this.root = folder.getLocalFile().toPath();
+		this.listener = listener;
+	}
+
+	/**
+	 * Set the time to wait for further changes before notifying the listener.
+	 * 
+	 * @param coalesceDelay the delay in milliseconds
+	 */
+	public void setCoalesceDelay(long coalesceDelay) {
+		Assert.isTrue(coalesceDelay >= 0, "CoalesceDelay must not be negative");
+		this.coalesceDelay = coalesceDelay;
+	}
+
+	/**
+	 * Set the maximum time to coalesce changes before notifying the listener, even if further changes are still
+	 * arriving.
+	 * 
+	 * @param maxCoalesceTime the maximum time in milliseconds
+	 */
+	public void setMaxCoalesceTime(long maxCoalesceTime) {
+		Assert.isTrue(maxCoalesceTime >= 0, "MaxCoalesceTime must not be negative");
+		this.maxCoalesceTime = maxCoalesceTime;
+	}
+
+	/**
+	 * Set the maximum number of changes to coalesce before notifying the listener, even if further changes are still
+	 * arriving.
+	 * 
+	 * @param maxChanges the maximum number of changes
+	 */
+	public void setMaxChanges(int maxChanges) {
+		Assert.isTrue(maxChanges > 0, "MaxChanges must be positive");
+		this.maxChanges = maxChanges;
+	}
+
+	/**
+	 * Set the time between scans when polling.
+	 * 
+	 * @param pollInterval the interval in milliseconds
+	 */
+	public void setPollInterval(long pollInterval) {
+		Assert.isTrue(pollInterval > 0, "PollInterval must be positive");
+		this.pollInterval = pollInterval;
+	}
+
+	/**
+	 * Set if the folder should always be polled rather than using a {@link WatchService}. Polling may be required for
+	 * network file systems that do not report changes.
+	 * 
+	 * @param pollingOnly if only polling should be used
+	 */
+	public void setPollingOnly(boolean pollingOnly) {
+		this.pollingOnly = pollingOnly;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the watcher is polling for changes rather than using a {@link WatchService}.
+	 * 
+	 * @return if the watcher is polling
+	 */
+	public boolean isPolling() {
+		return this.polling;
+	}
+
+	/**
+	 * Start watching for changes. Folders are registered before this method returns so any subsequent change will be
+	 * reported.
+	 */
+	public synchronized void start() {
+		Assert.state(this.thread == null, "Watcher has already been started");
+		Session session = new Session();
+		session.open();
+		this.running = true;
+		this.thread = new Thread(session, "local-folder-watcher-" + THREAD_COUNT.incrementAndGet());
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Stop watching for changes and release any operating system resources.
+	 */
+	public synchronized void stop() {
+		if (this.thread != null) {
+			this.running = false;
+			this.thread.interrupt();
+			if (Thread.currentThread() != this.thread) {
+				try {
+					this.thread.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			this.thread = null;
+		}
+	}
+
+	private ResourcePath getResourcePath(Path path) {
+		String relative = this.root.relativize(path).toString().replace(java.io.File.separatorChar, '/');
+		return (relative.length() == 0 ? new ResourcePath() : new ResourcePath().get(relative));
+	}
+
+	private void notifyListener(Changes changes) {
+		try {
+			this.listener.resourcesChanged(changes.asList());
+		} catch (RuntimeException e) {
+			logger.warn("Unable to notify listener of changes to " + this.root, e);
+		}
+	}
+
+	/**
+	 * A single watching session, running on the watcher thread once opened.
+	 */
+	private class Session implements Runnable {
+
+		private WatchService watchService;
+
+		private final Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+
+		private Map<ResourcePath, ScannedResource> scanned;
+
+		public void open() {
+			if (!LocalFolderWatcher.this.pollingOnly) {
+				try {
+					this.watchService = LocalFolderWatcher.this.root.getFileSystem().newWatchService();
+					registerAll(LocalFolderWatcher.this.root, null);
+					LocalFolderWatcher.this.polling = false;
+					return;
+				} catch (IOException e) {
+					logger.debug("Unable to watch " + LocalFolderWatcher.this.root + ", polling instead", e);
+				}
+			}
+			startPolling();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (LocalFolderWatcher.this.running) {
+					Changes changes = (this.watchService != null ? awaitEvents() : awaitScan());
+					if (!changes.isEmpty() && LocalFolderWatcher.this.running) {
+						notifyListener(changes);
+					}
+				}
+			} catch (InterruptedException e) {
+				// Stopped
+			} finally {
+				closeWatchService();
+			}
+		}
+
+		private Changes awaitEvents() throws InterruptedException {
+			Changes changes = new Changes();
+			WatchKey key = this.watchService.take();
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LocalFolderWatcher.this.maxCoalesceTime);
+			while (key != null) {
+				processEvents(key, changes);
+				long remaining = deadline - System.nanoTime();
+				if (this.watchService == null || remaining <= 0
+						|| changes.size() >= LocalFolderWatcher.this.maxChanges) {
+					break;
+				}
+				long delay = Math.min(TimeUnit.MILLISECONDS.toNanos(LocalFolderWatcher.this.coalesceDelay), remaining);
+				key = this.watchService.poll(delay, TimeUnit.NANOSECONDS);
+			}
+			return changes;
+		}
+
+		private void processEvents(WatchKey key, Changes changes) {
+			Path folder = this.keys.get(key);
+			boolean missed = false;
+			boolean registrationFailed = false;
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == OVERFLOW || folder == null) {
+					missed = true;
+					continue;
+				}
+				Path path = folder.resolve((Path) event.context());
+				if (event.kind() == ENTRY_CREATE) {
+					changes.add(getResourcePath(path), Type.CREATED);
+					if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+						try {
+							registerAll(path, changes);
+						} catch (IOException e) {
+							logger.debug("Unable to watch " + path + ", polling instead", e);
+							registrationFailed = true;
+						}
+					}
+				} else if (event.kind() == ENTRY_MODIFY) {
+					// Folders are reported as modified when their content changes, the content changes are enough
+					if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+						changes.add(getResourcePath(path), Type.MODIFIED);
+					}
+				} else if (event.kind() == ENTRY_DELETE) {
+					changes.add(getResourcePath(path), Type.DELETED);
+				}
+			}
+			if (!key.reset()) {
+				this.keys.remove(key);
+			}
+			if (missed || registrationFailed) {
+				changes.add(new ResourcePath(), Type.MODIFIED);
+			}
+			if (registrationFailed) {
+				startPolling();
+			}
+		}
+
+		/**
+		 * Register the specified folder and all nested folders.
+		 * 
+		 * @param start the folder to register
+		 * @param changes changes to update with nested resources or <tt>null</tt>
+		 * @throws IOException if a folder cannot be registered
+		 */
+		private void registerAll(final Path start, final Changes changes) throws IOException {
+			Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+					WatchKey key = dir.register(Session.this.watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+					Session.this.keys.put(key, dir);
+					if (changes != null && !dir.equals(start)) {
+						changes.add(getResourcePath(dir), Type.CREATED);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+					if (changes != null) {
+						changes.add(getResourcePath(file), Type.CREATED);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					// The file has probably been deleted, a delete event will follow
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+
+		private void startPolling() {
+			closeWatchService();
+			this.scanned = scan();
+			LocalFolderWatcher.this.polling = true;
+		}
+
+		private Changes awaitScan() throws InterruptedException {
+			Thread.sleep(LocalFolderWatcher.this.pollInterval);
+			Map<ResourcePath, ScannedResource> previous = this.scanned;
+			this.scanned = scan();
+			Changes changes = new Changes();
+			for (Map.Entry<ResourcePath, ScannedResource> entry : this.scanned.entrySet()) {
+				ScannedResource previousResource = previous.get(entry.getKey());
+				if (previousResource == null) {
+					changes.add(entry.getKey(), Type.CREATED);
+				} else if (entry.getValue().isModified(previousResource)) {
+					changes.add(entry.getKey(), Type.MODIFIED);
+				}
+			}
+			for (ResourcePath path : previous.keySet()) {
+				if (!this.scanned.containsKey(path)) {
+					changes.add(path, Type.DELETED);
+				}
+			}
+			return changes;
+		}
+
+		private Map<ResourcePath, ScannedResource> scan() {
+			final Map<ResourcePath, ScannedResource> scanned = new HashMap<ResourcePath, ScannedResource>();
+			try {
+				Files.walkFileTree(LocalFolderWatcher.this.root, new SimpleFileVisitor<Path>() {
+
+					@Override
+					public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+						if (!dir.equals(LocalFolderWatcher.this.root)) {
+							scanned.put(getResourcePath(dir), new ScannedResource(attributes));
+						}
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+						scanned.put(getResourcePath(file), new ScannedResource(attributes));
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFileFailed(Path file, IOException e) {
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			} catch (IOException e) {
+				logger.debug("Unable to scan " + LocalFolderWatcher.this.root, e);
+			}
+			return scanned;
+		}
+
+		private void closeWatchService() {
+			if (this.watchService != null) {
+				try {
+					this.watchService.close();
+				} catch (IOException e) {
+				}
+				this.watchService = null;
+				this.keys.clear();
+			}
+		}
+	}
+
+	/**
+	 * The attributes of a resource recorded when polling.
+	 */
+	private static class ScannedResource {
+
+		private final boolean folder;
+
+		private final long size;
+
+		private final long lastModified;
+
+		public ScannedResource(BasicFileAttributes attributes) {
+			this.folder = attributes.isDirectory();
+			this.size = (this.folder ? 0 : attributes.size());
+			this.lastModified = (this.folder ? 0 : attributes.lastModifiedTime().toMillis());
+		}
+
+		public boolean isModified(ScannedResource previous) {
+			return this.folder != previous.folder || this.size != previous.size
+					|| this.lastModified != previous.lastModified;
+		}
+	}
+
+	/**
+	 * Coalesced changes, each resource is recorded at most once.
+	 */
+	private static class Changes {
+
+		private final Map<ResourcePath, Type> changes = new LinkedHashMap<ResourcePath, Type>();
+
+		public void add(ResourcePath path, Type type) {
+			Type previous = this.changes.get(path);
+			if (previous == Type.CREATED) {
+				// A resource created and then deleted has not changed, otherwise it remains created
+				if (type == Type.DELETED) {
+					this.changes.remove(path);
+				}
+				return;
+			}
+			if (previous != null && type == Type.CREATED) {
+				type = Type.MODIFIED;
+			}
+			this.changes.put(path, type);
+		}
+
+		public boolean isEmpty() {
+			return this.changes.isEmpty();
+		}
+
+		public int size() {
+			return this.changes.size();
+		}
+
+		public List<ResourceChange> asList() {
+			List<ResourceChange> list = new ArrayList<ResourceChange>(this.changes.size());
+			for (Map.Entry<ResourcePath, Type> entry : this.changes.entrySet()) {
+				list.add(new ResourceChange(entry.getKey(), entry.getValue()));
+			}
+			return list;
+		}
+	}
+}
@@ -22,19 +22,38 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.cloudfoundry.tools.io.ContentDigest;
 import org.cloudfoundry.tools.io.File;
 import org.cloudfoundry.tools.io.Folder;
 import org.cloudfoundry.tools.io.JailedResourcePath;
+import org.cloudfoundry.tools.io.NameRestriction;
+import org.cloudfoundry.tools.io.RangeInputStream;
 import org.cloudfoundry.tools.io.Resource;
 import org.cloudfoundry.tools.io.exception.ResourceException;
 import org.cloudfoundry.tools.io.exception.ResourceTypeMismatchException;
+import org.cloudfoundry.tools.io.local.MappedFileCache.MappedContent;
+import org.cloudfoundry.tools.io.store.AttributedFolderStore;
+import org.cloudfoundry.tools.io.store.ChannelFileStore;
+import org.cloudfoundry.tools.io.store.DigestFileStore;
 import org.cloudfoundry.tools.io.store.FileStore;
-import org.cloudfoundry.tools.io.store.FolderStore;
+import org.cloudfoundry.tools.io.store.QueryableFolderStore;
+import org.cloudfoundry.tools.io.store.RangeFileStore;
+import org.cloudfoundry.tools.io.store.ResourceAttributes;
 import org.cloudfoundry.tools.io.store.ResourceStore;
+import org.cloudfoundry.tools.io.store.TransferableFileStore;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
 
@@ -51,14 +70,36 @@ abstract class LocalResourceStore implements ResourceStore {
 
 	private final java.io.File file;
 
+	private final Path localPath;
+
+	private LocalCopyMode copyMode = LocalCopyMode.COPY;
+
+	private ListingCache listingCache;
+
 	public LocalResourceStore(java.io.File root, JailedResourcePath path) {
+		this(root, path, true);
+	}
+
+	/**
+	 * Create a new {@link LocalResourceStore}, optionally skipping checks on the root. Used when creating stores for
+	 * listed children where the root has already been checked.
+	 * 
+	 * @param root the root
+	 * @param path the path
+	 * @param checkRoot if the root should be checked
+	 */
+	LocalResourceStore(java.io.File root, JailedResourcePath path, boolean checkRoot) {
 		Assert.notNull(root, "Root must not be null");
 		Assert.notNull(path, "Path must not be null");
-		Assert.state(root.exists(), "The root folder '" + root + "' does not exist");
-		Assert.state(root.isDirectory(), "The root '" + root + "' is not a folder");
+		if (checkRoot) {
+			BasicFileAttributes rootAttributes = readAttributes(root.toPath());
+			Assert.state(rootAttributes != null, "The root folder '" + root + "' does not exist");
+			Assert.state(rootAttributes.isDirectory(), "The root '" + root + "' is not a folder");
+		}
 		this.root = root;
 		this.path = path;
 		this.file = getFileForPath(path);
+		this.localPath = this.file.toPath();
 	}
 
 	protected final java.io.File getRoot() {
@@ -69,10 +110,67 @@ abstract class LocalResourceStore implements ResourceStore {
 		return this.file;
 	}
 
+	protected final Path getLocalPath() {
+		return this.localPath;
+	}
+
+	protected final LocalCopyMode getCopyMode() {
+		return this.copyMode;
+	}
+
+	final void setCopyMode(LocalCopyMode copyMode) {
+		Assert.notNull(copyMode, "CopyMode must not be null");
+		this.copyMode = copyMode;
+	}
+
+	protected final ListingCache getListingCache() {
+		return this.listingCache;
+	}
+
+	final void setListingCache(ListingCache listingCache) {
+		this.listingCache = listingCache;
+	}
+
+	/**
+	 * Apply settings from this store to a newly created store.
+	 * 
+	 * @param store the new store
+	 * @return the store
+	 */
+	protected final <S extends LocalResourceStore> S inherit(S store) {
+		store.setCopyMode(this.copyMode);
+		store.setListingCache(this.listingCache);
+		return store;
+	}
+
 	protected final java.io.File getFileForPath(JailedResourcePath path) {
 		return new java.io.File(getRoot(), path.getUnjailedPath().toString());
 	}
 
+	/**
+	 * Read the attributes of the file using a single file system call.
+	 * 
+	 * @return the attributes or <tt>null</tt> if the file does not exist
+	 */
+	protected final BasicFileAttributes readAttributes() {
+		return readAttributes(this.localPath);
+	}
+
+	/**
+	 * Read the attributes of the specified file using a single file system call. As with {@link java.io.File#exists()}
+	 * files that cannot be read are considered not to exist.
+	 * 
+	 * @param path the path of the file
+	 * @return the attributes or <tt>null</tt> if the file does not exist
+	 */
+	static BasicFileAttributes readAttributes(Path path) {
+		try {
+			return Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
 	@Override
 	public JailedResourcePath getPath() {
 		return this.path;
@@ -80,22 +178,26 @@ abstract class LocalResourceStore implements ResourceStore {
 
 	@Override
 	public Resource getExisting(JailedResourcePath path) {
-		java.io.File file = getFileForPath(path);
-		if (!file.exists()) {
+		BasicFileAttributes attributes = readAttributes(getFileForPath(path).toPath());
+		if (attributes == null) {
 			return null;
 		}
-		return file.isDirectory() ? getFolder(path) : getFile(path);
+		if (attributes.isDirectory()) {
+			return new LocalFolder(inherit(new LocalFolderStore(getRoot(), path, false, false)));
+		}
+		return new LocalFile(inherit(new LocalFileStore(getRoot(), path, null)));
 	}
 
 	@Override
 	public Folder getFolder(JailedResourcePath path) {
-		LocalFolderStore store = new LocalFolderStore(getRoot(), path);
+		// The root has already been checked when this store was created
+		LocalFolderStore store = inherit(new LocalFolderStore(getRoot(), path, false));
 		return new LocalFolder(store);
 	}
 
 	@Override
 	public File getFile(JailedResourcePath path) {
-		LocalFileStore store = new LocalFileStore(getRoot(), path);
+		LocalFileStore store = inherit(new LocalFileStore(getRoot(), path, false));
 		return new LocalFile(store);
 	}
 
@@ -113,7 +215,7 @@ abstract class LocalResourceStore implements ResourceStore {
 
 	@Override
 	public boolean exists() {
-		return this.file.exists();
+		return readAttributes() != null;
 	}
 
 	@Override
@@ -143,23 +245,60 @@ abstract class LocalResourceStore implements ResourceStore {
 		return ObjectUtils.nullSafeEquals(getFile(), other.getFile());
 	}
 
-	static class LocalFileStore extends LocalResourceStore implements FileStore {
+	static class LocalFileStore extends LocalResourceStore implements TransferableFileStore, ChannelFileStore,
+			RangeFileStore, DigestFileStore {
+
+		private ResourceAttributes attributes;
 
 		public LocalFileStore(java.io.File root, JailedResourcePath path) {
-			super(root, path);
-			if (exists() && !getFile().isFile()) {
+			this(root, path, true);
+		}
+
+		LocalFileStore(java.io.File root, JailedResourcePath path, boolean checkRoot) {
+			super(root, path, checkRoot);
+			BasicFileAttributes attributes = readAttributes();
+			if (attributes != null && !attributes.isRegularFile()) {
 				throw new ResourceTypeMismatchException(path.getUnjailedPath(), false);
 			}
 		}
 
+		/**
+		 * Create a new {@link LocalFileStore} for a file that is known to exist, either because it has been listed or
+		 * because its attributes have just been read.
+		 * 
+		 * @param root the root
+		 * @param path the path
+		 * @param attributes the listed attributes, used while {@link ResourceAttributes#isCurrent() current} and until
+		 * the file is modified. May be <tt>null</tt> if attributes should not be cached
+		 */
+		LocalFileStore(java.io.File root, JailedResourcePath path, ResourceAttributes attributes) {
+			super(root, path, false);
+			this.attributes = attributes;
+		}
+
 		@Override
 		protected Resource getRenamedResource(JailedResourcePath path) {
-			LocalFileStore store = new LocalFileStore(getRoot(), path);
+			LocalFileStore store = inherit(new LocalFileStore(getRoot(), path, false));
 			return new LocalFile(store);
 		}
 
+		@Override
+		public Resource rename(String name) {
+			this.attributes = null;
+			invalidateCaches(getFile());
+			return super.rename(name);
+		}
+
+		@Override
+		public void delete() {
+			this.attributes = null;
+			invalidateCaches(getFile());
+			super.delete();
+		}
+
 		@Override
 		public void create() {
+			this.attributes = null;
 			try {
 				if (!getFile().createNewFile()) {
 					throw new ResourceException("Unable to create file " + getFile());
@@ -171,6 +310,10 @@ abstract class LocalResourceStore implements ResourceStore {
 
 		@Override
 		public InputStream getInputStream() {
+			MappedContent mappedContent = getMappedContent();
+			if (mappedContent != null) {
+				return new MappedInputStream(mappedContent);
+			}
 			try {
 				return new BufferedInputStream(new FileInputStream(getFile()));
 			} catch (FileNotFoundException e) {
@@ -180,6 +323,11 @@ abstract class LocalResourceStore implements ResourceStore {
 
 		@Override
 		public OutputStream getOutputStream() {
+			this.attributes = null;
+			invalidateCaches(getFile());
+			if (getCopyMode() == LocalCopyMode.CLONE) {
+				FileCloner.unlinkIfShared(getLocalPath());
+			}
 			try {
 				return new FileOutputStream(getFile(), false);
 			} catch (FileNotFoundException e) {
@@ -187,27 +335,204 @@ abstract class LocalResourceStore implements ResourceStore {
 			}
 		}
 
+		@Override
+		public InputStream getInputStream(long offset, long length) {
+			MappedContent mappedContent = getMappedContent();
+			if (mappedContent != null) {
+				return new MappedInputStream(mappedContent, offset, length);
+			}
+			try {
+				FileChannel channel = new FileInputStream(getFile()).getChannel();
+				try {
+					channel.position(offset);
+				} catch (IOException e) {
+					channel.close();
+					throw e;
+				}
+				return new BufferedInputStream(new RangeInputStream(Channels.newInputStream(channel), 0, length));
+			} catch (IOException e) {
+				throw new ResourceException(e);
+			}
+		}
+
+		/**
+		 * Returns mapped content for the file or <tt>null</tt> if the file is not suitable for mapping.
+		 * 
+		 * @return the mapped content or <tt>null</tt>
+		 */
+		private MappedContent getMappedContent() {
+			return MappedFileCache.getInstance().acquire(getFile());
+		}
+
+		@Override
+		public ReadableByteChannel getReadableChannel() {
+			try {
+				return new FileInputStream(getFile()).getChannel();
+			} catch (FileNotFoundException e) {
+				throw new ResourceException(e);
+			}
+		}
+
+		@Override
+		public int read(long position, ByteBuffer buffer) {
+			MappedContent mappedContent = getMappedContent();
+			if (mappedContent != null) {
+				try {
+					return read(mappedContent.getBuffer().duplicate(), position, buffer);
+				} finally {
+					mappedContent.release();
+				}
+			}
+			try {
+				FileChannel channel = new FileInputStream(getFile()).getChannel();
+				try {
+					int total = 0;
+					while (buffer.hasRemaining()) {
+						int read = channel.read(buffer, position + total);
+						if (read == -1) {
+							return (total == 0 ? -1 : total);
+						}
+						total += read;
+					}
+					return total;
+				} finally {
+					channel.close();
+				}
+			} catch (IOException e) {
+				throw new ResourceException(e);
+			}
+		}
+
+		private int read(ByteBuffer content, long position, ByteBuffer buffer) {
+			if (position >= content.limit()) {
+				return -1;
+			}
+			content.position((int) position);
+			content.limit((int) Math.min(content.limit(), position + buffer.remaining()));
+			int read = content.remaining();
+			try {
+				buffer.put(content);
+			} catch (InternalError e) {
+				// Memory access errors are thrown if the file is truncated whilst mapped
+				throw new ResourceException("Mapped file content is no longer available", e);
+			}
+			return read;
+		}
+
+		@Override
+		public WritableByteChannel getWritableChannel() {
+			this.attributes = null;
+			invalidateCaches(getFile());
+			if (getCopyMode() == LocalCopyMode.CLONE) {
+				FileCloner.unlinkIfShared(getLocalPath());
+			}
+			try {
+				return new FileOutputStream(getFile(), false).getChannel();
+			} catch (FileNotFoundException e) {
+				throw new ResourceException(e);
+			}
+		}
+
+		private ResourceAttributes getListedAttributes() {
+			ResourceAttributes attributes = this.attributes;
+			if (attributes != null && !attributes.isCurrent()) {
+				this.attributes = null;
+				return null;
+			}
+			return attributes;
+		}
+
 		@Override
 		public long getSize() {
-			return getFile().length();
+			ResourceAttributes attributes = getListedAttributes();
+			if (attributes != null) {
+				return attributes.getSize();
+			}
+			BasicFileAttributes fileAttributes = readAttributes();
+			return (fileAttributes == null ? 0L : fileAttributes.size());
 		}
 
 		@Override
 		public long getLastModified() {
-			return getFile().lastModified();
+			ResourceAttributes attributes = getListedAttributes();
+			if (attributes != null) {
+				return attributes.getLastModified();
+			}
+			BasicFileAttributes fileAttributes = readAttributes();
+			return (fileAttributes == null ? 0L : fileAttributes.lastModifiedTime().toMillis());
 		}
 
 		@Override
 		public void touch() {
+			this.attributes = null;
+			if (getCopyMode() == LocalCopyMode.CLONE) {
+				FileCloner.unshareIfShared(getLocalPath());
+			}
 			getFile().setLastModified(System.currentTimeMillis());
 		}
+
+		@Override
+		public boolean moveTo(FileStore destination) {
+			if (!(destination instanceof LocalFileStore)) {
+				return false;
+			}
+			LocalFileStore target = (LocalFileStore) destination;
+			this.attributes = null;
+			target.attributes = null;
+			invalidateCaches(getFile());
+			invalidateCaches(target.getFile());
+			// Rename is atomic but may fail across file systems or if the target exists on some platforms
+			return getFile().renameTo(target.getFile());
+		}
+
+		@Override
+		public ContentDigest getDigest() {
+			return DigestCache.getInstance().get(getFile());
+		}
+
+		@Override
+		public boolean copyTo(FileStore destination) {
+			if (!(destination instanceof LocalFileStore)) {
+				return false;
+			}
+			LocalFileStore target = (LocalFileStore) destination;
+			if (target.getCopyMode() != LocalCopyMode.CLONE) {
+				return false;
+			}
+			target.attributes = null;
+			invalidateCaches(target.getFile());
+			return FileCloner.clone(getLocalPath(), target.getLocalPath());
+		}
+
+		static void invalidateCaches(java.io.File file) {
+			MappedFileCache.getInstance().invalidate(file);
+			DigestCache.getInstance().invalidate(file);
+		}
 	}
 
-	static class LocalFolderStore extends LocalResourceStore implements FolderStore {
+	static class LocalFolderStore extends LocalResourceStore implements QueryableFolderStore, AttributedFolderStore {
 
 		public LocalFolderStore(java.io.File root, JailedResourcePath path) {
-			super(root, path);
-			if (exists() && !getFile().isDirectory()) {
+			this(root, path, true);
+		}
+
+		LocalFolderStore(java.io.File root, JailedResourcePath path, boolean checkRoot) {
+			this(root, path, checkRoot, true);
+		}
+
+		/**
+		 * Create a new {@link LocalFolderStore}, optionally skipping the type check for a folder that is known to
+		 * exist, either because it has been listed or because its attributes have just been read.
+		 * 
+		 * @param root the root
+		 * @param path the path
+		 * @param checkRoot if the root should be checked
+		 * @param checkType if the existing resource should be checked to ensure that it is not a file
+		 */
+		LocalFolderStore(java.io.File root, JailedResourcePath path, boolean checkRoot, boolean checkType) {
+			super(root, path, checkRoot);
+			BasicFileAttributes attributes = (checkType ? readAttributes() : null);
+			if (attributes != null && !attributes.isDirectory()) {
 				throw new ResourceTypeMismatchException(path.getUnjailedPath(), true);
 			}
 		}
@@ -226,15 +551,125 @@ abstract class LocalResourceStore implements ResourceStore {
 
 		@Override
 		public Iterable<String> list() {
-			java.io.File[] files = getFile().listFiles();
-			Assert.state(files != null, "Unable to list files for " + getFile());
+			if (getListingCache() != null) {
+				return getNames(listCached(null));
+			}
 			List<String> filenames = new ArrayList<String>();
-			for (java.io.File file : files) {
-				if (file.exists()) {
-					filenames.add(file.getName());
-				}
+			for (Path child : listPaths(null, true)) {
+				filenames.add(child.getFileName().toString());
 			}
 			return Collections.unmodifiableList(filenames);
 		}
+
+		@Override
+		public Iterable<String> list(NameRestriction restriction) {
+			Assert.notNull(restriction, "Restriction must not be null");
+			if (getListingCache() != null) {
+				return getNames(listCached(restriction));
+			}
+			List<String> filenames = new ArrayList<String>();
+			for (Path child : listPaths(restriction, true)) {
+				filenames.add(child.getFileName().toString());
+			}
+			return Collections.unmodifiableList(filenames);
+		}
+
+		@Override
+		public Iterable<ResourceAttributes> listAttributes(NameRestriction restriction) {
+			if (getListingCache() != null) {
+				return listCached(restriction);
+			}
+			List<ResourceAttributes> attributes = new ArrayList<ResourceAttributes>();
+			for (Path child : listPaths(restriction, false)) {
+				// Entries that have been removed since the folder was read (or broken links) are skipped
+				BasicFileAttributes childAttributes = readAttributes(child);
+				if (childAttributes != null) {
+					boolean folder = childAttributes.isDirectory();
+					attributes.add(new ResourceAttributes(child.getFileName().toString(), folder, folder ? 0
+							: childAttributes.size(), childAttributes.lastModifiedTime().toMillis(), null));
+				}
+			}
+			return Collections.unmodifiableList(attributes);
+		}
+
+		/**
+		 * List the names and types of children using the {@link ListingCache}.
+		 * 
+		 * @param restriction an optional restriction
+		 * @return type only attributes of the children
+		 */
+		private List<ResourceAttributes> listCached(NameRestriction restriction) {
+			List<ResourceAttributes> contents;
+			try {
+				contents = getListingCache().list(getLocalPath());
+			} catch (IOException e) {
+				throw new IllegalStateException("Unable to list files for " + getFile(), e);
+			}
+			if (restriction == null) {
+				return contents;
+			}
+			List<ResourceAttributes> restricted = new ArrayList<ResourceAttributes>();
+			for (ResourceAttributes attributes : contents) {
+				if (restriction.matches(attributes.getName())) {
+					restricted.add(attributes);
+				}
+			}
+			return Collections.unmodifiableList(restricted);
+		}
+
+		private List<String> getNames(List<ResourceAttributes> contents) {
+			List<String> names = new ArrayList<String>(contents.size());
+			for (ResourceAttributes attributes : contents) {
+				names.add(attributes.getName());
+			}
+			return Collections.unmodifiableList(names);
+		}
+
+		/**
+		 * List child paths using a single read of the folder. Names are filtered before any further file system calls
+		 * are made. When <tt>existing</tt> is set each remaining entry costs one <tt>lstat</tt> to find symbolic links
+		 * and each link costs a further <tt>stat</tt> to check its target, so listing N names makes at least N stats.
+		 * 
+		 * @param restriction an optional restriction
+		 * @param existing if broken links should be removed. Callers that read the attributes of each path can skip
+		 * missing paths themselves
+		 * @return the child paths
+		 */
+		private List<Path> listPaths(final NameRestriction restriction, final boolean existing) {
+			DirectoryStream.Filter<Path> filter = new DirectoryStream.Filter<Path>() {
+
+				@Override
+				public boolean accept(Path entry) {
+					if (restriction != null && !restriction.matches(entry.getFileName().toString())) {
+						return false;
+					}
+					return (!existing || !Files.isSymbolicLink(entry) || Files.exists(entry));
+				}
+			};
+			List<Path> paths = new ArrayList<Path>();
+			try {
+				DirectoryStream<Path> directoryStream = Files.newDirectoryStream(getLocalPath(), filter);
+				try {
+					for (Path path : directoryStream) {
+						paths.add(path);
+					}
+				} finally {
+					directoryStream.close();
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("Unable to list files for " + getFile(), e);
+			}
+			return paths;
+		}
+
+		@Override
+		public Resource getExisting(JailedResourcePath path, ResourceAttributes attributes) {
+			if (attributes.isFolder()) {
+				return new LocalFolder(inherit(new LocalFolderStore(getRoot(), path, false, false)));
+			}
+			// Type only attributes confirm the file exists but sizes must still be read
+			ResourceAttributes fileAttributes = (attributes.isTypeOnly() ? null : attributes);
+			return new LocalFile(inherit(new LocalFileStore(getRoot(), path, fileAttributes)));
+		}
 	}
 }
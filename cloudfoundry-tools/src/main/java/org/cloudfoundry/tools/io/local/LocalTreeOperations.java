@@ -0,0 +1,344 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.exception.ResourceException;
+import org.cloudfoundry.tools.io.exception.ResourceTransferException;
+import org.cloudfoundry.tools.io.local.LocalResourceStore.LocalFileStore;
+
+/**
+ * Recursive delete and copy operations used by {@link LocalFolder}. Folders are read using NIO.2 directory streams
+ * without creating a resource for each child. Each nested folder, and each batch of files within a folder, is processed
+ * as a separate task on a shared bounded {@link ForkJoinPool}.
+ * 
+ * @author Phillip Webb
+ */
+class LocalTreeOperations {
+
+	private static final int PARALLELISM = Math.min(16, Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+	private static final int BATCH_SIZE = 64;
+
+	private static ForkJoinPool pool;
+
+	private LocalTreeOperations() {
+	}
+
+	private static synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(PARALLELISM);
+		}
+		return pool;
+	}
+
+	/**
+	 * Delete the specified folder and everything that it contains. Links are deleted rather than followed.
+	 * 
+	 * @param folder the folder to delete
+	 * @throws ResourceException if any resource cannot be deleted
+	 */
+	public static void delete(java.io.File folder) {
+		Failures failures = new Failures();
+		getPool().invoke(new DeleteTask(folder.toPath(), failures));
+		if (!failures.isEmpty()) {
+			throw new ResourceException("Unable to delete " + failures.size() + " resource(s) from " + folder,
+					failures.getFirstCause());
+		}
+	}
+
+	/**
+	 * Copy the contents of one folder to another, replacing any existing files.
+	 * 
+	 * @param source the source folder
+	 * @param destination the destination folder
+	 * @throws ResourceTransferException if any file cannot be copied
+	 * @throws ResourceException if any folder cannot be read or created
+	 */
+	public static void copyContents(LocalFolder source, LocalFolder destination) {
+		Failures folderFailures = new Failures();
+		Failures fileFailures = new Failures();
+		Path destinationRoot = destination.getLocalFile().toPath();
+		getPool().invoke(
+				new CopyTask(source.getLocalFile().toPath(), destinationRoot, destination.getCopyMode(),
+						folderFailures, fileFailures));
+		if (!folderFailures.isEmpty()) {
+			throw new ResourceException("Unable to copy " + source + " to " + destination,
+					folderFailures.getFirstCause());
+		}
+		if (!fileFailures.isEmpty()) {
+			Map<File, Throwable> failures = new LinkedHashMap<File, Throwable>();
+			for (Map.Entry<Path, Throwable> failure : fileFailures.asMap().entrySet()) {
+				String name = destinationRoot.relativize(failure.getKey()).toString();
+				failures.put(destination.getFile(name.replace(java.io.File.separatorChar, '/')), failure.getValue());
+			}
+			throw new ResourceTransferException(failures, fileFailures.getTotal());
+		}
+	}
+
+	private static BasicFileAttributes readAttributes(Path path, LinkOption... options) {
+		try {
+			return Files.readAttributes(path, BasicFileAttributes.class, options);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Base task for a single folder.
+	 */
+	private abstract static class FolderTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Path folder;
+
+		private final LinkOption[] linkOptions;
+
+		public FolderTask(Path folder, LinkOption... linkOptions) {
+			this.folder = folder;
+			this.linkOptions = linkOptions;
+		}
+
+		@Override
+		protected void compute() {
+			List<Path> folders = new ArrayList<Path>();
+			List<Path> files = new ArrayList<Path>();
+			try {
+				DirectoryStream<Path> directoryStream = Files.newDirectoryStream(this.folder);
+				try {
+					for (Path entry : directoryStream) {
+						BasicFileAttributes attributes = readAttributes(entry, this.linkOptions);
+						if (attributes != null) {
+							(attributes.isDirectory() ? folders : files).add(entry);
+						}
+					}
+				} finally {
+					directoryStream.close();
+				}
+			} catch (IOException e) {
+				folderFailed(this.folder, e);
+				return;
+			}
+			List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+			for (Path folder : folders) {
+				tasks.add(newFolderTask(folder));
+			}
+			for (int i = 0; i < files.size(); i += BATCH_SIZE) {
+				tasks.add(new FilesTask(this, files.subList(i, Math.min(files.size(), i + BATCH_SIZE))));
+			}
+			invokeAll(tasks);
+			afterContents(this.folder);
+		}
+
+		protected abstract FolderTask newFolderTask(Path folder);
+
+		protected abstract void processFile(Path file);
+
+		protected abstract void folderFailed(Path folder, Throwable cause);
+
+		protected void afterContents(Path folder) {
+		}
+	}
+
+	/**
+	 * Task used to process a batch of files from a single folder.
+	 */
+	private static class FilesTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final FolderTask folderTask;
+
+		private final List<Path> files;
+
+		public FilesTask(FolderTask folderTask, List<Path> files) {
+			this.folderTask = folderTask;
+			this.files = files;
+		}
+
+		@Override
+		protected void compute() {
+			for (Path file : this.files) {
+				this.folderTask.processFile(file);
+			}
+		}
+	}
+
+	/**
+	 * {@link FolderTask} used to delete a folder.
+	 */
+	private static class DeleteTask extends FolderTask {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Failures failures;
+
+		public DeleteTask(Path folder, Failures failures) {
+			super(folder, LinkOption.NOFOLLOW_LINKS);
+			this.failures = failures;
+		}
+
+		@Override
+		protected FolderTask newFolderTask(Path folder) {
+			return new DeleteTask(folder, this.failures);
+		}
+
+		@Override
+		protected void processFile(Path file) {
+			LocalFileStore.invalidateCaches(file.toFile());
+			delete(file);
+		}
+
+		@Override
+		protected void folderFailed(Path folder, Throwable cause) {
+			this.failures.add(folder, cause);
+		}
+
+		@Override
+		protected void afterContents(Path folder) {
+			delete(folder);
+		}
+
+		private void delete(Path path) {
+			this.failures.incrementTotal();
+			try {
+				Files.delete(path);
+			} catch (NoSuchFileException e) {
+			} catch (IOException e) {
+				this.failures.add(path, e);
+			}
+		}
+	}
+
+	/**
+	 * {@link FolderTask} used to copy a folder.
+	 */
+	private static class CopyTask extends FolderTask {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Path destination;
+
+		private final LocalCopyMode copyMode;
+
+		private final Failures folderFailures;
+
+		private final Failures fileFailures;
+
+		public CopyTask(Path folder, Path destination, LocalCopyMode copyMode, Failures folderFailures,
+				Failures fileFailures) {
+			// Links are followed, as with a stream based copy
+			super(folder);
+			this.destination = destination;
+			this.copyMode = copyMode;
+			this.folderFailures = folderFailures;
+			this.fileFailures = fileFailures;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				Files.createDirectories(this.destination);
+			} catch (IOException e) {
+				folderFailed(this.destination, e);
+				return;
+			}
+			super.compute();
+		}
+
+		@Override
+		protected FolderTask newFolderTask(Path folder) {
+			Path destination = this.destination.resolve(folder.getFileName().toString());
+			return new CopyTask(folder, destination, this.copyMode, this.folderFailures, this.fileFailures);
+		}
+
+		@Override
+		protected void processFile(Path file) {
+			Path destination = this.destination.resolve(file.getFileName().toString());
+			this.fileFailures.incrementTotal();
+			LocalFileStore.invalidateCaches(destination.toFile());
+			try {
+				if (this.copyMode != LocalCopyMode.CLONE || !FileCloner.clone(file, destination)) {
+					Files.copy(file, destination, StandardCopyOption.REPLACE_EXISTING);
+				}
+			} catch (IOException e) {
+				// A folder in place of the file cannot be reported as a failed file
+				boolean folder = Files.isDirectory(destination, LinkOption.NOFOLLOW_LINKS);
+				(folder ? this.folderFailures : this.fileFailures).add(destination, e);
+			}
+		}
+
+		@Override
+		protected void folderFailed(Path folder, Throwable cause) {
+			this.folderFailures.add(folder, cause);
+		}
+	}
+
+	/**
+	 * Thread-safe record of failures.
+	 */
+	private static class Failures {
+
+		private final Map<Path, Throwable> failures = new LinkedHashMap<Path, Throwable>();
+
+		private final AtomicInteger total = new AtomicInteger();
+
+		public void incrementTotal() {
+			this.total.incrementAndGet();
+		}
+
+		public synchronized void add(Path path, Throwable cause) {
+			this.failures.put(path, cause);
+		}
+
+		public synchronized boolean isEmpty() {
+			return this.failures.isEmpty();
+		}
+
+		public synchronized int size() {
+			return this.failures.size();
+		}
+
+		public synchronized Throwable getFirstCause() {
+			return (this.failures.isEmpty() ? null : this.failures.values().iterator().next());
+		}
+
+		public synchronized Map<Path, Throwable> asMap() {
+			return new LinkedHashMap<Path, Throwable>(this.failures);
+		}
+
+		public int getTotal() {
+			return this.total.get();
+		}
+	}
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+
+/**
+ * A shared cache of read-only memory mapped views of local files. Mappings are reference counted and are only unmapped
+ * once they have been removed from the cache and all {@link MappedContent} references have been
+ * {@link MappedContent#release() released}. Cached mappings are discarded when the size or last modified date of the
+ * underlying file changes or when the file is modified using a {@link LocalFile}. Mapped buffers are never exposed
+ * outside of this package, they are only read by streams that hold a reference, so unmapped memory cannot be accessed.
+ * Only files larger than the {@link #setThreshold(long) threshold} are mapped, smaller files are usually faster to
+ * read directly. This class is thread-safe.
+ * 
+ * @author Phillip Webb
+ * @see LocalFile#getContent()
+ */
+public class MappedFileCache {
+
+	/**
+	 * The default size threshold above which files are mapped.
+	 */
+	public static final long DEFAULT_THRESHOLD = 256 * 1024;
+
+	/**
+	 * The default maximum number of mappings that are cached.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 64;
+
+	private static final Log logger = LogFactory.getLog(MappedFileCache.class);
+
+	private static final MappedFileCache INSTANCE = new MappedFileCache();
+
+	private volatile long threshold;
+
+	private final Map<java.io.File, Mapping> mappings;
+
+	/**
+	 * Create a new {@link MappedFileCache} with default settings.
+	 */
+	public MappedFileCache() {
+		this(DEFAULT_THRESHOLD, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Create a new {@link MappedFileCache} instance.
+	 * 
+	 * @param threshold the size threshold above which files are mapped
+	 * @param maxSize the maximum number of mappings that are cached
+	 */
+	public MappedFileCache(long threshold, final int maxSize) {
+		Assert.isTrue(maxSize > 0, "MaxSize must be positive");
+		setThreshold(threshold);
+		this.mappings = new LinkedHashMap<java.io.File, Mapping>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<java.io.File, Mapping> eldest) {
+				if (size() > maxSize) {
+					eldest.getValue().release();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Set the size threshold above which files are mapped. Use {@link Long#MAX_VALUE} to disable mapping.
+	 * 
+	 * @param threshold the threshold
+	 */
+	public void setThreshold(long threshold) {
+		Assert.isTrue(threshold >= 0, "Threshold must not be negative");
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Acquire a mapped view of the specified file. The returned content must be {@link MappedContent#release()
+	 * released} when no longer needed.
+	 * 
+	 * @param file the file to map
+	 * @return the mapped content or <tt>null</tt> if the file is not suitable for mapping
+	 */
+	MappedContent acquire(java.io.File file) {
+		Assert.notNull(file, "File must not be null");
+		long length = file.length();
+		if (length < this.threshold || length == 0 || length > Integer.MAX_VALUE) {
+			return null;
+		}
+		java.io.File key = file.getAbsoluteFile();
+		long lastModified = file.lastModified();
+		synchronized (this.mappings) {
+			Mapping mapping = this.mappings.get(key);
+			if (mapping != null && !mapping.isCurrent(length, lastModified)) {
+				this.mappings.remove(key);
+				mapping.release();
+				mapping = null;
+			}
+			if (mapping == null) {
+				MappedByteBuffer buffer = map(file);
+				if (buffer == null) {
+					return null;
+				}
+				mapping = new Mapping(buffer, length, lastModified);
+				this.mappings.put(key, mapping);
+			}
+			return mapping.acquire();
+		}
+	}
+
+	/**
+	 * Discard any cached mapping for the specified file. The mapping will be unmapped once all references have been
+	 * released.
+	 * 
+	 * @param file the file
+	 */
+	public void invalidate(java.io.File file) {
+		Assert.notNull(file, "File must not be null");
+		synchronized (this.mappings) {
+			Mapping mapping = this.mappings.remove(file.getAbsoluteFile());
+			if (mapping != null) {
+				mapping.release();
+			}
+		}
+	}
+
+	/**
+	 * Discard all cached mappings.
+	 */
+	public void clear() {
+		synchronized (this.mappings) {
+			for (Mapping mapping : this.mappings.values()) {
+				mapping.release();
+			}
+			this.mappings.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of cached mappings.
+	 * 
+	 * @return the size of the cache
+	 */
+	public int size() {
+		synchronized (this.mappings) {
+			return this.mappings.size();
+		}
+	}
+
+	private MappedByteBuffer map(java.io.File file) {
+		try {
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = randomAccessFile.getChannel();
+				return channel.map(MapMode.READ_ONLY, 0, channel.size());
+			} finally {
+				randomAccessFile.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the shared {@link MappedFileCache} instance used by {@link LocalFile}s.
+	 * 
+	 * @return the shared cache
+	 */
+	public static MappedFileCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * A reference counted mapping. The cache holds one reference for as long as the mapping is cached.
+	 */
+	private static class Mapping {
+
+		private final MappedByteBuffer buffer;
+
+		private final long length;
+
+		private final long lastModified;
+
+		private int references = 1;
+
+		public Mapping(MappedByteBuffer buffer, long length, long lastModified) {
+			this.buffer = buffer;
+			this.length = length;
+			this.lastModified = lastModified;
+		}
+
+		public boolean isCurrent(long length, long lastModified) {
+			return this.length == length && this.lastModified == lastModified;
+		}
+
+		public synchronized MappedContent acquire() {
+			Assert.state(this.references > 0, "Mapping has been released");
+			this.references++;
+			return new MappedContent(this, this.buffer.asReadOnlyBuffer());
+		}
+
+		public synchronized void release() {
+			this.references--;
+			if (this.references == 0) {
+				Unmapper.unmap(this.buffer);
+			}
+		}
+	}
+
+	/**
+	 * Read-only memory mapped file content obtained from a {@link MappedFileCache}. The buffer must not be used once
+	 * the content has been released.
+	 */
+	static class MappedContent {
+
+		private final Mapping mapping;
+
+		private final ByteBuffer buffer;
+
+		private volatile boolean released;
+
+		MappedContent(Mapping mapping, ByteBuffer buffer) {
+			this.mapping = mapping;
+			this.buffer = buffer;
+		}
+
+		/**
+		 * Returns a read-only buffer containing the file content.
+		 * 
+		 * @return the buffer
+		 */
+		ByteBuffer getBuffer() {
+			Assert.state(!this.released, "Content has been released");
+			return this.buffer;
+		}
+
+		/**
+		 * Release the content. Calling this method more than once has no effect.
+		 */
+		void release() {
+			synchronized (this) {
+				if (this.released) {
+					return;
+				}
+				this.released = true;
+			}
+			this.mapping.release();
+		}
+	}
+
+	/**
+	 * Best effort unmapping of buffers. Buffers are only unmapped once every {@link MappedContent} reference has been
+	 * released. Mappings that cannot be explicitly unmapped are released when garbage collected.
+	 */
+	private static class Unmapper {
+
+		public static void unmap(MappedByteBuffer buffer) {
+			try {
+				if (!invokeCleaner(buffer)) {
+					Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+					cleanerMethod.setAccessible(true);
+					Object cleaner = cleanerMethod.invoke(buffer);
+					if (cleaner != null) {
+						cleaner.getClass().getMethod("clean").invoke(cleaner);
+					}
+				}
+			} catch (Exception ex) {
+				logger.debug("Unable to unmap buffer, mapping will be released when garbage collected", ex);
+			}
+		}
+
+		private static boolean invokeCleaner(MappedByteBuffer buffer) throws Exception {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner;
+			try {
+				invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			} catch (NoSuchMethodException e) {
+				return false;
+			}
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			return true;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.InvalidMarkException;
+
+import org.cloudfoundry.tools.io.local.MappedFileCache.MappedContent;
+
+/**
+ * {@link InputStream} that reads from {@link MappedContent}. The content is released when the stream is closed. Reads
+ * are synchronized with {@link #close()} so that the buffer is never accessed once it may have been unmapped.
+ * 
+ * @author Phillip Webb
+ */
+class MappedInputStream extends InputStream {
+
+	private final MappedContent content;
+
+	private ByteBuffer buffer;
+
+	public MappedInputStream(MappedContent content) {
+		this(content, 0, Long.MAX_VALUE);
+	}
+
+	public MappedInputStream(MappedContent content, long offset, long length) {
+		this.content = content;
+		ByteBuffer buffer = content.getBuffer().duplicate();
+		int position = (int) Math.min(offset, buffer.limit());
+		buffer.position(position);
+		buffer.limit((int) Math.min(buffer.limit(), position + Math.min(length, Integer.MAX_VALUE)));
+		this.buffer = buffer;
+	}
+
+	@Override
+	public synchronized int read() throws IOException {
+		ByteBuffer buffer = getBuffer();
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+		try {
+			return buffer.get() & 0xFF;
+		} catch (InternalError e) {
+			throw newContentUnavailableException(e);
+		}
+	}
+
+	@Override
+	public synchronized int read(byte[] b, int off, int len) throws IOException {
+		ByteBuffer buffer = getBuffer();
+		if (len == 0) {
+			return 0;
+		}
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+		len = Math.min(len, buffer.remaining());
+		try {
+			buffer.get(b, off, len);
+		} catch (InternalError e) {
+			throw newContentUnavailableException(e);
+		}
+		return len;
+	}
+
+	@Override
+	public synchronized long skip(long n) throws IOException {
+		ByteBuffer buffer = getBuffer();
+		if (n <= 0) {
+			return 0;
+		}
+		int skipped = (int) Math.min(n, buffer.remaining());
+		buffer.position(buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public synchronized int available() throws IOException {
+		return getBuffer().remaining();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+		if (this.buffer != null) {
+			this.buffer.mark();
+		}
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		try {
+			getBuffer().reset();
+		} catch (InvalidMarkException e) {
+			throw new IOException("Mark has not been set");
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		this.buffer = null;
+		this.content.release();
+	}
+
+	private IOException newContentUnavailableException(InternalError cause) {
+		// Memory access errors are thrown if the file is truncated whilst mapped
+		return new IOException("Mapped file content is no longer available", cause);
+	}
+
+	private ByteBuffer getBuffer() throws IOException {
+		ByteBuffer buffer = this.buffer;
+		if (buffer == null) {
+			throw new IOException("Stream closed");
+		}
+		return buffer;
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+import org.cloudfoundry.tools.io.ResourcePath;
+import org.springframework.util.Assert;
+
+/**
+ * A change to a resource reported by a {@link LocalFolderWatcher}.
+ * 
+ * @author Phillip Webb
+ * @see ResourceChangeListener
+ */
+public final class ResourceChange {
+
+	/**
+	 * The type of change.
+	 */
+	public static enum Type {
+		CREATED, MODIFIED, DELETED
+	}
+
+	private final ResourcePath path;
+
+	private final Type type;
+
+	/**
+	 * Create a new {@link ResourceChange} instance.
+	 * 
+	 * @param path the path of the changed resource, relative to the watched folder
+	 * @param type the type of change
+	 */
+	public ResourceChange(ResourcePath path, Type type) {
+		Assert.notNull(path, "Path must not be null");
+		Assert.notNull(type, "Type must not be null");
+		this.path = path;
+		this.type = type;
+	}
+
+	/**
+	 * Returns the path of the changed resource, relative to the watched folder. A {@link Type#MODIFIED modification}
+	 * to the root path indicates that changes may have been missed and that any cached state should be discarded.
+	 * 
+	 * @return the path
+	 */
+	public ResourcePath getPath() {
+		return this.path;
+	}
+
+	/**
+	 * Returns the type of change.
+	 * 
+	 * @return the type
+	 */
+	public Type getType() {
+		return this.type;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.path.hashCode() * 31 + this.type.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		ResourceChange other = (ResourceChange) obj;
+		return this.path.equals(other.path) && this.type == other.type;
+	}
+
+	@Override
+	public String toString() {
+		return this.type + " " + this.path;
+	}
+}
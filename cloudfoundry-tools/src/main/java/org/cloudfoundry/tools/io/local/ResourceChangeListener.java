@@ -0,0 +1,36 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+import java.util.List;
+
+/**
+ * Listener that can be used to receive notifications when resources in a {@link LocalFolder} change. Listeners are
+ * called from the thread of a {@link LocalFolderWatcher} and must be thread-safe.
+ * 
+ * @author Phillip Webb
+ * @see LocalFolder#watch(ResourceChangeListener)
+ */
+public interface ResourceChangeListener {
+
+	/**
+	 * Called when resources have changed. Changes that occur close together are coalesced so that each resource is
+	 * reported at most once.
+	 * 
+	 * @param changes the changes
+	 */
+	void resourcesChanged(List<ResourceChange> changes);
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.mongo;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.springframework.util.Assert;
+
+import com.mongodb.DB;
+import com.mongodb.gridfs.GridFS;
+
+/**
+ * Registry of shared {@link GridFS} handles, one for each database and bucket. Creating a {@link GridFS} instance
+ * requires several round trips to the server so handles are created on first use and then reused. The indexes required
+ * by {@link MongoFolder} are also ensured when a handle is first created. Databases are only weakly referenced and
+ * handles are released once they are no longer used, so the registry does not keep databases or their mongo clients
+ * alive. This class is thread-safe.
+ * 
+ * @author Phillip Webb
+ * @see MongoFolder#MongoFolder(DB, String)
+ */
+public class GridFSRegistry {
+
+	private static final GridFSRegistry INSTANCE = new GridFSRegistry();
+
+	private final Map<DB, Handles> handles = new WeakHashMap<DB, Handles>();
+
+	/**
+	 * Returns the shared {@link GridFS} handle for the specified database and bucket, creating it and ensuring that
+	 * required indexes exist if necessary.
+	 * 
+	 * @param db the mongo database
+	 * @param bucket the bucket
+	 * @return the shared grid FS
+	 */
+	public GridFS get(DB db, String bucket) {
+		Assert.notNull(db, "DB must not be null");
+		Assert.notNull(bucket, "Bucket must not be null");
+		synchronized (this.handles) {
+			Handles handles = this.handles.get(db);
+			if (handles == null) {
+				handles = new Handles();
+				this.handles.put(db, handles);
+			}
+			return handles.get(db, bucket);
+		}
+	}
+
+	/**
+	 * Remove all shared handles. Indexes will be ensured again when handles are next created.
+	 */
+	public void clear() {
+		synchronized (this.handles) {
+			this.handles.clear();
+		}
+	}
+
+	/**
+	 * @return the number of shared handles
+	 */
+	public int size() {
+		synchronized (this.handles) {
+			int size = 0;
+			for (Handles handles : this.handles.values()) {
+				size += handles.size();
+			}
+			return size;
+		}
+	}
+
+	/**
+	 * @return a shared {@link GridFSRegistry} instance.
+	 */
+	public static GridFSRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * The handles for a single database. Handles are weakly referenced since each {@link GridFS} holds its database.
+	 */
+	private static class Handles {
+
+		private final Map<String, WeakReference<GridFS>> handles = new HashMap<String, WeakReference<GridFS>>();
+
+		private final Set<String> indexed = new HashSet<String>();
+
+		public GridFS get(DB db, String bucket) {
+			WeakReference<GridFS> reference = this.handles.get(bucket);
+			GridFS fs = (reference == null ? null : reference.get());
+			if (fs == null) {
+				fs = new GridFS(db, bucket);
+				if (this.indexed.add(bucket)) {
+					MongoResourceStore.ensureIndexes(fs);
+				}
+				this.handles.put(bucket, new WeakReference<GridFS>(fs));
+			}
+			return fs;
+		}
+
+		public int size() {
+			int size = 0;
+			for (WeakReference<GridFS> reference : this.handles.values()) {
+				size += (reference.get() == null ? 0 : 1);
+			}
+			return size;
+		}
+	}
+}
@@ -18,6 +18,7 @@ package org.cloudfoundry.tools.io.mongo;
 import org.cloudfoundry.tools.io.File;
 import org.cloudfoundry.tools.io.mongo.MongoResourceStore.MongoFileStore;
 import org.cloudfoundry.tools.io.store.FileStore;
+import org.cloudfoundry.tools.io.store.ResourceAttributes;
 import org.cloudfoundry.tools.io.store.StoredFile;
 
 import com.mongodb.gridfs.GridFS;
@@ -46,4 +47,14 @@ public class MongoFile extends StoredFile {
 		return this.store;
 	}
 
+	/**
+	 * Returns the size, last modified time and digest of the file. Attributes are obtained using a single query (or
+	 * from the listing that returned this file) so callers needing several values should prefer this method.
+	 * 
+	 * @return the file attributes
+	 */
+	public ResourceAttributes getAttributes() {
+		return this.store.getAttributes();
+	}
+
 }
@@ -55,15 +55,28 @@ public class MongoFolder extends StoredFolder {
 	}
 
 	/**
-	 * Create a new {@link MongoFolder} using the specified mongo database and bucket.
+	 * Create a new {@link MongoFolder} using the specified mongo database and bucket. The {@link GridFS} handle is
+	 * shared via the {@link GridFSRegistry}.
 	 * 
 	 * @param db the mongo database
 	 * @param bucket the bucket
 	 */
 	public MongoFolder(DB db, String bucket) {
+		this(db, bucket, GridFSRegistry.getInstance());
+	}
+
+	/**
+	 * Create a new {@link MongoFolder} using the specified mongo database and bucket.
+	 * 
+	 * @param db the mongo database
+	 * @param bucket the bucket
+	 * @param registry the registry used to obtain the {@link GridFS} handle
+	 */
+	public MongoFolder(DB db, String bucket, GridFSRegistry registry) {
 		Assert.notNull(db, "DB must not be null");
 		Assert.notNull(bucket, "Bucket must not be null");
-		GridFS fs = new GridFS(db, bucket);
+		Assert.notNull(registry, "Registry must not be null");
+		GridFS fs = registry.get(db, bucket);
 		this.store = new MongoFolderStore(fs, new JailedResourcePath());
 	}
 
@@ -15,28 +15,44 @@
  */
 package org.cloudfoundry.tools.io.mongo;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.cloudfoundry.tools.io.ContentDigest;
 import org.cloudfoundry.tools.io.File;
 import org.cloudfoundry.tools.io.Folder;
 import org.cloudfoundry.tools.io.JailedResourcePath;
+import org.cloudfoundry.tools.io.NameRestriction;
 import org.cloudfoundry.tools.io.Resource;
 import org.cloudfoundry.tools.io.ResourcePath;
 import org.cloudfoundry.tools.io.exception.ResourceException;
 import org.cloudfoundry.tools.io.exception.ResourceTypeMismatchException;
+import org.cloudfoundry.tools.io.store.AttributedFolderStore;
+import org.cloudfoundry.tools.io.store.DigestFileStore;
 import org.cloudfoundry.tools.io.store.FileStore;
-import org.cloudfoundry.tools.io.store.FolderStore;
+import org.cloudfoundry.tools.io.store.QueryableFolderStore;
+import org.cloudfoundry.tools.io.store.RangeFileStore;
+import org.cloudfoundry.tools.io.store.ResourceAttributes;
 import org.cloudfoundry.tools.io.store.ResourceStore;
+import org.cloudfoundry.tools.io.store.TransferableFileStore;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
+import com.mongodb.MongoException;
 import com.mongodb.gridfs.GridFS;
 import com.mongodb.gridfs.GridFSDBFile;
 import com.mongodb.gridfs.GridFSInputFile;
@@ -48,10 +64,44 @@ import com.mongodb.gridfs.GridFSInputFile;
  */
 abstract class MongoResourceStore implements ResourceStore {
 
+	private static final String FILENAME = "filename";
+
 	private static final String PARENT = "parent";
 
 	private static final String RESOURCE_TYPE = "resourceType";
 
+	private static final String LENGTH = "length";
+
+	private static final String UPLOAD_DATE = "uploadDate";
+
+	private static final String MD5 = "md5";
+
+	private static final String CHUNKS = ".chunks";
+
+	private static final String FILES_ID = "files_id";
+
+	private static final String CHUNK_NUMBER = "n";
+
+	private static final String CHUNK_DATA = "data";
+
+	private static final String FILES = ".files";
+
+	private static final String ID = "_id";
+
+	/**
+	 * Number of documents fetched per round trip when listing. Listed documents are projected so are small.
+	 */
+	private static final int LIST_BATCH_SIZE = 1000;
+
+	private static final DBObject NAME_FIELDS = new BasicDBObject(FILENAME, 1).append(ID, 0);
+
+	private static final DBObject TYPE_FIELDS = new BasicDBObject(RESOURCE_TYPE, 1).append(ID, 0);
+
+	private static final DBObject ATTRIBUTE_FIELDS = new BasicDBObject(FILENAME, 1).append(RESOURCE_TYPE, 1)
+			.append(LENGTH, 1).append(UPLOAD_DATE, 1).append(MD5, 1).append(ID, 0);
+
+	private static final Log logger = LogFactory.getLog(MongoResourceStore.class);
+
 	private final GridFS fs;
 
 	private final JailedResourcePath path;
@@ -67,6 +117,18 @@ abstract class MongoResourceStore implements ResourceStore {
 		return this.fs;
 	}
 
+	protected final DBCollection getFilesCollection() {
+		return getFs().getDB().getCollection(getFs().getBucketName() + FILES);
+	}
+
+	/**
+	 * Return the full {@link GridFSDBFile}, for use when content is accessed or the file is updated.
+	 * 
+	 * @param path the path
+	 * @param required if the file is required
+	 * @return the file or <tt>null</tt>
+	 * @see #getMetadata(JailedResourcePath, DBObject, boolean)
+	 */
 	protected final GridFSDBFile getGridFSDBFile(JailedResourcePath path, boolean required) {
 		String filename = getFilename(path);
 		GridFSDBFile file = getFs().findOne(filename);
@@ -76,6 +138,23 @@ abstract class MongoResourceStore implements ResourceStore {
 		return file;
 	}
 
+	/**
+	 * Return specific fields of the file metadata using a projected query.
+	 * 
+	 * @param path the path
+	 * @param fields the fields to return
+	 * @param required if the file is required
+	 * @return the metadata or <tt>null</tt>
+	 */
+	protected final DBObject getMetadata(JailedResourcePath path, DBObject fields, boolean required) {
+		String filename = getFilename(path);
+		DBObject metadata = getFilesCollection().findOne(new BasicDBObject(FILENAME, filename), fields);
+		if (metadata == null && required) {
+			throw new ResourceException("Unable to find mogo entry for " + filename);
+		}
+		return metadata;
+	}
+
 	protected GridFSInputFile create(Type type, boolean createEmptyFile) {
 		Assert.notNull(type, "Type must not be null");
 		GridFSInputFile file = this.fs.createFile(getFilename(getPath()));
@@ -94,10 +173,53 @@ abstract class MongoResourceStore implements ResourceStore {
 		return file;
 	}
 
-	private String getFilename(JailedResourcePath path) {
+	/**
+	 * Ensure that the indexes used to list and find resources exist. Listings query by parent (and often filename) and
+	 * existence checks query by filename; including the resource type allows both to be served from the index. Indexes
+	 * are built in the background and failures are logged rather than thrown since stores remain usable without them.
+	 * 
+	 * @param fs the grid FS
+	 */
+	static void ensureIndexes(GridFS fs) {
+		Assert.notNull(fs, "FS must not be null");
+		DBCollection files = fs.getDB().getCollection(fs.getBucketName() + FILES);
+		try {
+			files.ensureIndex(new BasicDBObject(PARENT, 1).append(FILENAME, 1).append(RESOURCE_TYPE, 1),
+					new BasicDBObject("background", true));
+			files.ensureIndex(new BasicDBObject(FILENAME, 1).append(RESOURCE_TYPE, 1), new BasicDBObject(
+					"background", true));
+		} catch (MongoException e) {
+			logger.warn("Unable to ensure indexes for GridFS bucket " + fs.getBucketName(), e);
+		}
+	}
+
+	private static String getFilename(JailedResourcePath path) {
 		return path.getUnjailedPath().toString();
 	}
 
+	private static ContentDigest getContentDigest(DBObject file) {
+		String md5 = (String) file.get(MD5);
+		return (StringUtils.hasLength(md5) ? new ContentDigest(ContentDigest.MD5, md5) : null);
+	}
+
+	private static String getName(DBObject file) {
+		String filename = (String) file.get(FILENAME);
+		ResourcePath path = new ResourcePath().get(filename);
+		return path.getName();
+	}
+
+	private static Type getType(DBObject file) {
+		return Type.valueOf((String) file.get(RESOURCE_TYPE));
+	}
+
+	private static ResourceAttributes getAttributes(DBObject file) {
+		boolean folder = Type.FOLDER.name().equals(file.get(RESOURCE_TYPE));
+		Number length = (Number) file.get(LENGTH);
+		Date uploadDate = (Date) file.get(UPLOAD_DATE);
+		return new ResourceAttributes(getName(file), folder, length == null ? 0 : length.longValue(),
+				uploadDate == null ? 0 : uploadDate.getTime(), getContentDigest(file));
+	}
+
 	@Override
 	public JailedResourcePath getPath() {
 		return this.path;
@@ -109,7 +231,12 @@ abstract class MongoResourceStore implements ResourceStore {
 		if (type == null) {
 			return null;
 		}
-		return type == Type.FILE ? getFile(path) : getFolder(path);
+		// The type is known so skip type checks, folders (including the root) never need attributes
+		if (type == Type.FOLDER) {
+			return new MongoFolder(new MongoFolderStore(getFs(), path, false));
+		}
+		ResourceAttributes attributes = new ResourceAttributes(path.getPath().getName(), false);
+		return new MongoFile(new MongoFileStore(getFs(), path, attributes));
 	}
 
 	/**
@@ -119,12 +246,8 @@ abstract class MongoResourceStore implements ResourceStore {
 	 * @return the file type
 	 */
 	protected final Type getType(JailedResourcePath path) {
-		GridFSDBFile file = getGridFSDBFile(path, false);
-		if (file == null) {
-			return null;
-		}
-		Type type = Type.valueOf((String) file.get(RESOURCE_TYPE));
-		return type;
+		DBObject metadata = getMetadata(path, TYPE_FIELDS, false);
+		return (metadata == null ? null : getType(metadata));
 	}
 
 	@Override
@@ -143,7 +266,7 @@ abstract class MongoResourceStore implements ResourceStore {
 	public Resource rename(String name) {
 		GridFSDBFile gridFSDBFile = getGridFSDBFile(getPath(), true);
 		JailedResourcePath renamed = getPath().unjail().getParent().get(name);
-		gridFSDBFile.put("filename", getFilename(renamed));
+		gridFSDBFile.put(FILENAME, getFilename(renamed));
 		gridFSDBFile.save();
 		return getRenamedResource(renamed);
 	}
@@ -152,7 +275,7 @@ abstract class MongoResourceStore implements ResourceStore {
 
 	@Override
 	public boolean exists() {
-		return getGridFSDBFile(getPath(), false) != null;
+		return getType(getPath()) != null;
 	}
 
 	@Override
@@ -179,12 +302,27 @@ abstract class MongoResourceStore implements ResourceStore {
 		MongoResourceStore other = (MongoResourceStore) obj;
 		boolean rtn = true;
 		rtn &= ObjectUtils.nullSafeEquals(getPath().getUnjailedPath(), other.getPath().getUnjailedPath());
+		rtn &= isSameFs(other);
+		return rtn;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the specified store uses the same GridFS bucket as this store.
+	 * 
+	 * @param other the store to test
+	 * @return if the GridFS bucket is the same
+	 */
+	protected final boolean isSameFs(MongoResourceStore other) {
+		boolean rtn = true;
 		rtn &= ObjectUtils.nullSafeEquals(getFs().getDB(), other.getFs().getDB());
 		rtn &= ObjectUtils.nullSafeEquals(getFs().getBucketName(), other.getFs().getBucketName());
 		return rtn;
 	}
 
-	static class MongoFileStore extends MongoResourceStore implements FileStore {
+	static class MongoFileStore extends MongoResourceStore implements TransferableFileStore, RangeFileStore,
+			DigestFileStore {
+
+		private ResourceAttributes attributes;
 
 		public MongoFileStore(GridFS fs, JailedResourcePath path) {
 			super(fs, path);
@@ -193,14 +331,41 @@ abstract class MongoResourceStore implements ResourceStore {
 			}
 		}
 
+		/**
+		 * Create a new {@link MongoFileStore} for a file that has been listed or is known to exist.
+		 * 
+		 * @param fs the grid FS
+		 * @param path the path
+		 * @param attributes the listed attributes (or <tt>null</tt>), used while {@link ResourceAttributes#isCurrent()
+		 * current} and until the file is modified. {@link ResourceAttributes#isTypeOnly() Type only} attributes are
+		 * not used.
+		 */
+		MongoFileStore(GridFS fs, JailedResourcePath path, ResourceAttributes attributes) {
+			super(fs, path);
+			this.attributes = (attributes == null || attributes.isTypeOnly() ? null : attributes);
+		}
+
 		@Override
 		protected Resource getRenamedResource(JailedResourcePath path) {
 			MongoFileStore store = new MongoFileStore(getFs(), path);
 			return new MongoFile(store);
 		}
 
+		@Override
+		public Resource rename(String name) {
+			this.attributes = null;
+			return super.rename(name);
+		}
+
+		@Override
+		public void delete() {
+			this.attributes = null;
+			super.delete();
+		}
+
 		@Override
 		public void create() {
+			this.attributes = null;
 			create(Type.FILE, true);
 		}
 
@@ -209,36 +374,125 @@ abstract class MongoResourceStore implements ResourceStore {
 			return getGridFSDBFile(getPath(), true).getInputStream();
 		}
 
+		@Override
+		public InputStream getInputStream(long offset, long length) {
+			GridFSDBFile file = getGridFSDBFile(getPath(), true);
+			long remaining = Math.min(length, Math.max(file.getLength() - offset, 0));
+			if (remaining == 0) {
+				return new ByteArrayInputStream(new byte[] {});
+			}
+			long chunkSize = file.getChunkSize();
+			int firstChunk = (int) (offset / chunkSize);
+			int lastChunk = (int) ((offset + remaining - 1) / chunkSize);
+			BasicDBObject chunkNumbers = new BasicDBObject("$gte", firstChunk).append("$lte", lastChunk);
+			DBObject query = new BasicDBObject(FILES_ID, file.getId()).append(CHUNK_NUMBER, chunkNumbers);
+			DBCollection chunks = getFs().getDB().getCollection(getFs().getBucketName() + CHUNKS);
+			DBCursor cursor = chunks.find(query).sort(new BasicDBObject(CHUNK_NUMBER, 1));
+			return new ChunkInputStream(cursor, firstChunk, (int) (offset - (firstChunk * chunkSize)), remaining);
+		}
+
 		@Override
 		public OutputStream getOutputStream() {
+			this.attributes = null;
 			delete();
 			GridFSInputFile file = create(Type.FILE, false);
 			return file.getOutputStream();
 		}
 
+		private ResourceAttributes getListedAttributes() {
+			ResourceAttributes attributes = this.attributes;
+			if (attributes != null && !attributes.isCurrent()) {
+				this.attributes = null;
+				return null;
+			}
+			return attributes;
+		}
+
+		/**
+		 * Returns the attributes of the file. Current listed attributes are returned if available, otherwise the
+		 * attributes are read using a single projected query.
+		 * 
+		 * @return the file attributes
+		 */
+		public ResourceAttributes getAttributes() {
+			ResourceAttributes attributes = getListedAttributes();
+			if (attributes == null) {
+				attributes = MongoResourceStore.getAttributes(getMetadata(getPath(), ATTRIBUTE_FIELDS, true));
+			}
+			return attributes;
+		}
+
 		@Override
 		public long getSize() {
-			return getGridFSDBFile(getPath(), true).getLength();
+			return getAttributes().getSize();
 		}
 
 		@Override
 		public long getLastModified() {
-			return getGridFSDBFile(getPath(), true).getUploadDate().getTime();
+			return getAttributes().getLastModified();
+		}
+
+		@Override
+		public ContentDigest getDigest() {
+			ResourceAttributes attributes = getListedAttributes();
+			if (attributes != null && attributes.getDigest() != null) {
+				return attributes.getDigest();
+			}
+			return getContentDigest(getMetadata(getPath(), new BasicDBObject(MD5, 1).append(ID, 0), true));
 		}
 
 		@Override
 		public void touch() {
+			this.attributes = null;
+			GridFSDBFile gridFSDBFile = getGridFSDBFile(getPath(), true);
+			gridFSDBFile.put(UPLOAD_DATE, new Date());
+			gridFSDBFile.save();
+		}
+
+		@Override
+		public boolean moveTo(FileStore destination) {
+			if (!(destination instanceof MongoFileStore) || !isSameFs((MongoFileStore) destination)) {
+				return false;
+			}
+			MongoFileStore target = (MongoFileStore) destination;
+			this.attributes = null;
 			GridFSDBFile gridFSDBFile = getGridFSDBFile(getPath(), true);
-			gridFSDBFile.put("uploadDate", new Date());
+			target.delete();
+			JailedResourcePath path = target.getPath();
+			gridFSDBFile.put(FILENAME, getFilename(path));
+			if (path.getParent() == null) {
+				gridFSDBFile.removeField(PARENT);
+			} else {
+				gridFSDBFile.put(PARENT, path.getParent().getUnjailedPath().toString());
+			}
 			gridFSDBFile.save();
+			return true;
+		}
+
+		@Override
+		public boolean copyTo(FileStore destination) {
+			// Chunks belong to a single file so copies must always be streamed
+			return false;
 		}
 	}
 
-	static class MongoFolderStore extends MongoResourceStore implements FolderStore {
+	static class MongoFolderStore extends MongoResourceStore implements QueryableFolderStore, AttributedFolderStore {
 
 		public MongoFolderStore(GridFS fs, JailedResourcePath path) {
+			this(fs, path, true);
+		}
+
+		/**
+		 * Create a new {@link MongoFolderStore}, optionally skipping the type check for a folder that has been listed
+		 * or is known to exist.
+		 * 
+		 * @param fs the grid FS
+		 * @param path the path
+		 * @param checkType if the existing resource should be checked to ensure that it is not a file
+		 */
+		MongoFolderStore(GridFS fs, JailedResourcePath path, boolean checkType) {
 			super(fs, path);
-			if (Type.FILE.equals(getType(path))) {
+			if (checkType && Type.FILE.equals(getType(path))) {
 				throw new ResourceTypeMismatchException(path.getUnjailedPath(), true);
 			}
 		}
@@ -255,13 +509,70 @@ abstract class MongoResourceStore implements ResourceStore {
 
 		@Override
 		public Iterable<String> list() {
-			BasicDBObject query = new BasicDBObject(PARENT, getPath().getUnjailedPath().toString());
-			final DBCursor list = getFs().getFileList(query);
-			return new FileListIterable(list);
+			return new FileNameIterable(find(getListQuery(null), NAME_FIELDS));
+		}
+
+		@Override
+		public Iterable<String> list(NameRestriction restriction) {
+			Assert.notNull(restriction, "Restriction must not be null");
+			return new FileNameIterable(find(getListQuery(restriction), NAME_FIELDS));
+		}
+
+		@Override
+		public Iterable<ResourceAttributes> listAttributes(NameRestriction restriction) {
+			return new FileAttributesIterable(find(getListQuery(restriction), ATTRIBUTE_FIELDS));
+		}
+
+		private DBCursor find(DBObject query, DBObject fields) {
+			DBCursor cursor = getFilesCollection().find(query, fields);
+			return cursor.sort(new BasicDBObject(FILENAME, 1)).batchSize(LIST_BATCH_SIZE);
+		}
+
+		@Override
+		public Resource getExisting(JailedResourcePath path, ResourceAttributes attributes) {
+			if (attributes.isFolder()) {
+				return new MongoFolder(new MongoFolderStore(getFs(), path, false));
+			}
+			return new MongoFile(new MongoFileStore(getFs(), path, attributes));
+		}
+
+		private DBObject getListQuery(NameRestriction restriction) {
+			String parent = getPath().getUnjailedPath().toString();
+			BasicDBObject query = new BasicDBObject(PARENT, parent);
+			if (restriction != null) {
+				query.put(FILENAME, getFilenameCriteria(parent + "/", restriction));
+			}
+			return query;
+		}
+
+		private Object getFilenameCriteria(String prefix, NameRestriction restriction) {
+			if (restriction.getType() == NameRestriction.Type.EXACT && !restriction.isIgnoreCase()) {
+				List<String> filenames = new ArrayList<String>();
+				for (String value : restriction.getValues()) {
+					filenames.add(prefix + value);
+				}
+				return new BasicDBObject("$in", filenames);
+			}
+			StringBuilder regex = new StringBuilder("^").append(Pattern.quote(prefix));
+			if (restriction.getType() == NameRestriction.Type.SUFFIX) {
+				regex.append("[^/]*");
+			}
+			regex.append("(?:");
+			for (int i = 0; i < restriction.getValues().size(); i++) {
+				regex.append(i == 0 ? "" : "|").append(Pattern.quote(restriction.getValues().get(i)));
+			}
+			regex.append(")");
+			if (restriction.getType() != NameRestriction.Type.PREFIX) {
+				regex.append("$");
+			}
+			return Pattern.compile(regex.toString(), restriction.isIgnoreCase() ? Pattern.CASE_INSENSITIVE : 0);
 		}
 	}
 
-	private static class FileListIterable implements Iterable<String> {
+	/**
+	 * {@link Iterable} that converts the results of a projected file list query.
+	 */
+	private static abstract class FileListIterable<T> implements Iterable<T> {
 
 		private final DBCursor list;
 
@@ -270,35 +581,123 @@ abstract class MongoResourceStore implements ResourceStore {
 		}
 
 		@Override
-		public Iterator<String> iterator() {
-			return new FileListIterator(this.list.iterator());
+		public Iterator<T> iterator() {
+			final Iterator<DBObject> iterator = this.list.iterator();
+			return new Iterator<T>() {
+
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public T next() {
+					return convert(iterator.next());
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		protected abstract T convert(DBObject file);
+	}
+
+	private static class FileNameIterable extends FileListIterable<String> {
+
+		public FileNameIterable(DBCursor list) {
+			super(list);
+		}
+
+		@Override
+		protected String convert(DBObject file) {
+			return getName(file);
+		}
+	}
+
+	private static class FileAttributesIterable extends FileListIterable<ResourceAttributes> {
+
+		public FileAttributesIterable(DBCursor list) {
+			super(list);
+		}
+
+		@Override
+		protected ResourceAttributes convert(DBObject file) {
+			return getAttributes(file);
 		}
 	}
 
-	private static class FileListIterator implements Iterator<String> {
+	/**
+	 * {@link InputStream} that reads a range of content from a cursor of GridFS chunks.
+	 */
+	private static class ChunkInputStream extends InputStream {
+
+		private final DBCursor cursor;
+
+		private int chunk;
 
-		private final Iterator<DBObject> iterator;
+		private int skip;
 
-		public FileListIterator(Iterator<DBObject> iterator) {
-			this.iterator = iterator;
+		private long remaining;
+
+		private byte[] data;
+
+		private int offset;
+
+		public ChunkInputStream(DBCursor cursor, int chunk, int skip, long remaining) {
+			this.cursor = cursor;
+			this.chunk = chunk;
+			this.skip = skip;
+			this.remaining = remaining;
 		}
 
 		@Override
-		public boolean hasNext() {
-			return this.iterator.hasNext();
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return (read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF);
 		}
 
 		@Override
-		public String next() {
-			DBObject next = this.iterator.next();
-			String filename = (String) next.get("filename");
-			ResourcePath path = new ResourcePath().get(filename);
-			return path.getName();
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (this.remaining <= 0 || !nextData()) {
+				return -1;
+			}
+			len = (int) Math.min(Math.min(len, this.data.length - this.offset), this.remaining);
+			System.arraycopy(this.data, this.offset, b, off, len);
+			this.offset += len;
+			this.remaining -= len;
+			return len;
+		}
+
+		private boolean nextData() throws IOException {
+			while (this.data == null || this.offset >= this.data.length) {
+				if (!this.cursor.hasNext()) {
+					throw new IOException("Missing GridFS chunk " + this.chunk);
+				}
+				DBObject next = this.cursor.next();
+				Number number = (Number) next.get(CHUNK_NUMBER);
+				if (number == null || number.intValue() != this.chunk) {
+					throw new IOException("Missing GridFS chunk " + this.chunk);
+				}
+				this.data = (byte[]) next.get(CHUNK_DATA);
+				if (this.data == null) {
+					throw new IOException("Missing GridFS chunk data");
+				}
+				this.chunk++;
+				this.offset = this.skip;
+				this.skip = 0;
+			}
+			return true;
 		}
 
 		@Override
-		public void remove() {
-			throw new UnsupportedOperationException();
+		public void close() throws IOException {
+			this.cursor.close();
 		}
 	}
 
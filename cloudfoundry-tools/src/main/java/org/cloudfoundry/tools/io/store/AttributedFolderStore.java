@@ -0,0 +1,49 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import org.cloudfoundry.tools.io.JailedResourcePath;
+import org.cloudfoundry.tools.io.NameRestriction;
+import org.cloudfoundry.tools.io.Resource;
+
+/**
+ * A {@link FolderStore} that can list the {@link ResourceAttributes attributes} of all children in a single batch.
+ * Allows {@link StoredFolder#list()} to return resources without a further store lookup for each child.
+ * 
+ * @author Phillip Webb
+ * @see StoredFolder#list()
+ */
+public interface AttributedFolderStore extends FolderStore {
+
+	/**
+	 * List the attributes of the contents of the folder. Implementations may return additional items that do not
+	 * match the restriction.
+	 * 
+	 * @param restriction an optional name restriction or <tt>null</tt>
+	 * @return the attributes of the folder contents
+	 */
+	Iterable<ResourceAttributes> listAttributes(NameRestriction restriction);
+
+	/**
+	 * Return an existing resource for a child previously {@link #listAttributes(NameRestriction) listed}. The
+	 * resource should use the attributes in place of further store access until it is modified.
+	 * 
+	 * @param path the path of the child
+	 * @param attributes the attributes of the child
+	 * @return the resource
+	 */
+	Resource getExisting(JailedResourcePath path, ResourceAttributes attributes);
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.store.CachingResourceStore.CachingFileStore;
+
+/**
+ * A {@link File} obtained from a {@link CachingFolder}.
+ * 
+ * @author Phillip Webb
+ * @see CachingFolder
+ */
+public class CachingFile extends StoredFile {
+
+	private final StoredFile file;
+
+	private final CachingFileStore store;
+
+	/**
+	 * Package level constructor used by {@link CachingResourceStore} when wrapping files.
+	 * 
+	 * @param file the file to wrap
+	 * @param cache the attribute cache
+	 */
+	CachingFile(StoredFile file, ResourceAttributeCache cache) {
+		this.file = file;
+		this.store = new CachingFileStore(file.getStore(), cache);
+	}
+
+	@Override
+	protected FileStore getStore() {
+		return this.store;
+	}
+
+	@Override
+	protected boolean write(File file) {
+		this.store.invalidate();
+		try {
+			return this.file.write(file);
+		} finally {
+			this.store.invalidate();
+		}
+	}
+}
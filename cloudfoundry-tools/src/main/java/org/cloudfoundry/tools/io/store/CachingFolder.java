@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.Folder;
+import org.cloudfoundry.tools.io.Resource;
+import org.cloudfoundry.tools.io.store.CachingResourceStore.AttributedCachingFolderStore;
+import org.cloudfoundry.tools.io.store.CachingResourceStore.CachingFolderStore;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link Folder} decorator that caches the attributes of the resources that it contains for a short time. Calls to
+ * {@link File#getSize()}, {@link File#getLastModified()} and {@link Resource#exists()} are served from a
+ * {@link ResourceAttributeCache} shared by all resources obtained from the folder. Cached attributes are invalidated
+ * when resources are written, touched, created, deleted or renamed through the folder. Changes made by other means
+ * will not be visible until cached attributes expire.
+ * 
+ * @author Phillip Webb
+ * @see ResourceAttributeCache
+ */
+public class CachingFolder extends StoredFolder {
+
+	private final CachingFolderStore store;
+
+	/**
+	 * Create a new {@link CachingFolder} using a {@link ResourceAttributeCache} with default settings.
+	 * 
+	 * @param folder the folder to decorate
+	 */
+	public CachingFolder(Folder folder) {
+		this(folder, new ResourceAttributeCache());
+	}
+
+	/**
+	 * Create a new {@link CachingFolder} using the specified cache.
+	 * 
+	 * @param folder the folder to decorate. Must be a {@link StoredFolder}
+	 * @param cache the attribute cache
+	 */
+	public CachingFolder(Folder folder, ResourceAttributeCache cache) {
+		Assert.notNull(folder, "Folder must not be null");
+		Assert.notNull(cache, "Cache must not be null");
+		Assert.isInstanceOf(StoredFolder.class, folder, "Folder must be a StoredFolder");
+		FolderStore store = ((StoredFolder) folder).getStore();
+		if (store instanceof AttributedFolderStore) {
+			this.store = new AttributedCachingFolderStore((AttributedFolderStore) store, cache);
+		} else {
+			this.store = new CachingFolderStore(store, cache);
+		}
+	}
+
+	@Override
+	protected FolderStore getStore() {
+		return this.store;
+	}
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.cloudfoundry.tools.io.ContentDigest;
+import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.Folder;
+import org.cloudfoundry.tools.io.JailedResourcePath;
+import org.cloudfoundry.tools.io.NameRestriction;
+import org.cloudfoundry.tools.io.RangeInputStream;
+import org.cloudfoundry.tools.io.Resource;
+import org.cloudfoundry.tools.io.ResourcePath;
+import org.cloudfoundry.tools.io.exception.ResourceException;
+import org.cloudfoundry.tools.io.store.ResourceAttributeCache.Entry;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResourceStore} decorators used by {@link CachingFolder} and {@link CachingFile}. Attributes are read from a
+ * {@link ResourceAttributeCache} when possible and any cached attributes are invalidated when the resource is
+ * modified.
+ * 
+ * @author Phillip Webb
+ */
+abstract class CachingResourceStore implements ResourceStore {
+
+	private final ResourceStore store;
+
+	private final ResourceAttributeCache cache;
+
+	public CachingResourceStore(ResourceStore store, ResourceAttributeCache cache) {
+		Assert.notNull(store, "Store must not be null");
+		Assert.notNull(cache, "Cache must not be null");
+		this.store = store;
+		this.cache = cache;
+	}
+
+	protected final ResourceAttributeCache getCache() {
+		return this.cache;
+	}
+
+	protected final Entry getCacheEntry() {
+		return this.cache.get(getKey(getPath()));
+	}
+
+	protected final void invalidate() {
+		this.cache.invalidate(getKey(getPath()));
+	}
+
+	protected final ResourcePath getKey(JailedResourcePath path) {
+		return path.getUnjailedPath();
+	}
+
+	@Override
+	public JailedResourcePath getPath() {
+		return this.store.getPath();
+	}
+
+	@Override
+	public Resource getExisting(JailedResourcePath path) {
+		Entry entry = this.cache.get(getKey(path));
+		if (Boolean.FALSE.equals(entry.getExists())) {
+			return null;
+		}
+		Resource resource = this.store.getExisting(path);
+		entry.setExists(resource != null);
+		return wrap(resource);
+	}
+
+	@Override
+	public Folder getFolder(JailedResourcePath path) {
+		return (Folder) wrap(this.store.getFolder(path));
+	}
+
+	@Override
+	public File getFile(JailedResourcePath path) {
+		return (File) wrap(this.store.getFile(path));
+	}
+
+	@Override
+	public boolean exists() {
+		Entry entry = getCacheEntry();
+		Boolean exists = entry.getExists();
+		if (exists == null) {
+			exists = this.store.exists();
+			entry.setExists(exists);
+		}
+		return exists;
+	}
+
+	@Override
+	public Resource rename(String name) {
+		try {
+			return wrap(this.store.rename(name));
+		} finally {
+			this.cache.invalidateAll(getKey(getPath()));
+			this.cache.invalidateAll(getKey(getPath().unjail().getParent().get(name)));
+		}
+	}
+
+	@Override
+	public void delete() {
+		try {
+			this.store.delete();
+		} finally {
+			this.cache.invalidateAll(getKey(getPath()));
+		}
+	}
+
+	@Override
+	public void create() {
+		try {
+			this.store.create();
+		} finally {
+			invalidate();
+		}
+	}
+
+	/**
+	 * Wrap a resource obtained from the underlying store so that it also uses the cache.
+	 * 
+	 * @param resource the resource to wrap (may be <tt>null</tt>)
+	 * @return the wrapped resource
+	 */
+	protected final Resource wrap(Resource resource) {
+		if (resource instanceof CachingFile || resource instanceof CachingFolder) {
+			return resource;
+		}
+		if (resource instanceof StoredFile) {
+			return new CachingFile((StoredFile) resource, this.cache);
+		}
+		if (resource instanceof StoredFolder) {
+			return new CachingFolder((StoredFolder) resource, this.cache);
+		}
+		return resource;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.store.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		return this.store.equals(((CachingResourceStore) obj).store);
+	}
+
+	static class CachingFileStore extends CachingResourceStore implements TransferableFileStore, ChannelFileStore,
+			RangeFileStore, DigestFileStore {
+
+		private final FileStore store;
+
+		public CachingFileStore(FileStore store, ResourceAttributeCache cache) {
+			super(store, cache);
+			this.store = store;
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return this.store.getInputStream();
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			invalidate();
+			return new FilterOutputStream(this.store.getOutputStream()) {
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					this.out.write(b, off, len);
+				}
+
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						invalidate();
+					}
+				}
+			};
+		}
+
+		@Override
+		public InputStream getInputStream(long offset, long length) {
+			if (this.store instanceof RangeFileStore) {
+				return ((RangeFileStore) this.store).getInputStream(offset, length);
+			}
+			return new RangeInputStream(getInputStream(), offset, length);
+		}
+
+		@Override
+		public ReadableByteChannel getReadableChannel() {
+			if (this.store instanceof ChannelFileStore) {
+				return ((ChannelFileStore) this.store).getReadableChannel();
+			}
+			return Channels.newChannel(getInputStream());
+		}
+
+		@Override
+		public int read(long position, ByteBuffer buffer) {
+			if (this.store instanceof ChannelFileStore) {
+				return ((ChannelFileStore) this.store).read(position, buffer);
+			}
+			ReadableByteChannel channel = Channels.newChannel(getInputStream(position, buffer.remaining()));
+			try {
+				int total = 0;
+				while (buffer.hasRemaining()) {
+					int read = channel.read(buffer);
+					if (read == -1) {
+						return (total == 0 ? -1 : total);
+					}
+					total += read;
+				}
+				return total;
+			} catch (IOException e) {
+				throw new ResourceException(e);
+			} finally {
+				try {
+					channel.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+
+		@Override
+		public WritableByteChannel getWritableChannel() {
+			// Stream based writes are used so that the cache can be invalidated when the channel is closed
+			return Channels.newChannel(getOutputStream());
+		}
+
+		@Override
+		public long getSize() {
+			Entry entry = getCacheEntry();
+			Long size = entry.getSize();
+			if (size == null) {
+				size = this.store.getSize();
+				entry.setSize(size);
+			}
+			return size;
+		}
+
+		@Override
+		public long getLastModified() {
+			Entry entry = getCacheEntry();
+			Long lastModified = entry.getLastModified();
+			if (lastModified == null) {
+				lastModified = this.store.getLastModified();
+				entry.setLastModified(lastModified);
+			}
+			return lastModified;
+		}
+
+		@Override
+		public ContentDigest getDigest() {
+			Entry entry = getCacheEntry();
+			ContentDigest digest = entry.getDigest();
+			if (digest == null && this.store instanceof DigestFileStore) {
+				digest = ((DigestFileStore) this.store).getDigest();
+				entry.setDigest(digest);
+			}
+			return digest;
+		}
+
+		@Override
+		public void touch() {
+			try {
+				this.store.touch();
+			} finally {
+				invalidate();
+			}
+		}
+
+		@Override
+		public boolean moveTo(FileStore destination) {
+			return transferTo(destination, true);
+		}
+
+		@Override
+		public boolean copyTo(FileStore destination) {
+			return transferTo(destination, false);
+		}
+
+		private boolean transferTo(FileStore destination, boolean move) {
+			if (!(this.store instanceof TransferableFileStore)) {
+				return false;
+			}
+			TransferableFileStore store = (TransferableFileStore) this.store;
+			FileStore target = destination;
+			if (destination instanceof CachingFileStore) {
+				target = ((CachingFileStore) destination).store;
+			}
+			try {
+				return (move ? store.moveTo(target) : store.copyTo(target));
+			} finally {
+				if (move) {
+					invalidate();
+				}
+				if (destination instanceof CachingFileStore) {
+					((CachingFileStore) destination).invalidate();
+				}
+			}
+		}
+	}
+
+	static class CachingFolderStore extends CachingResourceStore implements QueryableFolderStore {
+
+		private final FolderStore store;
+
+		public CachingFolderStore(FolderStore store, ResourceAttributeCache cache) {
+			super(store, cache);
+			this.store = store;
+		}
+
+		protected final FolderStore getStore() {
+			return this.store;
+		}
+
+		@Override
+		public Iterable<String> list() {
+			return this.store.list();
+		}
+
+		@Override
+		public Iterable<String> list(NameRestriction restriction) {
+			if (this.store instanceof QueryableFolderStore) {
+				return ((QueryableFolderStore) this.store).list(restriction);
+			}
+			return this.store.list();
+		}
+	}
+
+	static class AttributedCachingFolderStore extends CachingFolderStore implements AttributedFolderStore {
+
+		public AttributedCachingFolderStore(AttributedFolderStore store, ResourceAttributeCache cache) {
+			super(store, cache);
+		}
+
+		@Override
+		public Iterable<ResourceAttributes> listAttributes(NameRestriction restriction) {
+			return ((AttributedFolderStore) getStore()).listAttributes(restriction);
+		}
+
+		@Override
+		public Resource getExisting(JailedResourcePath path, ResourceAttributes attributes) {
+			getCache().put(getKey(path), attributes);
+			return wrap(((AttributedFolderStore) getStore()).getExisting(path, attributes));
+		}
+	}
+}
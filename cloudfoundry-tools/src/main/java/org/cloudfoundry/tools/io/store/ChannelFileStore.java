@@ -0,0 +1,55 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A {@link FileStore} that can provide direct channel access to file content. Stores that can return a
+ * {@link java.nio.channels.FileChannel} allow content to be transferred without copying through user space.
+ * 
+ * @author Phillip Webb
+ * @see StoredFile#getContent()
+ */
+public interface ChannelFileStore extends FileStore {
+
+	/**
+	 * Access the file content as a readable channel.
+	 * 
+	 * @return a channel to read content
+	 */
+	ReadableByteChannel getReadableChannel();
+
+	/**
+	 * Access the file content as a writable channel, replacing any existing content.
+	 * 
+	 * @return a channel to write content
+	 */
+	WritableByteChannel getWritableChannel();
+
+	/**
+	 * Read file content starting at the specified position directly into a buffer, without reading the bytes that
+	 * precede it. Bytes are read until the buffer is full or the end of the file is reached.
+	 * 
+	 * @param position the file position to read from
+	 * @param buffer the buffer to read into
+	 * @return the number of bytes read or <tt>-1</tt> if the position is at or beyond the end of the file
+	 * @see org.cloudfoundry.tools.io.FileContent#read(long, ByteBuffer)
+	 */
+	int read(long position, ByteBuffer buffer);
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import java.util.Set;
+
+import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.store.CompressingResourceStore.CompressingFileStore;
+
+/**
+ * A {@link File} obtained from a {@link CompressingFolder}.
+ * 
+ * @author Phillip Webb
+ * @see CompressingFolder
+ */
+public class CompressingFile extends StoredFile {
+
+	private final CompressingFileStore store;
+
+	/**
+	 * Package level constructor used by {@link CompressingResourceStore} when wrapping files.
+	 * 
+	 * @param file the file to wrap
+	 * @param uncompressedExtensions file extensions that should not be compressed
+	 */
+	CompressingFile(StoredFile file, Set<String> uncompressedExtensions) {
+		this.store = new CompressingFileStore(file.getStore(), uncompressedExtensions);
+	}
+
+	@Override
+	protected FileStore getStore() {
+		return this.store;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.Folder;
+import org.cloudfoundry.tools.io.store.CompressingResourceStore.CompressingFolderStore;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link Folder} decorator that transparently compresses file content. Content is compressed when written and
+ * decompressed when read, reducing storage and network I/O for text based content. Files with extensions that
+ * indicate content that is already compressed (for example <tt>jar</tt>, <tt>zip</tt> or <tt>png</tt>) are stored
+ * without compression. All content written by the decorator ends with a small trailer that records how it was stored
+ * and its original size so that {@link File#getSize()} does not need to decompress. Content written to the underlying
+ * folder by other means will be read unchanged.
+ * 
+ * @author Phillip Webb
+ */
+public class CompressingFolder extends StoredFolder {
+
+	/**
+	 * The default extensions of files that are not compressed.
+	 */
+	public static final Set<String> DEFAULT_UNCOMPRESSED_EXTENSIONS = Collections.unmodifiableSet(new HashSet<String>(
+			Arrays.asList("jar", "war", "ear", "zip", "gz", "tgz", "bz2", "png", "gif", "jpg", "jpeg")));
+
+	private final CompressingFolderStore store;
+
+	/**
+	 * Create a new {@link CompressingFolder} using the {@link #DEFAULT_UNCOMPRESSED_EXTENSIONS}.
+	 * 
+	 * @param folder the folder to decorate
+	 */
+	public CompressingFolder(Folder folder) {
+		this(folder, DEFAULT_UNCOMPRESSED_EXTENSIONS);
+	}
+
+	/**
+	 * Create a new {@link CompressingFolder} using the specified uncompressed extensions.
+	 * 
+	 * @param folder the folder to decorate. Must be a {@link StoredFolder}
+	 * @param uncompressedExtensions extensions of files that should not be compressed
+	 */
+	public CompressingFolder(Folder folder, Collection<String> uncompressedExtensions) {
+		Assert.notNull(folder, "Folder must not be null");
+		Assert.notNull(uncompressedExtensions, "UncompressedExtensions must not be null");
+		Assert.isInstanceOf(StoredFolder.class, folder, "Folder must be a StoredFolder");
+		Set<String> extensions = new HashSet<String>();
+		for (String extension : uncompressedExtensions) {
+			extensions.add(extension.toLowerCase());
+		}
+		this.store = new CompressingFolderStore(((StoredFolder) folder).getStore(), extensions);
+	}
+
+	@Override
+	protected FolderStore getStore() {
+		return this.store;
+	}
+}
@@ -0,0 +1,430 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.Folder;
+import org.cloudfoundry.tools.io.JailedResourcePath;
+import org.cloudfoundry.tools.io.NameRestriction;
+import org.cloudfoundry.tools.io.RangeInputStream;
+import org.cloudfoundry.tools.io.Resource;
+import org.cloudfoundry.tools.io.exception.ResourceException;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link ResourceStore} decorators used by {@link CompressingFolder} and {@link CompressingFile}. All content written
+ * by the decorator is followed by a fixed length trailer containing the original size, a marker and a flag indicating
+ * if the content is stored as a deflate stream or stored unchanged. The trailer allows the original size to be read
+ * without decompressing. Content without a trailer was not written by the decorator and is read unchanged.
+ * 
+ * @author Phillip Webb
+ */
+abstract class CompressingResourceStore implements ResourceStore {
+
+	private final ResourceStore store;
+
+	private final Set<String> uncompressedExtensions;
+
+	public CompressingResourceStore(ResourceStore store, Set<String> uncompressedExtensions) {
+		Assert.notNull(store, "Store must not be null");
+		Assert.notNull(uncompressedExtensions, "UncompressedExtensions must not be null");
+		this.store = store;
+		this.uncompressedExtensions = uncompressedExtensions;
+	}
+
+	protected final Set<String> getUncompressedExtensions() {
+		return this.uncompressedExtensions;
+	}
+
+	@Override
+	public JailedResourcePath getPath() {
+		return this.store.getPath();
+	}
+
+	@Override
+	public Resource getExisting(JailedResourcePath path) {
+		return wrap(this.store.getExisting(path));
+	}
+
+	@Override
+	public Folder getFolder(JailedResourcePath path) {
+		return (Folder) wrap(this.store.getFolder(path));
+	}
+
+	@Override
+	public File getFile(JailedResourcePath path) {
+		return (File) wrap(this.store.getFile(path));
+	}
+
+	@Override
+	public boolean exists() {
+		return this.store.exists();
+	}
+
+	@Override
+	public Resource rename(String name) {
+		return wrap(this.store.rename(name));
+	}
+
+	@Override
+	public void delete() {
+		this.store.delete();
+	}
+
+	@Override
+	public void create() {
+		this.store.create();
+	}
+
+	/**
+	 * Wrap a resource obtained from the underlying store so that it is also compressed.
+	 * 
+	 * @param resource the resource to wrap (may be <tt>null</tt>)
+	 * @return the wrapped resource
+	 */
+	protected final Resource wrap(Resource resource) {
+		if (resource instanceof CompressingFile || resource instanceof CompressingFolder) {
+			return resource;
+		}
+		if (resource instanceof StoredFile) {
+			return new CompressingFile((StoredFile) resource, this.uncompressedExtensions);
+		}
+		if (resource instanceof StoredFolder) {
+			return new CompressingFolder((StoredFolder) resource, this.uncompressedExtensions);
+		}
+		return resource;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.store.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		return this.store.equals(((CompressingResourceStore) obj).store);
+	}
+
+	static class CompressingFileStore extends CompressingResourceStore implements TransferableFileStore,
+			RangeFileStore {
+
+		private static final byte[] MAGIC = { 0, 'C', 'F', 'D', 'E', 'F', 'L' };
+
+		private static final byte DEFLATED = 1;
+
+		private static final byte STORED = 2;
+
+		private static final int TRAILER_LENGTH = 8 + MAGIC.length + 1;
+
+		private static final int BUFFER_SIZE = 8192;
+
+		private final FileStore store;
+
+		public CompressingFileStore(FileStore store, Set<String> uncompressedExtensions) {
+			super(store, uncompressedExtensions);
+			this.store = store;
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return getInputStream(getTrailer());
+		}
+
+		private InputStream getInputStream(Trailer trailer) {
+			if (trailer == null) {
+				return this.store.getInputStream();
+			}
+			if (!trailer.isDeflated()) {
+				return getStoredInputStream(0, trailer.getStoredSize());
+			}
+			InputStream compressed = getStoredInputStream(0, trailer.getStoredSize());
+			return new InflaterInputStream(compressed, new Inflater(), BUFFER_SIZE) {
+
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						this.inf.end();
+					}
+				}
+			};
+		}
+
+		@Override
+		public InputStream getInputStream(long offset, long length) {
+			Trailer trailer = getTrailer();
+			if (trailer == null) {
+				return getStoredInputStream(offset, length);
+			}
+			if (!trailer.isDeflated()) {
+				long remaining = Math.max(trailer.getStoredSize() - offset, 0);
+				return getStoredInputStream(Math.min(offset, trailer.getStoredSize()), Math.min(length, remaining));
+			}
+			return new RangeInputStream(getInputStream(trailer), offset, length);
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			OutputStream outputStream = this.store.getOutputStream();
+			if (!isCompressed()) {
+				return new StoringOutputStream(outputStream);
+			}
+			return new CompressingOutputStream(outputStream);
+		}
+
+		/**
+		 * Determine if content written to the store should be compressed.
+		 * 
+		 * @return if the content should be compressed
+		 */
+		private boolean isCompressed() {
+			String extension = StringUtils.getFilenameExtension(getPath().getPath().getName());
+			return (extension == null || !getUncompressedExtensions().contains(extension.toLowerCase()));
+		}
+
+		@Override
+		public long getSize() {
+			Trailer trailer = getTrailer();
+			return (trailer == null ? this.store.getSize() : trailer.getSize());
+		}
+
+		@Override
+		public long getLastModified() {
+			return this.store.getLastModified();
+		}
+
+		@Override
+		public void touch() {
+			this.store.touch();
+		}
+
+		@Override
+		public boolean moveTo(FileStore destination) {
+			return transferTo(destination, true);
+		}
+
+		@Override
+		public boolean copyTo(FileStore destination) {
+			return transferTo(destination, false);
+		}
+
+		private boolean transferTo(FileStore destination, boolean move) {
+			// Content is self describing so stored bytes can be transferred as long as the destination also compresses
+			if (!(this.store instanceof TransferableFileStore) || !(destination instanceof CompressingFileStore)) {
+				return false;
+			}
+			TransferableFileStore store = (TransferableFileStore) this.store;
+			FileStore target = ((CompressingFileStore) destination).store;
+			return (move ? store.moveTo(target) : store.copyTo(target));
+		}
+
+		/**
+		 * Returns the {@link Trailer} of content written by the decorator.
+		 * 
+		 * @return the trailer or <tt>null</tt> if the content was not written by the decorator
+		 */
+		private Trailer getTrailer() {
+			long storedSize = this.store.getSize();
+			if (storedSize < TRAILER_LENGTH) {
+				return null;
+			}
+			byte[] bytes = new byte[TRAILER_LENGTH];
+			try {
+				DataInputStream inputStream = new DataInputStream(getStoredInputStream(storedSize - TRAILER_LENGTH,
+						TRAILER_LENGTH));
+				try {
+					inputStream.readFully(bytes);
+				} finally {
+					inputStream.close();
+				}
+			} catch (IOException e) {
+				throw new ResourceException(e);
+			}
+			if (!Arrays.equals(MAGIC, Arrays.copyOfRange(bytes, 8, 8 + MAGIC.length))) {
+				return null;
+			}
+			long size = 0;
+			for (int i = 0; i < 8; i++) {
+				size = (size << 8) | (bytes[i] & 0xFF);
+			}
+			byte format = bytes[TRAILER_LENGTH - 1];
+			boolean valid = (format == DEFLATED && size >= 0)
+					|| (format == STORED && size == storedSize - TRAILER_LENGTH);
+			// Content that only looks like it has a trailer was not written by the decorator
+			return (valid ? new Trailer(storedSize - TRAILER_LENGTH, size, format == DEFLATED) : null);
+		}
+
+		private static void writeTrailer(OutputStream outputStream, long size, byte format) throws IOException {
+			DataOutputStream trailer = new DataOutputStream(outputStream);
+			trailer.writeLong(size);
+			trailer.write(MAGIC);
+			trailer.write(format);
+			trailer.flush();
+		}
+
+		private InputStream getStoredInputStream(long offset, long length) {
+			if (this.store instanceof RangeFileStore) {
+				return ((RangeFileStore) this.store).getInputStream(offset, length);
+			}
+			return new RangeInputStream(this.store.getInputStream(), offset, length);
+		}
+
+		/**
+		 * The trailer of content written by the decorator.
+		 */
+		private static class Trailer {
+
+			private final long storedSize;
+
+			private final long size;
+
+			private final boolean deflated;
+
+			public Trailer(long storedSize, long size, boolean deflated) {
+				this.storedSize = storedSize;
+				this.size = size;
+				this.deflated = deflated;
+			}
+
+			public long getStoredSize() {
+				return this.storedSize;
+			}
+
+			public long getSize() {
+				return this.size;
+			}
+
+			public boolean isDeflated() {
+				return this.deflated;
+			}
+		}
+
+		/**
+		 * {@link FilterOutputStream} that stores content unchanged and writes a {@link Trailer} when closed.
+		 */
+		private static class StoringOutputStream extends FilterOutputStream {
+
+			private long size;
+
+			private boolean closed;
+
+			public StoringOutputStream(OutputStream out) {
+				super(out);
+			}
+
+			@Override
+			public void write(int b) throws IOException {
+				this.out.write(b);
+				this.size++;
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				this.out.write(b, off, len);
+				this.size += len;
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (!this.closed) {
+					this.closed = true;
+					writeTrailer(this.out, this.size, STORED);
+					super.close();
+				}
+			}
+		}
+
+		/**
+		 * {@link DeflaterOutputStream} that writes the {@link Trailer} when closed.
+		 */
+		private static class CompressingOutputStream extends DeflaterOutputStream {
+
+			private long size;
+
+			private boolean closed;
+
+			public CompressingOutputStream(OutputStream out) {
+				super(out, new Deflater(), BUFFER_SIZE);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				// NOTE: DeflaterOutputStream.write(int) also delegates here
+				super.write(b, off, len);
+				this.size += len;
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (this.closed) {
+					return;
+				}
+				this.closed = true;
+				try {
+					finish();
+					writeTrailer(this.out, this.size, DEFLATED);
+					super.close();
+				} finally {
+					this.def.end();
+				}
+			}
+		}
+	}
+
+	static class CompressingFolderStore extends CompressingResourceStore implements QueryableFolderStore {
+
+		private final FolderStore store;
+
+		public CompressingFolderStore(FolderStore store, Set<String> uncompressedExtensions) {
+			super(store, uncompressedExtensions);
+			this.store = store;
+		}
+
+		@Override
+		public Iterable<String> list() {
+			return this.store.list();
+		}
+
+		@Override
+		public Iterable<String> list(NameRestriction restriction) {
+			if (this.store instanceof QueryableFolderStore) {
+				return ((QueryableFolderStore) this.store).list(restriction);
+			}
+			return this.store.list();
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import org.cloudfoundry.tools.io.ContentDigest;
+
+/**
+ * A {@link FileStore} that can provide a digest of the file content, either from metadata held by the store or from a
+ * previously calculated value.
+ * 
+ * @author Phillip Webb
+ * @see StoredFile#getDigest()
+ */
+public interface DigestFileStore extends FileStore {
+
+	/**
+	 * Return a digest of the file content or <tt>null</tt> if the digest must be calculated from the content.
+	 * 
+	 * @return the digest or <tt>null</tt>
+	 */
+	ContentDigest getDigest();
+}
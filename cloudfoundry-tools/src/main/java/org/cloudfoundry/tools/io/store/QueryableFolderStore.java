@@ -0,0 +1,37 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import org.cloudfoundry.tools.io.NameRestriction;
+
+/**
+ * A {@link FolderStore} that is able to restrict the contents that are {@link #list(NameRestriction) listed} using a
+ * native query.
+ * 
+ * @author Phillip Webb
+ * @see StoredFolder#list()
+ */
+public interface QueryableFolderStore extends FolderStore {
+
+	/**
+	 * List the contents of the folder that match the specified restriction. Implementations may return additional
+	 * names that do not match the restriction.
+	 * 
+	 * @param restriction the name restriction
+	 * @return the folder contents
+	 */
+	Iterable<String> list(NameRestriction restriction);
+}
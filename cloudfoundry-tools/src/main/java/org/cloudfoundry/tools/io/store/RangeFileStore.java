@@ -0,0 +1,37 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import java.io.InputStream;
+
+/**
+ * A {@link FileStore} that can natively read a range of the file content without reading the bytes that precede it.
+ * 
+ * @author Phillip Webb
+ * @see StoredFile#getContent()
+ */
+public interface RangeFileStore extends FileStore {
+
+	/**
+	 * Access a range of the file content as an input stream. The stream will end early if the file is shorter than the
+	 * requested range.
+	 * 
+	 * @param offset the offset of the first byte to read
+	 * @param length the maximum number of bytes to read
+	 * @return an input stream to read the content range
+	 */
+	InputStream getInputStream(long offset, long length);
+}
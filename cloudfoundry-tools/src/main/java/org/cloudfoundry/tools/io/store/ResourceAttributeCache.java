@@ -0,0 +1,225 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.cloudfoundry.tools.io.ContentDigest;
+import org.cloudfoundry.tools.io.ResourcePath;
+import org.springframework.util.Assert;
+
+/**
+ * A short-lived, size bounded cache of resource attributes used by {@link CachingFolder}. Entries expire after a
+ * configurable time-to-live and the least recently used entries are evicted when the cache is full. This class is
+ * thread-safe.
+ * 
+ * @author Phillip Webb
+ * @see CachingFolder
+ */
+public class ResourceAttributeCache {
+
+	/**
+	 * The default time-to-live in milliseconds.
+	 */
+	public static final long DEFAULT_TIME_TO_LIVE = 1000;
+
+	/**
+	 * The default maximum number of cached entries.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+	private final long timeToLive;
+
+	private final Map<ResourcePath, Entry> entries;
+
+	/**
+	 * Create a new {@link ResourceAttributeCache} using the {@link #DEFAULT_TIME_TO_LIVE default time-to-live} and
+	 * {@link #DEFAULT_MAX_SIZE default maximum size}.
+	 */
+	public ResourceAttributeCache() {
+		this(DEFAULT_TIME_TO_LIVE, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Create a new {@link ResourceAttributeCache} instance.
+	 * 
+	 * @param timeToLive the time in milliseconds that attributes remain valid
+	 * @param maxSize the maximum number of resources that can be cached
+	 */
+	public ResourceAttributeCache(long timeToLive, final int maxSize) {
+		Assert.isTrue(timeToLive >= 0, "TimeToLive must not be negative");
+		Assert.isTrue(maxSize > 0, "MaxSize must be positive");
+		this.timeToLive = timeToLive;
+		this.entries = new LinkedHashMap<ResourcePath, Entry>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ResourcePath, ResourceAttributeCache.Entry> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cache entry for the specified path, creating a new entry if the path is not cached or the cached
+	 * entry has expired.
+	 * 
+	 * @param path the unjailed path of the resource
+	 * @return the cache entry
+	 */
+	Entry get(ResourcePath path) {
+		long now = getCurrentTime();
+		synchronized (this.entries) {
+			Entry entry = this.entries.get(path);
+			if (entry == null || now - entry.created > this.timeToLive) {
+				entry = new Entry(now);
+				this.entries.put(path, entry);
+			}
+			return entry;
+		}
+	}
+
+	/**
+	 * Cache attributes that have been obtained from a folder listing.
+	 * 
+	 * @param path the unjailed path of the resource
+	 * @param attributes the attributes
+	 */
+	void put(ResourcePath path, ResourceAttributes attributes) {
+		Entry entry = new Entry(getCurrentTime());
+		entry.setExists(true);
+		if (!attributes.isFolder() && !attributes.isTypeOnly()) {
+			entry.setSize(attributes.getSize());
+			entry.setLastModified(attributes.getLastModified());
+			entry.setDigest(attributes.getDigest());
+		}
+		synchronized (this.entries) {
+			this.entries.put(path, entry);
+		}
+	}
+
+	/**
+	 * Invalidate any cached attributes of the specified path.
+	 * 
+	 * @param path the unjailed path of the resource
+	 */
+	public void invalidate(ResourcePath path) {
+		synchronized (this.entries) {
+			this.entries.remove(path);
+		}
+	}
+
+	/**
+	 * Invalidate any cached attributes of the specified path and all nested paths.
+	 * 
+	 * @param path the unjailed path of the resource
+	 */
+	public void invalidateAll(ResourcePath path) {
+		String prefix = path.toString() + "/";
+		synchronized (this.entries) {
+			Iterator<ResourcePath> iterator = this.entries.keySet().iterator();
+			while (iterator.hasNext()) {
+				ResourcePath candidate = iterator.next();
+				if (candidate.equals(path) || candidate.toString().startsWith(prefix)) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove all cached attributes.
+	 */
+	public void clear() {
+		synchronized (this.entries) {
+			this.entries.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of cached entries.
+	 * 
+	 * @return the size
+	 */
+	public int size() {
+		synchronized (this.entries) {
+			return this.entries.size();
+		}
+	}
+
+	/**
+	 * Returns the current time in milliseconds. Subclasses can override to provide an alternative clock.
+	 * 
+	 * @return the current time
+	 */
+	protected long getCurrentTime() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Cached attributes for a single resource. Attributes are <tt>null</tt> until they have been obtained from the
+	 * underlying store.
+	 */
+	static class Entry {
+
+		private final long created;
+
+		private volatile Boolean exists;
+
+		private volatile Long size;
+
+		private volatile Long lastModified;
+
+		private volatile ContentDigest digest;
+
+		public Entry(long created) {
+			this.created = created;
+		}
+
+		public Boolean getExists() {
+			return this.exists;
+		}
+
+		public void setExists(boolean exists) {
+			this.exists = exists;
+		}
+
+		public Long getSize() {
+			return this.size;
+		}
+
+		public void setSize(long size) {
+			this.size = size;
+		}
+
+		public Long getLastModified() {
+			return this.lastModified;
+		}
+
+		public void setLastModified(long lastModified) {
+			this.lastModified = lastModified;
+		}
+
+		public ContentDigest getDigest() {
+			return this.digest;
+		}
+
+		public void setDigest(ContentDigest digest) {
+			this.digest = digest;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import java.util.concurrent.TimeUnit;
+
+import org.cloudfoundry.tools.io.ContentDigest;
+import org.springframework.util.Assert;
+
+/**
+ * Attributes of a child resource returned from an {@link AttributedFolderStore} listing. Attributes are a snapshot
+ * taken when the folder was listed and should only be trusted while {@link #isCurrent() current}. Stores that can list
+ * names and types more cheaply than full attributes may return {@link #isTypeOnly() type only} attributes.
+ * 
+ * @author Phillip Webb
+ * @see AttributedFolderStore
+ */
+public final class ResourceAttributes {
+
+	/**
+	 * The time in milliseconds for which attributes remain {@link #isCurrent() current}.
+	 */
+	public static final long TIME_TO_LIVE = 1000;
+
+	private final String name;
+
+	private final boolean folder;
+
+	private final long size;
+
+	private final long lastModified;
+
+	private final ContentDigest digest;
+
+	private final boolean typeOnly;
+
+	private final long timestamp;
+
+	/**
+	 * Create a new {@link ResourceAttributes} instance that only records the name and type of the resource. The size
+	 * and last modified timestamp are unknown and must be read from the resource when required.
+	 * 
+	 * @param name the name of the resource
+	 * @param folder if the resource is a folder
+	 */
+	public ResourceAttributes(String name, boolean folder) {
+		this(name, folder, 0, 0, null, true);
+	}
+
+	/**
+	 * Create a new {@link ResourceAttributes} instance.
+	 * 
+	 * @param name the name of the resource
+	 * @param folder if the resource is a folder
+	 * @param size the size of the file (ignored for folders)
+	 * @param lastModified the last modified timestamp
+	 * @param digest an optional digest of the file content or <tt>null</tt>
+	 */
+	public ResourceAttributes(String name, boolean folder, long size, long lastModified, ContentDigest digest) {
+		this(name, folder, size, lastModified, digest, false);
+	}
+
+	private ResourceAttributes(String name, boolean folder, long size, long lastModified, ContentDigest digest,
+			boolean typeOnly) {
+		Assert.hasLength(name, "Name must not be empty");
+		this.typeOnly = typeOnly;
+		this.name = name;
+		this.folder = folder;
+		this.size = (folder ? 0 : size);
+		this.lastModified = lastModified;
+		this.digest = (folder ? null : digest);
+		this.timestamp = System.nanoTime();
+	}
+
+	/**
+	 * Returns the name of the resource.
+	 * 
+	 * @return the name
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the resource is a folder.
+	 * 
+	 * @return if the resource is a folder
+	 */
+	public boolean isFolder() {
+		return this.folder;
+	}
+
+	/**
+	 * Returns the size of the file or <tt>0</tt> for folders.
+	 * 
+	 * @return the size
+	 */
+	public long getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the last modified timestamp.
+	 * 
+	 * @return the last modified timestamp
+	 */
+	public long getLastModified() {
+		return this.lastModified;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the attributes only record the name and type of the resource. The {@link #getSize()
+	 * size} and {@link #getLastModified() last modified timestamp} of type only attributes should not be used.
+	 * 
+	 * @return if the attributes are type only
+	 */
+	public boolean isTypeOnly() {
+		return this.typeOnly;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the attributes were created within the {@link #TIME_TO_LIVE time to live}. Resources
+	 * obtained from a listing should read attributes again once the snapshot is no longer current so that changes made
+	 * elsewhere are seen. Longer lived caching is provided by {@link CachingFolder}.
+	 * 
+	 * @return if the attributes are current
+	 */
+	public boolean isCurrent() {
+		return System.nanoTime() - this.timestamp < TimeUnit.MILLISECONDS.toNanos(TIME_TO_LIVE);
+	}
+
+	/**
+	 * Returns a digest of the file content or <tt>null</tt> if the store does not provide one.
+	 * 
+	 * @return the digest or <tt>null</tt>
+	 */
+	public ContentDigest getDigest() {
+		return this.digest;
+	}
+
+	@Override
+	public String toString() {
+		return this.name + (this.folder ? "/" : (this.typeOnly ? "" : " (" + this.size + " bytes)"));
+	}
+}
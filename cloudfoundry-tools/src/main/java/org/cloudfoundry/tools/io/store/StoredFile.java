@@ -17,8 +17,12 @@ package org.cloudfoundry.tools.io.store;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 import org.cloudfoundry.tools.io.AbstractFileContent;
+import org.cloudfoundry.tools.io.ContentDigest;
 import org.cloudfoundry.tools.io.File;
 import org.cloudfoundry.tools.io.FileContent;
 import org.cloudfoundry.tools.io.Folder;
@@ -58,6 +62,18 @@ public abstract class StoredFile extends StoredResource implements File {
 		getStore().touch();
 	}
 
+	@Override
+	public ContentDigest getDigest() throws ResourceDoesNotExistException {
+		ensureExists();
+		if (getStore() instanceof DigestFileStore) {
+			ContentDigest digest = ((DigestFileStore) getStore()).getDigest();
+			if (digest != null) {
+				return digest;
+			}
+		}
+		return ContentDigest.calculate(getStore().getInputStream());
+	}
+
 	@Override
 	public FileContent getContent() {
 		return this.content;
@@ -80,8 +96,10 @@ public abstract class StoredFile extends StoredResource implements File {
 		Assert.notNull(folder, "Folder must not be null");
 		ensureExists();
 		File destination = folder.getFile(getName().toString());
-		destination.getContent().write(getContent().asInputStream());
-		getStore().delete();
+		if (!transferTo(destination, true)) {
+			destination.getContent().write(getContent().asInputStream());
+			getStore().delete();
+		}
 		return destination;
 	}
 
@@ -102,6 +120,29 @@ public abstract class StoredFile extends StoredResource implements File {
 		}
 	}
 
+	/**
+	 * Attempt to transfer this file to the specified destination using the {@link TransferableFileStore} SPI.
+	 * 
+	 * @param destination the destination file
+	 * @param move if the file should be moved rather than copied
+	 * @return if the transfer has been handled. <tt>false</tt> indicates that a stream based transfer is required
+	 */
+	final boolean transferTo(File destination, boolean move) {
+		if (!(destination instanceof StoredFile) || !(getStore() instanceof TransferableFileStore)) {
+			return false;
+		}
+		StoredFile storedDestination = (StoredFile) destination;
+		if (storedDestination.equals(this)) {
+			return true;
+		}
+		storedDestination.createParentIfMissing();
+		TransferableFileStore store = (TransferableFileStore) getStore();
+		if (move) {
+			return store.moveTo(storedDestination.getStore());
+		}
+		return store.copyTo(storedDestination.getStore());
+	}
+
 	/**
 	 * Called to write the contents of another file to this file. This method is can optionally be implemented by
 	 * subclasses to implement custom file copy strategies.
@@ -120,15 +161,58 @@ public abstract class StoredFile extends StoredResource implements File {
 			return getStore().getInputStream();
 		}
 
+		@Override
+		public InputStream asInputStream(long offset, long length) {
+			if (getStore() instanceof RangeFileStore) {
+				Assert.isTrue(offset >= 0, "Offset must not be negative");
+				Assert.isTrue(length >= 0, "Length must not be negative");
+				return ((RangeFileStore) getStore()).getInputStream(offset, length);
+			}
+			return super.asInputStream(offset, length);
+		}
+
+		@Override
+		public int read(long position, ByteBuffer buffer) {
+			if (getStore() instanceof ChannelFileStore) {
+				Assert.isTrue(position >= 0, "Position must not be negative");
+				Assert.notNull(buffer, "Buffer must not be null");
+				if (!buffer.hasRemaining()) {
+					return 0;
+				}
+				return ((ChannelFileStore) getStore()).read(position, buffer);
+			}
+			return super.read(position, buffer);
+		}
+
 		@Override
 		public OutputStream asOutputStream() {
 			createParentIfMissing();
 			return getStore().getOutputStream();
 		}
 
+		@Override
+		public ReadableByteChannel asReadableChannel() {
+			if (getStore() instanceof ChannelFileStore) {
+				return ((ChannelFileStore) getStore()).getReadableChannel();
+			}
+			return super.asReadableChannel();
+		}
+
+		@Override
+		public WritableByteChannel asWritableChannel() {
+			if (getStore() instanceof ChannelFileStore) {
+				createParentIfMissing();
+				return ((ChannelFileStore) getStore()).getWritableChannel();
+			}
+			return super.asWritableChannel();
+		}
+
 		@Override
 		public void write(File file) {
 			createParentIfMissing();
+			if (file instanceof StoredFile && ((StoredFile) file).transferTo(StoredFile.this, false)) {
+				return;
+			}
 			if (!StoredFile.this.write(file)) {
 				super.write(file);
 			}
@@ -17,14 +17,21 @@ package org.cloudfoundry.tools.io.store;
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
 
 import org.cloudfoundry.tools.io.AbstractResources;
 import org.cloudfoundry.tools.io.File;
 import org.cloudfoundry.tools.io.Folder;
 import org.cloudfoundry.tools.io.JailedResourcePath;
+import org.cloudfoundry.tools.io.NameRestriction;
+import org.cloudfoundry.tools.io.PruningResourceWalker;
 import org.cloudfoundry.tools.io.Resource;
+import org.cloudfoundry.tools.io.ResourceFilterContext;
 import org.cloudfoundry.tools.io.ResourcePath;
 import org.cloudfoundry.tools.io.ResourceStringFormat;
+import org.cloudfoundry.tools.io.ResourceWalker;
+import org.cloudfoundry.tools.io.ResourceWalker.Result;
 import org.cloudfoundry.tools.io.Resources;
 import org.cloudfoundry.tools.io.ResourcesCollection;
 import org.cloudfoundry.tools.io.exception.ResourceDoesNotExistException;
@@ -42,6 +49,8 @@ import org.springframework.util.Assert;
  */
 public abstract class StoredFolder extends StoredResource implements Folder {
 
+	private static final ResourceWalker ALL = new PruningResourceWalker();
+
 	@Override
 	protected abstract FolderStore getStore();
 
@@ -102,27 +111,21 @@ public abstract class StoredFolder extends StoredResource implements Folder {
 		if (!exists()) {
 			return new ResourcesCollection<Resource>(this);
 		}
-		return new ChildResources(new Iterable<Resource>() {
-
-			@Override
-			public Iterator<Resource> iterator() {
-				return new ChildResourceIterator(StoredFolder.this);
-			}
-		});
+		return new ChildResources(null);
 	}
 
 	@Override
 	public Resources<Resource> find() {
+		return find(ALL);
+	}
+
+	@Override
+	public Resources<Resource> find(ResourceWalker walker) {
+		Assert.notNull(walker, "Walker must not be null");
 		if (!exists()) {
 			return new ResourcesCollection<Resource>(this);
 		}
-		return new ChildResources(new Iterable<Resource>() {
-
-			@Override
-			public Iterator<Resource> iterator() {
-				return new RecursiveChildResourceIterator(StoredFolder.this);
-			}
-		});
+		return new ChildResources(walker);
 	}
 
 	@Override
@@ -199,66 +202,147 @@ public abstract class StoredFolder extends StoredResource implements Folder {
 		return super.toString(format) + "/";
 	}
 
+	/**
+	 * {@link Iterator} over the immediate children of a folder. Children are listed from an
+	 * {@link AttributedFolderStore} when possible, otherwise each child name is resolved with
+	 * {@link FolderStore#getExisting(JailedResourcePath)}.
+	 */
 	private static class ChildResourceIterator implements Iterator<Resource> {
 
 		private final StoredFolder folder;
 
-		private final Iterator<String> childNames;
+		private final NameRestriction restriction;
+
+		private final Iterator<?> children;
+
+		private Object next;
 
 		public ChildResourceIterator(StoredFolder folder) {
+			this(folder, null);
+		}
+
+		public ChildResourceIterator(StoredFolder folder, NameRestriction restriction) {
 			this.folder = folder;
-			Iterable<String> list = folder.getStore().list();
-			this.childNames = list == null ? Collections.<String> emptyList().iterator() : list.iterator();
+			this.restriction = restriction;
+			FolderStore store = folder.getStore();
+			Iterable<?> list;
+			if (store instanceof AttributedFolderStore) {
+				list = ((AttributedFolderStore) store).listAttributes(restriction);
+			} else if (restriction != null && store instanceof QueryableFolderStore) {
+				list = ((QueryableFolderStore) store).list(restriction);
+			} else {
+				list = store.list();
+			}
+			this.children = list == null ? Collections.emptyList().iterator() : list.iterator();
 		}
 
 		@Override
 		public boolean hasNext() {
-			return this.childNames.hasNext();
+			while (this.next == null && this.children.hasNext()) {
+				Object candidate = this.children.next();
+				if (this.restriction == null || this.restriction.matches(getName(candidate))) {
+					this.next = candidate;
+				}
+			}
+			return this.next != null;
 		}
 
 		@Override
 		public Resource next() {
-			String name = this.childNames.next();
-			JailedResourcePath path = this.folder.getStore().getPath().get(name);
-			Resource resource = this.folder.getStore().getExisting(path);
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Object child = this.next;
+			this.next = null;
+			String name = getName(child);
+			FolderStore store = this.folder.getStore();
+			JailedResourcePath path = store.getPath().get(name);
+			Resource resource;
+			if (child instanceof ResourceAttributes) {
+				resource = ((AttributedFolderStore) store).getExisting(path, (ResourceAttributes) child);
+			} else {
+				resource = store.getExisting(path);
+			}
 			if (resource == null) {
 				throw new ResourceDoesNotExistException(this.folder, name);
 			}
 			return resource;
 		}
 
+		private String getName(Object child) {
+			if (child instanceof ResourceAttributes) {
+				return ((ResourceAttributes) child).getName();
+			}
+			return (String) child;
+		}
+
 		@Override
 		public void remove() {
 			throw new UnsupportedOperationException();
 		}
 	}
 
-	private class RecursiveChildResourceIterator implements Iterator<Resource> {
+	/**
+	 * Depth first {@link Iterator} that walks nested resources under the control of a {@link ResourceWalker}.
+	 */
+	private static class WalkingResourceIterator implements Iterator<Resource> {
+
+		private final ResourceFilterContext context;
 
-		private final Iterator<Resource> iterator;
+		private final ResourceWalker walker;
 
-		private Iterator<Resource> current;
+		private final LinkedList<Iterator<Resource>> stack = new LinkedList<Iterator<Resource>>();
 
-		public RecursiveChildResourceIterator(StoredFolder folder) {
-			this.iterator = new ChildResourceIterator(folder);
+		private Resource next;
+
+		private boolean terminated;
+
+		public WalkingResourceIterator(ResourceFilterContext context, ResourceWalker walker, StoredFolder folder) {
+			this.context = context;
+			this.walker = walker;
+			this.stack.addFirst(new ChildResourceIterator(folder));
 		}
 
 		@Override
 		public boolean hasNext() {
-			return this.current != null && this.current.hasNext() || this.iterator.hasNext();
+			while (this.next == null && !this.terminated && !this.stack.isEmpty()) {
+				Iterator<Resource> iterator = this.stack.getFirst();
+				if (!iterator.hasNext()) {
+					this.stack.removeFirst();
+					continue;
+				}
+				Resource candidate = iterator.next();
+				Result result = this.walker.visit(this.context, candidate, this.stack.size());
+				Assert.state(result != null, "Walker must not return a null result");
+				if (result == Result.TERMINATE) {
+					this.terminated = true;
+					this.stack.clear();
+					break;
+				}
+				if (candidate instanceof Folder && (result == Result.CONTINUE || result == Result.EXCLUDE)) {
+					this.stack.addFirst(getChildren((Folder) candidate));
+				}
+				if (result == Result.CONTINUE || result == Result.SKIP_CHILDREN) {
+					this.next = candidate;
+				}
+			}
+			return this.next != null;
+		}
+
+		private Iterator<Resource> getChildren(Folder folder) {
+			if (folder instanceof StoredFolder) {
+				return new ChildResourceIterator((StoredFolder) folder);
+			}
+			return folder.list().iterator();
 		}
 
 		@Override
 		public Resource next() {
-			if (this.current != null && this.current.hasNext()) {
-				return this.current.next();
-			}
-			this.current = null;
-			Resource next = this.iterator.next();
-			if (next instanceof StoredFolder) {
-				StoredFolder folder = (StoredFolder) next;
-				this.current = new RecursiveChildResourceIterator(folder);
+			if (!hasNext()) {
+				throw new NoSuchElementException();
 			}
+			Resource next = this.next;
+			this.next = null;
 			return next;
 		}
 
@@ -270,11 +354,10 @@ public abstract class StoredFolder extends StoredResource implements Folder {
 
 	private class ChildResources extends AbstractResources<Resource> {
 
-		private final Iterable<Resource> iterable;
+		private final ResourceWalker walker;
 
-		public ChildResources(Iterable<Resource> iterable) {
-			Assert.notNull(iterable, "Iterable must not be null");
-			this.iterable = iterable;
+		public ChildResources(ResourceWalker walker) {
+			this.walker = walker;
 		}
 
 		@Override
@@ -284,7 +367,15 @@ public abstract class StoredFolder extends StoredResource implements Folder {
 
 		@Override
 		public Iterator<Resource> iterator() {
-			return this.iterable.iterator();
+			return iterator(null);
+		}
+
+		@Override
+		protected Iterator<Resource> iterator(NameRestriction restriction) {
+			if (this.walker != null) {
+				return new WalkingResourceIterator(getResourceFilterContext(), this.walker, StoredFolder.this);
+			}
+			return new ChildResourceIterator(StoredFolder.this, restriction);
 		}
 
 	}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+/**
+ * A {@link FileStore} that is able to move or copy its content directly to another store without streaming it. Stores
+ * are always asked before falling back to standard stream based transfers, implementations should return
+ * <tt>false</tt> for any destination that they cannot handle natively.
+ * 
+ * @author Phillip Webb
+ * @see StoredFile#moveTo(org.cloudfoundry.tools.io.Folder)
+ * @see StoredFile#copyTo(org.cloudfoundry.tools.io.Folder)
+ */
+public interface TransferableFileStore extends FileStore {
+
+	/**
+	 * Move this file to the location of the specified destination store. The parent of the destination will already
+	 * exist, any existing destination file should be replaced.
+	 * 
+	 * @param destination the destination store
+	 * @return <tt>true</tt> if the file was moved or <tt>false</tt> if a stream based move should be used
+	 */
+	boolean moveTo(FileStore destination);
+
+	/**
+	 * Copy this file to the location of the specified destination store. The parent of the destination will already
+	 * exist, any existing destination file should be replaced.
+	 * 
+	 * @param destination the destination store
+	 * @return <tt>true</tt> if the file was copied or <tt>false</tt> if a stream based copy should be used
+	 */
+	boolean copyTo(FileStore destination);
+}
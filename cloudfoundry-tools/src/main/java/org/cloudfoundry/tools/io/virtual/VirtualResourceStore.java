@@ -20,19 +20,26 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
+import org.cloudfoundry.tools.io.ByteBufferPool;
+import org.cloudfoundry.tools.io.ContentDigest;
 import org.cloudfoundry.tools.io.File;
 import org.cloudfoundry.tools.io.Folder;
 import org.cloudfoundry.tools.io.JailedResourcePath;
 import org.cloudfoundry.tools.io.Resource;
 import org.cloudfoundry.tools.io.ResourcePath;
+import org.cloudfoundry.tools.io.store.DigestFileStore;
 import org.cloudfoundry.tools.io.store.FileStore;
 import org.cloudfoundry.tools.io.store.FolderStore;
+import org.cloudfoundry.tools.io.store.RangeFileStore;
 import org.cloudfoundry.tools.io.store.ResourceStore;
+import org.cloudfoundry.tools.io.store.TransferableFileStore;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
 
@@ -143,7 +150,8 @@ abstract class VirtualResourceStore implements ResourceStore {
 	/**
 	 * {@link FileStore} for {@link VirtualFile}s.
 	 */
-	static class VirtualFileStore extends VirtualResourceStore implements FileStore {
+	static class VirtualFileStore extends VirtualResourceStore implements TransferableFileStore, RangeFileStore,
+			DigestFileStore {
 
 		public VirtualFileStore(RootFolderData root, JailedResourcePath path) {
 			super(root, path);
@@ -172,6 +180,13 @@ abstract class VirtualResourceStore implements ResourceStore {
 			return data.getInputStream();
 		}
 
+		@Override
+		public InputStream getInputStream(long offset, long length) {
+			FileData data = getData();
+			Assert.state(data != null, "Unable to read from missing resource " + getPath().getUnjailedPath());
+			return data.getInputStream(offset, length);
+		}
+
 		@Override
 		public OutputStream getOutputStream() {
 			FileData data = getOrCreateFileData();
@@ -210,6 +225,13 @@ abstract class VirtualResourceStore implements ResourceStore {
 			return data.getLastModified();
 		}
 
+		@Override
+		public ContentDigest getDigest() {
+			FileData data = getData();
+			Assert.state(data != null, "Unable to read from missing resource " + getPath().getUnjailedPath());
+			return data.getDigest();
+		}
+
 		@Override
 		public void touch() {
 			FileData data = getData();
@@ -217,6 +239,30 @@ abstract class VirtualResourceStore implements ResourceStore {
 			}
 			data.touch();
 		}
+
+		@Override
+		public boolean moveTo(FileStore destination) {
+			if (!(destination instanceof VirtualFileStore) || getRoot() != ((VirtualFileStore) destination).getRoot()) {
+				return false;
+			}
+			FileData data = getData();
+			Assert.state(data != null, "Unable to move missing resource " + getPath().getUnjailedPath());
+			ResourcePath path = destination.getPath().getUnjailedPath();
+			destination.delete();
+			data.relink(getRoot().getOrCreateFolder(path.getParent()), path.getName());
+			return true;
+		}
+
+		@Override
+		public boolean copyTo(FileStore destination) {
+			if (!(destination instanceof VirtualFileStore)) {
+				return false;
+			}
+			FileData data = getData();
+			Assert.state(data != null, "Unable to copy missing resource " + getPath().getUnjailedPath());
+			((VirtualFileStore) destination).getOrCreateFileData().copy(data);
+			return true;
+		}
 	}
 
 	/**
@@ -264,7 +310,7 @@ abstract class VirtualResourceStore implements ResourceStore {
 	 */
 	private static abstract class Data {
 
-		private final FolderData parent;
+		private FolderData parent;
 
 		private String name;
 
@@ -291,6 +337,13 @@ abstract class VirtualResourceStore implements ResourceStore {
 		public void delete() {
 			this.parent.getChildren().remove(this);
 		}
+
+		public void relink(FolderData parent, String name) {
+			delete();
+			this.parent = parent;
+			this.name = name;
+			parent.getChildren().add(this);
+		}
 	}
 
 	private static class FolderData extends Data {
@@ -404,6 +457,10 @@ abstract class VirtualResourceStore implements ResourceStore {
 
 		private long lastModified = -1;
 
+		private byte[] digestBytes;
+
+		private ContentDigest digest;
+
 		public FileData(FolderData parent, String name) {
 			super(parent, name);
 		}
@@ -429,17 +486,17 @@ abstract class VirtualResourceStore implements ResourceStore {
 			this.lastModified = this.source.getLastModified();
 		}
 
-		public OutputStream getOutputStream() {
-			return new ByteArrayOutputStream() {
+		public void copy(FileData data) {
+			// Byte arrays are replaced rather than modified so can be shared
+			this.source = data.source;
+			this.bytes = data.bytes;
+			this.lastModified = data.lastModified;
+			this.digestBytes = data.digestBytes;
+			this.digest = data.digest;
+		}
 
-				@Override
-				public void close() throws IOException {
-					super.close();
-					FileData.this.source = null;
-					FileData.this.bytes = toByteArray();
-					FileData.this.lastModified = System.currentTimeMillis();
-				}
-			};
+		public OutputStream getOutputStream() {
+			return new FileDataOutputStream();
 		}
 
 		public InputStream getInputStream() {
@@ -449,6 +506,97 @@ abstract class VirtualResourceStore implements ResourceStore {
 			Assert.state(this.bytes != null, "File does not exist");
 			return new ByteArrayInputStream(this.bytes);
 		}
+
+		public ContentDigest getDigest() {
+			if (this.source != null) {
+				return this.source.getDigest();
+			}
+			// Byte arrays are never modified so the digest remains valid until the array is replaced
+			byte[] bytes = (this.bytes == null ? new byte[] {} : this.bytes);
+			if (this.digest == null || this.digestBytes != this.bytes) {
+				this.digest = ContentDigest.calculate(new ByteArrayInputStream(bytes));
+				this.digestBytes = this.bytes;
+			}
+			return this.digest;
+		}
+
+		public InputStream getInputStream(long offset, long length) {
+			if (this.source != null) {
+				return this.source.getContent().asInputStream(offset, length);
+			}
+			Assert.state(this.bytes != null, "File does not exist");
+			int start = (int) Math.min(offset, this.bytes.length);
+			return new ByteArrayInputStream(this.bytes, start, (int) Math.min(length, this.bytes.length - start));
+		}
+
+		/**
+		 * {@link OutputStream} used to update the file data. Content is written to a pooled buffer and only moved to a
+		 * growable array if it exceeds the buffer size, allowing small files to be stored with a single allocation.
+		 */
+		private class FileDataOutputStream extends OutputStream {
+
+			private ByteBuffer buffer = ByteBufferPool.getHeapPool().acquire();
+
+			private ByteArrayOutputStream overflow;
+
+			private boolean closed;
+
+			@Override
+			public void write(int b) throws IOException {
+				ensureOpen();
+				if (this.overflow == null && this.buffer.hasRemaining()) {
+					this.buffer.put((byte) b);
+				} else {
+					getOverflow().write(b);
+				}
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				ensureOpen();
+				if (this.overflow == null && len <= this.buffer.remaining()) {
+					this.buffer.put(b, off, len);
+				} else {
+					getOverflow().write(b, off, len);
+				}
+			}
+
+			private void ensureOpen() throws IOException {
+				if (this.closed) {
+					throw new IOException("Stream closed");
+				}
+			}
+
+			private ByteArrayOutputStream getOverflow() {
+				if (this.overflow == null) {
+					this.overflow = new ByteArrayOutputStream(this.buffer.capacity() * 2);
+					this.overflow.write(this.buffer.array(), 0, this.buffer.position());
+					releaseBuffer();
+				}
+				return this.overflow;
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (this.closed) {
+					return;
+				}
+				this.closed = true;
+				try {
+					FileData.this.source = null;
+					FileData.this.bytes = (this.overflow == null ? Arrays.copyOf(this.buffer.array(),
+							this.buffer.position()) : this.overflow.toByteArray());
+					FileData.this.lastModified = System.currentTimeMillis();
+				} finally {
+					releaseBuffer();
+				}
+			}
+
+			private void releaseBuffer() {
+				ByteBufferPool.getHeapPool().release(this.buffer);
+				this.buffer = null;
+			}
+		}
 	}
 
 }
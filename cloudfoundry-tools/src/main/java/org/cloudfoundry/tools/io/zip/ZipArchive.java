@@ -21,11 +21,14 @@ import java.io.InputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
+import org.cloudfoundry.tools.io.ByteBufferPool;
 import org.cloudfoundry.tools.io.File;
 import org.cloudfoundry.tools.io.Folder;
 import org.cloudfoundry.tools.io.NoCloseInputStream;
+import org.cloudfoundry.tools.io.ResourceTransfer;
 import org.cloudfoundry.tools.io.Resources;
 import org.cloudfoundry.tools.io.exception.ResourceException;
+import org.cloudfoundry.tools.io.exception.ResourceTransferException;
 import org.cloudfoundry.tools.io.store.FolderStore;
 import org.cloudfoundry.tools.io.store.StoredFolder;
 import org.cloudfoundry.tools.io.zip.ZipResourceStore.ZipFolderStore;
@@ -102,6 +105,63 @@ public class ZipArchive extends StoredFolder {
 		}
 	}
 
+	/**
+	 * Unzip the specified zip file into a folder, writing files concurrently using the specified transfer.
+	 * 
+	 * @param file the file to unzip (this must reference a zip file)
+	 * @param destination the destination folder
+	 * @param transfer the transfer used to write files
+	 * @see #unpack(InputStream, Folder, ResourceTransfer)
+	 */
+	public static void unpack(File file, Folder destination, ResourceTransfer transfer) {
+		Assert.notNull(file, "File must not be null");
+		Assert.notNull(destination, "Destination must not be null");
+		unpack(file.getContent().asInputStream(), destination, transfer);
+	}
+
+	/**
+	 * Unzip the specified input stream into a folder, writing files concurrently using the specified transfer. The zip
+	 * stream is read on the calling thread and folders are created in the order that they occur. The content of each
+	 * file is buffered in memory until it has been written.
+	 * 
+	 * @param inputStream the input stream to unzip (this must contain zip contents)
+	 * @param destination the destination folder
+	 * @param transfer the transfer used to write files
+	 * @throws ResourceTransferException if any file cannot be written
+	 * @see #unpack(File, Folder, ResourceTransfer)
+	 */
+	public static void unpack(InputStream inputStream, Folder destination, ResourceTransfer transfer) {
+		Assert.notNull(inputStream, "InputStream must not be null");
+		Assert.notNull(destination, "Destination must not be null");
+		Assert.notNull(transfer, "Transfer must not be null");
+		destination.createIfMissing();
+		ZipInputStream zip = new ZipInputStream(new BufferedInputStream(inputStream));
+		ResourceTransfer.Batch batch = transfer.begin();
+		try {
+			InputStream noCloseZip = new NoCloseInputStream(zip);
+			ZipEntry entry = zip.getNextEntry();
+			while (entry != null) {
+				if (entry.isDirectory()) {
+					batch.createFolder(destination.getFolder(entry.getName()));
+				} else {
+					batch.write(destination.getFile(entry.getName()),
+							ByteBufferPool.getHeapPool().copyToByteArray(noCloseZip));
+				}
+				entry = zip.getNextEntry();
+			}
+		} catch (IOException e) {
+			throw batch.finish(new ResourceException(e));
+		} catch (RuntimeException e) {
+			throw batch.finish(e);
+		} finally {
+			try {
+				zip.close();
+			} catch (IOException e) {
+			}
+		}
+		batch.finish();
+	}
+
 	/**
 	 * Create a {@link InputStream} containing a zip representation of the given folder.
 	 * 
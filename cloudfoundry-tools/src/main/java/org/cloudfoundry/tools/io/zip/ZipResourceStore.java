@@ -22,28 +22,30 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
+import org.cloudfoundry.tools.io.ByteBufferPool;
+import org.cloudfoundry.tools.io.ContentDigest;
 import org.cloudfoundry.tools.io.File;
 import org.cloudfoundry.tools.io.Folder;
 import org.cloudfoundry.tools.io.JailedResourcePath;
+import org.cloudfoundry.tools.io.NameRestriction;
 import org.cloudfoundry.tools.io.NoCloseInputStream;
+import org.cloudfoundry.tools.io.PathMap;
 import org.cloudfoundry.tools.io.Resource;
 import org.cloudfoundry.tools.io.ResourcePath;
 import org.cloudfoundry.tools.io.exception.ReadOnlyResourceException;
 import org.cloudfoundry.tools.io.exception.ResourceException;
+import org.cloudfoundry.tools.io.store.DigestFileStore;
 import org.cloudfoundry.tools.io.store.FileStore;
 import org.cloudfoundry.tools.io.store.FolderStore;
+import org.cloudfoundry.tools.io.store.QueryableFolderStore;
 import org.cloudfoundry.tools.io.store.ResourceStore;
 import org.cloudfoundry.tools.io.store.StoredFile;
 import org.cloudfoundry.tools.io.store.StoredFolder;
 import org.springframework.util.Assert;
-import org.springframework.util.FileCopyUtils;
 import org.springframework.util.ObjectUtils;
 
 /**
@@ -153,7 +155,7 @@ abstract class ZipResourceStore implements ResourceStore {
 		throw new ReadOnlyResourceException("The Zip File " + getZipFile() + " is read-only");
 	}
 
-	class ZipFileStore extends ZipResourceStore implements FileStore {
+	class ZipFileStore extends ZipResourceStore implements DigestFileStore {
 
 		public ZipFileStore(ZipFile zipFile, JailedResourcePath path) {
 			super(zipFile, path);
@@ -183,13 +185,19 @@ abstract class ZipResourceStore implements ResourceStore {
 			return getZipFile().getLastModified();
 		}
 
+		@Override
+		public ContentDigest getDigest() {
+			long crc = getZipFile().getEntry(getPath()).getCrc();
+			return (crc == -1 ? null : ContentDigest.crc32(crc));
+		}
+
 		@Override
 		public void touch() {
 			throw createReadOnlyException();
 		}
 	}
 
-	static class ZipFolderStore extends ZipResourceStore implements FolderStore {
+	static class ZipFolderStore extends ZipResourceStore implements QueryableFolderStore {
 
 		public ZipFolderStore(File zipFile) {
 			this(new ZipFile(zipFile), new JailedResourcePath());
@@ -203,13 +211,19 @@ abstract class ZipResourceStore implements ResourceStore {
 		public Iterable<String> list() {
 			return getZipFile().getEntry(getPath()).list();
 		}
+
+		@Override
+		public Iterable<String> list(NameRestriction restriction) {
+			Assert.notNull(restriction, "Restriction must not be null");
+			return getZipFile().getEntry(getPath()).list(restriction);
+		}
 	}
 
 	private static class ZipFile {
 
 		private final File zipFile;
 
-		private final Map<ResourcePath, ZipFileDetailsEntry> entries = new HashMap<ResourcePath, ZipFileDetailsEntry>();
+		private final PathMap<ZipFileDetailsEntry> entries = new PathMap<ZipFileDetailsEntry>();
 
 		private boolean loadedAtLeastOnce;
 
@@ -308,13 +322,10 @@ abstract class ZipResourceStore implements ResourceStore {
 		 */
 		private void createMissingFolderEntries() {
 			List<MissingZipFileDetailsEntry> missingEntries = new ArrayList<MissingZipFileDetailsEntry>();
-			Set<ResourcePath> paths = this.entries.keySet();
-			for (ResourcePath path : paths) {
+			for (ResourcePath path : this.entries.find(new ResourcePath())) {
 				path = path.getParent();
-				while (path != null) {
-					if (!this.entries.containsKey(path)) {
-						missingEntries.add(new MissingZipFileDetailsEntry(path));
-					}
+				while (path != null && !this.entries.containsPath(path)) {
+					missingEntries.add(new MissingZipFileDetailsEntry(path));
 					path = path.getParent();
 				}
 			}
@@ -362,22 +373,49 @@ abstract class ZipResourceStore implements ResourceStore {
 
 			public abstract long getSize();
 
+			public abstract long getCrc();
+
 			public Iterable<String> list() {
 				if (this.list == null) {
 					this.list = new ArrayList<String>();
 					if (isFolder()) {
-						for (ResourcePath entryPath : ZipFile.this.entries.keySet()) {
-							if (isParent(entryPath)) {
-								this.list.add(entryPath.getName());
-							}
+						for (ResourcePath entryPath : ZipFile.this.entries.list(this.path)) {
+							this.list.add(entryPath.getName());
 						}
 					}
 				}
 				return this.list;
 			}
 
-			private boolean isParent(ResourcePath path) {
-				return path != null && this.path.equals(path.getParent());
+			/**
+			 * List the children that match the restriction. Exact case sensitive names are looked up directly in the
+			 * index, other restrictions filter the cached children.
+			 * 
+			 * @param restriction the name restriction
+			 * @return the matching children
+			 */
+			public Iterable<String> list(NameRestriction restriction) {
+				List<String> list = new ArrayList<String>();
+				if (restriction.getType() == NameRestriction.Type.EXACT && !restriction.isIgnoreCase()) {
+					if (isFolder()) {
+						for (String name : restriction.getValues()) {
+							if (isSimpleName(name) && ZipFile.this.entries.containsPath(this.path.get(name))) {
+								list.add(name);
+							}
+						}
+					}
+					return list;
+				}
+				for (String name : list()) {
+					if (restriction.matches(name)) {
+						list.add(name);
+					}
+				}
+				return list;
+			}
+
+			private boolean isSimpleName(String name) {
+				return name.length() > 0 && name.indexOf('/') == -1 && !".".equals(name) && !"..".equals(name);
 			}
 
 			public ResourcePath getPath() {
@@ -405,6 +443,11 @@ abstract class ZipResourceStore implements ResourceStore {
 			public long getSize() {
 				return 0;
 			}
+
+			@Override
+			public long getCrc() {
+				return -1;
+			}
 		}
 
 		private class ZipEntryZipFileDetailsEntry extends ZipFileDetailsEntry {
@@ -445,7 +488,8 @@ abstract class ZipResourceStore implements ResourceStore {
 						if (!zipEntry.isDirectory()) {
 							ResourcePath path = new ResourcePath().get(zipEntry.getName());
 							if (getPath().equals(path)) {
-								return FileCopyUtils.copyToByteArray(new NoCloseInputStream(zipInputStream));
+								return ByteBufferPool.getHeapPool().copyToByteArray(
+										new NoCloseInputStream(zipInputStream));
 							}
 						}
 						zipEntry = zipInputStream.getNextEntry();
@@ -460,6 +504,11 @@ abstract class ZipResourceStore implements ResourceStore {
 			public long getSize() {
 				return this.entry.getSize();
 			}
+
+			@Override
+			public long getCrc() {
+				return this.entry.getCrc();
+			}
 		}
 	}
 }
@@ -30,7 +30,6 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.util.Assert;
-import org.springframework.util.FileCopyUtils;
 
 /**
  * {@link HttpServletResponseMonitorFactory} that can be used to create a {@link ReplayableHttpServletResponseMonitor}
@@ -160,8 +159,10 @@ public class ReplayableHttpServletResponseMonitorFactory extends
 
 		public void replay(HttpServletResponse response) throws IOException {
 			ServletOutputStream servletOutputStream = response.getOutputStream();
-			FileCopyUtils.copy(this.outputStream.toByteArray(), servletOutputStream);
+			// Write directly from the internal buffer rather than copying to a new array
+			this.outputStream.writeTo(servletOutputStream);
 			servletOutputStream.flush();
+			servletOutputStream.close();
 		}
 
 		private void writeObject(ObjectOutputStream objectOutputStream) throws IOException {
@@ -23,6 +23,7 @@ import static org.mockito.Mockito.verify;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
@@ -30,6 +31,7 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 
+import org.cloudfoundry.tools.io.exception.ResourceException;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -141,4 +143,36 @@ public class AbstFileContentTest {
 		assertThat(this.outputStream.toByteArray(), is(equalTo(this.CONTENT.getBytes())));
 		verify(this.outputStream).close();
 	}
+
+	@Test
+	public void shouldReportFailureToCloseWhenWriting() throws Exception {
+		final IOException failure = new IOException("close failed");
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream() {
+
+			@Override
+			public void close() throws IOException {
+				throw failure;
+			}
+		};
+		AbstractFileContent content = new AbstractFileContent() {
+
+			@Override
+			public OutputStream asOutputStream() {
+				return outputStream;
+			}
+
+			@Override
+			public InputStream asInputStream() {
+				return AbstFileContentTest.this.inputStream;
+			}
+		};
+		try {
+			content.write(new ByteArrayInputStream(this.CONTENT.getBytes()));
+		} catch (ResourceException e) {
+			assertThat(e.getCause(), is((Throwable) failure));
+			assertThat(new String(outputStream.toByteArray()), is(this.CONTENT));
+			return;
+		}
+		throw new AssertionError("Expected failure");
+	}
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link ByteBufferPool}.
+ * 
+ * @author Phillip Webb
+ */
+public class ByteBufferPoolTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private ByteBufferPool pool = new ByteBufferPool(16, 1, true);
+
+	@Test
+	public void shouldNeedPositiveBufferSize() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("BufferSize must be positive");
+		new ByteBufferPool(0, 1, true);
+	}
+
+	@Test
+	public void shouldAllocateBuffers() throws Exception {
+		ByteBuffer buffer = this.pool.acquire();
+		assertThat(buffer.capacity(), is(16));
+		assertThat(buffer.isDirect(), is(true));
+		assertThat(new ByteBufferPool(16, 1, false).acquire().isDirect(), is(false));
+	}
+
+	@Test
+	public void shouldReuseReleasedBuffers() throws Exception {
+		ByteBuffer buffer = this.pool.acquire();
+		buffer.put((byte) 1);
+		this.pool.release(buffer);
+		ByteBuffer reused = this.pool.acquire();
+		assertThat(reused, is(sameInstance(buffer)));
+		assertThat(reused.position(), is(0));
+		assertThat(this.pool.acquire(), is(not(sameInstance(buffer))));
+	}
+
+	@Test
+	public void shouldNotRetainMoreThanMaxPooled() throws Exception {
+		ByteBuffer buffer1 = this.pool.acquire();
+		ByteBuffer buffer2 = this.pool.acquire();
+		this.pool.release(buffer1);
+		this.pool.release(buffer2);
+		assertThat(this.pool.acquire(), is(sameInstance(buffer1)));
+		assertThat(this.pool.acquire(), is(not(sameInstance(buffer2))));
+	}
+
+	@Test
+	public void shouldNotPoolForeignBuffers() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+		this.pool.release(buffer);
+		assertThat(this.pool.acquire(), is(not(sameInstance(buffer))));
+	}
+
+	@Test
+	public void shouldCacheBufferPerThread() throws Exception {
+		final ByteBufferPool pool = new ByteBufferPool(16, 1, false, true);
+		ByteBuffer buffer1 = pool.acquire();
+		ByteBuffer buffer2 = pool.acquire();
+		pool.release(buffer1);
+		pool.release(buffer2);
+		final ByteBuffer[] otherThreadBuffer = new ByteBuffer[1];
+		Thread thread = new Thread() {
+
+			@Override
+			public void run() {
+				otherThreadBuffer[0] = pool.acquire();
+			}
+		};
+		thread.start();
+		thread.join();
+		assertThat(otherThreadBuffer[0], is(sameInstance(buffer2)));
+		assertThat(pool.acquire(), is(sameInstance(buffer1)));
+	}
+
+	@Test
+	public void shouldCountAllocations() throws Exception {
+		ByteBuffer buffer = this.pool.acquire();
+		this.pool.release(buffer);
+		this.pool.acquire();
+		this.pool.acquire();
+		assertThat(this.pool.getAcquiredCount(), is(3L));
+		assertThat(this.pool.getAllocatedCount(), is(2L));
+	}
+
+	@Test
+	public void shouldCopyToByteArray() throws Exception {
+		ByteBufferPool pool = new ByteBufferPool(4, 1, false);
+		assertThat(pool.copyToByteArray(new ByteArrayInputStream("abc".getBytes())), is("abc".getBytes()));
+		assertThat(pool.copyToByteArray(new ByteArrayInputStream("abcd".getBytes())), is("abcd".getBytes()));
+		assertThat(pool.copyToByteArray(new ByteArrayInputStream("abcdefghij".getBytes())),
+				is("abcdefghij".getBytes()));
+		assertThat(pool.getAllocatedCount(), is(1L));
+	}
+
+	@Test
+	public void shouldNotCopyToByteArrayUsingDirectPool() throws Exception {
+		this.thrown.expect(IllegalStateException.class);
+		this.thrown.expectMessage("Byte arrays can only be copied using a heap pool");
+		this.pool.copyToByteArray(new ByteArrayInputStream(new byte[] {}));
+	}
+
+	@Test
+	public void shouldHaveSharedPools() throws Exception {
+		assertThat(ByteBufferPool.getHeapPool().acquire().isDirect(), is(false));
+		assertThat(ByteBufferPool.getDirectPool().acquire().isDirect(), is(true));
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link ContentDigest}.
+ * 
+ * @author Phillip Webb
+ */
+public class ContentDigestTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void shouldNeedAlgorithm() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("Algorithm must not be empty");
+		new ContentDigest("", "abc");
+	}
+
+	@Test
+	public void shouldNeedValue() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("Value must not be empty");
+		new ContentDigest(ContentDigest.MD5, (String) null);
+	}
+
+	@Test
+	public void shouldCalculateMd5() throws Exception {
+		ContentDigest digest = ContentDigest.calculate(new ByteArrayInputStream("abc".getBytes()));
+		assertThat(digest.getAlgorithm(), is(ContentDigest.MD5));
+		assertThat(digest.getValue(), is("900150983cd24fb0d6963f7d28e17f72"));
+	}
+
+	@Test
+	public void shouldCreateCrc32() throws Exception {
+		ContentDigest digest = ContentDigest.crc32(0xABCL);
+		assertThat(digest.getAlgorithm(), is(ContentDigest.CRC32));
+		assertThat(digest.getValue(), is("00000abc"));
+	}
+
+	@Test
+	public void shouldGetETag() throws Exception {
+		assertThat(new ContentDigest(ContentDigest.MD5, "ABC").getETag(), is("\"md5-abc\""));
+	}
+
+	@Test
+	public void shouldGetWeakETagForCrc32() throws Exception {
+		ContentDigest digest = ContentDigest.crc32(0xABCL);
+		assertThat(digest.isStrong(), is(false));
+		assertThat(digest.getETag(), is("W/\"crc32-00000abc\""));
+		assertThat(new ContentDigest(ContentDigest.MD5, "abc").isStrong(), is(true));
+	}
+
+	@Test
+	public void shouldUseAlgorithmAndValueForEqualsAndHashCode() throws Exception {
+		ContentDigest digest1 = new ContentDigest(ContentDigest.MD5, "abc");
+		ContentDigest digest2 = new ContentDigest(ContentDigest.MD5, "ABC");
+		ContentDigest digest3 = new ContentDigest(ContentDigest.CRC32, "abc");
+		assertThat(digest1, is(digest2));
+		assertThat(digest1.hashCode(), is(digest2.hashCode()));
+		assertThat(digest1, is(not(digest3)));
+		assertThat(digest1.toString(), is("MD5:abc"));
+	}
+}
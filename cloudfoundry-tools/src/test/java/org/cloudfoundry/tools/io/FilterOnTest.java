@@ -16,10 +16,16 @@
 package org.cloudfoundry.tools.io;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
 
 import org.cloudfoundry.tools.io.FilterOn.PathStyle;
 import org.junit.Before;
@@ -100,6 +106,90 @@ public class FilterOnTest {
 		assertThat(filter.match(this.context, folderWithPath("/dojo/some/folder/tests/another/file.js")), is(true));
 	}
 
+	@Test
+	public void shouldCompileFilters() throws Exception {
+		ResourceFilter filter = FilterOn.compile(FilterOn.names().ending(".tmp"), FilterOn.names().ending(".bak"));
+		assertThat(filter.match(this.context, fileWithName("file.tmp")), is(true));
+		assertThat(filter.match(this.context, fileWithName("file.bak")), is(true));
+		assertThat(filter.match(this.context, fileWithName("file.txt")), is(false));
+	}
+
+	@Test
+	public void shouldNotMatchEmptyCompiledFilter() throws Exception {
+		ResourceFilter filter = FilterOn.compile();
+		assertThat(filter.match(this.context, fileWithName("file.tmp")), is(false));
+	}
+
+	@Test
+	public void shouldGetAttributeOnceWhenCompiled() throws Exception {
+		ResourceFilter filter = FilterOn.compile(FilterOn.names().starting("~").ending(".tmp", ".bak"), FilterOn
+				.names().ending(".old"));
+		File file = fileWithName("~file.old");
+		assertThat(filter.match(this.context, file), is(true));
+		verify(file, times(1)).getName();
+	}
+
+	@Test
+	public void shouldTestNamesBeforePathsWhenCompiled() throws Exception {
+		Folder source = folderWithPath("/x/");
+		given(this.context.getSource()).willReturn(source);
+		ResourceFilter filter = FilterOn.compile(FilterOn.antPattern("**/*.tmp"), FilterOn.paths().ending(".tmp"),
+				FilterOn.names().ending(".tmp"));
+		File file = fileWithName("file.tmp");
+		assertThat(filter.match(this.context, file), is(true));
+		verify(file, never()).toStringRelativeTo(source);
+	}
+
+	@Test
+	public void shouldMatchPatternWhenCompiled() throws Exception {
+		Folder source = folderWithPath("/x/");
+		given(this.context.getSource()).willReturn(source);
+		ResourceFilter filter = FilterOn.compile(FilterOn.names().ending(".bak"), FilterOn.antPattern("a/**/*.TMP"));
+		assertThat(filter.match(this.context, folderWithPath("/x/a/b/file.tmp")), is(true));
+		assertThat(filter.match(this.context, folderWithPath("/x/b/file.tmp")), is(false));
+	}
+
+	@Test
+	public void shouldIgnoreCaseOfPaths() throws Exception {
+		ResourceFilter filter = FilterOn.paths(PathStyle.FULL).starting("/A/");
+		assertThat(filter.match(this.context, folderWithPath("/a/file.txt")), is(true));
+		filter = FilterOn.caseSensitivePaths(PathStyle.FULL).starting("/A/");
+		assertThat(filter.match(this.context, folderWithPath("/a/file.txt")), is(false));
+	}
+
+	@Test
+	public void shouldGetNameRestriction() throws Exception {
+		ResourceFilter filter = FilterOn.names().ending(".tmp", ".bak");
+		NameRestriction restriction = FilterOn.getNameRestriction(filter);
+		assertThat(restriction.getType(), is(NameRestriction.Type.SUFFIX));
+		assertThat(restriction.getValues(), is(Arrays.asList(".tmp", ".bak")));
+	}
+
+	@Test
+	public void shouldGetMostSelectiveNameRestriction() throws Exception {
+		ResourceFilter filter = FilterOn.names().ending(".tmp").starting("~").notContaining("keep");
+		NameRestriction restriction = FilterOn.getNameRestriction(filter);
+		assertThat(restriction.getType(), is(NameRestriction.Type.PREFIX));
+		assertThat(restriction.getValues(), is(Arrays.asList("~")));
+	}
+
+	@Test
+	public void shouldMergeCompiledNameRestrictions() throws Exception {
+		ResourceFilter filter = FilterOn.compile(FilterOn.names().matching("a"), FilterOn.names().matching("b"));
+		NameRestriction restriction = FilterOn.getNameRestriction(filter);
+		assertThat(restriction.getType(), is(NameRestriction.Type.EXACT));
+		assertThat(restriction.getValues(), is(Arrays.asList("a", "b")));
+	}
+
+	@Test
+	public void shouldNotGetNameRestrictionForUnsupportedFilters() throws Exception {
+		assertThat(FilterOn.getNameRestriction(FilterOn.names().containing("a")), is(nullValue()));
+		assertThat(FilterOn.getNameRestriction(FilterOn.names().notStarting("a")), is(nullValue()));
+		assertThat(FilterOn.getNameRestriction(FilterOn.paths().starting("a")), is(nullValue()));
+		assertThat(FilterOn.getNameRestriction(FilterOn.compile(FilterOn.names().starting("a"), FilterOn.names()
+				.ending("b"))), is(nullValue()));
+	}
+
 	private File fileWithName(String name) {
 		return resourceWithName(File.class, name, null);
 	}
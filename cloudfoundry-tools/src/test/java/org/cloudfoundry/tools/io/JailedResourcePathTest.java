@@ -18,6 +18,7 @@ package org.cloudfoundry.tools.io;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 import org.junit.Rule;
@@ -105,4 +106,36 @@ public class JailedResourcePathTest {
 		JailedResourcePath jailedResourcePath = new JailedResourcePath(this.pathA, this.pathB);
 		assertThat(jailedResourcePath.toString(), is(equalTo("/b")));
 	}
+
+	@Test
+	public void shouldCacheUnjailedPath() throws Exception {
+		JailedResourcePath jailedResourcePath = new JailedResourcePath(this.pathA, this.pathB);
+		assertThat(jailedResourcePath.getUnjailedPath(), is(sameInstance(jailedResourcePath.getUnjailedPath())));
+	}
+
+	@Test
+	public void shouldGetUnjailedPathFromChild() throws Exception {
+		JailedResourcePath jailedResourcePath = new JailedResourcePath(this.pathA, this.pathB).get("c/d/../e");
+		assertThat(jailedResourcePath.getPath(), is(equalTo(new ResourcePath().get("b/c/e"))));
+		assertThat(jailedResourcePath.getUnjailedPath(), is(equalTo(new ResourcePath().get("a/b/c/e"))));
+	}
+
+	@Test
+	public void shouldGetUnjailedPathFromAbsoluteChild() throws Exception {
+		JailedResourcePath jailedResourcePath = new JailedResourcePath(this.pathA, this.pathB).get("/c");
+		assertThat(jailedResourcePath.getUnjailedPath(), is(equalTo(new ResourcePath().get("a/c"))));
+	}
+
+	@Test
+	public void shouldGetUnjailedPathFromParent() throws Exception {
+		JailedResourcePath jailedResourcePath = new JailedResourcePath(this.pathA, new ResourcePath().get("b/c"));
+		assertThat(jailedResourcePath.getParent().getUnjailedPath(), is(equalTo(new ResourcePath().get("a/b"))));
+	}
+
+	@Test
+	public void shouldNotGetRelativePastJail() throws Exception {
+		JailedResourcePath jailedResourcePath = new JailedResourcePath(this.pathA, this.pathB);
+		this.thrown.expect(IllegalStateException.class);
+		jailedResourcePath.get("../..");
+	}
 }
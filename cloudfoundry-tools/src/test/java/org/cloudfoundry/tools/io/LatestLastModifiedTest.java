@@ -0,0 +1,59 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LatestLastModified}.
+ * 
+ * @author Phillip Webb
+ */
+public class LatestLastModifiedTest {
+
+	@Test
+	public void shouldGetLatest() throws Exception {
+		LatestLastModified operation = new LatestLastModified();
+		operation.perform(fileModifiedAt(2));
+		operation.perform(fileModifiedAt(3));
+		operation.perform(fileModifiedAt(1));
+		assertThat(operation.getValue(), is(3L));
+	}
+
+	@Test
+	public void shouldMergeSplit() throws Exception {
+		LatestLastModified operation = new LatestLastModified();
+		operation.perform(fileModifiedAt(2));
+		LatestLastModified split = operation.split();
+		assertThat(split.getValue(), is(0L));
+		split.perform(fileModifiedAt(5));
+		operation.merge(split);
+		assertThat(operation.getValue(), is(5L));
+		operation.merge(new LatestLastModified());
+		assertThat(operation.getValue(), is(5L));
+	}
+
+	private File fileModifiedAt(long lastModified) {
+		File file = mock(File.class);
+		given(file.getLastModified()).willReturn(lastModified);
+		return file;
+	}
+}
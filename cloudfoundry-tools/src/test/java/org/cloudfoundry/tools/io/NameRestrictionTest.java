@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.cloudfoundry.tools.io.NameRestriction.Type;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link NameRestriction}.
+ * 
+ * @author Phillip Webb
+ */
+public class NameRestrictionTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void shouldNeedType() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("Type must not be null");
+		new NameRestriction(null, false, "a");
+	}
+
+	@Test
+	public void shouldMatchPrefix() throws Exception {
+		NameRestriction restriction = new NameRestriction(Type.PREFIX, false, "a", "b");
+		assertThat(restriction.matches("abc"), is(true));
+		assertThat(restriction.matches("bcd"), is(true));
+		assertThat(restriction.matches("cab"), is(false));
+	}
+
+	@Test
+	public void shouldMatchSuffix() throws Exception {
+		NameRestriction restriction = new NameRestriction(Type.SUFFIX, false, ".txt");
+		assertThat(restriction.matches("a.txt"), is(true));
+		assertThat(restriction.matches("a.txt.bak"), is(false));
+	}
+
+	@Test
+	public void shouldMatchExact() throws Exception {
+		NameRestriction restriction = new NameRestriction(Type.EXACT, false, "a.txt");
+		assertThat(restriction.matches("a.txt"), is(true));
+		assertThat(restriction.matches("A.txt"), is(false));
+		assertThat(restriction.matches("a.txt2"), is(false));
+	}
+
+	@Test
+	public void shouldIgnoreCase() throws Exception {
+		NameRestriction restriction = new NameRestriction(Type.EXACT, true, "a.txt");
+		assertThat(restriction.matches("A.TXT"), is(true));
+	}
+
+	@Test
+	public void shouldNotMatchWithoutValues() throws Exception {
+		NameRestriction restriction = new NameRestriction(Type.PREFIX, false);
+		assertThat(restriction.matches("a"), is(false));
+	}
+}
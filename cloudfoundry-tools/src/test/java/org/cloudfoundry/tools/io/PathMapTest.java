@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link PathMap}.
+ * 
+ * @author Phillip Webb
+ */
+public class PathMapTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private final ResourcePath root = new ResourcePath();
+
+	private final PathMap<String> map = new PathMap<String>();
+
+	@Test
+	public void shouldNotPutNullPath() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("Path must not be null");
+		this.map.put(null, "a");
+	}
+
+	@Test
+	public void shouldNotPutNullValue() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("Value must not be null");
+		this.map.put(path("a"), null);
+	}
+
+	@Test
+	public void shouldPutAndGet() throws Exception {
+		assertThat(this.map.put(path("a/b"), "ab"), is(nullValue()));
+		assertThat(this.map.put(path("a/b"), "ab2"), is("ab"));
+		assertThat(this.map.get(path("a/b")), is("ab2"));
+		assertThat(this.map.get(this.root.get("a").get("b")), is("ab2"));
+		assertThat(this.map.get(path("a")), is(nullValue()));
+		assertThat(this.map.get(path("a/b/c")), is(nullValue()));
+		assertThat(this.map.get(path("x")), is(nullValue()));
+		assertThat(this.map.size(), is(1));
+	}
+
+	@Test
+	public void shouldPutRoot() throws Exception {
+		this.map.put(this.root, "root");
+		assertThat(this.map.get(new ResourcePath()), is("root"));
+		assertThat(this.map.containsPath(this.root), is(true));
+	}
+
+	@Test
+	public void shouldContainPath() throws Exception {
+		this.map.put(path("a/b"), "ab");
+		assertThat(this.map.containsPath(path("a/b")), is(true));
+		assertThat(this.map.containsPath(path("a")), is(false));
+		assertThat(this.map.containsPath(this.root), is(false));
+	}
+
+	@Test
+	public void shouldList() throws Exception {
+		this.map.put(path("a"), "a");
+		this.map.put(path("a/c"), "ac");
+		this.map.put(path("a/b"), "ab");
+		this.map.put(path("a/b/d"), "abd");
+		this.map.put(path("a/e/f"), "aef");
+		assertThat(this.map.list(path("a")), is(equalTo(paths("a/c", "a/b"))));
+		assertThat(this.map.list(this.root), is(equalTo(paths("a"))));
+		assertThat(this.map.list(path("x")).isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldFind() throws Exception {
+		this.map.put(path("a"), "a");
+		this.map.put(path("a/c"), "ac");
+		this.map.put(path("a/b/d"), "abd");
+		this.map.put(path("x/y"), "xy");
+		assertThat(asList(this.map.find(path("a"))), is(equalTo(paths("a/c", "a/b/d"))));
+		assertThat(asList(this.map.find(this.root)), is(equalTo(paths("a", "a/c", "a/b/d", "x/y"))));
+		assertThat(asList(this.map.find(path("z"))).isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldRemove() throws Exception {
+		this.map.put(path("a"), "a");
+		this.map.put(path("a/b"), "ab");
+		assertThat(this.map.remove(path("a")), is("a"));
+		assertThat(this.map.remove(path("a")), is(nullValue()));
+		assertThat(this.map.get(path("a/b")), is("ab"));
+		assertThat(this.map.size(), is(1));
+	}
+
+	@Test
+	public void shouldRemoveAll() throws Exception {
+		this.map.put(path("a"), "a");
+		this.map.put(path("a/b"), "ab");
+		this.map.put(path("a/b/c"), "abc");
+		this.map.put(path("a/d"), "ad");
+		assertThat(this.map.removeAll(path("a/b")), is(2));
+		assertThat(this.map.size(), is(2));
+		assertThat(this.map.get(path("a/b/c")), is(nullValue()));
+		assertThat(this.map.list(path("a")), is(equalTo(paths("a/d"))));
+		assertThat(this.map.removeAll(this.root), is(2));
+		assertThat(this.map.isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldClear() throws Exception {
+		this.map.put(path("a/b"), "ab");
+		this.map.clear();
+		assertThat(this.map.isEmpty(), is(true));
+		assertThat(this.map.get(path("a/b")), is(nullValue()));
+	}
+
+	private ResourcePath path(String path) {
+		return this.root.get(path);
+	}
+
+	private List<ResourcePath> paths(String... paths) {
+		List<ResourcePath> rtn = new ArrayList<ResourcePath>();
+		for (String path : Arrays.asList(paths)) {
+			rtn.add(path(path));
+		}
+		return rtn;
+	}
+
+	private List<ResourcePath> asList(Iterable<ResourcePath> iterable) {
+		List<ResourcePath> rtn = new ArrayList<ResourcePath>();
+		for (ResourcePath path : iterable) {
+			rtn.add(path);
+		}
+		return rtn;
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import org.cloudfoundry.tools.io.ResourceWalker.Result;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link PruningResourceWalker}.
+ * 
+ * @author Phillip Webb
+ */
+public class PruningResourceWalkerTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private ResourceFilterContext context = mock(ResourceFilterContext.class);
+
+	@Test
+	public void shouldContinueByDefault() throws Exception {
+		PruningResourceWalker walker = new PruningResourceWalker();
+		assertThat(walker.visit(this.context, folderWithName("a"), 100), is(Result.CONTINUE));
+	}
+
+	@Test
+	public void shouldPrune() throws Exception {
+		PruningResourceWalker walker = new PruningResourceWalker().prune(FilterOn.names().matching(".git"))
+				.prune(FilterOn.names().matching("target"));
+		assertThat(walker.visit(this.context, folderWithName(".git"), 1), is(Result.PRUNE));
+		assertThat(walker.visit(this.context, folderWithName("target"), 1), is(Result.PRUNE));
+		assertThat(walker.visit(this.context, folderWithName("src"), 1), is(Result.CONTINUE));
+	}
+
+	@Test
+	public void shouldLimitDepth() throws Exception {
+		PruningResourceWalker walker = new PruningResourceWalker().maxDepth(2);
+		assertThat(walker.visit(this.context, folderWithName("a"), 1), is(Result.CONTINUE));
+		assertThat(walker.visit(this.context, folderWithName("a"), 2), is(Result.SKIP_CHILDREN));
+	}
+
+	@Test
+	public void shouldNotChangeOriginal() throws Exception {
+		PruningResourceWalker walker = new PruningResourceWalker();
+		walker.prune(FilterOn.names().matching("a")).maxDepth(1);
+		assertThat(walker.visit(this.context, folderWithName("a"), 1), is(Result.CONTINUE));
+	}
+
+	@Test
+	public void shouldNeedPositiveMaxDepth() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("MaxDepth must be positive");
+		new PruningResourceWalker().maxDepth(0);
+	}
+
+	private Folder folderWithName(String name) {
+		Folder folder = mock(Folder.class);
+		given(folder.getName()).willReturn(name);
+		return folder;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link RangeInputStream}.
+ * 
+ * @author Phillip Webb
+ */
+public class RangeInputStreamTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void shouldNeedPositiveOffset() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("Offset must not be negative");
+		new RangeInputStream(newInputStream(), -1, 1);
+	}
+
+	@Test
+	public void shouldNeedPositiveLength() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("Length must not be negative");
+		new RangeInputStream(newInputStream(), 0, -1);
+	}
+
+	@Test
+	public void shouldReadRange() throws Exception {
+		assertThat(read(new RangeInputStream(newInputStream(), 2, 3)), is("cde"));
+	}
+
+	@Test
+	public void shouldReadSingleBytes() throws Exception {
+		InputStream stream = new RangeInputStream(newInputStream(), 1, 2);
+		assertThat(stream.read(), is((int) 'b'));
+		assertThat(stream.read(), is((int) 'c'));
+		assertThat(stream.read(), is(-1));
+	}
+
+	@Test
+	public void shouldReadToEndWhenLengthExceedsContent() throws Exception {
+		assertThat(read(new RangeInputStream(newInputStream(), 4, 100)), is("ef"));
+	}
+
+	@Test
+	public void shouldReadNothingWhenOffsetExceedsContent() throws Exception {
+		assertThat(read(new RangeInputStream(newInputStream(), 100, 1)), is(""));
+	}
+
+	@Test
+	public void shouldSkipWithinRange() throws Exception {
+		InputStream stream = new RangeInputStream(newInputStream(), 1, 3);
+		assertThat(stream.skip(10), is(3L));
+		assertThat(stream.read(), is(-1));
+	}
+
+	@Test
+	public void shouldNotSupportMark() throws Exception {
+		assertThat(new RangeInputStream(newInputStream(), 0, 1).markSupported(), is(false));
+	}
+
+	private InputStream newInputStream() {
+		return new ByteArrayInputStream("abcdef".getBytes());
+	}
+
+	private String read(InputStream stream) throws Exception {
+		return FileCopyUtils.copyToString(new InputStreamReader(stream));
+	}
+}
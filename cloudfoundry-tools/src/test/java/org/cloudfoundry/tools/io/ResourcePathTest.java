@@ -17,6 +17,8 @@ package org.cloudfoundry.tools.io;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 import org.junit.Rule;
@@ -166,4 +168,46 @@ public class ResourcePathTest {
 		abcd.toStringRelativeTo("/a/c/");
 	}
 
+	@Test
+	public void shouldBeEqualWhenCreatedSeparately() throws Exception {
+		ResourcePath ab1 = new ResourcePath().get("a/b");
+		ResourcePath ab2 = new ResourcePath().get("a").get("b");
+		assertThat(ab1, is(equalTo(ab2)));
+		assertThat(ab1.hashCode(), is(equalTo(ab2.hashCode())));
+		assertThat(ab1.hashCode(), is(equalTo("/a/b".hashCode())));
+	}
+
+	@Test
+	public void shouldNotBeEqualWithDifferentParent() throws Exception {
+		assertThat(new ResourcePath().get("a/c"), is(not(equalTo(new ResourcePath().get("b/c")))));
+		assertThat(new ResourcePath().get("a/b"), is(not(equalTo(new ResourcePath().get("b")))));
+		assertThat(new ResourcePath().get("a"), is(not(equalTo(new ResourcePath()))));
+	}
+
+	@Test
+	public void shouldInternNames() throws Exception {
+		ResourcePath a1 = new ResourcePath().get(new String("a"));
+		ResourcePath a2 = new ResourcePath().get(new String("a"));
+		assertThat(a1.getName(), is(sameInstance(a2.getName())));
+	}
+
+	@Test
+	public void shouldShareParentWhenAppendingToRoot() throws Exception {
+		ResourcePath ab = new ResourcePath().get("a/b");
+		assertThat(new ResourcePath().append(ab), is(sameInstance(ab)));
+		assertThat(ab.get("c").getParent(), is(sameInstance(ab)));
+	}
+
+	@Test
+	public void shouldReturnToStringRelativeToRoot() throws Exception {
+		ResourcePath ab = new ResourcePath().get("a/b");
+		assertThat(ab.toStringRelativeTo("/"), is("a/b"));
+	}
+
+	@Test
+	public void shouldNotReturnToStringRelativeToSiblingWithSamePrefix() throws Exception {
+		ResourcePath abc = new ResourcePath().get("a/bc");
+		this.thrown.expect(IllegalArgumentException.class);
+		abc.toStringRelativeTo("/a/b");
+	}
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.cloudfoundry.tools.io.exception.ResourceException;
+import org.cloudfoundry.tools.io.exception.ResourceTransferException;
+import org.cloudfoundry.tools.io.local.LocalFolder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ResourceTransfer}.
+ * 
+ * @author Phillip Webb
+ */
+public class ResourceTransferTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Folder root;
+
+	private Folder source;
+
+	private Folder destination;
+
+	private ResourceTransfer transfer = new ResourceTransfer(3);
+
+	@Before
+	public void setup() throws Exception {
+		this.root = new LocalFolder(this.temporaryFolder.getRoot());
+		this.source = this.root.getFolder("source");
+		this.source.getFile("a.txt").getContent().write("a");
+		this.source.getFile("b/c.txt").getContent().write("c");
+		this.source.getFile("b/d/e.txt").getContent().write("e");
+		this.source.getFolder("f").createIfMissing();
+		this.destination = this.root.getFolder("destination");
+	}
+
+	@Test
+	public void shouldNeedPositiveParallelism() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("Parallelism must be positive");
+		new ResourceTransfer(0);
+	}
+
+	@Test
+	public void shouldCopyFolder() throws Exception {
+		Folder copied = this.transfer.copy(this.source, this.destination);
+		assertThat(copied.toString(), is("/destination/source/"));
+		assertCopied(copied);
+		assertThat(this.source.exists(), is(true));
+	}
+
+	@Test
+	public void shouldMoveFolder() throws Exception {
+		Folder moved = this.transfer.move(this.source, this.destination);
+		assertCopied(moved);
+		assertThat(this.source.exists(), is(false));
+	}
+
+	@Test
+	public void shouldCopyResources() throws Exception {
+		Resources<File> copied = this.transfer.copy(this.source.find().files(), this.destination);
+		assertThat(copied.asList().size(), is(3));
+		assertCopied(this.destination);
+		assertThat(this.destination.getFolder("f").exists(), is(false));
+	}
+
+	@Test
+	public void shouldMoveResources() throws Exception {
+		this.transfer.move(this.source.list(), this.destination);
+		assertCopied(this.destination);
+		assertThat(this.source.getFile("a.txt").exists(), is(false));
+		assertThat(this.source.getFolder("b").exists(), is(false));
+	}
+
+	@Test
+	public void shouldReportProgress() throws Exception {
+		final List<Integer> completed = Collections.synchronizedList(new ArrayList<Integer>());
+		this.transfer.setListener(new ResourceTransferListener() {
+
+			@Override
+			public void transferred(File destination, int count, int total) {
+				assertThat(total, is(3));
+				completed.add(count);
+			}
+		});
+		this.transfer.copy(this.source, this.destination);
+		Collections.sort(completed);
+		assertThat(completed.toString(), is("[1, 2, 3]"));
+	}
+
+	@Test
+	public void shouldAggregateFailures() throws Exception {
+		File failing = mock(File.class);
+		FileContent content = mock(FileContent.class);
+		given(failing.getContent()).willReturn(content);
+		ResourceException failure = new ResourceException("failed");
+		willThrow(failure).given(content).write(this.source.getFile("a.txt"));
+		ResourceTransfer.Batch batch = this.transfer.begin();
+		batch.copy(this.source.getFile("a.txt"), failing);
+		batch.copy(this.source.getFile("b/c.txt"), this.destination.getFile("c.txt"));
+		try {
+			batch.finish();
+		} catch (ResourceTransferException e) {
+			assertThat(e.getMessage(), is("Unable to transfer 1 of 2 file(s)"));
+			assertThat(e.getFailures().size(), is(1));
+			assertThat(e.getFailures().get(failing), is((Throwable) failure));
+			assertThat(this.destination.getFile("c.txt").getContent().asString(), is("c"));
+			return;
+		}
+		throw new AssertionError("Expected failure");
+	}
+
+	@Test
+	public void shouldNotDeleteSourceWhenMoveFails() throws Exception {
+		this.destination.getFolder("source").getFolder("a.txt").createIfMissing();
+		try {
+			this.transfer.move(this.source, this.destination);
+		} catch (ResourceException e) {
+			assertThat(this.source.getFile("a.txt").exists(), is(true));
+			return;
+		}
+		throw new AssertionError("Expected failure");
+	}
+
+	@Test
+	public void shouldOnlyCreateParentFoldersOnce() throws Exception {
+		Folder parent = mock(Folder.class);
+		given(parent.toString()).willReturn("/parent/");
+		File file1 = mock(File.class);
+		File file2 = mock(File.class);
+		given(file1.getParent()).willReturn(parent);
+		given(file2.getParent()).willReturn(parent);
+		given(file1.getContent()).willReturn(mock(FileContent.class));
+		given(file2.getContent()).willReturn(mock(FileContent.class));
+		ResourceTransfer.Batch batch = this.transfer.begin();
+		batch.write(file1, new byte[] {});
+		batch.write(file2, new byte[] {});
+		batch.finish();
+		verify(parent, times(1)).createIfMissing();
+	}
+
+	@Test
+	public void shouldNotHideEarlierFailureWhenFinishing() throws Exception {
+		File failing = mock(File.class);
+		FileContent content = mock(FileContent.class);
+		given(failing.getContent()).willReturn(content);
+		ResourceException transferFailure = new ResourceException("transfer");
+		willThrow(transferFailure).given(content).write(this.source.getFile("a.txt"));
+		ResourceTransfer.Batch batch = this.transfer.begin();
+		batch.copy(this.source.getFile("a.txt"), failing);
+		RuntimeException failure = new ResourceException("failed");
+		RuntimeException finished = batch.finish(failure);
+		assertThat(finished, is(sameInstance(failure)));
+		assertThat(failure.getSuppressed().length, is(1));
+		assertThat(failure.getSuppressed()[0], is(ResourceTransferException.class));
+	}
+
+	private void assertCopied(Folder folder) {
+		assertThat(folder.getFile("a.txt").getContent().asString(), is("a"));
+		assertThat(folder.getFile("b/c.txt").getContent().asString(), is("c"));
+		assertThat(folder.getFile("b/d/e.txt").getContent().asString(), is("e"));
+	}
+}
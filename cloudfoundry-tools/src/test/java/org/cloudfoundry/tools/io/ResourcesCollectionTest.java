@@ -17,11 +17,13 @@ package org.cloudfoundry.tools.io;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
@@ -134,6 +136,38 @@ public class ResourcesCollectionTest {
 		verifyNoMoreInteractions(this.resourceOperation);
 	}
 
+	@Test
+	public void shouldPerformParallelOperation() throws Exception {
+		List<File> files = new ArrayList<File>();
+		for (int i = 1; i <= 100; i++) {
+			File file = mock(File.class);
+			given(file.getLastModified()).willReturn((long) i);
+			given(file.getSize()).willReturn(2L);
+			files.add(file);
+		}
+		ResourcesCollection<File> collection = new ResourcesCollection<File>(this.source, files);
+		assertThat(collection.performParallelOperation(new LatestLastModified(), 4).getValue(), is(100L));
+		assertThat(collection.performParallelOperation(new TotalSize(), 4).getValue(), is(200L));
+		assertThat(collection.performParallelOperation(new ResourceCount<File>(), 4).getValue(), is(100L));
+	}
+
+	@Test
+	public void shouldPropagateParallelOperationFailure() throws Exception {
+		ResourcesCollection<File> collection = new ResourcesCollection<File>(this.source, this.file);
+		given(this.file.getSize()).willThrow(new IllegalStateException("Failed"));
+		this.thrown.expect(IllegalStateException.class);
+		this.thrown.expectMessage("Failed");
+		collection.performParallelOperation(new TotalSize(), 2);
+	}
+
+	@Test
+	public void shouldNeedPositiveParallelism() throws Exception {
+		ResourcesCollection<File> collection = new ResourcesCollection<File>(this.source, this.file);
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("Parallelism must be positive");
+		collection.performParallelOperation(new TotalSize(), 0);
+	}
+
 	@Test
 	public void shouldFetchAll() throws Exception {
 		ResourcesCollection<Resource> collection = new ResourcesCollection<Resource>(this.source, this.folder,
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.dedup;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudfoundry.tools.io.ContentDigest;
+import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.Folder;
+import org.cloudfoundry.tools.io.Resource;
+import org.cloudfoundry.tools.io.local.LocalFolder;
+import org.cloudfoundry.tools.io.virtual.VirtualFolder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link DedupFolder}.
+ * 
+ * @author Phillip Webb
+ */
+public class DedupFolderTest {
+
+	private static final String HELLO_MD5 = "5d41402abc4b2a76b9719d911017c592";
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private LocalFolder local;
+
+	private BlobStore blobStore;
+
+	private DedupFolder folder;
+
+	@Before
+	public void setup() {
+		this.local = new LocalFolder(this.temp.getRoot());
+		this.blobStore = new BlobStore(this.local.getFolder("blobs"));
+		this.folder = new DedupFolder(this.local.getFolder("a"), this.blobStore);
+	}
+
+	@Test
+	public void shouldWriteAndRead() throws Exception {
+		this.folder.getFile("x/y.txt").getContent().write("hello");
+		assertThat(this.folder.getFile("x/y.txt").getContent().asString(), is("hello"));
+		assertThat(this.folder.getFile("x/y.txt").getSize(), is(5L));
+		assertThat(this.local.getFile("a/x/y.txt").getContent().asString(), is(HELLO_MD5));
+		assertThat(this.blobStore.contains(HELLO_MD5), is(true));
+	}
+
+	@Test
+	public void shouldList() throws Exception {
+		this.folder.getFile("x/y.txt").getContent().write("hello");
+		this.folder.getFile("z.txt").getContent().write("world");
+		List<String> names = new ArrayList<String>();
+		for (Resource resource : this.folder.find()) {
+			names.add(resource.toString());
+		}
+		assertThat(names.size(), is(3));
+		assertThat(this.folder.hasExisting("x/y.txt"), is(true));
+		assertThat(this.folder.hasExisting("x/missing.txt"), is(false));
+		assertThat(this.folder.getExisting("x") instanceof Folder, is(true));
+		assertThat(this.folder.getExisting("z.txt") instanceof File, is(true));
+	}
+
+	@Test
+	public void shouldStoreIdenticalContentOnce() throws Exception {
+		DedupFolder other = new DedupFolder(this.local.getFolder("b"), this.blobStore);
+		this.folder.getFile("y.txt").getContent().write("hello");
+		this.folder.getFile("z.txt").getContent().write("hello");
+		other.getFile("y.txt").getContent().write("hello");
+		assertThat(this.local.getFolder("blobs/5d").list().asList().size(), is(1));
+	}
+
+	@Test
+	public void shouldKeepBlobsUntilCollected() throws Exception {
+		this.folder.getFile("y.txt").getContent().write("hello");
+		this.folder.getFile("z.txt").getContent().write("hello");
+		this.folder.getFile("y.txt").delete();
+		this.folder.getFile("z.txt").getContent().write("world");
+		assertThat(this.blobStore.contains(HELLO_MD5), is(true));
+		this.folder.delete();
+		assertThat(this.folder.exists(), is(false));
+		assertThat(this.local.getFolder("blobs/.staging").list().asList().size(), is(0));
+	}
+
+	@Test
+	public void shouldCollectUnreferencedBlobs() throws Exception {
+		this.blobStore.setGracePeriod(0);
+		this.folder.getFile("y.txt").getContent().write("hello");
+		this.folder.getFile("z.txt").getContent().write("hello");
+		age(HELLO_MD5);
+		this.folder.getFile("y.txt").delete();
+		assertThat(this.blobStore.collectGarbage(this.folder), is(0));
+		assertThat(this.blobStore.contains(HELLO_MD5), is(true));
+		this.folder.getFile("z.txt").getContent().write("world");
+		age(HELLO_MD5);
+		assertThat(this.blobStore.collectGarbage(this.folder), is(1));
+		assertThat(this.blobStore.contains(HELLO_MD5), is(false));
+		assertThat(this.folder.getFile("z.txt").getContent().asString(), is("world"));
+		assertThat(this.local.getFolder("blobs/.trash").exists(), is(false));
+	}
+
+	@Test
+	public void shouldNotCollectRecentBlobs() throws Exception {
+		this.folder.getFile("y.txt").getContent().write("hello");
+		this.folder.getFile("y.txt").delete();
+		assertThat(this.blobStore.collectGarbage(this.folder), is(0));
+		assertThat(this.blobStore.contains(HELLO_MD5), is(true));
+	}
+
+	@Test
+	public void shouldNotCollectBlobsReferencedByOtherFolders() throws Exception {
+		this.blobStore.setGracePeriod(0);
+		DedupFolder other = new DedupFolder(this.local.getFolder("b"), this.blobStore);
+		other.getFile("y.txt").getContent().write("hello");
+		age(HELLO_MD5);
+		assertThat(this.blobStore.collectGarbage(this.folder, other), is(0));
+		assertThat(other.getFile("y.txt").getContent().asString(), is("hello"));
+	}
+
+	@Test
+	public void shouldRestoreTrashWhenCollecting() throws Exception {
+		this.folder.getFile("y.txt").getContent().write("hello");
+		this.local.getFile("blobs/5d/" + HELLO_MD5).moveTo(this.local.getFolder("blobs/.trash"));
+		assertThat(this.blobStore.contains(HELLO_MD5), is(false));
+		this.blobStore.collectGarbage(this.folder);
+		assertThat(this.folder.getFile("y.txt").getContent().asString(), is("hello"));
+	}
+
+	@Test
+	public void shouldNotCollectForFolderUsingOtherBlobStore() throws Exception {
+		DedupFolder other = new DedupFolder(this.local.getFolder("b"), new BlobStore(this.local.getFolder("other")));
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("does not use this blob store");
+		this.blobStore.collectGarbage(other);
+	}
+
+	@Test
+	public void shouldShareBlobsBetweenBlobStoreInstances() throws Exception {
+		DedupFolder other = new DedupFolder(this.local.getFolder("b"), new BlobStore(this.local.getFolder("blobs")));
+		File source = this.folder.getFile("y.txt");
+		source.getContent().write("hello");
+		source.copyTo(other);
+		assertThat(other.getFile("y.txt").getContent().asString(), is("hello"));
+		assertThat(this.local.getFolder("blobs/5d").list().asList().size(), is(1));
+		assertThat(this.local.getFolder("blobs/.staging").list().asList().size(), is(0));
+	}
+
+	@Test
+	public void shouldRename() throws Exception {
+		this.folder.getFile("y.txt").getContent().write("hello");
+		File renamed = this.folder.getFile("y.txt").rename("z.txt");
+		assertThat(renamed.getContent().asString(), is("hello"));
+		assertThat(this.folder.hasExisting("y.txt"), is(false));
+	}
+
+	@Test
+	public void shouldCopyAndMoveUsingReferences() throws Exception {
+		DedupFolder other = new DedupFolder(this.local.getFolder("b"), this.blobStore);
+		File source = this.folder.getFile("y.txt");
+		source.getContent().write("hello");
+		source.copyTo(other.getFolder("copy"));
+		source.moveTo(other.getFolder("move"));
+		assertThat(source.exists(), is(false));
+		assertThat(this.local.getFolder("blobs/5d").list().asList().size(), is(1));
+		assertThat(this.local.getFolder("blobs/.staging").list().asList().size(), is(0));
+		assertThat(other.getFile("copy/y.txt").getContent().asString(), is("hello"));
+		assertThat(other.getFile("move/y.txt").getContent().asString(), is("hello"));
+	}
+
+	@Test
+	public void shouldWriteUsingReferenceWhenDigestMatches() throws Exception {
+		this.folder.getFile("y.txt").getContent().write("hello");
+		VirtualFolder virtual = new VirtualFolder();
+		virtual.getFile("z.txt").getContent().write("hello");
+		this.folder.getFile("z.txt").getContent().write(virtual.getFile("z.txt"));
+		assertThat(this.local.getFolder("blobs/5d").list().asList().size(), is(1));
+		assertThat(this.folder.getFile("z.txt").getContent().asString(), is("hello"));
+	}
+
+	@Test
+	public void shouldGetDigest() throws Exception {
+		this.folder.getFile("y.txt").getContent().write("hello");
+		assertThat(this.folder.getFile("y.txt").getDigest(), is(new ContentDigest(ContentDigest.MD5, HELLO_MD5)));
+	}
+
+	@Test
+	public void shouldCreateEmptyFile() throws Exception {
+		this.folder.getFile("y.txt").createIfMissing();
+		assertThat(this.folder.getFile("y.txt").getSize(), is(0L));
+		assertThat(this.folder.getFile("y.txt").getContent().asString(), is(""));
+	}
+
+	@Test
+	public void shouldUseTreeAndBlobsFolders() throws Exception {
+		DedupFolder dedupFolder = new DedupFolder(this.local.getFolder("root"));
+		dedupFolder.getFile("y.txt").getContent().write("hello");
+		assertThat(this.local.getFile("root/tree/y.txt").exists(), is(true));
+		assertThat(dedupFolder.getBlobStore().contains(HELLO_MD5), is(true));
+	}
+
+	private void age(String hash) {
+		new java.io.File(this.temp.getRoot(), "blobs/" + hash.substring(0, 2) + "/" + hash).setLastModified(1000L);
+	}
+}
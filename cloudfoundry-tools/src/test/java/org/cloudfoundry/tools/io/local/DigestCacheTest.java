@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
+
+import org.cloudfoundry.tools.io.ContentDigest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link DigestCache}.
+ * 
+ * @author Phillip Webb
+ */
+public class DigestCacheTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private DigestCache cache = new DigestCache(2);
+
+	@Test
+	public void shouldNeedPositiveMaxSize() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("MaxSize must be positive");
+		new DigestCache(0);
+	}
+
+	@Test
+	public void shouldCalculateAndCacheDigest() throws Exception {
+		java.io.File file = write("a.txt", "abc");
+		ContentDigest digest = this.cache.get(file);
+		assertThat(digest, is(md5("abc")));
+		assertThat(this.cache.size(), is(1));
+		assertThat(this.cache.get(file), is(digest));
+	}
+
+	@Test
+	public void shouldRecalculateWhenFileChanges() throws Exception {
+		java.io.File file = write("a.txt", "abc");
+		this.cache.get(file);
+		write("a.txt", "abcd");
+		assertThat(this.cache.get(file), is(md5("abcd")));
+		FileCopyUtils.copy("wxyz".getBytes(), file);
+		file.setLastModified(10000);
+		assertThat(this.cache.get(file), is(md5("wxyz")));
+	}
+
+	@Test
+	public void shouldInvalidate() throws Exception {
+		java.io.File file = write("a.txt", "abc");
+		this.cache.get(file);
+		this.cache.invalidate(file);
+		assertThat(this.cache.size(), is(0));
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsed() throws Exception {
+		java.io.File a = write("a.txt", "a");
+		java.io.File b = write("b.txt", "b");
+		java.io.File c = write("c.txt", "c");
+		this.cache.get(a);
+		this.cache.get(b);
+		this.cache.get(a);
+		this.cache.get(c);
+		assertThat(this.cache.size(), is(2));
+		this.cache.clear();
+		assertThat(this.cache.size(), is(0));
+	}
+
+	@Test
+	public void shouldGetDigestFromLocalFile() throws Exception {
+		LocalFolder folder = new LocalFolder(this.temp.getRoot());
+		folder.getFile("a.txt").getContent().write("abc");
+		assertThat(folder.getFile("a.txt").getDigest(), is(md5("abc")));
+		folder.getFile("a.txt").getContent().write("xyz");
+		assertThat(folder.getFile("a.txt").getDigest(), is(not(md5("abc"))));
+	}
+
+	private java.io.File write(String name, String content) throws Exception {
+		java.io.File file = new java.io.File(this.temp.getRoot(), name);
+		FileCopyUtils.copy(new ByteArrayInputStream(content.getBytes()), new FileOutputStream(file));
+		return file;
+	}
+
+	private ContentDigest md5(String content) {
+		return ContentDigest.calculate(new ByteArrayInputStream(content.getBytes()));
+	}
+}
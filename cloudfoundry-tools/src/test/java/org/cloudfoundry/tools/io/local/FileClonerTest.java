@@ -0,0 +1,43 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link FileCloner}.
+ * 
+ * @author Phillip Webb
+ */
+public class FileClonerTest {
+
+	@Test
+	public void shouldDetectUnsupportedReflink() throws Exception {
+		assertThat(FileCloner.isUnsupported("cp: failed to clone 'b' from 'a': Operation not supported"), is(true));
+		assertThat(FileCloner.isUnsupported("cp: failed to clone 'b' from 'a': Inappropriate ioctl for device"),
+				is(true));
+		assertThat(FileCloner.isUnsupported("cp: unrecognized option '--reflink=always'"), is(true));
+	}
+
+	@Test
+	public void shouldNotDetectOtherFailuresAsUnsupported() throws Exception {
+		assertThat(FileCloner.isUnsupported("cp: cannot create regular file 'b': Permission denied"), is(false));
+		assertThat(FileCloner.isUnsupported("cp: error writing 'b': No space left on device"), is(false));
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.cloudfoundry.tools.io.store.ResourceAttributes;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ListingCache}.
+ * 
+ * @author Phillip Webb
+ */
+public class ListingCacheTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private ListingCache cache = new ListingCache(2);
+
+	@Test
+	public void shouldNeedPositiveMaxSize() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("MaxSize must be positive");
+		new ListingCache(0);
+	}
+
+	@Test
+	public void shouldListNamesAndTypes() throws Exception {
+		java.io.File folder = this.temp.newFolder("a");
+		new java.io.File(folder, "b.txt").createNewFile();
+		new java.io.File(folder, "c").mkdir();
+		List<ResourceAttributes> listing = this.cache.list(age(folder));
+		assertThat(listing.size(), is(2));
+		for (ResourceAttributes attributes : listing) {
+			assertThat(attributes.isTypeOnly(), is(true));
+			assertThat(attributes.isFolder(), is(attributes.getName().equals("c")));
+		}
+	}
+
+	@Test
+	public void shouldCacheListing() throws Exception {
+		Path folder = age(this.temp.newFolder("a"));
+		List<ResourceAttributes> listing = this.cache.list(folder);
+		assertThat(this.cache.size(), is(1));
+		assertThat(this.cache.list(folder), is(sameInstance(listing)));
+	}
+
+	@Test
+	public void shouldRereadWhenFolderChanges() throws Exception {
+		java.io.File folder = this.temp.newFolder("a");
+		List<ResourceAttributes> listing = this.cache.list(age(folder));
+		new java.io.File(folder, "b.txt").createNewFile();
+		List<ResourceAttributes> changed = this.cache.list(folder.toPath());
+		assertThat(changed, is(not(sameInstance(listing))));
+		assertThat(getNames(changed), is(setOf("b.txt")));
+	}
+
+	@Test
+	public void shouldNotCacheRecentlyModifiedFolder() throws Exception {
+		Path folder = this.temp.newFolder("a").toPath();
+		this.cache.list(folder);
+		assertThat(this.cache.size(), is(0));
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsed() throws Exception {
+		Path a = age(this.temp.newFolder("a"));
+		Path b = age(this.temp.newFolder("b"));
+		Path c = age(this.temp.newFolder("c"));
+		List<ResourceAttributes> listing = this.cache.list(a);
+		this.cache.list(b);
+		this.cache.list(a);
+		this.cache.list(c);
+		assertThat(this.cache.size(), is(2));
+		assertThat(this.cache.list(a), is(sameInstance(listing)));
+	}
+
+	@Test
+	public void shouldInvalidate() throws Exception {
+		java.io.File folder = this.temp.newFolder("a");
+		this.cache.list(age(folder));
+		this.cache.invalidate(folder);
+		assertThat(this.cache.size(), is(0));
+	}
+
+	@Test
+	public void shouldClear() throws Exception {
+		this.cache.list(age(this.temp.newFolder("a")));
+		this.cache.list(age(this.temp.newFolder("b")));
+		this.cache.clear();
+		assertThat(this.cache.size(), is(0));
+	}
+
+	private Path age(java.io.File folder) throws Exception {
+		Path path = folder.toPath();
+		Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+		return path;
+	}
+
+	private Set<String> getNames(List<ResourceAttributes> listing) {
+		Set<String> names = new HashSet<String>();
+		for (ResourceAttributes attributes : listing) {
+			names.add(attributes.getName());
+		}
+		return names;
+	}
+
+	private Set<String> setOf(String... names) {
+		Set<String> set = new HashSet<String>();
+		for (String name : names) {
+			set.add(name);
+		}
+		return set;
+	}
+}
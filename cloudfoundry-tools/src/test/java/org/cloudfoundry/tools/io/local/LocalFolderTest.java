@@ -20,20 +20,36 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import org.cloudfoundry.tools.io.File;
 import org.cloudfoundry.tools.io.FilterOn;
 import org.cloudfoundry.tools.io.Folder;
+import org.cloudfoundry.tools.io.PruningResourceWalker;
 import org.cloudfoundry.tools.io.Resource;
+import org.cloudfoundry.tools.io.ResourceFilterContext;
+import org.cloudfoundry.tools.io.ResourceWalker;
 import org.cloudfoundry.tools.io.Resources;
 import org.cloudfoundry.tools.io.exception.ResourceException;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.springframework.util.FileCopyUtils;
 
 /**
  * Tests for {@link LocalFolder}.
@@ -42,6 +58,9 @@ import org.junit.rules.TemporaryFolder;
  */
 public class LocalFolderTest {
 
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
 	@Rule
 	public TemporaryFolder temp = new TemporaryFolder();
 
@@ -102,6 +121,62 @@ public class LocalFolderTest {
 		assertThat(all1.size(), is(all2.size()));
 	}
 
+	@Test
+	public void shouldFindPruningSubtrees() throws Exception {
+		ResourceWalker walker = new PruningResourceWalker().prune(FilterOn.names().matching("a"));
+		Set<String> actual = getNames(this.root.find(walker));
+		Set<String> expected = new HashSet<String>();
+		expected.add("/d/");
+		expected.add("/d/e/");
+		expected.add("/d/e/f.txt");
+		expected.add("/g.txt");
+		assertThat(actual, is(expected));
+	}
+
+	@Test
+	public void shouldFindToMaxDepth() throws Exception {
+		ResourceWalker walker = new PruningResourceWalker().maxDepth(2);
+		Set<String> actual = getNames(this.root.find(walker));
+		Set<String> expected = new HashSet<String>();
+		expected.add("/a/");
+		expected.add("/a/b/");
+		expected.add("/d/");
+		expected.add("/d/e/");
+		expected.add("/g.txt");
+		assertThat(actual, is(expected));
+	}
+
+	@Test
+	public void shouldFindUntilTerminated() throws Exception {
+		final List<Resource> visited = new ArrayList<Resource>();
+		List<Resource> found = this.root.find(new ResourceWalker() {
+
+			@Override
+			public Result visit(ResourceFilterContext context, Resource resource, int depth) {
+				visited.add(resource);
+				return (resource.getName().equals("b") ? Result.TERMINATE : Result.CONTINUE);
+			}
+		}).asList();
+		assertThat(found.size(), is(visited.size() - 1));
+		assertThat(visited.get(visited.size() - 1).toString(), is("/a/b/"));
+	}
+
+	@Test
+	public void shouldFindExcludingWithoutPruning() throws Exception {
+		List<Resource> found = this.root.find(new ResourceWalker() {
+
+			@Override
+			public Result visit(ResourceFilterContext context, Resource resource, int depth) {
+				return (resource instanceof Folder ? Result.EXCLUDE : Result.CONTINUE);
+			}
+		}).asList();
+		Set<String> expected = new HashSet<String>();
+		expected.add("/a/b/c.txt");
+		expected.add("/d/e/f.txt");
+		expected.add("/g.txt");
+		assertThat(getNames(found), is(expected));
+	}
+
 	@Test
 	public void shouldCopy() throws Exception {
 		Folder destination = new LocalFolder(this.dest.getRoot());
@@ -115,6 +190,215 @@ public class LocalFolderTest {
 		assertThat(actual, is(expected));
 	}
 
+	@Test
+	public void shouldCopyFolderToLocalFolder() throws Exception {
+		createTree(this.root.getFolder("tree"), 3, 100);
+		LocalFolder destination = new LocalFolder(this.dest.getRoot());
+		Folder copied = this.root.getFolder("tree").copyTo(destination);
+		assertThat(copied.toString(), is("/tree/"));
+		assertThat(getNames(copied.find()), is(getNames(this.root.getFolder("tree").find())));
+		assertThat(destination.getFile("tree/f2/f1/file99.txt").getContent().asString(), is("99"));
+	}
+
+	@Test
+	public void shouldCopyContentsToLocalFolderReplacingExisting() throws Exception {
+		LocalFolder destination = new LocalFolder(this.dest.getRoot());
+		destination.getFile("g.txt").getContent().write("old");
+		Resources<Resource> copied = this.root.copyContentsTo(destination);
+		Set<String> expected = new HashSet<String>();
+		expected.add("/a/");
+		expected.add("/d/");
+		expected.add("/g.txt");
+		assertThat(getNames(copied), is(expected));
+		assertThat(destination.getFile("g.txt").getContent().asString(), is("g"));
+		assertThat(destination.getFile("a/b/c.txt").getContent().asString(), is("c"));
+	}
+
+	@Test
+	public void shouldFailToCopyFileOverFolder() throws Exception {
+		LocalFolder destination = new LocalFolder(this.dest.getRoot());
+		destination.getFile("a/b/c.txt/x.txt").getContent().write("x");
+		this.thrown.expect(ResourceException.class);
+		this.root.getFolder("a").copyTo(destination);
+	}
+
+	@Test
+	public void shouldDeleteTree() throws Exception {
+		createTree(this.root.getFolder("tree"), 3, 100);
+		this.root.getFolder("tree").delete();
+		assertThat(this.root.getFolder("tree").exists(), is(false));
+		assertThat(this.root.getFile("g.txt").exists(), is(true));
+	}
+
+	@Test
+	public void shouldNotFollowLinksWhenDeleting() throws Exception {
+		java.io.File link = new java.io.File(this.temp.getRoot(), "x/link");
+		link.getParentFile().mkdirs();
+		Files.createSymbolicLink(link.toPath(), new java.io.File(this.temp.getRoot(), "a").toPath());
+		this.root.getFolder("x").delete();
+		assertThat(this.root.getFolder("x").exists(), is(false));
+		assertThat(this.root.getFile("a/b/c.txt").exists(), is(true));
+	}
+
+	@Test
+	public void shouldCopyContentsWithBrokenLink() throws Exception {
+		java.io.File link = new java.io.File(this.temp.getRoot(), "a/broken");
+		Files.createSymbolicLink(link.toPath(), new java.io.File(this.temp.getRoot(), "missing").toPath());
+		LocalFolder destination = new LocalFolder(this.dest.getRoot());
+		Resources<Resource> copied = this.root.getFolder("a").copyContentsTo(destination);
+		assertThat(copied.asList().size(), is(1));
+		assertThat(destination.getFile("b/c.txt").getContent().asString(), is("c"));
+		assertThat(destination.hasExisting("broken"), is(false));
+	}
+
+	@Test
+	public void shouldHardLinkImmutableFilesInCloneMode() throws Exception {
+		java.io.File source = new java.io.File(this.temp.getRoot(), "g.txt");
+		Files.setPosixFilePermissions(source.toPath(), PosixFilePermissions.fromString("r--r--r--"));
+		LocalFolder destination = new LocalFolder(this.dest.getRoot(), LocalCopyMode.CLONE);
+		File copied = this.root.getFile("g.txt").copyTo(destination);
+		assertThat(copied.getContent().asString(), is("g"));
+		assertThat(getInode(copied), is(getInode(this.root.getFile("g.txt"))));
+		copied.getContent().write("changed");
+		assertThat(copied.getContent().asString(), is("changed"));
+		assertThat(this.root.getFile("g.txt").getContent().asString(), is("g"));
+	}
+
+	@Test
+	public void shouldNotHardLinkWritableFilesInCloneMode() throws Exception {
+		LocalFolder destination = new LocalFolder(this.dest.getRoot(), LocalCopyMode.CLONE);
+		File copied = this.root.getFile("g.txt").copyTo(destination);
+		assertThat(copied.getContent().asString(), is("g"));
+		assertThat(getInode(copied), is(not(getInode(this.root.getFile("g.txt")))));
+	}
+
+	@Test
+	public void shouldNotHardLinkByDefault() throws Exception {
+		java.io.File source = new java.io.File(this.temp.getRoot(), "g.txt");
+		Files.setPosixFilePermissions(source.toPath(), PosixFilePermissions.fromString("r--r--r--"));
+		LocalFolder destination = new LocalFolder(this.dest.getRoot());
+		assertThat(destination.getCopyMode(), is(LocalCopyMode.COPY));
+		File copied = this.root.getFile("g.txt").copyTo(destination);
+		assertThat(getInode(copied), is(not(getInode(this.root.getFile("g.txt")))));
+	}
+
+	@Test
+	public void shouldCloneFolderInCloneMode() throws Exception {
+		java.io.File source = new java.io.File(this.temp.getRoot(), "a/b/c.txt");
+		Files.setPosixFilePermissions(source.toPath(), PosixFilePermissions.fromString("r--r--r--"));
+		LocalFolder destination = new LocalFolder(this.dest.getRoot(), LocalCopyMode.CLONE);
+		Folder copied = this.root.getFolder("a").copyTo(destination);
+		File file = copied.getFile("b/c.txt");
+		assertThat(file.getContent().asString(), is("c"));
+		assertThat(getInode(file), is(getInode(this.root.getFile("a/b/c.txt"))));
+	}
+
+	@Test
+	public void shouldTouchHardLinkedCloneWithoutChangingSource() throws Exception {
+		java.io.File source = new java.io.File(this.temp.getRoot(), "g.txt");
+		source.setLastModified(1000L);
+		Files.setPosixFilePermissions(source.toPath(), PosixFilePermissions.fromString("r--r--r--"));
+		LocalFolder destination = new LocalFolder(this.dest.getRoot(), LocalCopyMode.CLONE);
+		File copied = this.root.getFile("g.txt").copyTo(destination);
+		copied.touch();
+		assertThat(source.lastModified(), is(1000L));
+		assertThat(copied.getLastModified(), is(not(1000L)));
+		assertThat(copied.getContent().asString(), is("g"));
+		assertThat(getInode(copied), is(not(getInode(this.root.getFile("g.txt")))));
+	}
+
+	@Test
+	public void shouldNotUnlinkHardLinksInCopyMode() throws Exception {
+		java.io.File source = new java.io.File(this.temp.getRoot(), "g.txt");
+		Files.createLink(new java.io.File(this.temp.getRoot(), "link.txt").toPath(), source.toPath());
+		Files.setPosixFilePermissions(source.toPath(), PosixFilePermissions.fromString("r--r--r--"));
+		try {
+			this.root.getFile("g.txt").getContent().write("changed");
+		} catch (ResourceException e) {
+			// Expected unless running with elevated permissions
+		}
+		assertThat(getInode(this.root.getFile("g.txt")), is(getInode(this.root.getFile("link.txt"))));
+	}
+
+	private Object getInode(File file) throws Exception {
+		return Files.getAttribute(((LocalFile) file).getLocalFile().toPath(), "unix:ino");
+	}
+
+	private void createTree(Folder folder, int depth, int files) {
+		for (int i = 0; i < files; i++) {
+			folder.getFile("file" + i + ".txt").getContent().write(String.valueOf(i));
+		}
+		if (depth > 1) {
+			createTree(folder.getFolder("f" + (depth - 1)), depth - 1, files);
+			createTree(folder.getFolder("g" + (depth - 1)), depth - 1, files);
+		}
+	}
+
+	@Test
+	public void shouldListUsingListingCache() throws Exception {
+		ListingCache listingCache = new ListingCache();
+		this.root.setListingCache(listingCache);
+		java.io.File underlying = new java.io.File(this.temp.getRoot(), "a/b");
+		Files.setLastModifiedTime(underlying.toPath(), FileTime.fromMillis(System.currentTimeMillis() - 60000));
+		Folder folder = this.root.getFolder("a/b");
+		assertThat(folder.list().files().iterator().next().getSize(), is(1L));
+		assertThat(listingCache.size(), is(1));
+		FileCopyUtils.copy("changed".getBytes(), new java.io.File(underlying, "c.txt"));
+		assertThat(folder.list().files().iterator().next().getSize(), is(7L));
+		this.root.getFile("a/b/d.txt").getContent().write("d");
+		assertThat(folder.list().files().asList().size(), is(2));
+	}
+
+	@Test
+	public void shouldMoveFileByRenaming() throws Exception {
+		File file = this.root.getFile("/a/b/c.txt");
+		java.io.File underlying = new java.io.File(this.temp.getRoot(), "a/b/c.txt");
+		underlying.setLastModified(1000L);
+		File moved = file.moveTo(this.root.getFolder("x/y"));
+		assertThat(file.exists(), is(false));
+		assertThat(moved.toString(), is("/x/y/c.txt"));
+		assertThat(moved.getContent().asString(), is("c"));
+		assertThat(moved.getLastModified(), is(1000L));
+	}
+
+	@Test
+	public void shouldMoveFileReplacingExisting() throws Exception {
+		this.root.getFile("/x/c.txt").getContent().write("x");
+		this.root.getFile("/a/b/c.txt").moveTo(this.root.getFolder("x"));
+		assertThat(this.root.getFile("/x/c.txt").getContent().asString(), is("c"));
+		assertThat(this.root.getFile("/a/b/c.txt").exists(), is(false));
+	}
+
+	@Test
+	public void shouldCopyContentUsingChannels() throws Exception {
+		byte[] bytes = new byte[256 * 1024];
+		new Random().nextBytes(bytes);
+		File source = this.root.getFile("large.bin");
+		source.getContent().write(new ByteArrayInputStream(bytes));
+		File destination = new LocalFolder(this.dest.getRoot()).getFile("x/large.bin");
+		destination.getContent().write(source);
+		assertThat(destination.getContent().asBytes(), is(bytes));
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		source.getContent().copyTo(Channels.newChannel(outputStream));
+		assertThat(outputStream.toByteArray(), is(bytes));
+		java.io.File copy = new java.io.File(this.dest.getRoot(), "copy.bin");
+		source.getContent().copyTo(new FileOutputStream(copy));
+		assertThat(copy.length(), is((long) bytes.length));
+	}
+
+	@Test
+	public void shouldReadFromPosition() throws Exception {
+		File file = this.root.getFile("range.txt");
+		file.getContent().write("abcdef");
+		assertThat(FileCopyUtils.copyToString(new InputStreamReader(file.getContent().asInputStream(1, 3))),
+				is("bcd"));
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		assertThat(file.getContent().read(3, buffer), is(3));
+		assertThat(new String(buffer.array(), 0, buffer.position()), is("def"));
+		buffer.clear();
+		assertThat(file.getContent().read(6, buffer), is(-1));
+	}
+
 	private Set<String> getNames(Iterable<? extends Resource> resources) {
 		Set<String> allNames = new HashSet<String>();
 		for (Resource resource : resources) {
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudfoundry.tools.io.ResourcePath;
+import org.cloudfoundry.tools.io.local.ResourceChange.Type;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link LocalFolderWatcher}.
+ * 
+ * @author Phillip Webb
+ */
+public class LocalFolderWatcherTest {
+
+	private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private LocalFolder folder;
+
+	private MockListener listener = new MockListener();
+
+	private LocalFolderWatcher watcher;
+
+	@Before
+	public void setup() {
+		this.folder = new LocalFolder(this.temp.getRoot());
+		this.folder.getFile("a/b.txt").getContent().write("b");
+	}
+
+	@After
+	public void cleanup() {
+		if (this.watcher != null) {
+			this.watcher.stop();
+		}
+	}
+
+	@Test
+	public void shouldNeedListener() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("Listener must not be null");
+		new LocalFolderWatcher(this.folder, null);
+	}
+
+	@Test
+	public void shouldNotifyChanges() throws Exception {
+		this.watcher = this.folder.watch(this.listener);
+		assertThat(this.watcher.isPolling(), is(false));
+		this.folder.getFile("c.txt").getContent().write("c");
+		this.listener.waitFor(change("/c.txt", Type.CREATED));
+		this.folder.getFile("a/b.txt").getContent().write("bb");
+		this.listener.waitFor(change("/a/b.txt", Type.MODIFIED));
+		this.folder.getFile("a/b.txt").delete();
+		this.listener.waitFor(change("/a/b.txt", Type.DELETED));
+	}
+
+	@Test
+	public void shouldNotifyChangesInNewFolders() throws Exception {
+		this.watcher = this.folder.watch(this.listener);
+		this.folder.getFile("x/y.txt").getContent().write("y");
+		this.listener.waitFor(change("/x", Type.CREATED));
+		this.listener.waitFor(change("/x/y.txt", Type.CREATED));
+		this.folder.getFile("x/z.txt").getContent().write("z");
+		this.listener.waitFor(change("/x/z.txt", Type.CREATED));
+	}
+
+	@Test
+	public void shouldCoalesceChanges() throws Exception {
+		this.watcher = new LocalFolderWatcher(this.folder, this.listener);
+		this.watcher.setCoalesceDelay(500);
+		this.watcher.start();
+		for (int i = 0; i < 20; i++) {
+			this.folder.getFile("c.txt").getContent().write("c" + i);
+		}
+		this.folder.getFile("d.txt").getContent().write("d");
+		this.folder.getFile("d.txt").delete();
+		this.listener.waitFor(change("/c.txt", Type.CREATED));
+		List<ResourceChange> changes = this.listener.getChanges();
+		assertThat(changes.size(), is(1));
+	}
+
+	@Test
+	public void shouldNotifyContinuousChanges() throws Exception {
+		this.watcher = new LocalFolderWatcher(this.folder, this.listener);
+		this.watcher.setCoalesceDelay(500);
+		this.watcher.setMaxCoalesceTime(200);
+		this.watcher.start();
+		long end = System.currentTimeMillis() + TIMEOUT;
+		for (int i = 0; this.listener.getChanges().isEmpty(); i++) {
+			assertThat("Timeout waiting for changes", System.currentTimeMillis() < end, is(true));
+			this.folder.getFile("c.txt").getContent().write("c" + i);
+			Thread.sleep(20);
+		}
+	}
+
+	@Test
+	public void shouldNeedPositiveMaxChanges() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("MaxChanges must be positive");
+		new LocalFolderWatcher(this.folder, this.listener).setMaxChanges(0);
+	}
+
+	@Test
+	public void shouldPoll() throws Exception {
+		this.watcher = new LocalFolderWatcher(this.folder, this.listener);
+		this.watcher.setPollingOnly(true);
+		this.watcher.setPollInterval(50);
+		this.watcher.start();
+		assertThat(this.watcher.isPolling(), is(true));
+		this.folder.getFile("c.txt").getContent().write("c");
+		this.listener.waitFor(change("/c.txt", Type.CREATED));
+		this.folder.getFile("a/b.txt").getContent().write("bbb");
+		this.listener.waitFor(change("/a/b.txt", Type.MODIFIED));
+		this.folder.getFolder("a").delete();
+		this.listener.waitFor(change("/a/b.txt", Type.DELETED));
+		this.listener.waitFor(change("/a", Type.DELETED));
+	}
+
+	@Test
+	public void shouldStop() throws Exception {
+		this.watcher = this.folder.watch(this.listener);
+		this.watcher.stop();
+		this.folder.getFile("c.txt").getContent().write("c");
+		Thread.sleep(200);
+		assertThat(this.listener.getChanges().size(), is(0));
+	}
+
+	private ResourceChange change(String path, Type type) {
+		return new ResourceChange(new ResourcePath().get(path), type);
+	}
+
+	private static class MockListener implements ResourceChangeListener {
+
+		private final List<ResourceChange> changes = new ArrayList<ResourceChange>();
+
+		@Override
+		public synchronized void resourcesChanged(List<ResourceChange> changes) {
+			this.changes.addAll(changes);
+			notifyAll();
+		}
+
+		public synchronized List<ResourceChange> getChanges() {
+			return new ArrayList<ResourceChange>(this.changes);
+		}
+
+		public synchronized void waitFor(ResourceChange change) throws InterruptedException {
+			long end = System.currentTimeMillis() + TIMEOUT;
+			while (!this.changes.contains(change)) {
+				long remaining = end - System.currentTimeMillis();
+				if (remaining <= 0) {
+					Set<ResourceChange> actual = new HashSet<ResourceChange>(this.changes);
+					throw new AssertionError("Expected " + change + " but got " + actual);
+				}
+				wait(remaining);
+			}
+		}
+	}
+}
@@ -25,19 +25,29 @@ import static org.junit.Assert.assertThat;
 import java.io.FileInputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import org.cloudfoundry.tools.io.File;
 import org.cloudfoundry.tools.io.Folder;
 import org.cloudfoundry.tools.io.JailedResourcePath;
+import org.cloudfoundry.tools.io.NameRestriction;
 import org.cloudfoundry.tools.io.Resource;
 import org.cloudfoundry.tools.io.ResourcePath;
 import org.cloudfoundry.tools.io.exception.ResourceTypeMismatchException;
 import org.cloudfoundry.tools.io.local.LocalResourceStore.LocalFileStore;
 import org.cloudfoundry.tools.io.local.LocalResourceStore.LocalFolderStore;
+import org.cloudfoundry.tools.io.store.ResourceAttributes;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -193,6 +203,18 @@ public class LocalResourceStoreTest {
 		assertThat(actual, is("g"));
 	}
 
+	@Test
+	public void shouldGetInputStreamRange() throws Exception {
+		new LocalFolder(this.temp.getRoot()).getFile("/h.txt").getContent().write("abcdef");
+		LocalFileStore store = new LocalFileStore(this.temp.getRoot(), new JailedResourcePath().get("h.txt"));
+		String actual = FileCopyUtils.copyToString(new InputStreamReader(store.getInputStream(2, 3)));
+		assertThat(actual, is("cde"));
+		actual = FileCopyUtils.copyToString(new InputStreamReader(store.getInputStream(4, 100)));
+		assertThat(actual, is("ef"));
+		actual = FileCopyUtils.copyToString(new InputStreamReader(store.getInputStream(100, 1)));
+		assertThat(actual, is(""));
+	}
+
 	@Test
 	public void shouldGetOutputStream() throws Exception {
 		LocalFileStore store = new LocalFileStore(this.temp.getRoot(), new JailedResourcePath().get("g.txt"));
@@ -208,6 +230,35 @@ public class LocalResourceStoreTest {
 
 	}
 
+	@Test
+	public void shouldGetReadableChannel() throws Exception {
+		LocalFileStore store = new LocalFileStore(this.temp.getRoot(), new JailedResourcePath().get("g.txt"));
+		ReadableByteChannel channel = store.getReadableChannel();
+		try {
+			assertThat(channel, is(FileChannel.class));
+			ByteBuffer buffer = ByteBuffer.allocate(10);
+			channel.read(buffer);
+			assertThat(new String(buffer.array(), 0, buffer.position()), is("g"));
+		} finally {
+			channel.close();
+		}
+	}
+
+	@Test
+	public void shouldGetWritableChannel() throws Exception {
+		LocalFileStore store = new LocalFileStore(this.temp.getRoot(), new JailedResourcePath().get("g.txt"));
+		WritableByteChannel channel = store.getWritableChannel();
+		try {
+			assertThat(channel, is(FileChannel.class));
+			channel.write(ByteBuffer.wrap("x".getBytes()));
+		} finally {
+			channel.close();
+		}
+		String actual = FileCopyUtils.copyToString(new InputStreamReader(new FileInputStream(new java.io.File(this.temp
+				.getRoot(), "g.txt"))));
+		assertThat(actual, is("x"));
+	}
+
 	@Test
 	public void shouldGetSize() throws Exception {
 		LocalFileStore store = new LocalFileStore(this.temp.getRoot(), new JailedResourcePath().get("g.txt"));
@@ -248,4 +299,81 @@ public class LocalResourceStoreTest {
 		}
 		assertThat(actual, is(equalTo(expected)));
 	}
+
+	@Test
+	public void shouldListWithRestriction() throws Exception {
+		Set<String> actual = new HashSet<String>();
+		for (String name : this.store.list(new NameRestriction(NameRestriction.Type.SUFFIX, false, ".txt"))) {
+			actual.add(name);
+		}
+		assertThat(actual, is(equalTo(Collections.singleton("g.txt"))));
+	}
+
+	@Test
+	public void shouldListAttributes() throws Exception {
+		Map<String, ResourceAttributes> actual = new HashMap<String, ResourceAttributes>();
+		for (ResourceAttributes attributes : this.store.listAttributes(null)) {
+			actual.put(attributes.getName(), attributes);
+		}
+		assertThat(actual.keySet(), is(equalTo((Set<String>) new HashSet<String>(Arrays.asList("a", "d", "g.txt")))));
+		assertThat(actual.get("a").isFolder(), is(true));
+		assertThat(actual.get("g.txt").isFolder(), is(false));
+		assertThat(actual.get("g.txt").getSize(), is(1L));
+		java.io.File file = new java.io.File(this.temp.getRoot(), "g.txt");
+		assertThat(actual.get("g.txt").getLastModified(), is(file.lastModified()));
+	}
+
+	@Test
+	public void shouldNotUseListedAttributesAfterWrite() throws Exception {
+		JailedResourcePath path = new JailedResourcePath().get("g.txt");
+		File file = (File) this.store.getExisting(path, new ResourceAttributes("g.txt", false, 100L, 200L, null));
+		assertThat(file.getSize(), is(100L));
+		file.getContent().write("abc");
+		assertThat(file.getSize(), is(3L));
+	}
+
+	@Test
+	public void shouldNotUseListedAttributesOnceExpired() throws Exception {
+		JailedResourcePath path = new JailedResourcePath().get("g.txt");
+		File file = (File) this.store.getExisting(path, new ResourceAttributes("g.txt", false, 100L, 200L, null));
+		assertThat(file.getSize(), is(100L));
+		Thread.sleep(ResourceAttributes.TIME_TO_LIVE + 100);
+		assertThat(file.getSize(), is(1L));
+		assertThat(file.getLastModified(), is(new java.io.File(this.temp.getRoot(), "g.txt").lastModified()));
+	}
+
+	@Test
+	public void shouldSkipBrokenLinksWhenListingAttributes() throws Exception {
+		java.io.File link = new java.io.File(this.temp.getRoot(), "broken");
+		Files.createSymbolicLink(link.toPath(), new java.io.File(this.temp.getRoot(), "missing").toPath());
+		Set<String> actual = new HashSet<String>();
+		for (ResourceAttributes attributes : this.store.listAttributes(null)) {
+			actual.add(attributes.getName());
+		}
+		assertThat(actual, is(equalTo((Set<String>) new HashSet<String>(Arrays.asList("a", "d", "g.txt")))));
+		assertThat(this.store.getExisting(new JailedResourcePath().get("broken")), is(nullValue()));
+	}
+
+	@Test
+	public void shouldSkipBrokenLinksWhenListing() throws Exception {
+		java.io.File link = new java.io.File(this.temp.getRoot(), "broken");
+		Files.createSymbolicLink(link.toPath(), new java.io.File(this.temp.getRoot(), "missing").toPath());
+		Set<String> actual = new HashSet<String>();
+		for (String name : this.store.list()) {
+			actual.add(name);
+		}
+		assertThat(actual, is(equalTo((Set<String>) new HashSet<String>(Arrays.asList("a", "d", "g.txt")))));
+		NameRestriction restriction = new NameRestriction(NameRestriction.Type.PREFIX, false, "b");
+		assertThat(this.store.list(restriction).iterator().hasNext(), is(false));
+	}
+
+	@Test
+	public void shouldGetAttributesOfExistingFile() throws Exception {
+		File file = (File) this.store.getExisting(new JailedResourcePath().get("a/b/c.txt"));
+		java.io.File localFile = new java.io.File(this.temp.getRoot(), "a/b/c.txt");
+		assertThat(file.getSize(), is(1L));
+		assertThat(file.getLastModified(), is(localFile.lastModified()));
+		file.getContent().write("abc");
+		assertThat(file.getSize(), is(3L));
+	}
 }
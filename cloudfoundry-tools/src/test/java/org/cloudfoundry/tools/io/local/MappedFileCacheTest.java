@@ -0,0 +1,205 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.local;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+
+import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.local.MappedFileCache.MappedContent;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link MappedFileCache}.
+ * 
+ * @author Phillip Webb
+ */
+public class MappedFileCacheTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private MappedFileCache cache = new MappedFileCache(4, 2);
+
+	private LocalFolder folder;
+
+	@Before
+	public void setup() {
+		this.folder = new LocalFolder(this.temp.getRoot());
+		this.folder.getFile("a.txt").getContent().write("abcdef");
+		this.folder.getFile("b.txt").getContent().write("bcdefg");
+		this.folder.getFile("c.txt").getContent().write("cdefgh");
+		this.folder.getFile("small.txt").getContent().write("abc");
+	}
+
+	@Test
+	public void shouldNeedPositiveMaxSize() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("MaxSize must be positive");
+		new MappedFileCache(0, 0);
+	}
+
+	@Test
+	public void shouldMapFile() throws Exception {
+		MappedContent content = this.cache.acquire(getLocalFile("a.txt"));
+		ByteBuffer buffer = content.getBuffer();
+		assertThat(buffer.isReadOnly(), is(true));
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		assertThat(new String(bytes), is("abcdef"));
+		content.release();
+	}
+
+	@Test
+	public void shouldNotMapBelowThreshold() throws Exception {
+		assertThat(this.cache.acquire(getLocalFile("small.txt")), is(nullValue()));
+		assertThat(this.cache.acquire(getLocalFile("missing.txt")), is(nullValue()));
+		this.cache.setThreshold(Long.MAX_VALUE);
+		assertThat(this.cache.acquire(getLocalFile("a.txt")), is(nullValue()));
+	}
+
+	@Test
+	public void shouldShareMappings() throws Exception {
+		MappedContent content1 = this.cache.acquire(getLocalFile("a.txt"));
+		MappedContent content2 = this.cache.acquire(getLocalFile("a.txt"));
+		assertThat(this.cache.size(), is(1));
+		content1.release();
+		content1.release();
+		assertThat(content2.getBuffer().get(0), is((byte) 'a'));
+		content2.release();
+	}
+
+	@Test
+	public void shouldRemapWhenFileChanges() throws Exception {
+		MappedContent content = this.cache.acquire(getLocalFile("a.txt"));
+		content.release();
+		java.io.File file = getLocalFile("a.txt");
+		this.folder.getFile("a.txt").getContent().write("xyzxyzxyz");
+		file.setLastModified(file.lastModified() + 2000);
+		content = this.cache.acquire(file);
+		assertThat(content.getBuffer().remaining(), is(9));
+		assertThat(content.getBuffer().get(0), is((byte) 'x'));
+		content.release();
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsed() throws Exception {
+		this.cache.acquire(getLocalFile("a.txt")).release();
+		this.cache.acquire(getLocalFile("b.txt")).release();
+		this.cache.acquire(getLocalFile("c.txt")).release();
+		assertThat(this.cache.size(), is(2));
+		this.cache.invalidate(getLocalFile("c.txt"));
+		assertThat(this.cache.size(), is(1));
+		this.cache.clear();
+		assertThat(this.cache.size(), is(0));
+	}
+
+	@Test
+	public void shouldKeepAcquiredContentReadableUntilReleased() throws Exception {
+		MappedContent content = this.cache.acquire(getLocalFile("a.txt"));
+		this.cache.clear();
+		assertThat(this.cache.size(), is(0));
+		assertThat(content.getBuffer().get(3), is((byte) 'd'));
+		content.release();
+	}
+
+	@Test
+	public void shouldNotUseReleasedContent() throws Exception {
+		MappedContent content = this.cache.acquire(getLocalFile("a.txt"));
+		content.release();
+		this.thrown.expect(IllegalStateException.class);
+		this.thrown.expectMessage("Content has been released");
+		content.getBuffer();
+	}
+
+	@Test
+	public void shouldReadUsingMappedInputStream() throws Exception {
+		InputStream inputStream = new MappedInputStream(this.cache.acquire(getLocalFile("a.txt")));
+		assertThat(inputStream.read(), is((int) 'a'));
+		assertThat(inputStream.skip(2), is(2L));
+		assertThat(inputStream.available(), is(3));
+		assertThat(FileCopyUtils.copyToString(new InputStreamReader(inputStream)), is("def"));
+	}
+
+	@Test
+	public void shouldReadRangeUsingMappedInputStream() throws Exception {
+		InputStream inputStream = new MappedInputStream(this.cache.acquire(getLocalFile("a.txt")), 2, 3);
+		assertThat(FileCopyUtils.copyToString(new InputStreamReader(inputStream)), is("cde"));
+		inputStream = new MappedInputStream(this.cache.acquire(getLocalFile("a.txt")), 4, 100);
+		assertThat(FileCopyUtils.copyToString(new InputStreamReader(inputStream)), is("ef"));
+	}
+
+	@Test
+	public void shouldReadRangeFromMappedLocalFile() throws Exception {
+		MappedFileCache.getInstance().setThreshold(4);
+		try {
+			File file = this.folder.getFile("a.txt");
+			InputStream inputStream = file.getContent().asInputStream(1, 2);
+			assertThat(inputStream, is(MappedInputStream.class));
+			assertThat(FileCopyUtils.copyToString(new InputStreamReader(inputStream)), is("bc"));
+		} finally {
+			MappedFileCache.getInstance().setThreshold(MappedFileCache.DEFAULT_THRESHOLD);
+		}
+	}
+
+	@Test
+	public void shouldReadFromPositionOfMappedLocalFile() throws Exception {
+		MappedFileCache.getInstance().setThreshold(4);
+		try {
+			File file = this.folder.getFile("a.txt");
+			ByteBuffer buffer = ByteBuffer.allocate(3);
+			assertThat(file.getContent().read(2, buffer), is(3));
+			assertThat(new String(buffer.array()), is("cde"));
+			buffer.clear();
+			assertThat(file.getContent().read(4, buffer), is(2));
+			assertThat(new String(buffer.array(), 0, buffer.position()), is("ef"));
+			buffer.clear();
+			assertThat(file.getContent().read(6, buffer), is(-1));
+		} finally {
+			MappedFileCache.getInstance().setThreshold(MappedFileCache.DEFAULT_THRESHOLD);
+		}
+	}
+
+	@Test
+	public void shouldRemapLocalFileWhenWritten() throws Exception {
+		MappedFileCache.getInstance().setThreshold(4);
+		try {
+			File file = this.folder.getFile("a.txt");
+			assertThat(file.getContent().asString(), is("abcdef"));
+			file.getContent().write("updated");
+			assertThat(file.getContent().asString(), is("updated"));
+		} finally {
+			MappedFileCache.getInstance().setThreshold(MappedFileCache.DEFAULT_THRESHOLD);
+		}
+	}
+
+	private java.io.File getLocalFile(String name) {
+		return new java.io.File(this.temp.getRoot(), name);
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.mongo;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.gridfs.GridFS;
+
+/**
+ * Tests for {@link GridFSRegistry}.
+ * 
+ * @author Phillip Webb
+ */
+public class GridFSRegistryTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private GridFSRegistry registry = new GridFSRegistry();
+
+	private DB db;
+
+	private DBCollection files;
+
+	@Before
+	public void setup() {
+		this.db = mock(DB.class);
+		this.files = mock(DBCollection.class);
+		given(this.db.getCollection(anyString())).willReturn(mock(DBCollection.class));
+		given(this.db.getCollection("fs.files")).willReturn(this.files);
+	}
+
+	@Test
+	public void shouldNeedDB() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("DB must not be null");
+		this.registry.get(null, GridFS.DEFAULT_BUCKET);
+	}
+
+	@Test
+	public void shouldNeedBucket() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("Bucket must not be null");
+		this.registry.get(this.db, null);
+	}
+
+	@Test
+	public void shouldShareHandles() throws Exception {
+		GridFS fs = this.registry.get(this.db, GridFS.DEFAULT_BUCKET);
+		assertThat(fs.getBucketName(), is(GridFS.DEFAULT_BUCKET));
+		assertThat(this.registry.get(this.db, GridFS.DEFAULT_BUCKET), is(sameInstance(fs)));
+		assertThat(this.registry.get(this.db, "other"), is(not(sameInstance(fs))));
+		assertThat(this.registry.size(), is(2));
+	}
+
+	@Test
+	public void shouldEnsureIndexesOnce() throws Exception {
+		this.registry.get(this.db, GridFS.DEFAULT_BUCKET);
+		this.registry.get(this.db, GridFS.DEFAULT_BUCKET);
+		DBObject background = new BasicDBObject("background", true);
+		verify(this.files, times(1)).ensureIndex(
+				new BasicDBObject("parent", 1).append("filename", 1).append("resourceType", 1), background);
+		verify(this.files, times(1)).ensureIndex(new BasicDBObject("filename", 1).append("resourceType", 1),
+				background);
+	}
+
+	@Test
+	public void shouldEnsureIndexesAgainAfterClear() throws Exception {
+		this.registry.get(this.db, GridFS.DEFAULT_BUCKET);
+		this.registry.clear();
+		assertThat(this.registry.size(), is(0));
+		this.registry.get(this.db, GridFS.DEFAULT_BUCKET);
+		verify(this.files, times(2)).ensureIndex(eq(new BasicDBObject("filename", 1).append("resourceType", 1)),
+				any(DBObject.class));
+	}
+
+	@Test
+	public void shouldNotHoldDatabase() throws Exception {
+		DB db = mock(DB.class);
+		given(db.getCollection(anyString())).willReturn(mock(DBCollection.class));
+		this.registry.get(db, GridFS.DEFAULT_BUCKET);
+		WeakReference<DB> reference = new WeakReference<DB>(db);
+		db = null;
+		// Reset mockito's record of the last invocation, which references the mock
+		this.db.getName();
+		long end = System.currentTimeMillis() + 10000;
+		while (reference.get() != null && System.currentTimeMillis() < end) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertThat(reference.get() == null, is(true));
+		assertThat(this.registry.size(), is(0));
+	}
+
+	@Test
+	public void shouldIgnoreIndexFailures() throws Exception {
+		willThrow(new MongoException("unauthorized")).given(this.files).ensureIndex(any(DBObject.class),
+				any(DBObject.class));
+		GridFS fs = this.registry.get(this.db, GridFS.DEFAULT_BUCKET);
+		assertThat(this.registry.get(this.db, GridFS.DEFAULT_BUCKET), is(sameInstance(fs)));
+	}
+}
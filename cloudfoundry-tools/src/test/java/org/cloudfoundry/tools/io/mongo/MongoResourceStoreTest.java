@@ -22,25 +22,35 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
+import org.cloudfoundry.tools.io.ContentDigest;
 import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.FilterOn;
 import org.cloudfoundry.tools.io.Folder;
 import org.cloudfoundry.tools.io.JailedResourcePath;
 import org.cloudfoundry.tools.io.Resource;
@@ -48,6 +58,7 @@ import org.cloudfoundry.tools.io.ResourcePath;
 import org.cloudfoundry.tools.io.exception.ResourceTypeMismatchException;
 import org.cloudfoundry.tools.io.mongo.MongoResourceStore.MongoFileStore;
 import org.cloudfoundry.tools.io.mongo.MongoResourceStore.MongoFolderStore;
+import org.cloudfoundry.tools.io.store.ResourceAttributes;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -56,8 +67,13 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.util.FileCopyUtils;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 import com.mongodb.gridfs.GridFS;
@@ -77,6 +93,12 @@ public class MongoResourceStoreTest {
 	@Mock
 	private GridFS fs;
 
+	@Mock
+	private DB db;
+
+	@Mock
+	private DBCollection filesCollection;
+
 	private MongoFolderStore store;
 
 	private Map<String, GridFSDBFile> files;
@@ -84,11 +106,26 @@ public class MongoResourceStoreTest {
 	@Captor
 	private ArgumentCaptor<DBObject> queryCaptor;
 
+	@Captor
+	private ArgumentCaptor<DBObject> fieldsCaptor;
+
 	@Before
 	public void setup() {
 		MockitoAnnotations.initMocks(this);
-		this.store = new MongoFolderStore(this.fs, new JailedResourcePath());
+		given(this.fs.getDB()).willReturn(this.db);
+		given(this.fs.getBucketName()).willReturn("fs");
+		given(this.db.getCollection("fs.files")).willReturn(this.filesCollection);
+		Answer<DBObject> findOne = new Answer<DBObject>() {
+
+			@Override
+			public DBObject answer(InvocationOnMock invocation) throws Throwable {
+				DBObject query = (DBObject) invocation.getArguments()[0];
+				return MongoResourceStoreTest.this.files.get(query.get("filename"));
+			}
+		};
+		given(this.filesCollection.findOne(any(DBObject.class), any(DBObject.class))).willAnswer(findOne);
 		createFileStructure();
+		this.store = new MongoFolderStore(this.fs, new JailedResourcePath());
 	}
 
 	private void createFileStructure() {
@@ -157,6 +194,20 @@ public class MongoResourceStoreTest {
 		assertThat(actual.toString(), is("/a/"));
 	}
 
+	@Test
+	public void shouldGetExistingRootFolder() throws Exception {
+		this.files.put("", newGridFSDBFile("", null, "FOLDER"));
+		Resource actual = this.store.getExisting(new JailedResourcePath());
+		assertThat(actual, is(Folder.class));
+		assertThat(actual.toString(), is("/"));
+	}
+
+	@Test
+	public void shouldCreateFileStoreWithoutAttributes() throws Exception {
+		MongoFileStore store = new MongoFileStore(this.fs, new JailedResourcePath().get("g.txt"), null);
+		assertThat(store.getPath().toString(), is("/g.txt"));
+	}
+
 	@Test
 	public void shouldGetFolder() throws Exception {
 		Folder folder = this.store.getFolder(new JailedResourcePath().get("x"));
@@ -192,6 +243,31 @@ public class MongoResourceStoreTest {
 		verify(gridFSDBFile).save();
 	}
 
+	@Test
+	public void shouldMoveByUpdatingMetadata() throws Exception {
+		GridFSDBFile gridFSDBFile = this.files.get("/g.txt");
+		MongoFileStore store = new MongoFileStore(this.fs, new JailedResourcePath().get("g.txt"));
+		MongoFileStore destination = new MongoFileStore(this.fs, new JailedResourcePath().get("a/b/g.txt"));
+		assertThat(store.moveTo(destination), is(true));
+		verify(this.fs).remove("/a/b/g.txt");
+		assertThat(gridFSDBFile.getFilename(), is("/a/b/g.txt"));
+		assertThat((String) gridFSDBFile.get("parent"), is("/a/b"));
+		verify(gridFSDBFile).save();
+		verify(this.fs, never()).createFile(any(String.class));
+	}
+
+	@Test
+	public void shouldNotMoveToDifferentBucket() throws Exception {
+		GridFS otherFs = mock(GridFS.class);
+		given(otherFs.getDB()).willReturn(this.db);
+		given(otherFs.getBucketName()).willReturn("other");
+		given(this.db.getCollection("other.files")).willReturn(mock(DBCollection.class));
+		MongoFileStore store = new MongoFileStore(this.fs, new JailedResourcePath().get("g.txt"));
+		MongoFileStore destination = new MongoFileStore(otherFs, new JailedResourcePath().get("g.txt"));
+		assertThat(store.moveTo(destination), is(false));
+		verify(this.files.get("/g.txt"), never()).save();
+	}
+
 	@Test
 	public void shouldExist() throws Exception {
 		MongoFileStore store = new MongoFileStore(this.fs, new JailedResourcePath().get("g.txt"));
@@ -234,6 +310,91 @@ public class MongoResourceStoreTest {
 		assertThat(actual, is("g"));
 	}
 
+	@Test
+	public void shouldGetInputStreamRange() throws Exception {
+		GridFSDBFile gridFSDBFile = this.files.get("/g.txt");
+		gridFSDBFile.put("_id", "gid");
+		gridFSDBFile.put("length", 10L);
+		gridFSDBFile.put("chunkSize", 4L);
+		DBCollection chunks = mock(DBCollection.class);
+		DBCursor cursor = mock(DBCursor.class);
+		given(this.db.getCollection("fs.chunks")).willReturn(chunks);
+		given(chunks.find(this.queryCaptor.capture())).willReturn(cursor);
+		given(cursor.sort(any(DBObject.class))).willReturn(cursor);
+		given(cursor.hasNext()).willReturn(true, true, false);
+		given(cursor.next()).willReturn(newChunk(1, "efgh"), newChunk(2, "ij"));
+		MongoFileStore store = new MongoFileStore(this.fs, new JailedResourcePath().get("g.txt"));
+		InputStream inputStream = store.getInputStream(5, 100);
+		String actual = FileCopyUtils.copyToString(new InputStreamReader(inputStream));
+		assertThat(actual, is("fghij"));
+		assertThat(this.queryCaptor.getValue().get("files_id"), is((Object) "gid"));
+		assertThat(this.queryCaptor.getValue().get("n").toString(), is("{ \"$gte\" : 1 , \"$lte\" : 2}"));
+		verify(cursor).close();
+	}
+
+	@Test
+	public void shouldFailInputStreamRangeWithMissingChunk() throws Exception {
+		GridFSDBFile gridFSDBFile = this.files.get("/g.txt");
+		gridFSDBFile.put("_id", "gid");
+		gridFSDBFile.put("length", 10L);
+		gridFSDBFile.put("chunkSize", 4L);
+		DBCollection chunks = mock(DBCollection.class);
+		DBCursor cursor = mock(DBCursor.class);
+		given(this.db.getCollection("fs.chunks")).willReturn(chunks);
+		given(chunks.find(any(DBObject.class))).willReturn(cursor);
+		given(cursor.sort(any(DBObject.class))).willReturn(cursor);
+		given(cursor.hasNext()).willReturn(true, true, false);
+		given(cursor.next()).willReturn(newChunk(0, "abcd"), newChunk(2, "ij"));
+		MongoFileStore store = new MongoFileStore(this.fs, new JailedResourcePath().get("g.txt"));
+		InputStream inputStream = store.getInputStream(0, 100);
+		this.thrown.expect(IOException.class);
+		this.thrown.expectMessage("Missing GridFS chunk 1");
+		FileCopyUtils.copyToByteArray(inputStream);
+	}
+
+	@Test
+	public void shouldGetEmptyInputStreamRangeBeyondLength() throws Exception {
+		GridFSDBFile gridFSDBFile = this.files.get("/g.txt");
+		gridFSDBFile.put("length", 10L);
+		MongoFileStore store = new MongoFileStore(this.fs, new JailedResourcePath().get("g.txt"));
+		assertThat(store.getInputStream(10, 1).read(), is(-1));
+		verify(this.db, never()).getCollection("fs.chunks");
+	}
+
+	@Test
+	public void shouldGetDigestFromMd5() throws Exception {
+		this.files.get("/g.txt").put("md5", "ABC123");
+		MongoFileStore store = new MongoFileStore(this.fs, new JailedResourcePath().get("g.txt"));
+		assertThat(store.getDigest(), is(new ContentDigest(ContentDigest.MD5, "abc123")));
+	}
+
+	@Test
+	public void shouldGetDigestFromListedAttributes() throws Exception {
+		ContentDigest digest = new ContentDigest(ContentDigest.MD5, "abc123");
+		ResourceAttributes attributes = new ResourceAttributes("g.txt", false, 1L, 2L, digest);
+		MongoFileStore store = new MongoFileStore(this.fs, new JailedResourcePath().get("g.txt"), attributes);
+		assertThat(store.getDigest(), is(digest));
+		verifyNoMetadataQuery("/g.txt");
+	}
+
+	private DBCursor mockListCursor() {
+		DBCursor cursor = mock(DBCursor.class);
+		given(this.filesCollection.find(this.queryCaptor.capture(), this.fieldsCaptor.capture())).willReturn(cursor);
+		given(cursor.sort(any(DBObject.class))).willReturn(cursor);
+		given(cursor.batchSize(anyInt())).willReturn(cursor);
+		return cursor;
+	}
+
+	private void verifyNoMetadataQuery(String filename) {
+		verify(this.fs, never()).findOne(filename);
+		verify(this.filesCollection, never()).findOne(eq(new BasicDBObject("filename", filename)),
+				any(DBObject.class));
+	}
+
+	private DBObject newChunk(int n, String data) {
+		return new BasicDBObject("n", n).append("data", data.getBytes());
+	}
+
 	@Test
 	public void shouldGetOutputStream() throws Exception {
 		GridFSInputFile gridFSInputFile = mock(GridFSInputFile.class);
@@ -253,7 +414,7 @@ public class MongoResourceStoreTest {
 	@Test
 	public void shouldGetSize() throws Exception {
 		GridFSDBFile gridFSDBFile = this.files.get("/g.txt");
-		given(gridFSDBFile.getLength()).willReturn(1L);
+		gridFSDBFile.put("length", 1L);
 		MongoFileStore store = new MongoFileStore(this.fs, new JailedResourcePath().get("g.txt"));
 		long actual = store.getSize();
 		assertThat(actual, is(1L));
@@ -263,7 +424,7 @@ public class MongoResourceStoreTest {
 	public void shouldGetLastModified() throws Exception {
 		Date date = new Date();
 		GridFSDBFile gridFSDBFile = this.files.get("/g.txt");
-		given(gridFSDBFile.getUploadDate()).willReturn(date);
+		gridFSDBFile.put("uploadDate", date);
 		MongoFileStore store = new MongoFileStore(this.fs, new JailedResourcePath().get("g.txt"));
 		long actual = store.getLastModified();
 		assertThat(actual, is(equalTo(date.getTime())));
@@ -294,8 +455,7 @@ public class MongoResourceStoreTest {
 
 	@Test
 	public void shouldList() throws Exception {
-		DBCursor cursor = mock(DBCursor.class);
-		given(this.fs.getFileList(this.queryCaptor.capture())).willReturn(cursor);
+		DBCursor cursor = mockListCursor();
 		List<DBObject> foundFiles = new ArrayList<DBObject>();
 		foundFiles.add(this.files.get("/a"));
 		foundFiles.add(this.files.get("/d"));
@@ -309,4 +469,115 @@ public class MongoResourceStoreTest {
 		assertThat((String) this.queryCaptor.getValue().get("parent"), is(""));
 		assertThat(actual, is(equalTo(expected)));
 	}
+
+	@Test
+	public void shouldListAttributes() throws Exception {
+		DBCursor cursor = mockListCursor();
+		GridFSDBFile file = this.files.get("/g.txt");
+		file.put("length", 123L);
+		file.put("uploadDate", new Date(456L));
+		file.put("md5", "abc");
+		List<DBObject> foundFiles = new ArrayList<DBObject>();
+		foundFiles.add(this.files.get("/a"));
+		foundFiles.add(file);
+		given(cursor.iterator()).willReturn(foundFiles.iterator());
+		Iterator<ResourceAttributes> iterator = this.store.listAttributes(null).iterator();
+		ResourceAttributes a = iterator.next();
+		ResourceAttributes g = iterator.next();
+		assertThat(iterator.hasNext(), is(false));
+		assertThat(a.getName(), is("a"));
+		assertThat(a.isFolder(), is(true));
+		assertThat(g.getName(), is("g.txt"));
+		assertThat(g.isFolder(), is(false));
+		assertThat(g.getSize(), is(123L));
+		assertThat(g.getLastModified(), is(456L));
+		assertThat(g.getDigest(), is(new ContentDigest(ContentDigest.MD5, "abc")));
+		assertThat(this.queryCaptor.getValue().containsField("filename"), is(false));
+	}
+
+	@Test
+	public void shouldListAttributesWithRestriction() throws Exception {
+		DBCursor cursor = mockListCursor();
+		given(cursor.iterator()).willReturn(Collections.<DBObject> emptyList().iterator());
+		this.store.getFolder(new JailedResourcePath().get("a")).list()
+				.include(FilterOn.names().ending(".txt")).asList();
+		DBObject query = this.queryCaptor.getValue();
+		Pattern pattern = (Pattern) query.get("filename");
+		assertThat((String) query.get("parent"), is("/a"));
+		assertThat(pattern.matcher("/a/b.txt").matches(), is(true));
+		assertThat(pattern.matcher("/a/b.txt2").matches(), is(false));
+		assertThat(pattern.matcher("/a/b/c.txt").matches(), is(false));
+	}
+
+	@Test
+	public void shouldGetExistingFromAttributes() throws Exception {
+		JailedResourcePath path = new JailedResourcePath().get("g.txt");
+		Resource resource = this.store.getExisting(path, new ResourceAttributes("g.txt", false, 123L, 456L, null));
+		assertThat(resource, is(File.class));
+		assertThat(((File) resource).getSize(), is(123L));
+		assertThat(((File) resource).getLastModified(), is(456L));
+		verifyNoMetadataQuery("/g.txt");
+	}
+
+	@Test
+	public void shouldListUsingProjectionAndBatchSize() throws Exception {
+		DBCursor cursor = mockListCursor();
+		given(cursor.iterator()).willReturn(Collections.<DBObject> emptyList().iterator());
+		this.store.list().iterator();
+		DBObject fields = this.fieldsCaptor.getValue();
+		assertThat(fields.keySet(), is(equalTo((Set<String>) new HashSet<String>(Arrays.asList("filename", "_id")))));
+		verify(cursor).sort(new BasicDBObject("filename", 1));
+		verify(cursor).batchSize(1000);
+		verify(this.fs, never()).getFileList(any(DBObject.class));
+	}
+
+	@Test
+	public void shouldListAttributesUsingProjection() throws Exception {
+		DBCursor cursor = mockListCursor();
+		given(cursor.iterator()).willReturn(Collections.<DBObject> emptyList().iterator());
+		this.store.listAttributes(null).iterator();
+		DBObject fields = this.fieldsCaptor.getValue();
+		assertThat(fields.containsField("length"), is(true));
+		assertThat(fields.containsField("uploadDate"), is(true));
+		assertThat(fields.containsField("md5"), is(true));
+		assertThat(fields.containsField("metadata"), is(false));
+	}
+
+	@Test
+	public void shouldGetExistingWithSingleTypeQuery() throws Exception {
+		ArgumentCaptor<DBObject> fields = ArgumentCaptor.forClass(DBObject.class);
+		Resource resource = this.store.getExisting(new JailedResourcePath().get("g.txt"));
+		assertThat(resource, is(File.class));
+		verify(this.filesCollection).findOne(eq(new BasicDBObject("filename", "/g.txt")), fields.capture());
+		assertThat(fields.getValue().keySet(), is(equalTo((Set<String>) new HashSet<String>(Arrays.asList(
+				"resourceType", "_id")))));
+	}
+
+	@Test
+	public void shouldGetAttributesWithSingleQuery() throws Exception {
+		Date date = new Date();
+		GridFSDBFile gridFSDBFile = this.files.get("/g.txt");
+		gridFSDBFile.put("length", 123L);
+		gridFSDBFile.put("uploadDate", date);
+		gridFSDBFile.put("md5", "abc");
+		MongoFile file = (MongoFile) this.store.getExisting(new JailedResourcePath().get("g.txt"));
+		ResourceAttributes attributes = file.getAttributes();
+		assertThat(attributes.getName(), is("g.txt"));
+		assertThat(attributes.getSize(), is(123L));
+		assertThat(attributes.getLastModified(), is(date.getTime()));
+		assertThat(attributes.getDigest(), is(new ContentDigest(ContentDigest.MD5, "abc")));
+		verify(this.filesCollection, times(2)).findOne(eq(new BasicDBObject("filename", "/g.txt")),
+				any(DBObject.class));
+		verify(this.fs, never()).findOne("/g.txt");
+	}
+
+	@Test
+	public void shouldNotUseListedAttributesOnceExpired() throws Exception {
+		this.files.get("/g.txt").put("length", 1L);
+		JailedResourcePath path = new JailedResourcePath().get("g.txt");
+		Resource resource = this.store.getExisting(path, new ResourceAttributes("g.txt", false, 123L, 456L, null));
+		assertThat(((File) resource).getSize(), is(123L));
+		Thread.sleep(ResourceAttributes.TIME_TO_LIVE + 100);
+		assertThat(((File) resource).getSize(), is(1L));
+	}
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+
+import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.Folder;
+import org.cloudfoundry.tools.io.local.LocalFolder;
+import org.cloudfoundry.tools.io.store.MockStoredFolder.MockStoredFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link CachingFolder}.
+ * 
+ * @author Phillip Webb
+ */
+public class CachingFolderTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private MockStoredFolder root;
+
+	private MockStoredFile mockFile;
+
+	private CachingFolder folder;
+
+	@Before
+	public void setup() {
+		this.root = new MockStoredFolder();
+		this.mockFile = this.root.getFile("a.txt", true);
+		given(this.mockFile.getStore().getSize()).willReturn(10L);
+		given(this.mockFile.getStore().getLastModified()).willReturn(20L);
+		given(this.mockFile.getStore().getOutputStream()).willReturn(new ByteArrayOutputStream());
+		this.folder = new CachingFolder(this.root);
+	}
+
+	@Test
+	public void shouldNeedStoredFolder() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("Folder must be a StoredFolder");
+		new CachingFolder(mock(Folder.class));
+	}
+
+	@Test
+	public void shouldCacheAttributes() throws Exception {
+		File file = this.folder.getFile("a.txt");
+		assertThat(file.exists(), is(true));
+		assertThat(file.exists(), is(true));
+		assertThat(file.getSize(), is(10L));
+		assertThat(file.getSize(), is(10L));
+		assertThat(file.getLastModified(), is(20L));
+		assertThat(this.folder.getFile("a.txt").getLastModified(), is(20L));
+		verify(this.mockFile.getStore(), times(1)).exists();
+		verify(this.mockFile.getStore(), times(1)).getSize();
+		verify(this.mockFile.getStore(), times(1)).getLastModified();
+	}
+
+	@Test
+	public void shouldInvalidateOnWrite() throws Exception {
+		File file = this.folder.getFile("a.txt");
+		file.getSize();
+		file.getContent().write("abc");
+		file.getSize();
+		verify(this.mockFile.getStore(), times(2)).getSize();
+	}
+
+	@Test
+	public void shouldInvalidateOnTouch() throws Exception {
+		File file = this.folder.getFile("a.txt");
+		file.getLastModified();
+		file.touch();
+		file.getLastModified();
+		verify(this.mockFile.getStore(), times(2)).getLastModified();
+	}
+
+	@Test
+	public void shouldInvalidateOnDelete() throws Exception {
+		File file = this.folder.getFile("a.txt");
+		assertThat(file.exists(), is(true));
+		file.delete();
+		given(this.mockFile.getStore().exists()).willReturn(false);
+		assertThat(file.exists(), is(false));
+	}
+
+	@Test
+	public void shouldInvalidateOnStoreTransfer() throws Exception {
+		CachingFolder folder = new CachingFolder(new LocalFolder(this.temporaryFolder.getRoot()));
+		File source = folder.getFile("a.txt");
+		source.getContent().write("a");
+		File destination = folder.getFile("b/a.txt");
+		assertThat(source.exists(), is(true));
+		assertThat(destination.exists(), is(false));
+		source.moveTo(folder.getFolder("b"));
+		assertThat(source.exists(), is(false));
+		assertThat(destination.exists(), is(true));
+		assertThat(destination.getContent().asString(), is("a"));
+	}
+
+	@Test
+	public void shouldUseSameCacheForNestedResources() throws Exception {
+		MockStoredFile nested = this.root.getFile("b/c.txt", true);
+		this.folder.getFolder("b").getFile("c.txt").exists();
+		this.folder.getFile("b/c.txt").exists();
+		verify(nested.getStore(), times(1)).exists();
+	}
+
+	@Test
+	public void shouldEqualWrappedResourcesOnly() throws Exception {
+		assertThat(this.folder.getFile("a.txt").equals(this.folder.getFile("a.txt")), is(true));
+		assertThat(this.folder.getFile("a.txt").equals(this.root.getFile("a.txt")), is(false));
+	}
+}
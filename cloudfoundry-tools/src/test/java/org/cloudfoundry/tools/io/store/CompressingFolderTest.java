@@ -0,0 +1,173 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Collections;
+
+import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.Folder;
+import org.cloudfoundry.tools.io.local.LocalFolder;
+import org.cloudfoundry.tools.io.virtual.VirtualFolder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link CompressingFolder}.
+ * 
+ * @author Phillip Webb
+ */
+public class CompressingFolderTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private LocalFolder root;
+
+	private CompressingFolder folder;
+
+	private String content;
+
+	@Before
+	public void setup() {
+		this.root = new LocalFolder(this.temporaryFolder.getRoot());
+		this.folder = new CompressingFolder(this.root);
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			content.append("public class Example" + (i % 10) + " {}\n");
+		}
+		this.content = content.toString();
+	}
+
+	@Test
+	public void shouldNeedStoredFolder() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("Folder must be a StoredFolder");
+		new CompressingFolder(mock(Folder.class));
+	}
+
+	@Test
+	public void shouldCompressAndDecompress() throws Exception {
+		this.folder.getFile("a/b.java").getContent().write(this.content);
+		File file = this.folder.getFile("a/b.java");
+		assertThat(file.getContent().asString(), is(this.content));
+		assertThat(file.getSize(), is((long) this.content.length()));
+		assertThat(this.root.getFile("a/b.java").getSize(), lessThan(this.content.length() / 10L));
+	}
+
+	@Test
+	public void shouldNotCompressExcludedExtensions() throws Exception {
+		this.folder.getFile("a/b.zip").getContent().write(this.content);
+		assertThat(this.root.getFile("a/b.zip").getContent().asString(), startsWith(this.content));
+		assertThat(this.root.getFile("a/b.zip").getSize(), is(this.content.length() + 16L));
+		assertThat(this.folder.getFile("a/b.zip").getContent().asString(), is(this.content));
+		assertThat(this.folder.getFile("a/b.zip").getSize(), is((long) this.content.length()));
+	}
+
+	@Test
+	public void shouldUseCustomExtensions() throws Exception {
+		CompressingFolder folder = new CompressingFolder(this.root, Collections.singleton("TXT"));
+		folder.getFile("a.txt").getContent().write(this.content);
+		folder.getFile("a.png").getContent().write(this.content);
+		assertThat(this.root.getFile("a.txt").getSize(), is(this.content.length() + 16L));
+		assertThat(this.root.getFile("a.png").getSize(), lessThan((long) this.content.length()));
+	}
+
+	@Test
+	public void shouldReadUncompressedContent() throws Exception {
+		this.root.getFile("a.txt").getContent().write("abc");
+		assertThat(this.folder.getFile("a.txt").getContent().asString(), is("abc"));
+		assertThat(this.folder.getFile("a.txt").getSize(), is(3L));
+	}
+
+	@Test
+	public void shouldNotInflateStoredContentEndingWithMarker() throws Exception {
+		byte[] marker = { 0, 0, 0, 0, 0, 0, 0, 3, 0, 'C', 'F', 'D', 'E', 'F', 'L', 1 };
+		byte[] content = new byte[20];
+		System.arraycopy(marker, 0, content, 4, marker.length);
+		this.folder.getFile("a.zip").getContent().write(new ByteArrayInputStream(content));
+		assertThat(this.folder.getFile("a.zip").getContent().asBytes(), is(content));
+		assertThat(this.folder.getFile("a.zip").getSize(), is(20L));
+		InputStream inputStream = this.folder.getFile("a.zip").getContent().asInputStream(18, 10);
+		assertThat(FileCopyUtils.copyToByteArray(inputStream), is(new byte[] { 'L', 1 }));
+	}
+
+	@Test
+	public void shouldReadUncompressedContentWithInvalidMarker() throws Exception {
+		byte[] content = { 0, 0, 0, 0, 0, 0, 0, 3, 0, 'C', 'F', 'D', 'E', 'F', 'L', 2 };
+		this.root.getFile("a.txt").getContent().write(new ByteArrayInputStream(content));
+		assertThat(this.folder.getFile("a.txt").getContent().asBytes(), is(content));
+		assertThat(this.folder.getFile("a.txt").getSize(), is(16L));
+	}
+
+	@Test
+	public void shouldReadCompressedEmptyContent() throws Exception {
+		this.folder.getFile("a.txt").getContent().write("");
+		assertThat(this.folder.getFile("a.txt").getContent().asString(), is(""));
+		assertThat(this.folder.getFile("a.txt").getSize(), is(0L));
+	}
+
+	@Test
+	public void shouldReadRange() throws Exception {
+		this.folder.getFile("a.txt").getContent().write(this.content);
+		InputStream inputStream = this.folder.getFile("a.txt").getContent().asInputStream(22, 5);
+		assertThat(new String(FileCopyUtils.copyToByteArray(inputStream)), is(this.content.substring(22, 27)));
+		this.folder.getFile("b.zip").getContent().write(this.content);
+		inputStream = this.folder.getFile("b.zip").getContent().asInputStream(22, 5);
+		assertThat(new String(FileCopyUtils.copyToByteArray(inputStream)), is(this.content.substring(22, 27)));
+	}
+
+	@Test
+	public void shouldFindWrappedResources() throws Exception {
+		this.folder.getFile("a/b.txt").getContent().write(this.content);
+		Folder a = (Folder) this.folder.getExisting("a");
+		assertThat(a instanceof CompressingFolder, is(true));
+		assertThat(a.getFile("b.txt").getContent().asString(), is(this.content));
+		assertThat(this.folder.find().asList().size(), is(2));
+	}
+
+	@Test
+	public void shouldRenameAndMove() throws Exception {
+		this.folder.getFile("a/b.txt").getContent().write(this.content);
+		File renamed = this.folder.getFile("a/b.txt").rename("c.txt");
+		assertThat(renamed.getContent().asString(), is(this.content));
+		File moved = renamed.moveTo(this.folder.getFolder("d"));
+		assertThat(moved.getContent().asString(), is(this.content));
+		assertThat(this.root.getFile("d/c.txt").getSize(), lessThan((long) this.content.length()));
+	}
+
+	@Test
+	public void shouldCopyToUncompressedFolder() throws Exception {
+		this.folder.getFile("a.txt").getContent().write(this.content);
+		VirtualFolder virtual = new VirtualFolder();
+		this.folder.getFile("a.txt").copyTo(virtual);
+		assertThat(virtual.getFile("a.txt").getContent().asString(), is(this.content));
+	}
+}
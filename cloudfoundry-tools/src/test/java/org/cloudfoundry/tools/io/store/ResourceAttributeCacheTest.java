@@ -0,0 +1,123 @@
+/*
+ * Copyright 2010-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cloudfoundry.tools.io.store;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.cloudfoundry.tools.io.ContentDigest;
+import org.cloudfoundry.tools.io.ResourcePath;
+import org.cloudfoundry.tools.io.store.ResourceAttributeCache.Entry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link ResourceAttributeCache}.
+ * 
+ * @author Phillip Webb
+ */
+public class ResourceAttributeCacheTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private long time;
+
+	private ResourceAttributeCache cache;
+
+	@Before
+	public void setup() {
+		this.cache = new MockResourceAttributeCache(100, 3);
+	}
+
+	@Test
+	public void shouldNeedPositiveMaxSize() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("MaxSize must be positive");
+		new ResourceAttributeCache(100, 0);
+	}
+
+	@Test
+	public void shouldReuseEntry() throws Exception {
+		Entry entry = this.cache.get(path("/a"));
+		entry.setSize(10);
+		assertThat(this.cache.get(path("/a")), is(sameInstance(entry)));
+		assertThat(this.cache.get(path("/a")).getSize(), is(10L));
+	}
+
+	@Test
+	public void shouldExpireEntries() throws Exception {
+		Entry entry = this.cache.get(path("/a"));
+		entry.setSize(10);
+		this.time = 101;
+		assertThat(this.cache.get(path("/a")), is(not(sameInstance(entry))));
+		assertThat(this.cache.get(path("/a")).getSize(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsed() throws Exception {
+		Entry a = this.cache.get(path("/a"));
+		this.cache.get(path("/b"));
+		this.cache.get(path("/c"));
+		this.cache.get(path("/a"));
+		this.cache.get(path("/d"));
+		assertThat(this.cache.size(), is(3));
+		assertThat(this.cache.get(path("/a")), is(sameInstance(a)));
+	}
+
+	@Test
+	public void shouldInvalidateAll() throws Exception {
+		this.cache = new ResourceAttributeCache();
+		this.cache.get(path("/a"));
+		this.cache.get(path("/a/b"));
+		this.cache.get(path("/a/b/c"));
+		this.cache.get(path("/ab"));
+		this.cache.invalidateAll(path("/a"));
+		assertThat(this.cache.size(), is(1));
+	}
+
+	@Test
+	public void shouldPutListedAttributes() throws Exception {
+		ContentDigest digest = new ContentDigest(ContentDigest.MD5, "abc");
+		this.cache.put(path("/a"), new ResourceAttributes("a", false, 10, 20, digest));
+		Entry entry = this.cache.get(path("/a"));
+		assertThat(entry.getExists(), is(true));
+		assertThat(entry.getSize(), is(10L));
+		assertThat(entry.getLastModified(), is(20L));
+		assertThat(entry.getDigest(), is(digest));
+	}
+
+	private ResourcePath path(String path) {
+		return new ResourcePath().get(path);
+	}
+
+	private class MockResourceAttributeCache extends ResourceAttributeCache {
+
+		public MockResourceAttributeCache(long timeToLive, int maxSize) {
+			super(timeToLive, maxSize);
+		}
+
+		@Override
+		protected long getCurrentTime() {
+			return ResourceAttributeCacheTest.this.time;
+		}
+	}
+}
@@ -19,17 +19,22 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 
 import org.cloudfoundry.tools.io.AbstractFileContent;
+import org.cloudfoundry.tools.io.ContentDigest;
 import org.cloudfoundry.tools.io.File;
 import org.cloudfoundry.tools.io.FileContent;
 import org.cloudfoundry.tools.io.Folder;
+import org.cloudfoundry.tools.io.JailedResourcePath;
 import org.cloudfoundry.tools.io.exception.ResourceDoesNotExistException;
 import org.junit.Before;
 import org.junit.Rule;
@@ -206,9 +211,116 @@ public class StoredFileTest {
 		this.file.rename("file/bak");
 	}
 
+	@Test
+	public void shouldMoveUsingTransferableStore() throws Exception {
+		TransferableStoredFile source = new TransferableStoredFile("a.txt");
+		TransferableStoredFile destination = new TransferableStoredFile("b/a.txt");
+		Folder folder = mock(Folder.class);
+		given(folder.getFile("a.txt")).willReturn(destination);
+		given(source.getStore().exists()).willReturn(true);
+		given(source.getStore().moveTo(destination.getStore())).willReturn(true);
+		assertThat(source.moveTo(folder), is((File) destination));
+		verify(destination.getParent()).createIfMissing();
+		verify(source.getStore(), never()).getInputStream();
+		verify(source.getStore(), never()).delete();
+	}
+
+	@Test
+	public void shouldMoveUsingStreamsIfStoreCannotTransfer() throws Exception {
+		TransferableStoredFile source = new TransferableStoredFile("a.txt");
+		TransferableStoredFile destination = new TransferableStoredFile("b/a.txt");
+		Folder folder = mock(Folder.class);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		given(folder.getFile("a.txt")).willReturn(destination);
+		given(source.getStore().exists()).willReturn(true);
+		given(source.getStore().getInputStream()).willReturn(new ByteArrayInputStream("a".getBytes()));
+		given(destination.getStore().getOutputStream()).willReturn(outputStream);
+		source.moveTo(folder);
+		verify(source.getStore()).moveTo(destination.getStore());
+		verify(source.getStore()).delete();
+		assertThat(new String(outputStream.toByteArray()), is("a"));
+	}
+
+	@Test
+	public void shouldCopyUsingTransferableStore() throws Exception {
+		TransferableStoredFile source = new TransferableStoredFile("a.txt");
+		TransferableStoredFile destination = new TransferableStoredFile("b/a.txt");
+		Folder folder = mock(Folder.class);
+		given(folder.getFile("a.txt")).willReturn(destination);
+		given(source.getStore().exists()).willReturn(true);
+		given(source.getStore().copyTo(destination.getStore())).willReturn(true);
+		source.copyTo(folder);
+		verify(destination.getStore(), never()).getOutputStream();
+		verify(source.getStore(), never()).delete();
+	}
+
+	@Test
+	public void shouldNotTransferToSelf() throws Exception {
+		TransferableStoredFile source = new TransferableStoredFile("a.txt");
+		Folder folder = mock(Folder.class);
+		given(folder.getFile("a.txt")).willReturn(source);
+		given(source.getStore().exists()).willReturn(true);
+		source.moveTo(folder);
+		verify(source.getStore(), never()).moveTo(any(FileStore.class));
+		verify(source.getStore(), never()).delete();
+	}
+
+	@Test
+	public void shouldCalculateDigestWhenStoreHasNone() throws Exception {
+		given(this.file.getStore().exists()).willReturn(true);
+		given(this.file.getStore().getInputStream()).willReturn(new ByteArrayInputStream("abc".getBytes()));
+		assertThat(this.file.getDigest(), is(ContentDigest.calculate(new ByteArrayInputStream("abc".getBytes()))));
+	}
+
+	@Test
+	public void shouldGetDigestFromDigestStore() throws Exception {
+		DigestStoredFile file = new DigestStoredFile();
+		ContentDigest digest = new ContentDigest(ContentDigest.MD5, "abc");
+		given(file.getStore().exists()).willReturn(true);
+		given(file.getStore().getDigest()).willReturn(digest);
+		assertThat(file.getDigest(), is(digest));
+		verify(file.getStore(), never()).getInputStream();
+	}
+
+	@Test
+	public void shouldNotGetDigestOfMissingFile() throws Exception {
+		this.thrown.expect(ResourceDoesNotExistException.class);
+		this.file.getDigest();
+	}
+
 	@Test
 	public void shouldHaveToString() throws Exception {
 		assertThat(this.file.toString(), is("/file.txt"));
 	}
 
+	private static class TransferableStoredFile extends StoredFile {
+
+		private final TransferableFileStore store = mock(TransferableFileStore.class);
+
+		private final Folder parent = mock(Folder.class);
+
+		public TransferableStoredFile(String path) {
+			given(this.store.getPath()).willReturn(new JailedResourcePath().get(path));
+			given(this.store.getFolder(any(JailedResourcePath.class))).willReturn(this.parent);
+		}
+
+		@Override
+		protected TransferableFileStore getStore() {
+			return this.store;
+		}
+	}
+
+	private static class DigestStoredFile extends StoredFile {
+
+		private final DigestFileStore store = mock(DigestFileStore.class);
+
+		public DigestStoredFile() {
+			given(this.store.getPath()).willReturn(new JailedResourcePath().get("a.txt"));
+		}
+
+		@Override
+		protected DigestFileStore getStore() {
+			return this.store;
+		}
+	}
 }
@@ -30,7 +30,9 @@ import java.util.Collections;
 import java.util.Iterator;
 
 import org.cloudfoundry.tools.io.File;
+import org.cloudfoundry.tools.io.FilterOn;
 import org.cloudfoundry.tools.io.Folder;
+import org.cloudfoundry.tools.io.JailedResourcePath;
 import org.cloudfoundry.tools.io.Resource;
 import org.cloudfoundry.tools.io.ResourceFilter;
 import org.cloudfoundry.tools.io.ResourceFilterContext;
@@ -266,6 +268,20 @@ public class StoredFolderTest {
 
 	}
 
+	@Test
+	public void shouldOnlyGetResourcesMatchingNameFilters() throws Exception {
+		this.folder.getFolder("a", true);
+		this.folder.getFile("b.txt", true);
+		given(this.folder.getStore().exists()).willReturn(true);
+		given(this.folder.getStore().list()).willReturn(Arrays.asList("a", "b.txt"));
+		Resources<File> resources = this.folder.list().files().include(FilterOn.names().ending(".txt"));
+		Iterator<File> iterator = resources.iterator();
+		Resource file = iterator.next();
+		assertThat(iterator.hasNext(), is(false));
+		assertThat(file.toString(), is("/b.txt"));
+		verify(this.folder.getStore(), never()).getExisting(new JailedResourcePath().get("a"));
+	}
+
 	@Test
 	public void shouldNeedListResourcesFilters() throws Exception {
 		this.thrown.expect(IllegalArgumentException.class);
@@ -18,18 +18,25 @@ package org.cloudfoundry.tools.io.virtual;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 
+import org.cloudfoundry.tools.io.ByteBufferPool;
+import org.cloudfoundry.tools.io.ContentDigest;
 import org.cloudfoundry.tools.io.File;
 import org.cloudfoundry.tools.io.Resource;
 import org.cloudfoundry.tools.io.local.LocalFolder;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.springframework.util.FileCopyUtils;
 
 /**
  * Tests for {@link VirtualFolder}.
@@ -84,6 +91,29 @@ public class VirtualFolderTest {
 		assertThat(names, is((Set<String>) new HashSet<String>(Arrays.asList("/a/", "/a/x/", "/a/x/c.txt"))));
 	}
 
+	@Test
+	public void shouldMoveFileByRelinking() throws Exception {
+		File file = this.folder.getFile("a/b.txt");
+		file.getContent().write("b");
+		long lastModified = file.getLastModified();
+		File moved = file.moveTo(this.folder.getFolder("c/d"));
+		assertThat(file.exists(), is(false));
+		assertThat(moved.toString(), is("/c/d/b.txt"));
+		assertThat(moved.getContent().asString(), is("b"));
+		assertThat(moved.getLastModified(), is(lastModified));
+		assertThat(this.folder.getFolder("a").list().asList().size(), is(0));
+	}
+
+	@Test
+	public void shouldCopyFileBetweenVirtualFolders() throws Exception {
+		VirtualFolder destination = new VirtualFolder();
+		File file = this.folder.getFile("a.txt");
+		file.getContent().write("a");
+		File copied = file.copyTo(destination);
+		file.getContent().write("b");
+		assertThat(copied.getContent().asString(), is("a"));
+	}
+
 	@Test
 	public void shouldNotStoreFileContents() throws Exception {
 		LocalFolder temp = new LocalFolder(this.temporaryFolder.getRoot());
@@ -145,4 +175,40 @@ public class VirtualFolderTest {
 		long t2 = file.getLastModified();
 		assertThat(t2, is(greaterThan(t1)));
 	}
+
+	@Test
+	public void shouldReadRange() throws Exception {
+		File file = this.folder.getFile("a.txt");
+		file.getContent().write("abcdef");
+		assertThat(FileCopyUtils.copyToString(new InputStreamReader(file.getContent().asInputStream(2, 3))),
+				is("cde"));
+		assertThat(FileCopyUtils.copyToString(new InputStreamReader(file.getContent().asInputStream(4, 100))),
+				is("ef"));
+		assertThat(FileCopyUtils.copyToString(new InputStreamReader(file.getContent().asInputStream(100, 1))),
+				is(""));
+	}
+
+	@Test
+	public void shouldGetDigest() throws Exception {
+		File file = this.folder.getFile("a.txt");
+		file.getContent().write("abc");
+		ContentDigest digest = file.getDigest();
+		assertThat(digest, is(ContentDigest.calculate(new ByteArrayInputStream("abc".getBytes()))));
+		assertThat(file.getDigest(), is(sameInstance(digest)));
+		File copy = file.copyTo(this.folder.getFolder("b"));
+		assertThat(copy.getDigest(), is(sameInstance(digest)));
+		file.getContent().write("xyz");
+		assertThat(file.getDigest(), is(not(digest)));
+	}
+
+	@Test
+	public void shouldWriteContentLargerThanBuffer() throws Exception {
+		byte[] bytes = new byte[ByteBufferPool.SHARED_BUFFER_SIZE * 2 + 1];
+		new Random().nextBytes(bytes);
+		File file = this.folder.getFile("a.bin");
+		file.getContent().write(new ByteArrayInputStream(bytes));
+		assertThat(file.getContent().asBytes(), is(bytes));
+		file.getContent().write("abc");
+		assertThat(file.getContent().asString(), is("abc"));
+	}
 }
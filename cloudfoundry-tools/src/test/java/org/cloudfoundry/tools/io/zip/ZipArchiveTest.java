@@ -32,15 +32,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.IOUtils;
+import org.cloudfoundry.tools.io.ContentDigest;
 import org.cloudfoundry.tools.io.File;
 import org.cloudfoundry.tools.io.FilterOn;
 import org.cloudfoundry.tools.io.Folder;
 import org.cloudfoundry.tools.io.Resource;
+import org.cloudfoundry.tools.io.ResourceTransfer;
 import org.cloudfoundry.tools.io.exception.ReadOnlyResourceException;
 import org.cloudfoundry.tools.io.local.LocalFolder;
 import org.cloudfoundry.tools.io.store.MockStoredFolder;
@@ -128,6 +131,13 @@ public class ZipArchiveTest {
 		assertThat(file.exists(), is(true));
 	}
 
+	@Test
+	public void shouldGetDigestFromEntryCrc() throws Exception {
+		CRC32 crc = new CRC32();
+		crc.update("c".getBytes());
+		assertThat(this.zip.getFile("/a/b/c.txt").getDigest(), is(ContentDigest.crc32(crc.getValue())));
+	}
+
 	@Test
 	public void shouldGetFolderThatIsInZip() throws Exception {
 		Folder folder = this.zip.getFolder("/d/e");
@@ -178,6 +188,21 @@ public class ZipArchiveTest {
 		assertTrue(list.contains("c.txt"));
 	}
 
+	@Test
+	public void shouldListMatchingExactNames() throws Exception {
+		List<String> list = asList(this.zip.getFolder("/d/f").list()
+				.include(FilterOn.caseSensitiveNames().matching("g.txt", "x.txt", "../f")));
+		assertThat(list.size(), is(1));
+		assertTrue(list.contains("g.txt"));
+	}
+
+	@Test
+	public void shouldListMatchingRestriction() throws Exception {
+		List<String> list = asList(this.zip.getFolder("/d").list().include(FilterOn.names().starting("f")));
+		assertThat(list.size(), is(1));
+		assertTrue(list.contains("f"));
+	}
+
 	@Test
 	public void shouldGetSize() throws Exception {
 		long actual = this.zip.getFile("/a/b/c.txt").getSize();
@@ -266,6 +291,15 @@ public class ZipArchiveTest {
 		assertThat(new String(outputStreamD.toByteArray()), is("cd"));
 	}
 
+	@Test
+	public void shouldUnzipWithTransfer() throws Exception {
+		Folder destination = new LocalFolder(this.temporaryFolder.newFolder("unzip"));
+		InputStream zipStream = createSampleZip();
+		ZipArchive.unpack(zipStream, destination, new ResourceTransfer(2));
+		assertThat(destination.getFile("a/b.txt").getContent().asString(), is("ab"));
+		assertThat(destination.getFile("c/d.txt").getContent().asString(), is("cd"));
+	}
+
 	@Test
 	public void shouldCreateZipFileWithPrefix() throws Exception {
 		Folder rootFolder = createSampleLayout();